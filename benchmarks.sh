@@ -0,0 +1,45 @@
+#! /bin/bash
+# Copyright 2018-2020 Twitter, Inc.
+# Licensed under the MoPub SDK License Agreement
+# http://www.mopub.com/legal/sdk-license-agreement/
+
+
+# Runs the JMH benchmarks of a base revision and of the current checkout on this machine, then
+# fails if a benchmark got slower than the base by more than the tolerance. Benchmark scores
+# depend on the machine, so the baseline is recorded here on every run instead of checked in.
+# Benchmarks that the base revision doesn't have are only logged.
+#
+# Run with: [mopub-android]$ chmod +x benchmarks.sh && ./benchmarks.sh [base revision] [gradle args]
+# The base revision defaults to origin/master. Extra arguments go to both Gradle runs, for
+# example -PbenchmarkTolerance=15 or -PbenchmarkInclude=ReflectionBenchmark.
+
+set -e
+
+base_revision="${1:-origin/master}"
+if [ $# -gt 0 ]; then
+    shift
+fi
+root_dir="$(pwd)"
+work_dir="$(mktemp -d)"
+base_dir="$work_dir/base"
+baseline_file="$work_dir/baseline.json"
+benchmarks_project=":mopub-sdk:mopub-sdk-benchmarks"
+
+cleanup() {
+    cd "$root_dir"
+    git worktree remove --force "$base_dir" > /dev/null 2>&1 || true
+    rm -rf "$work_dir"
+}
+trap cleanup EXIT
+
+# Record the baseline from the base revision
+git worktree add --detach "$base_dir" "$base_revision"
+cd "$base_dir"
+chmod +x gradlew
+./gradlew -Pbenchmarks "$benchmarks_project:jmh" "$@"
+cp mopub-sdk/mopub-sdk-benchmarks/build/reports/jmh/results.json "$baseline_file"
+
+# Compare the current checkout with it
+cd "$root_dir"
+./gradlew -Pbenchmarks "-PbenchmarkBaseline=$baseline_file" -PbenchmarkAllowMissing \
+        "$benchmarks_project:jmh" "$benchmarks_project:compareBenchmarks" "$@"
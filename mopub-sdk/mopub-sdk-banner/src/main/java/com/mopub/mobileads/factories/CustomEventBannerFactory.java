@@ -4,10 +4,9 @@
 
 package com.mopub.mobileads.factories;
 
+import com.mopub.common.util.ConstructorRegistry;
 import com.mopub.mobileads.CustomEventBanner;
 
-import java.lang.reflect.Constructor;
-
 public class CustomEventBannerFactory {
     private static CustomEventBannerFactory instance = new CustomEventBannerFactory();
 
@@ -21,10 +20,6 @@ public class CustomEventBannerFactory {
     }
 
     protected CustomEventBanner internalCreate(String className) throws Exception {
-        Class<? extends CustomEventBanner> bannerClass = Class.forName(className)
-                .asSubclass(CustomEventBanner.class);
-        Constructor<?> bannerConstructor = bannerClass.getDeclaredConstructor((Class[]) null);
-        bannerConstructor.setAccessible(true);
-        return (CustomEventBanner) bannerConstructor.newInstance();
+        return ConstructorRegistry.create(className, CustomEventBanner.class);
     }
 }
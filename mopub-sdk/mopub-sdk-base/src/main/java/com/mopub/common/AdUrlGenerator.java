@@ -203,24 +203,22 @@ public abstract class AdUrlGenerator extends BaseUrlGenerator {
             return;
         }
 
-        Location bestLocation = location;
-        Location locationFromLocationService = LocationService.getLastKnownLocation(mContext,
-                MoPub.getLocationPrecision(),
-                MoPub.getLocationAwareness());
-
-        if (locationFromLocationService != null) {
-            bestLocation = locationFromLocationService;
-        }
-
-        if (bestLocation != null) {
-            addParam(LAT_LONG_KEY, bestLocation.getLatitude() + "," + bestLocation.getLongitude());
-            addParam(LAT_LONG_ACCURACY_KEY, String.valueOf((int) bestLocation.getAccuracy()));
+        final LocationService.LocationSnapshot locationSnapshot =
+                LocationService.getLocationSnapshot(mContext,
+                        MoPub.getLocationPrecision(),
+                        MoPub.getLocationAwareness());
+
+        if (locationSnapshot != null) {
+            addParam(LAT_LONG_KEY, locationSnapshot.getLatLon());
+            addParam(LAT_LONG_ACCURACY_KEY, locationSnapshot.getAccuracy());
             addParam(LAT_LONG_FRESHNESS_KEY,
-                    String.valueOf(calculateLocationStalenessInMilliseconds(bestLocation)));
-
-            if (bestLocation == locationFromLocationService) {
-                addParam(LAT_LONG_FROM_SDK_KEY, "1");
-            }
+                    String.valueOf(locationSnapshot.getStalenessMillis()));
+            addParam(LAT_LONG_FROM_SDK_KEY, "1");
+        } else if (location != null) {
+            addParam(LAT_LONG_KEY, location.getLatitude() + "," + location.getLongitude());
+            addParam(LAT_LONG_ACCURACY_KEY, String.valueOf((int) location.getAccuracy()));
+            addParam(LAT_LONG_FRESHNESS_KEY,
+                    String.valueOf(calculateLocationStalenessInMilliseconds(location)));
         }
     }
 
@@ -6,18 +6,15 @@ package com.mopub.common;
 
 import android.content.Context;
 import android.os.AsyncTask;
+import android.os.SystemClock;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
-import android.text.TextUtils;
 
 import com.mopub.common.logging.MoPubLog;
 import com.mopub.common.util.AsyncTasks;
-import com.mopub.common.util.Reflection;
+import com.mopub.common.util.ConstructorRegistry;
 import com.mopub.mobileads.MoPubErrorCode;
 
-import org.json.JSONException;
-import org.json.JSONObject;
-
 import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -25,24 +22,48 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 import static com.mopub.common.logging.MoPubLog.SdkLogEvent.CUSTOM;
 import static com.mopub.common.logging.MoPubLog.SdkLogEvent.CUSTOM_WITH_THROWABLE;
-import static com.mopub.common.logging.MoPubLog.SdkLogEvent.ERROR;
 
 /**
- * Gets Advanced Bidders through an Async Task and stores it in memory for retrieval.
+ * Initializes adapter configurations in the background and stores them in memory for retrieval.
  */
 public class AdapterConfigurationManager implements AdapterConfigurationsInitializationListener {
 
-    private static final String TOKEN_KEY = "token";
+    /**
+     * How long SDK initialization waits for adapter configurations to initialize. Adapters that
+     * take longer are added once they finish.
+     */
+    @VisibleForTesting
+    static final long DEFAULT_INITIALIZATION_TIMEOUT_MILLIS = 3000;
+    private static final int MAX_INITIALIZATION_THREADS = 4;
+    private static final String INITIALIZATION_THREAD_NAME = "MoPubAdapterInitialization";
 
     @Nullable private volatile Map<String, AdapterConfiguration> mAdapterConfigurations;
+    @NonNull private final BiddingTokenCache mBiddingTokenCache = new BiddingTokenCache();
+    @NonNull private final Map<String, Long> mInitializationTimesMillis =
+            new ConcurrentHashMap<>();
     @Nullable private SdkInitializationListener mSdkInitializationListener;
+    private final long mInitializationTimeoutMillis;
 
     AdapterConfigurationManager(
             @Nullable final SdkInitializationListener sdkInitializationListener) {
+        this(sdkInitializationListener, DEFAULT_INITIALIZATION_TIMEOUT_MILLIS);
+    }
+
+    @VisibleForTesting
+    AdapterConfigurationManager(
+            @Nullable final SdkInitializationListener sdkInitializationListener,
+            final long initializationTimeoutMillis) {
         mSdkInitializationListener = sdkInitializationListener;
+        mInitializationTimeoutMillis = initializationTimeoutMillis;
     }
 
     public void initialize(@NonNull final Context context,
@@ -57,7 +78,8 @@ public class AdapterConfigurationManager implements AdapterConfigurationsInitial
         AsyncTasks.safeExecuteOnExecutor(
                 new AdapterConfigurationsInitializationAsyncTask(context.getApplicationContext(),
                         adapterConfigurationClasses, networkMediationConfigurations,
-                        moPubRequestOptions, this));
+                        moPubRequestOptions, this, mInitializationTimesMillis,
+                        mInitializationTimeoutMillis));
     }
 
     @Nullable
@@ -100,46 +122,19 @@ public class AdapterConfigurationManager implements AdapterConfigurationsInitial
         return abNames;
     }
 
+    /**
+     * Gets the advanced bidding tokens from the last snapshot. See {@link BiddingTokenCache}.
+     */
     @Nullable
     String getTokensAsJsonString(@NonNull final Context context) {
         Preconditions.checkNotNull(context);
 
-        final JSONObject tokens = getTokensAsJsonObject(context);
-        if (tokens == null) {
-            return null;
-        }
-        return tokens.toString();
+        return mBiddingTokenCache.getTokensJson(context);
     }
 
-    @Nullable
-    private JSONObject getTokensAsJsonObject(@NonNull final Context context) {
-        Preconditions.checkNotNull(context);
-
-        final Map<String, AdapterConfiguration>
-                adapterConfigurations = mAdapterConfigurations;
-        if (adapterConfigurations == null || adapterConfigurations.isEmpty()) {
-            return null;
-        }
-
-        JSONObject jsonObject = null;
-        for (final AdapterConfiguration adapterConfiguration : adapterConfigurations.values()) {
-            try {
-                final String token = adapterConfiguration.getBiddingToken(context);
-                if (TextUtils.isEmpty(token)) {
-                    continue;
-                }
-                final JSONObject bidderJsonObject = new JSONObject();
-                bidderJsonObject.put(TOKEN_KEY, token);
-                if (jsonObject == null) {
-                    jsonObject = new JSONObject();
-                }
-                jsonObject.put(adapterConfiguration.getMoPubNetworkName(), bidderJsonObject);
-            } catch (JSONException e) {
-                MoPubLog.log(ERROR, "JSON parsing failed for MoPub network name: " +
-                        adapterConfiguration.getMoPubNetworkName());
-            }
-        }
-        return jsonObject;
+    @NonNull
+    Map<String, BiddingTokenCache.TokenLatency> getBiddingTokenLatencies() {
+        return mBiddingTokenCache.getTokenLatencies();
     }
 
     @VisibleForTesting
@@ -154,12 +149,32 @@ public class AdapterConfigurationManager implements AdapterConfigurationsInitial
         return adapterConfigurations.get(clazz.getName());
     }
 
+    /**
+     * Gets how long each adapter configuration took to initialize, by class name. Adapter
+     * configurations that are still initializing are not included.
+     */
+    @NonNull
+    public Map<String, Long> getAdapterInitializationTimesMillis() {
+        return new HashMap<>(mInitializationTimesMillis);
+    }
+
     @Override
     public void onAdapterConfigurationsInitialized(@NonNull final
     Map<String, AdapterConfiguration> adapterConfigurations) {
         Preconditions.checkNotNull(adapterConfigurations);
 
-        mAdapterConfigurations = adapterConfigurations;
+        synchronized (this) {
+            // Adapters that finished late may have been added already.
+            final Map<String, AdapterConfiguration> mergedAdapterConfigurations =
+                    new HashMap<>(adapterConfigurations);
+            final Map<String, AdapterConfiguration> lateAdapterConfigurations =
+                    mAdapterConfigurations;
+            if (lateAdapterConfigurations != null) {
+                mergedAdapterConfigurations.putAll(lateAdapterConfigurations);
+            }
+            mAdapterConfigurations = mergedAdapterConfigurations;
+            mBiddingTokenCache.setAdapterConfigurations(mergedAdapterConfigurations.values());
+        }
 
         final SdkInitializationListener sdkInitializationListener = mSdkInitializationListener;
         if (sdkInitializationListener != null) {
@@ -168,6 +183,28 @@ public class AdapterConfigurationManager implements AdapterConfigurationsInitial
         }
     }
 
+    @Override
+    public synchronized void onAdapterConfigurationInitializedLate(
+            @NonNull final String adapterConfigurationClass,
+            @NonNull final AdapterConfiguration adapterConfiguration) {
+        Preconditions.checkNotNull(adapterConfigurationClass);
+        Preconditions.checkNotNull(adapterConfiguration);
+
+        MoPubLog.log(CUSTOM, adapterConfigurationClass +
+                " finished initializing after the SDK was initialized.");
+
+        // Copy so readers never see the map change.
+        final Map<String, AdapterConfiguration> adapterConfigurations = new HashMap<>();
+        final Map<String, AdapterConfiguration> existingAdapterConfigurations =
+                mAdapterConfigurations;
+        if (existingAdapterConfigurations != null) {
+            adapterConfigurations.putAll(existingAdapterConfigurations);
+        }
+        adapterConfigurations.put(adapterConfigurationClass, adapterConfiguration);
+        mAdapterConfigurations = adapterConfigurations;
+        mBiddingTokenCache.setAdapterConfigurations(adapterConfigurations.values());
+    }
+
     @Override
     public void onNetworkInitializationFinished(
             @NonNull final Class<? extends AdapterConfiguration> adapterConfigurationClass,
@@ -179,6 +216,12 @@ public class AdapterConfigurationManager implements AdapterConfigurationsInitial
                 moPubErrorCode);
     }
 
+    /**
+     * Initializes every adapter configuration in parallel on a bounded pool of threads. The
+     * adapters that finish within the timeout are reported together once they are all done or the
+     * timeout passes, whichever comes first. The others keep initializing and are reported one at
+     * a time as they finish.
+     */
     private static class AdapterConfigurationsInitializationAsyncTask extends AsyncTask<Void, Void, Map<String, AdapterConfiguration>> {
 
         @NonNull private final WeakReference<Context> weakContext;
@@ -187,78 +230,84 @@ public class AdapterConfigurationManager implements AdapterConfigurationsInitial
         @NonNull private final Map<String, Map<String, String>> moPubRequestOptions;
         @NonNull private final AdapterConfigurationsInitializationListener
                 adapterConfigurationsInitializationListener;
+        @NonNull private final Map<String, Long> initializationTimesMillis;
+        private final long timeoutMillis;
+
+        // Guards the adapters that finished in time, and whether the timeout has passed.
+        @NonNull private final Object lock = new Object();
+        @NonNull private final Map<String, AdapterConfiguration> initializedInTime = new HashMap<>();
+        private boolean timedOut;
 
         AdapterConfigurationsInitializationAsyncTask(
                 @NonNull final Context context,
                 @NonNull final Set<String> adapterConfigurationClasses,
                 @NonNull final Map<String, Map<String, String>> networkMediationConfigurations,
                 @NonNull final Map<String, Map<String, String>> moPubRequestOptions,
-                @NonNull final AdapterConfigurationsInitializationListener adapterConfigurationsInitializationListener) {
+                @NonNull final AdapterConfigurationsInitializationListener adapterConfigurationsInitializationListener,
+                @NonNull final Map<String, Long> initializationTimesMillis,
+                final long timeoutMillis) {
             Preconditions.checkNotNull(context);
             Preconditions.checkNotNull(adapterConfigurationClasses);
             Preconditions.checkNotNull(networkMediationConfigurations);
             Preconditions.checkNotNull(moPubRequestOptions);
             Preconditions.checkNotNull(adapterConfigurationsInitializationListener);
+            Preconditions.checkNotNull(initializationTimesMillis);
 
             this.weakContext = new WeakReference<>(context);
             this.adapterConfigurationClasses = adapterConfigurationClasses;
             this.networkMediationConfigurations = networkMediationConfigurations;
             this.moPubRequestOptions = moPubRequestOptions;
             this.adapterConfigurationsInitializationListener = adapterConfigurationsInitializationListener;
+            this.initializationTimesMillis = initializationTimesMillis;
+            this.timeoutMillis = timeoutMillis;
         }
 
         @Override
         protected Map<String, AdapterConfiguration> doInBackground(final Void... voids) {
-            final Map<String, AdapterConfiguration> adapterConfigurations = new HashMap<>();
-            for (final String adapterConfigurationClass : adapterConfigurationClasses) {
-                AdapterConfiguration adapterConfiguration;
-                try {
-                    adapterConfiguration = Reflection.instantiateClassWithEmptyConstructor(
-                            adapterConfigurationClass, AdapterConfiguration.class);
-                } catch (Exception e) {
-                    MoPubLog.log(CUSTOM_WITH_THROWABLE,
-                            "Unable to find class " + adapterConfigurationClass, e);
-                    continue;
-                }
-
-                final Context context = weakContext.get();
-                if (context == null) {
-                    MoPubLog.log(CUSTOM,
-                            "Context null. Unable to initialize adapter configuration " +
-                                    adapterConfigurationClass);
-                    continue;
-                }
+            if (adapterConfigurationClasses.isEmpty()) {
+                return new HashMap<>();
+            }
 
-                // Merge and overwrite configuration from the cache with newly passed in values.
-                final Map<String, String> networkMediationConfiguration =
-                        networkMediationConfigurations.get(adapterConfigurationClass);
-                // Making a new HashMap here because getCachedInitializationParameters may
-                // return an unmodifiable map.
-                final Map<String, String> mergedParameters = new HashMap<>(
-                        adapterConfiguration.getCachedInitializationParameters(context));;
-                if (networkMediationConfiguration != null) {
-                    mergedParameters.putAll(networkMediationConfiguration);
-                    adapterConfiguration.setCachedInitializationParameters(context,
-                            mergedParameters);
-                }
+            final CountDownLatch latch = new CountDownLatch(adapterConfigurationClasses.size());
+            final ExecutorService executor = Executors.newFixedThreadPool(
+                    Math.min(MAX_INITIALIZATION_THREADS, adapterConfigurationClasses.size()),
+                    new ThreadFactory() {
+                        @Override
+                        public Thread newThread(@NonNull final Runnable runnable) {
+                            return new Thread(runnable, INITIALIZATION_THREAD_NAME);
+                        }
+                    });
+            for (final String adapterConfigurationClass : adapterConfigurationClasses) {
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        final StartupTrace.Span span =
+                                StartupTrace.begin(adapterConfigurationClass);
+                        try {
+                            initializeAdapterConfiguration(adapterConfigurationClass);
+                        } finally {
+                            span.end();
+                            latch.countDown();
+                        }
+                    }
+                });
+            }
+            // Lets the threads finish once every adapter is done.
+            executor.shutdown();
 
-                final Map<String, String> moPubRequestOption =
-                        moPubRequestOptions.get(adapterConfigurationClass);
-                if (moPubRequestOption != null) {
-                    adapterConfiguration.setMoPubRequestOptions(moPubRequestOption);
+            try {
+                if (!latch.await(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                    MoPubLog.log(CUSTOM, "Not all adapter configurations initialized within " +
+                            timeoutMillis + "ms. The rest will be added as they finish.");
                 }
+            } catch (InterruptedException e) {
+                MoPubLog.log(CUSTOM, "Interrupted while initializing adapter configurations.");
+            }
 
-                MoPubLog.log(CUSTOM, String.format(Locale.US, "Initializing %s version %s " +
-                                "with network sdk version %s and with params %s",
-                        adapterConfigurationClass, adapterConfiguration.getAdapterVersion(),
-                        adapterConfiguration.getNetworkSdkVersion(), mergedParameters));
-
-                adapterConfiguration.initializeNetwork(context, mergedParameters,
-                        adapterConfigurationsInitializationListener);
-
-                adapterConfigurations.put(adapterConfigurationClass, adapterConfiguration);
+            synchronized (lock) {
+                timedOut = true;
+                return new HashMap<>(initializedInTime);
             }
-            return adapterConfigurations;
         }
 
         @Override
@@ -267,5 +316,75 @@ public class AdapterConfigurationManager implements AdapterConfigurationsInitial
             adapterConfigurationsInitializationListener.onAdapterConfigurationsInitialized(
                     adapterConfigurations);
         }
+
+        private void initializeAdapterConfiguration(
+                @NonNull final String adapterConfigurationClass) {
+            final long startMillis = SystemClock.elapsedRealtime();
+
+            AdapterConfiguration adapterConfiguration;
+            try {
+                adapterConfiguration = ConstructorRegistry.create(adapterConfigurationClass,
+                        AdapterConfiguration.class);
+            } catch (Exception e) {
+                MoPubLog.log(CUSTOM_WITH_THROWABLE,
+                        "Unable to find class " + adapterConfigurationClass, e);
+                return;
+            }
+
+            final Context context = weakContext.get();
+            if (context == null) {
+                MoPubLog.log(CUSTOM,
+                        "Context null. Unable to initialize adapter configuration " +
+                                adapterConfigurationClass);
+                return;
+            }
+
+            // Merge and overwrite configuration from the cache with newly passed in values.
+            final Map<String, String> networkMediationConfiguration =
+                    networkMediationConfigurations.get(adapterConfigurationClass);
+            // Making a new HashMap here because getCachedInitializationParameters may
+            // return an unmodifiable map.
+            final Map<String, String> mergedParameters = new HashMap<>(
+                    adapterConfiguration.getCachedInitializationParameters(context));
+            if (networkMediationConfiguration != null) {
+                mergedParameters.putAll(networkMediationConfiguration);
+                adapterConfiguration.setCachedInitializationParameters(context,
+                        mergedParameters);
+            }
+
+            final Map<String, String> moPubRequestOption =
+                    moPubRequestOptions.get(adapterConfigurationClass);
+            if (moPubRequestOption != null) {
+                adapterConfiguration.setMoPubRequestOptions(moPubRequestOption);
+            }
+
+            MoPubLog.log(CUSTOM, String.format(Locale.US, "Initializing %s version %s " +
+                            "with network sdk version %s and with params %s",
+                    adapterConfigurationClass, adapterConfiguration.getAdapterVersion(),
+                    adapterConfiguration.getNetworkSdkVersion(), mergedParameters));
+
+            try {
+                adapterConfiguration.initializeNetwork(context, mergedParameters,
+                        adapterConfigurationsInitializationListener);
+            } catch (Exception e) {
+                MoPubLog.log(CUSTOM_WITH_THROWABLE,
+                        "Unable to initialize adapter configuration " + adapterConfigurationClass,
+                        e);
+            }
+
+            final long initializationMillis = SystemClock.elapsedRealtime() - startMillis;
+            initializationTimesMillis.put(adapterConfigurationClass, initializationMillis);
+            MoPubLog.log(CUSTOM, String.format(Locale.US, "Initialized %s in %dms",
+                    adapterConfigurationClass, initializationMillis));
+
+            synchronized (lock) {
+                if (!timedOut) {
+                    initializedInTime.put(adapterConfigurationClass, adapterConfiguration);
+                    return;
+                }
+            }
+            adapterConfigurationsInitializationListener.onAdapterConfigurationInitializedLate(
+                    adapterConfigurationClass, adapterConfiguration);
+        }
     }
 }
@@ -11,4 +11,11 @@ import java.util.Map;
 interface AdapterConfigurationsInitializationListener extends OnNetworkInitializationFinishedListener{
     void onAdapterConfigurationsInitialized(
             @NonNull final Map<String, AdapterConfiguration> adapterConfigurations);
+
+    /**
+     * Called for an adapter configuration that finished initializing after {@link
+     * #onAdapterConfigurationsInitialized(Map)}, or after it is about to be called.
+     */
+    void onAdapterConfigurationInitializedLate(@NonNull final String adapterConfigurationClass,
+            @NonNull final AdapterConfiguration adapterConfiguration);
 }
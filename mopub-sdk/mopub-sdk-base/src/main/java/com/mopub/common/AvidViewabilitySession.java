@@ -36,6 +36,8 @@ class AvidViewabilitySession implements ExternalViewabilitySession {
 
     @Nullable private Object mAvidDisplayAdSession;
     @Nullable private Object mAvidVideoAdSession;
+    // Bound when the video session starts since every video event goes through it.
+    @Nullable private Reflection.Invoker mAvidVideoPlaybackListenerGetter;
 
     static boolean isEnabled() {
         return !sIsVendorDisabled && isViewabilityEnabledViaReflection();
@@ -126,6 +128,7 @@ class AvidViewabilitySession implements ExternalViewabilitySession {
 
         mAvidDisplayAdSession = null;
         mAvidVideoAdSession = null;
+        mAvidVideoPlaybackListenerGetter = null;
 
         return true;
     }
@@ -282,6 +285,16 @@ class AvidViewabilitySession implements ExternalViewabilitySession {
                     .addParam(Activity.class, activity)
                     .execute();
 
+            try {
+                mAvidVideoPlaybackListenerGetter = new Reflection.MethodBuilder(
+                        mAvidVideoAdSession, "getAvidVideoPlaybackListener").bind();
+            } catch (Exception e) {
+                // Video events look the method up each time instead.
+                MoPubLog.log(CUSTOM, "Unable to bind Avid video playback listener getter: "
+                        + e.getMessage());
+                mAvidVideoPlaybackListenerGetter = null;
+            }
+
             if (!TextUtils.isEmpty(videoViewabilityTrackers.get(AVID_KEY))) {
                 new Reflection.MethodBuilder(mAvidVideoAdSession, "injectJavaScriptResource")
                         .addParam(String.class, videoViewabilityTrackers.get(AVID_KEY))
@@ -425,9 +438,10 @@ class AvidViewabilitySession implements ExternalViewabilitySession {
         // Pre-reflection code:
         // mAvidVideoAdSession.getAvidVideoPlaybackListener().<videoEventMethodName>();
 
-        final Object playbackListener =
-                new Reflection.MethodBuilder(mAvidVideoAdSession, "getAvidVideoPlaybackListener")
-                .execute();
+        final Object playbackListener = mAvidVideoPlaybackListenerGetter != null
+                ? mAvidVideoPlaybackListenerGetter.invoke()
+                : new Reflection.MethodBuilder(mAvidVideoAdSession, "getAvidVideoPlaybackListener")
+                        .execute();
 
         Reflection.MethodBuilder methodBuilder =
                 new Reflection.MethodBuilder(playbackListener, videoEvent.getAvidMethodName());
@@ -5,7 +5,7 @@
 package com.mopub.common;
 
 import android.content.Context;
-import android.content.SharedPreferences;
+
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
@@ -23,8 +23,23 @@ import static com.mopub.common.logging.MoPubLog.SdkLogEvent.CUSTOM;
 
 public abstract class BaseAdapterConfiguration implements AdapterConfiguration {
 
+    /**
+     * The preference file the init settings were kept in before {@link SdkStateStore}.
+     */
     @VisibleForTesting
     static final String CUSTOM_EVENT_PREF_NAME = "mopubCustomEventSettings";
+    /**
+     * Init settings are kept in {@link SdkStateStore} under this prefix and the class name of the
+     * adapter configuration.
+     */
+    @VisibleForTesting
+    static final String INIT_SETTINGS_KEY_PREFIX = CUSTOM_EVENT_PREF_NAME + "/";
+
+    /**
+     * Bidding tokens are fetched for every ad request unless an adapter overrides
+     * {@link #getBiddingTokenTtlMillis()}.
+     */
+    public static final long DEFAULT_BIDDING_TOKEN_TTL_MILLIS = 0;
 
     @Nullable private Map<String, String> mMoPubRequestOptions;
 
@@ -37,9 +52,6 @@ public abstract class BaseAdapterConfiguration implements AdapterConfiguration {
             return;
         }
 
-        SharedPreferences sharedPreferences = SharedPreferencesHelper.getSharedPreferences(context,
-                CUSTOM_EVENT_PREF_NAME);
-
         final String serverExtrasJsonString = (new JSONObject(initializationParameters)).toString();
 
         final String adapterConfigurationClassName = getClass().getName();
@@ -48,24 +60,23 @@ public abstract class BaseAdapterConfiguration implements AdapterConfiguration {
                 "Updating init settings for custom event %s with params %s",
                 adapterConfigurationClassName, serverExtrasJsonString));
 
-        sharedPreferences
+        SdkStateStore.getInstance(context)
                 .edit()
-                .putString(adapterConfigurationClassName, serverExtrasJsonString)
+                .putString(INIT_SETTINGS_KEY_PREFIX + adapterConfigurationClassName,
+                        serverExtrasJsonString)
                 .apply();
     }
 
     @NonNull
     @Override
     public Map<String, String> getCachedInitializationParameters(@NonNull final Context context) {
-        final SharedPreferences sharedPreferences = SharedPreferencesHelper.getSharedPreferences(
-                context, CUSTOM_EVENT_PREF_NAME);
-        final Map<String, ?> networkInitSettings = sharedPreferences.getAll();
-        MoPubLog.log(CUSTOM, String.format(Locale.US, "fetched init settings for %s networks: %s",
-                networkInitSettings.size(), networkInitSettings.keySet()));
+        Preconditions.checkNotNull(context);
 
         final String adapterConfigurationClassName = getClass().getName();
-        final String networkInitParamsJsonString =
-                (String) networkInitSettings.get(adapterConfigurationClassName);
+        final String networkInitParamsJsonString = SdkStateStore.getInstance(context).getString(
+                INIT_SETTINGS_KEY_PREFIX + adapterConfigurationClassName, null);
+        MoPubLog.log(CUSTOM, String.format(Locale.US, "fetched init settings for %s: %s",
+                adapterConfigurationClassName, networkInitParamsJsonString));
 
         Map<String, String> networkInitParamsMap = new HashMap<>();
         try {
@@ -87,4 +98,17 @@ public abstract class BaseAdapterConfiguration implements AdapterConfiguration {
     public Map<String, String> getMoPubRequestOptions() {
         return mMoPubRequestOptions;
     }
+
+    /**
+     * Gets how long the token from {@link #getBiddingToken(Context)} can be reused in ad requests
+     * before it is fetched again. A token is never sent after this time runs out. Tokens with a
+     * time to live are usually refreshed off of the request thread, so networks whose tokens are
+     * slow to generate benefit from one. The default of 0 fetches a new token for every request,
+     * which single use and time bound tokens need.
+     *
+     * @return The time to live in milliseconds.
+     */
+    public long getBiddingTokenTtlMillis() {
+        return DEFAULT_BIDDING_TOKEN_TTL_MILLIS;
+    }
 }
@@ -0,0 +1,285 @@
+// Copyright 2018-2020 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.common;
+
+import android.content.Context;
+import android.os.AsyncTask;
+import android.os.SystemClock;
+import android.text.TextUtils;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.mopub.common.logging.MoPubLog;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.mopub.common.logging.MoPubLog.SdkLogEvent.CUSTOM;
+import static com.mopub.common.logging.MoPubLog.SdkLogEvent.CUSTOM_WITH_THROWABLE;
+import static com.mopub.common.logging.MoPubLog.SdkLogEvent.ERROR;
+
+/**
+ * Keeps the advanced bidding tokens of every adapter serialized and ready for ad requests.
+ *
+ * Adapters opt in to caching with {@link BaseAdapterConfiguration#getBiddingTokenTtlMillis()}.
+ * Their tokens are reused until that time to live runs out and are never sent after it. Once half
+ * of a TTL has passed, reading the tokens still returns the snapshot but starts a refresh in the
+ * background, so the token is usually replaced before it expires. Tokens without a TTL, tokens
+ * that expired anyway, and the first read after the adapters are set are fetched on the calling
+ * thread.
+ *
+ * The time each adapter takes to return a token is recorded and available from
+ * {@link #getTokenLatencies()}.
+ */
+class BiddingTokenCache {
+    private static final String TOKEN_KEY = "token";
+
+    /**
+     * How long adapters have taken to generate bidding tokens.
+     */
+    static class TokenLatency {
+        final int mFetchCount;
+        final long mLastMillis;
+        final long mMaxMillis;
+        final long mTotalMillis;
+
+        TokenLatency(final int fetchCount, final long lastMillis, final long maxMillis,
+                final long totalMillis) {
+            mFetchCount = fetchCount;
+            mLastMillis = lastMillis;
+            mMaxMillis = maxMillis;
+            mTotalMillis = totalMillis;
+        }
+
+        long getAverageMillis() {
+            return mFetchCount == 0 ? 0 : mTotalMillis / mFetchCount;
+        }
+
+        @NonNull
+        TokenLatency add(final long millis) {
+            return new TokenLatency(mFetchCount + 1, millis, Math.max(mMaxMillis, millis),
+                    mTotalMillis + millis);
+        }
+    }
+
+    private static class Entry {
+        @NonNull final AdapterConfiguration mAdapterConfiguration;
+        @Nullable String mToken;
+        boolean mFetched;
+        long mRefreshAfterMillis;
+        long mExpirationMillis;
+
+        Entry(@NonNull final AdapterConfiguration adapterConfiguration) {
+            mAdapterConfiguration = adapterConfiguration;
+        }
+    }
+
+    @NonNull private final Executor mExecutor;
+    @NonNull private final AtomicBoolean mRefreshScheduled = new AtomicBoolean();
+    // Only one refresh updates the entries at a time.
+    @NonNull private final Object mRefreshLock = new Object();
+    @NonNull private final Map<String, TokenLatency> mTokenLatencies = new HashMap<>();
+
+    // Replaced as a whole when the adapters change, so a refresh of old adapters can tell.
+    @NonNull private volatile List<Entry> mEntries = Collections.emptyList();
+    @Nullable private volatile String mSnapshot;
+    private volatile boolean mHasSnapshot;
+    private volatile long mNextRefreshMillis;
+    private volatile long mNextExpirationMillis;
+
+    BiddingTokenCache() {
+        this(AsyncTask.THREAD_POOL_EXECUTOR);
+    }
+
+    @VisibleForTesting
+    BiddingTokenCache(@NonNull final Executor executor) {
+        Preconditions.checkNotNull(executor);
+
+        mExecutor = executor;
+    }
+
+    /**
+     * Sets the adapters to get tokens from, dropping any tokens fetched so far.
+     */
+    void setAdapterConfigurations(
+            @NonNull final Collection<AdapterConfiguration> adapterConfigurations) {
+        Preconditions.checkNotNull(adapterConfigurations);
+
+        final List<Entry> entries = new ArrayList<>(adapterConfigurations.size());
+        for (final AdapterConfiguration adapterConfiguration : adapterConfigurations) {
+            entries.add(new Entry(adapterConfiguration));
+        }
+
+        synchronized (this) {
+            mEntries = entries;
+            mSnapshot = null;
+            mHasSnapshot = false;
+        }
+    }
+
+    /**
+     * Gets the tokens of every adapter that has one as a JSON string of the form
+     * {@code {"network name":{"token":"..."}}}.
+     *
+     * @return The tokens, or null if no adapter has a token.
+     */
+    @Nullable
+    String getTokensJson(@NonNull final Context context) {
+        Preconditions.checkNotNull(context);
+
+        final long nowMillis = SystemClock.elapsedRealtime();
+        if (!mHasSnapshot || nowMillis >= mNextExpirationMillis) {
+            refresh(context.getApplicationContext());
+            return mSnapshot;
+        }
+
+        if (nowMillis >= mNextRefreshMillis) {
+            scheduleRefresh(context.getApplicationContext());
+        }
+        return mSnapshot;
+    }
+
+    /**
+     * @return The token latencies by MoPub network name.
+     */
+    @NonNull
+    Map<String, TokenLatency> getTokenLatencies() {
+        synchronized (mTokenLatencies) {
+            return new HashMap<>(mTokenLatencies);
+        }
+    }
+
+    private void scheduleRefresh(@NonNull final Context context) {
+        if (!mRefreshScheduled.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            mExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        refresh(context);
+                    } finally {
+                        mRefreshScheduled.set(false);
+                    }
+                }
+            });
+        } catch (Exception e) {
+            MoPubLog.log(CUSTOM_WITH_THROWABLE, "Unable to refresh bidding tokens.", e);
+            mRefreshScheduled.set(false);
+        }
+    }
+
+    /**
+     * Fetches the tokens that are due for a refresh and serializes a new snapshot.
+     */
+    private void refresh(@NonNull final Context context) {
+        synchronized (mRefreshLock) {
+            final List<Entry> entries = mEntries;
+            if (entries.isEmpty()) {
+                publish(entries, null, Long.MAX_VALUE, Long.MAX_VALUE);
+                return;
+            }
+
+            long nextRefreshMillis = Long.MAX_VALUE;
+            long nextExpirationMillis = Long.MAX_VALUE;
+            JSONObject tokensJson = null;
+            for (final Entry entry : entries) {
+                if (!entry.mFetched
+                        || SystemClock.elapsedRealtime() >= entry.mRefreshAfterMillis) {
+                    fetchToken(context, entry);
+                }
+                nextRefreshMillis = Math.min(nextRefreshMillis, entry.mRefreshAfterMillis);
+                nextExpirationMillis = Math.min(nextExpirationMillis, entry.mExpirationMillis);
+
+                if (TextUtils.isEmpty(entry.mToken)) {
+                    continue;
+                }
+                final String networkName = entry.mAdapterConfiguration.getMoPubNetworkName();
+                try {
+                    final JSONObject bidderJsonObject = new JSONObject();
+                    bidderJsonObject.put(TOKEN_KEY, entry.mToken);
+                    if (tokensJson == null) {
+                        tokensJson = new JSONObject();
+                    }
+                    tokensJson.put(networkName, bidderJsonObject);
+                } catch (JSONException e) {
+                    MoPubLog.log(ERROR, "JSON parsing failed for MoPub network name: " +
+                            networkName);
+                }
+            }
+
+            publish(entries, tokensJson == null ? null : tokensJson.toString(),
+                    nextRefreshMillis, nextExpirationMillis);
+        }
+    }
+
+    private synchronized void publish(@NonNull final List<Entry> entries,
+            @Nullable final String snapshot, final long nextRefreshMillis,
+            final long nextExpirationMillis) {
+        if (entries != mEntries) {
+            // The adapters changed during the refresh.
+            return;
+        }
+
+        mSnapshot = snapshot;
+        mNextRefreshMillis = nextRefreshMillis;
+        mNextExpirationMillis = nextExpirationMillis;
+        mHasSnapshot = true;
+    }
+
+    private void fetchToken(@NonNull final Context context, @NonNull final Entry entry) {
+        final AdapterConfiguration adapterConfiguration = entry.mAdapterConfiguration;
+        final long startMillis = SystemClock.elapsedRealtime();
+        String token;
+        try {
+            token = adapterConfiguration.getBiddingToken(context);
+        } catch (Exception e) {
+            MoPubLog.log(CUSTOM_WITH_THROWABLE, "Unable to get bidding token from " +
+                    adapterConfiguration.getClass().getName(), e);
+            token = null;
+        }
+        final long endMillis = SystemClock.elapsedRealtime();
+
+        entry.mToken = token;
+        entry.mFetched = true;
+        // The TTL counts from when the adapter was called, since the token may have been made
+        // at any point during the call.
+        final long ttlMillis = getTokenTtlMillis(adapterConfiguration);
+        entry.mRefreshAfterMillis = startMillis + ttlMillis / 2;
+        entry.mExpirationMillis = startMillis + ttlMillis;
+
+        final String networkName = adapterConfiguration.getMoPubNetworkName();
+        final long latencyMillis = endMillis - startMillis;
+        synchronized (mTokenLatencies) {
+            final TokenLatency latency = mTokenLatencies.get(networkName);
+            mTokenLatencies.put(networkName, latency == null
+                    ? new TokenLatency(1, latencyMillis, latencyMillis, latencyMillis)
+                    : latency.add(latencyMillis));
+        }
+        MoPubLog.log(CUSTOM, "Fetched bidding token for " + networkName + " in " +
+                latencyMillis + "ms.");
+    }
+
+    private static long getTokenTtlMillis(
+            @NonNull final AdapterConfiguration adapterConfiguration) {
+        if (adapterConfiguration instanceof BaseAdapterConfiguration) {
+            return Math.max(0,
+                    ((BaseAdapterConfiguration) adapterConfiguration).getBiddingTokenTtlMillis());
+        }
+        return BaseAdapterConfiguration.DEFAULT_BIDDING_TOKEN_TTL_MILLIS;
+    }
+}
@@ -10,7 +10,8 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 import com.mopub.common.logging.MoPubLog;
-import com.mopub.common.util.DeviceUtils;
+import com.mopub.common.metrics.Counter;
+import com.mopub.common.metrics.Metrics;
 import com.mopub.common.util.Streams;
 import com.mopub.common.util.Utils;
 
@@ -36,7 +37,55 @@ public class CacheService {
     private static final int VALUE_COUNT = 1;
     private static final int DISK_CACHE_INDEX = 0;
 
+    private static final Counter HIT_COUNTER = Metrics.counter("cache_service.hit");
+    private static final Counter MISS_COUNTER = Metrics.counter("cache_service.miss");
+
     private static DiskLruCache sDiskLruCache;
+    @Nullable private static DiskBudget sDiskBudget;
+
+    // Sized by the shared DiskBudget instead of its own share of the disk.
+    private static final DiskBudget.Participant sBudgetParticipant =
+            new DiskBudget.Participant() {
+                @NonNull
+                @Override
+                public String getName() {
+                    return UNIQUE_CACHE_NAME;
+                }
+
+                @Override
+                public long getSizeBytes() {
+                    final DiskLruCache diskLruCache = sDiskLruCache;
+                    return diskLruCache == null ? 0 : diskLruCache.size();
+                }
+
+                @Override
+                public void setQuotaBytes(final long quotaBytes) {
+                    final DiskLruCache diskLruCache = sDiskLruCache;
+                    if (diskLruCache != null) {
+                        diskLruCache.setMaxSize(quotaBytes);
+                    }
+                }
+
+                @Override
+                public long getLeastRecentAccessTime() {
+                    final DiskLruCache diskLruCache = sDiskLruCache;
+                    return diskLruCache == null ? -1 : diskLruCache.getLeastRecentAccessTime();
+                }
+
+                @Override
+                public long evictLeastRecentlyUsed() {
+                    final DiskLruCache diskLruCache = sDiskLruCache;
+                    if (diskLruCache == null) {
+                        return 0;
+                    }
+                    try {
+                        return diskLruCache.evictLeastRecentlyUsed();
+                    } catch (Exception e) {
+                        MoPubLog.log(CUSTOM, "Unable to evict from DiskLruCache", e);
+                        return 0;
+                    }
+                }
+            };
 
     public static boolean initializeDiskCache(final Context context) {
         if (context == null) {
@@ -49,7 +98,8 @@ public class CacheService {
                 return false;
             }
 
-            final long diskCacheSizeBytes = DeviceUtils.diskCacheSizeBytes(cacheDirectory);
+            sDiskBudget = DiskBudget.getInstance(context);
+            final long diskCacheSizeBytes = sDiskBudget.register(sBudgetParticipant);
             try {
                 sDiskLruCache = open(
                         cacheDirectory,
@@ -121,6 +171,7 @@ public class CacheService {
         DiskLruCache.Snapshot snapshot = null;
         try {
             snapshot = sDiskLruCache.get(createValidDiskCacheKey(key));
+            recordLookup(snapshot != null);
             if (snapshot == null) {
                 return null;
             }
@@ -146,6 +197,24 @@ public class CacheService {
         return bytes;
     }
 
+    private static void recordLookup(final boolean hit) {
+        if (hit) {
+            HIT_COUNTER.increment();
+        } else {
+            MISS_COUNTER.increment();
+        }
+
+        final DiskBudget diskBudget = sDiskBudget;
+        if (diskBudget == null) {
+            return;
+        }
+        if (hit) {
+            diskBudget.recordHit(UNIQUE_CACHE_NAME);
+        } else {
+            diskBudget.recordMiss(UNIQUE_CACHE_NAME);
+        }
+    }
+
     public static void getFromDiskCacheAsync(final String key, final DiskLruCacheGetListener diskLruCacheGetListener) {
         new DiskLruCacheGetTask(key, diskLruCacheGetListener).execute();
     }
@@ -0,0 +1,384 @@
+// Copyright 2018-2020 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.common;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.mopub.common.logging.MoPubLog;
+import com.mopub.common.util.DeviceUtils;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import static com.mopub.common.logging.MoPubLog.SdkLogEvent.CUSTOM;
+
+/**
+ * Shares one disk budget between the SDK's disk caches instead of letting each of them claim its
+ * own share of the disk.
+ *
+ * Caches that can be resized and can evict their least recently used entry register as a
+ * {@link Participant} and are given a quota. Every participant is guaranteed
+ * {@link #MIN_SHARE} of the budget, and the rest is split by hit rate, so a cache that is used
+ * more gets more room. Caches report hits and misses, and quotas are worked out again every
+ * {@link #REBALANCE_LOOKUP_COUNT} lookups. Caches that can't be resized reserve a fixed amount
+ * instead.
+ *
+ * When the budget shrinks, entries are evicted across all participants, least recently used
+ * first, until the total fits. Quota changes and evictions run on a background thread, never
+ * while a cache holds its own lock.
+ */
+public class DiskBudget {
+    /**
+     * A disk cache whose size is managed by the budget.
+     */
+    public interface Participant {
+        @NonNull
+        String getName();
+
+        long getSizeBytes();
+
+        /**
+         * Sets how much of the disk the cache may use. The cache trims itself if it is over.
+         */
+        void setQuotaBytes(long quotaBytes);
+
+        /**
+         * @return When the least recently used entry was last read or written, in milliseconds
+         * since the epoch, or -1 if there is nothing to evict.
+         */
+        long getLeastRecentAccessTime();
+
+        /**
+         * Evicts the least recently used entry.
+         *
+         * @return The number of bytes freed.
+         */
+        long evictLeastRecentlyUsed();
+    }
+
+    /**
+     * The share of the participants' budget that each of them is guaranteed.
+     */
+    @VisibleForTesting
+    static final double MIN_SHARE = 0.1;
+    @VisibleForTesting
+    static final int REBALANCE_LOOKUP_COUNT = 100;
+    /**
+     * A fixed reservation can take at most this fraction of the budget.
+     */
+    private static final int MAX_RESERVATION_DIVISOR = 4;
+    private static final long FALLBACK_MAX_BYTES = 3 * Constants.TEN_MB;
+
+    @Nullable private static volatile DiskBudget sInstance;
+
+    private static class Registration {
+        @NonNull final Participant mParticipant;
+        long mQuotaBytes;
+        long mHitCount;
+        long mMissCount;
+
+        Registration(@NonNull final Participant participant) {
+            mParticipant = participant;
+        }
+
+        double getHitRate() {
+            // Smoothed, so a cache that hasn't been used yet gets an average share.
+            return (mHitCount + 1.0) / (mHitCount + mMissCount + 2.0);
+        }
+    }
+
+    @NonNull private final Executor mExecutor;
+    @NonNull private final Map<String, Registration> mRegistrations = new LinkedHashMap<>();
+    @NonNull private final Map<String, Long> mReservations = new LinkedHashMap<>();
+    private long mMaxBytes;
+    private long mLookupCount;
+    private long mEvictionCount;
+
+    /**
+     * Creates the budget the first time it is needed. The budget starts at the same share of the
+     * disk that each cache used to claim on its own.
+     */
+    @NonNull
+    public static DiskBudget getInstance(@NonNull final Context context) {
+        Preconditions.checkNotNull(context);
+
+        DiskBudget instance = sInstance;
+        if (instance == null) {
+            synchronized (DiskBudget.class) {
+                instance = sInstance;
+                if (instance == null) {
+                    final File cacheDir = context.getApplicationContext().getCacheDir();
+                    final long maxBytes = cacheDir == null
+                            ? FALLBACK_MAX_BYTES
+                            : DeviceUtils.diskCacheSizeBytes(cacheDir);
+                    instance = new DiskBudget(maxBytes, Executors.newSingleThreadExecutor(
+                            new ThreadFactory() {
+                                @Override
+                                public Thread newThread(@NonNull final Runnable runnable) {
+                                    final Thread thread = new Thread(runnable, "MoPubDiskBudget");
+                                    thread.setDaemon(true);
+                                    return thread;
+                                }
+                            }));
+                    sInstance = instance;
+                }
+            }
+        }
+        return instance;
+    }
+
+    @VisibleForTesting
+    DiskBudget(final long maxBytes, @NonNull final Executor executor) {
+        Preconditions.checkArgument(maxBytes >= 0);
+        Preconditions.checkNotNull(executor);
+
+        mMaxBytes = maxBytes;
+        mExecutor = executor;
+    }
+
+    /**
+     * Adds a cache to the budget. The quotas of the other participants shrink to make room.
+     *
+     * @return The quota of the new participant, to open it with.
+     */
+    public long register(@NonNull final Participant participant) {
+        Preconditions.checkNotNull(participant);
+
+        final long quotaBytes;
+        synchronized (this) {
+            mRegistrations.put(participant.getName(), new Registration(participant));
+            rebalance();
+            quotaBytes = mRegistrations.get(participant.getName()).mQuotaBytes;
+        }
+        applyQuotasInBackground();
+        return quotaBytes;
+    }
+
+    /**
+     * Sets aside a fixed amount for a cache that can't be resized or evicted from.
+     *
+     * @return The amount granted, which may be less than asked for.
+     */
+    public long reserve(@NonNull final String name, final long bytes) {
+        Preconditions.checkNotNull(name);
+        Preconditions.checkArgument(bytes >= 0);
+
+        final long granted;
+        synchronized (this) {
+            granted = Math.min(bytes, mMaxBytes / MAX_RESERVATION_DIVISOR);
+            mReservations.put(name, granted);
+            rebalance();
+        }
+        applyQuotasInBackground();
+        return granted;
+    }
+
+    public void recordHit(@NonNull final String name) {
+        recordLookup(name, true);
+    }
+
+    public void recordMiss(@NonNull final String name) {
+        recordLookup(name, false);
+    }
+
+    /**
+     * Caps the disk used by all MoPub caches. If they use more than this, the least recently used
+     * entries across all of them are evicted until they fit. Fixed reservations aren't shrunk.
+     */
+    public void setMaxBytes(final long maxBytes) {
+        Preconditions.checkArgument(maxBytes >= 0);
+
+        synchronized (this) {
+            mMaxBytes = maxBytes;
+            rebalance();
+        }
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                trim();
+                applyQuotas();
+            }
+        });
+    }
+
+    public synchronized long getMaxBytes() {
+        return mMaxBytes;
+    }
+
+    /**
+     * @return The disk used by the participants plus the fixed reservations.
+     */
+    public long getTotalUsageBytes() {
+        long usage;
+        final List<Participant> participants;
+        synchronized (this) {
+            usage = getReservedBytes();
+            participants = getParticipants();
+        }
+        for (final Participant participant : participants) {
+            usage += participant.getSizeBytes();
+        }
+        return usage;
+    }
+
+    /**
+     * @return The quota of a participant or the size of a reservation, or 0 if there is neither.
+     */
+    public synchronized long getQuotaBytes(@NonNull final String name) {
+        final Registration registration = mRegistrations.get(name);
+        if (registration != null) {
+            return registration.mQuotaBytes;
+        }
+        final Long reservation = mReservations.get(name);
+        return reservation == null ? 0 : reservation;
+    }
+
+    /**
+     * @return How many entries the budget has evicted across caches.
+     */
+    public synchronized long getEvictionCount() {
+        return mEvictionCount;
+    }
+
+    @VisibleForTesting
+    static void setInstanceForTesting(@Nullable final DiskBudget diskBudget) {
+        sInstance = diskBudget;
+    }
+
+    private void recordLookup(@NonNull final String name, final boolean hit) {
+        Preconditions.checkNotNull(name);
+
+        synchronized (this) {
+            final Registration registration = mRegistrations.get(name);
+            if (registration == null) {
+                return;
+            }
+            if (hit) {
+                registration.mHitCount++;
+            } else {
+                registration.mMissCount++;
+            }
+            mLookupCount++;
+            if (mLookupCount % REBALANCE_LOOKUP_COUNT != 0) {
+                return;
+            }
+            rebalance();
+            // Older lookups count for less, so quotas follow how the caches are used now.
+            for (final Registration each : mRegistrations.values()) {
+                each.mHitCount /= 2;
+                each.mMissCount /= 2;
+            }
+        }
+        applyQuotasInBackground();
+    }
+
+    /**
+     * Works out the quotas. Must hold the lock.
+     */
+    private void rebalance() {
+        final int count = mRegistrations.size();
+        if (count == 0) {
+            return;
+        }
+
+        final long pool = Math.max(0, mMaxBytes - getReservedBytes());
+        final double minShare = Math.min(MIN_SHARE, 1.0 / count);
+        final long minBytes = (long) (pool * minShare);
+        final long sharedBytes = pool - minBytes * count;
+
+        double totalHitRate = 0;
+        for (final Registration registration : mRegistrations.values()) {
+            totalHitRate += registration.getHitRate();
+        }
+        for (final Registration registration : mRegistrations.values()) {
+            registration.mQuotaBytes = minBytes
+                    + (long) (sharedBytes * registration.getHitRate() / totalHitRate);
+        }
+    }
+
+    private void applyQuotasInBackground() {
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                applyQuotas();
+            }
+        });
+    }
+
+    private void applyQuotas() {
+        final Map<Participant, Long> quotas = new LinkedHashMap<>();
+        synchronized (this) {
+            for (final Registration registration : mRegistrations.values()) {
+                quotas.put(registration.mParticipant, registration.mQuotaBytes);
+            }
+        }
+        for (final Map.Entry<Participant, Long> quota : quotas.entrySet()) {
+            quota.getKey().setQuotaBytes(quota.getValue());
+        }
+    }
+
+    /**
+     * Evicts the least recently used entry of all participants until the total fits.
+     */
+    private void trim() {
+        final long maxBytes = getMaxBytes();
+        final List<Participant> participants;
+        synchronized (this) {
+            participants = getParticipants();
+        }
+
+        long usage = getTotalUsageBytes();
+        while (usage > maxBytes) {
+            Participant oldest = null;
+            long oldestAccessTime = Long.MAX_VALUE;
+            for (final Participant participant : participants) {
+                final long accessTime = participant.getLeastRecentAccessTime();
+                if (accessTime >= 0 && accessTime < oldestAccessTime) {
+                    oldest = participant;
+                    oldestAccessTime = accessTime;
+                }
+            }
+            if (oldest == null) {
+                break;
+            }
+
+            final long freedBytes = oldest.evictLeastRecentlyUsed();
+            if (freedBytes <= 0) {
+                break;
+            }
+            usage -= freedBytes;
+            synchronized (this) {
+                mEvictionCount++;
+            }
+        }
+        MoPubLog.log(CUSTOM, "MoPub disk caches use " + usage + " of " + maxBytes + " bytes.");
+    }
+
+    private long getReservedBytes() {
+        long reservedBytes = 0;
+        for (final long bytes : mReservations.values()) {
+            reservedBytes += bytes;
+        }
+        return reservedBytes;
+    }
+
+    @NonNull
+    private List<Participant> getParticipants() {
+        final List<Participant> participants = new ArrayList<>();
+        for (final Registration registration : mRegistrations.values()) {
+            participants.add(registration.mParticipant);
+        }
+        return participants;
+    }
+}
@@ -435,6 +435,7 @@ public final class DiskLruCache implements Closeable {
       return null;
     }
 
+    entry.accessTimeMillis = System.currentTimeMillis();
     redundantOpCount++;
     journalWriter.append(READ + ' ' + key + '\n');
     if (journalRebuildRequired()) {
@@ -550,6 +551,7 @@ public final class DiskLruCache implements Closeable {
       journalWriter.write(CLEAN + ' ' + entry.key + entry.getLengths() + '\n');
       if (success) {
         entry.sequenceNumber = nextSequenceNumber++;
+        entry.accessTimeMillis = System.currentTimeMillis();
       }
     } else {
       lruEntries.remove(entry.key);
@@ -606,6 +608,52 @@ public final class DiskLruCache implements Closeable {
     return true;
   }
 
+  /**
+   * Returns when the least recently used entry was last read or written, in
+   * milliseconds since the epoch, or -1 if no entry can be evicted. Entries
+   * that haven't been used since the cache was opened use the time their
+   * first file was last modified.
+   */
+  public synchronized long getLeastRecentAccessTime() {
+    final Entry entry = getLeastRecentlyUsedEntry();
+    if (entry == null) {
+      return -1;
+    }
+    if (entry.accessTimeMillis == 0) {
+      entry.accessTimeMillis = entry.getCleanFile(0).lastModified();
+    }
+    return entry.accessTimeMillis;
+  }
+
+  /**
+   * Drops the least recently used entry that isn't being edited.
+   *
+   * @return the number of bytes freed, or 0 if the cache is closed.
+   */
+  public synchronized long evictLeastRecentlyUsed() throws IOException {
+    if (isClosed()) {
+      return 0;
+    }
+    final Entry entry = getLeastRecentlyUsedEntry();
+    if (entry == null) {
+      return 0;
+    }
+    long length = 0;
+    for (long each : entry.lengths) {
+      length += each;
+    }
+    return remove(entry.key) ? length : 0;
+  }
+
+  private Entry getLeastRecentlyUsedEntry() {
+    for (Entry entry : lruEntries.values()) {
+      if (entry.readable && entry.currentEditor == null) {
+        return entry;
+      }
+    }
+    return null;
+  }
+
   /** Returns true if this cache has been closed. */
   public synchronized boolean isClosed() {
     return journalWriter == null;
@@ -889,6 +937,9 @@ public final class DiskLruCache implements Closeable {
     /** The sequence number of the most recently committed edit to this entry. */
     private long sequenceNumber;
 
+    /** When this entry was last read or written, or 0 if not since the cache was opened. */
+    private long accessTimeMillis;
+
     private Entry(String key) {
       this.key = key;
       this.lengths = new long[valueCount];
@@ -7,6 +7,7 @@ package com.mopub.common;
 import android.content.Context;
 import android.location.Location;
 import android.location.LocationManager;
+import android.os.AsyncTask;
 import android.os.SystemClock;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
@@ -15,10 +16,13 @@ import com.mopub.common.logging.MoPubLog;
 import com.mopub.common.util.DeviceUtils;
 
 import java.math.BigDecimal;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static android.Manifest.permission.ACCESS_COARSE_LOCATION;
 import static android.Manifest.permission.ACCESS_FINE_LOCATION;
 import static com.mopub.common.logging.MoPubLog.SdkLogEvent.CUSTOM;
+import static com.mopub.common.logging.MoPubLog.SdkLogEvent.CUSTOM_WITH_THROWABLE;
 
 public class LocationService {
     public enum LocationAwareness {
@@ -55,6 +59,11 @@ public class LocationService {
 
     private static final int DEFAULT_LOCATION_PRECISION = 6;
     private static final long DEFAULT_LOCATION_REFRESH_TIME_MILLIS = 10 * 60 * 1000; // 10 minutes
+    private static final double[] POWERS_OF_TEN =
+            {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9};
+    // Ties below this many units of the last kept digit have at most 15 significant digits, so
+    // their doubles print back as the same decimal. See truncateCoordinate.
+    private static final double MAX_SCALED_COORDINATE = 1e14;
 
     private static volatile LocationService sInstance;
     @VisibleForTesting
@@ -64,6 +73,11 @@ public class LocationService {
     @NonNull private volatile MoPub.LocationAwareness mLocationAwareness = MoPub.LocationAwareness.NORMAL;
     private volatile int mLocationPrecision = DEFAULT_LOCATION_PRECISION;
     private volatile long mMinimumLocationRefreshTimeMillis = DEFAULT_LOCATION_REFRESH_TIME_MILLIS;
+    @VisibleForTesting
+    @Nullable
+    volatile LocationSnapshot mLocationSnapshot;
+    @VisibleForTesting @NonNull Executor mExecutor = AsyncTask.THREAD_POOL_EXECUTOR;
+    @NonNull private final AtomicBoolean mRefreshScheduled = new AtomicBoolean();
 
     private LocationService() {
     }
@@ -112,6 +126,70 @@ public class LocationService {
         }
     }
 
+    /**
+     * A location with its ad request parameters already formatted, so ad requests can add it
+     * without touching the location providers.
+     */
+    static final class LocationSnapshot {
+        @NonNull private final String mLatLon;
+        @NonNull private final String mAccuracy;
+        private final long mTimeMillis;
+        @NonNull private final MoPub.LocationAwareness mLocationAwareness;
+        private final int mLocationPrecision;
+        private final long mCreatedMillis;
+
+        @VisibleForTesting
+        LocationSnapshot(@NonNull final Location location, final int locationPrecision,
+                @NonNull final MoPub.LocationAwareness locationAwareness,
+                final long createdMillis) {
+            Preconditions.checkNotNull(location);
+            Preconditions.checkNotNull(locationAwareness);
+
+            double latitude = location.getLatitude();
+            double longitude = location.getLongitude();
+            if (locationAwareness == MoPub.LocationAwareness.TRUNCATED) {
+                latitude = truncateCoordinate(latitude, locationPrecision);
+                longitude = truncateCoordinate(longitude, locationPrecision);
+            }
+            mLatLon = latitude + "," + longitude;
+            mAccuracy = String.valueOf((int) location.getAccuracy());
+            mTimeMillis = location.getTime();
+            mLocationAwareness = locationAwareness;
+            mLocationPrecision = locationPrecision;
+            mCreatedMillis = createdMillis;
+        }
+
+        /**
+         * @return The latitude and longitude, e.g. "47.638,-122.321".
+         */
+        @NonNull
+        String getLatLon() {
+            return mLatLon;
+        }
+
+        /**
+         * @return The accuracy in whole meters.
+         */
+        @NonNull
+        String getAccuracy() {
+            return mAccuracy;
+        }
+
+        /**
+         * @return The milliseconds since the device got this location.
+         */
+        int getStalenessMillis() {
+            return (int) (System.currentTimeMillis() - mTimeMillis);
+        }
+
+        private boolean matches(final int locationPrecision,
+                @NonNull final MoPub.LocationAwareness locationAwareness) {
+            return mLocationAwareness == locationAwareness
+                    && (locationAwareness != MoPub.LocationAwareness.TRUNCATED
+                    || mLocationPrecision == locationPrecision);
+        }
+    }
+
     @NonNull
     MoPub.LocationAwareness getLocationAwareness() {
         return mLocationAwareness;
@@ -196,6 +274,91 @@ public class LocationService {
         return locationService.mLastKnownLocation;
     }
 
+    /**
+     * Returns a snapshot of the last known location of the device for ad requests. The location
+     * providers are only checked on the calling thread the first time. After that, a snapshot
+     * older than {@link MoPub#getMinimumLocationRefreshTimeMillis()} is still returned while a
+     * new one is made in the background.
+     * <p>
+     * May be {@code null} for the same reasons as {@link #getLastKnownLocation}.
+     */
+    @Nullable
+    static LocationSnapshot getLocationSnapshot(@NonNull final Context context,
+            final int locationPrecision,
+            @NonNull final MoPub.LocationAwareness locationAwareness) {
+        if (!MoPub.canCollectPersonalInformation()) {
+            return null;
+        }
+
+        Preconditions.checkNotNull(context);
+        Preconditions.checkNotNull(locationAwareness);
+
+        if (locationAwareness == MoPub.LocationAwareness.DISABLED) {
+            return null;
+        }
+
+        final LocationService locationService = getInstance();
+        final LocationSnapshot snapshot = locationService.mLocationSnapshot;
+        if (snapshot == null || !snapshot.matches(locationPrecision, locationAwareness)) {
+            return locationService.refreshLocationSnapshot(context, locationPrecision,
+                    locationAwareness);
+        }
+
+        if (SystemClock.elapsedRealtime() - snapshot.mCreatedMillis >
+                MoPub.getMinimumLocationRefreshTimeMillis()) {
+            locationService.scheduleLocationSnapshotRefresh(context.getApplicationContext(),
+                    locationPrecision, locationAwareness);
+        }
+        return snapshot;
+    }
+
+    private void scheduleLocationSnapshotRefresh(@NonNull final Context context,
+            final int locationPrecision,
+            @NonNull final MoPub.LocationAwareness locationAwareness) {
+        if (!mRefreshScheduled.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            mExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        refreshLocationSnapshot(context, locationPrecision, locationAwareness);
+                    } finally {
+                        mRefreshScheduled.set(false);
+                    }
+                }
+            });
+        } catch (Exception e) {
+            MoPubLog.log(CUSTOM_WITH_THROWABLE, "Unable to refresh location.", e);
+            mRefreshScheduled.set(false);
+        }
+    }
+
+    /**
+     * Reads the location providers and replaces the snapshot if they have a location.
+     *
+     * @return The current snapshot, which is the previous one if no provider has a location.
+     */
+    @Nullable
+    private LocationSnapshot refreshLocationSnapshot(@NonNull final Context context,
+            final int locationPrecision,
+            @NonNull final MoPub.LocationAwareness locationAwareness) {
+        Location location = getLocationFromProvider(context, ValidLocationProvider.GPS);
+        if (location == null) {
+            location = getLocationFromProvider(context, ValidLocationProvider.NETWORK);
+        }
+        if (location == null) {
+            return mLocationSnapshot;
+        }
+
+        final LocationSnapshot snapshot = new LocationSnapshot(location, locationPrecision,
+                locationAwareness, SystemClock.elapsedRealtime());
+        mLocationSnapshot = snapshot;
+        return snapshot;
+    }
+
     @VisibleForTesting
     @Nullable
     static Location getLocationFromProvider(@NonNull final Context context,
@@ -252,17 +415,42 @@ public class LocationService {
             return;
         }
 
-        double lat = location.getLatitude();
-        double truncatedLat = BigDecimal.valueOf(lat)
-                .setScale(precision, BigDecimal.ROUND_HALF_DOWN)
-                .doubleValue();
-        location.setLatitude(truncatedLat);
+        location.setLatitude(truncateCoordinate(location.getLatitude(), precision));
+        location.setLongitude(truncateCoordinate(location.getLongitude(), precision));
+    }
 
-        double lon = location.getLongitude();
-        double truncatedLon = BigDecimal.valueOf(lon)
-                .setScale(precision, BigDecimal.ROUND_HALF_DOWN)
-                .doubleValue();
-        location.setLongitude(truncatedLon);
+    /**
+     * Rounds a coordinate to {@code precision} decimal places, half down. The result is the same
+     * as {@code BigDecimal.valueOf(value).setScale(precision, BigDecimal.ROUND_HALF_DOWN)
+     * .doubleValue()}, without allocating for the precisions the SDK uses.
+     */
+    @VisibleForTesting
+    static double truncateCoordinate(final double value, final int precision) {
+        if (precision < 0 || Double.isNaN(value) || Double.isInfinite(value)) {
+            return value;
+        }
+
+        final double magnitude = Math.abs(value);
+        if (precision >= POWERS_OF_TEN.length
+                || magnitude * POWERS_OF_TEN[precision] >= MAX_SCALED_COORDINATE) {
+            return BigDecimal.valueOf(value)
+                    .setScale(precision, BigDecimal.ROUND_HALF_DOWN)
+                    .doubleValue();
+        }
+
+        // BigDecimal.valueOf rounds the shortest decimal that prints as the value. The double
+        // nearest to the halfway point (floor + 0.5) / 10^precision prints as exactly that
+        // halfway point, which rounds down, and every other double is strictly on one side of
+        // it. The division is exact to the nearest double, like BigDecimal#doubleValue.
+        final double powerOfTen = POWERS_OF_TEN[precision];
+        final double floor = Math.floor(magnitude * powerOfTen);
+        final double halfway = (floor + 0.5) / powerOfTen;
+        final double rounded = magnitude > halfway ? floor + 1 : floor;
+        if (rounded == 0) {
+            // BigDecimal has no negative zero.
+            return 0.0;
+        }
+        return Math.copySign(rounded / powerOfTen, value);
     }
 
     private static boolean isLocationFreshEnough() {
@@ -277,6 +465,8 @@ public class LocationService {
     @Deprecated
     @VisibleForTesting
     public static void clearLastKnownLocation() {
-        getInstance().mLastKnownLocation = null;
+        final LocationService locationService = getInstance();
+        locationService.mLastKnownLocation = null;
+        locationService.mLocationSnapshot = null;
     }
 }
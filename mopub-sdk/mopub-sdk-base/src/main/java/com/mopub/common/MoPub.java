@@ -7,6 +7,7 @@ package com.mopub.common;
 import android.app.Activity;
 import android.content.Context;
 import android.content.pm.ApplicationInfo;
+import android.os.AsyncTask;
 import android.os.Handler;
 import android.os.Looper;
 import android.text.TextUtils;
@@ -16,12 +17,18 @@ import androidx.annotation.Nullable;
 
 import com.mopub.common.logging.MoPubLog;
 import com.mopub.common.privacy.PersonalInfoManager;
+import com.mopub.common.util.AsyncTasks;
+import com.mopub.common.util.ConstructorRegistry;
 import com.mopub.common.util.Reflection;
+import com.mopub.mobileads.AdTypeTranslator;
+import com.mopub.network.DurableOutbox;
 import com.mopub.network.Networking;
+import com.mopub.network.RequestRateTracker;
 
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.List;
+import java.util.Map;
 
 import static com.mopub.common.ExternalViewabilitySessionManager.ViewabilityVendor;
 import static com.mopub.common.logging.MoPubLog.SdkLogEvent.CUSTOM;
@@ -209,27 +216,55 @@ public class MoPub {
         }
 
         sSdkInitializing = true;
+        for (final Map.Entry<String, RequestRateTracker.RequestRateLimit> entry :
+                sdkConfiguration.getRequestRateLimits().entrySet()) {
+            RequestRateTracker.getInstance().setRequestRateLimit(entry.getKey(), entry.getValue());
+        }
 
-        // Guarantees initialization of the request queue on the main thread.
-        Networking.getRequestQueue(context);
+        final StartupTrace.Span initializeSpan = StartupTrace.begin("initializeSdk");
+        final StartupTrace.Span mainThreadSpan = StartupTrace.begin("initializeSdk main thread");
+
+        // Starts reading the SDK state in the background so it is ready by the time
+        // PersonalInfoManager needs it.
+        SdkStateStore.getInstance(context);
+
+        // WebViews can only be created on the main thread, so get the user agent here and leave
+        // the request queue's disk cache and socket factory to a background thread.
+        StartupTrace.Span span = StartupTrace.begin("userAgent");
+        Networking.getUserAgent(context.getApplicationContext());
+        span.end();
+        AsyncTasks.safeExecuteOnExecutor(
+                new RequestQueueInitializationAsyncTask(context.getApplicationContext()));
+        // Sends server callbacks that didn't make it before the app was last killed.
+        DurableOutbox.getInstance(context).replayInBackground(context);
+        // Resolves MoPub's own custom events so the first ad load doesn't look them up.
+        ConstructorRegistry.preloadInBackground(AdTypeTranslator.CustomEventType.getClassNames());
 
         final InternalSdkInitializationListener internalSdkInitializationListener =
-                new InternalSdkInitializationListener(sdkInitializationListener);
+                new InternalSdkInitializationListener(sdkInitializationListener, initializeSpan);
 
         final SdkInitializationListener compositeSdkInitializationListener =
                 new CompositeSdkInitializationListener(internalSdkInitializationListener, 2);
 
+        span = StartupTrace.begin("PersonalInfoManager");
         sPersonalInfoManager = new PersonalInfoManager(context, sdkConfiguration.getAdUnitId(),
                 compositeSdkInitializationListener);
         sPersonalInfoManager.setAllowLegitimateInterest(sdkConfiguration.getLegitimateInterestAllowed());
+        span.end();
 
+        span = StartupTrace.begin("ClientMetadata");
         ClientMetadata.getInstance(context);
+        span.end();
 
+        span = StartupTrace.begin("AdapterConfigurationManager");
         sAdapterConfigurationManager = new AdapterConfigurationManager(compositeSdkInitializationListener);
         sAdapterConfigurationManager.initialize(context,
                 sdkConfiguration.getAdapterConfigurationClasses(),
                 sdkConfiguration.getMediatedNetworkConfigurations(),
                 sdkConfiguration.getMoPubRequestOptions());
+        span.end();
+
+        mainThreadSpan.end();
     }
 
     /**
@@ -389,13 +424,18 @@ public class MoPub {
     private static class InternalSdkInitializationListener implements SdkInitializationListener {
         @Nullable
         private SdkInitializationListener mSdkInitializationListener;
+        @NonNull
+        private final StartupTrace.Span mInitializeSpan;
 
-        InternalSdkInitializationListener(@Nullable SdkInitializationListener sdkInitializationListener) {
+        InternalSdkInitializationListener(@Nullable SdkInitializationListener sdkInitializationListener,
+                @NonNull final StartupTrace.Span initializeSpan) {
             mSdkInitializationListener = sdkInitializationListener;
+            mInitializeSpan = initializeSpan;
         }
 
         @Override
         public void onInitializationFinished() {
+            mInitializeSpan.end();
             final AdapterConfigurationManager adapterConfigurationManager = sAdapterConfigurationManager;
             if (adapterConfigurationManager != null) {
                 MoPubLog.log(INIT_FINISHED, adapterConfigurationManager.getAdapterConfigurationInfo());
@@ -405,6 +445,26 @@ public class MoPub {
         }
     }
 
+    /**
+     * Sets up the request queue off the main thread. Ad requests made before it finishes set it
+     * up themselves.
+     */
+    private static class RequestQueueInitializationAsyncTask extends AsyncTask<Void, Void, Void> {
+        @NonNull private final Context mContext;
+
+        RequestQueueInitializationAsyncTask(@NonNull final Context context) {
+            mContext = context;
+        }
+
+        @Override
+        protected Void doInBackground(final Void... voids) {
+            final StartupTrace.Span span = StartupTrace.begin("RequestQueue");
+            Networking.getRequestQueue(mContext);
+            span.end();
+            return null;
+        }
+    }
+
     @VisibleForTesting
     static void updateActivity(@NonNull Activity activity) {
         if (!sSearchedForUpdateActivityMethod) {
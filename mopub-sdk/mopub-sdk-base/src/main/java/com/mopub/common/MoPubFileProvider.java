@@ -0,0 +1,35 @@
+// Copyright 2018-2020 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.common;
+
+import android.content.Context;
+import android.net.Uri;
+
+import androidx.annotation.NonNull;
+import androidx.core.content.FileProvider;
+
+import java.io.File;
+
+/**
+ * Shares files the SDK writes with other apps, such as the screenshot of an ad alert email. The
+ * SDK's manifest declares it, so it is merged into every app. It is a subclass so that it
+ * doesn't clash with a FileProvider the app declares itself.
+ */
+public class MoPubFileProvider extends FileProvider {
+    private static final String AUTHORITY_SUFFIX = ".mopub.fileprovider";
+
+    /**
+     * @return A content URI for a file in one of the paths of {@code res/xml/mopub_file_paths}.
+     * @throws IllegalArgumentException If the file isn't in one of those paths or the provider
+     * isn't in the app's manifest.
+     */
+    @NonNull
+    public static Uri getUriForFile(@NonNull final Context context, @NonNull final File file) {
+        Preconditions.checkNotNull(context);
+        Preconditions.checkNotNull(file);
+
+        return getUriForFile(context, context.getPackageName() + AUTHORITY_SUFFIX, file);
+    }
+}
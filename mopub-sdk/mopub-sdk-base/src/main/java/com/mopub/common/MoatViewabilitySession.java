@@ -56,6 +56,8 @@ class MoatViewabilitySession implements ExternalViewabilitySession {
 
     @Nullable private Object mMoatWebAdTracker;
     @Nullable private Object mMoatVideoTracker;
+    // Bound when the video session starts since every video event goes through it.
+    @Nullable private Reflection.Invoker mMoatDispatchEventInvoker;
     @NonNull private Map<String, String> mAdIds = new HashMap<String, String>();
     private boolean mWasVideoPrepared;
 
@@ -151,6 +153,7 @@ class MoatViewabilitySession implements ExternalViewabilitySession {
 
         mMoatWebAdTracker = null;
         mMoatVideoTracker = null;
+        mMoatDispatchEventInvoker = null;
         mAdIds.clear();
 
         return true;
@@ -285,6 +288,17 @@ class MoatViewabilitySession implements ExternalViewabilitySession {
                     .addParam(MOAT_PLUGIN_PATH, moatPlugin)
                     .execute();
 
+            try {
+                mMoatDispatchEventInvoker = new Reflection.MethodBuilder(mMoatVideoTracker,
+                        "dispatchEvent")
+                        .addParam(MOAT_AD_EVENT_PATH, null)
+                        .bind();
+            } catch (Exception e) {
+                // Video events look the method up each time instead.
+                MoPubLog.log(CUSTOM, "Unable to bind Moat dispatchEvent: " + e.getMessage());
+                mMoatDispatchEventInvoker = null;
+            }
+
             return true;
         } catch (Exception e) {
             MoPubLog.log(CUSTOM, "Unable to execute Moat start video session: " + e.getMessage());
@@ -488,9 +502,13 @@ class MoatViewabilitySession implements ExternalViewabilitySession {
                 MOAT_AD_EVENT_PATH, Object.class, new Class[]{clazz, Integer.class},
                 new Object[]{adEventTypeEnum, playheadMillis});
 
-        new Reflection.MethodBuilder(mMoatVideoTracker, "dispatchEvent")
-                .addParam(MOAT_AD_EVENT_PATH, moatAdEvent)
-                .execute();
+        if (mMoatDispatchEventInvoker != null) {
+            mMoatDispatchEventInvoker.invoke(moatAdEvent);
+        } else {
+            new Reflection.MethodBuilder(mMoatVideoTracker, "dispatchEvent")
+                    .addParam(MOAT_AD_EVENT_PATH, moatAdEvent)
+                    .execute();
+        }
 
         return true;
     }
@@ -9,6 +9,7 @@ import android.text.TextUtils;
 
 import com.mopub.common.logging.MoPubLog;
 import com.mopub.mobileads.base.BuildConfig;
+import com.mopub.network.RequestRateTracker.RequestRateLimit;
 
 import java.util.Arrays;
 import java.util.Collections;
@@ -61,6 +62,11 @@ public class SdkConfiguration {
      */
     private final boolean mLegitimateInterestAllowed;
 
+    /**
+     * Client-side limits on how often ad units request ads, keyed on ad unit id.
+     */
+    @NonNull private final Map<String, RequestRateLimit> mRequestRateLimits;
+
     /**
      * Holds data for SDK initialization. Do not call this constructor directly; use the Builder.
      */
@@ -70,11 +76,13 @@ public class SdkConfiguration {
             @NonNull final LogLevel logLevel,
             @NonNull final Map<String, Map<String, String>> mediatedNetworkConfigurations,
             @NonNull final Map<String, Map<String, String>> moPubRequestOptions,
-            final boolean legitimateInterestAllowed) {
+            final boolean legitimateInterestAllowed,
+            @NonNull final Map<String, RequestRateLimit> requestRateLimits) {
         Preconditions.checkNotNull(adUnitId);
         Preconditions.checkNotNull(adapterConfigurationClasses);
         Preconditions.checkNotNull(mediatedNetworkConfigurations);
         Preconditions.checkNotNull(moPubRequestOptions);
+        Preconditions.checkNotNull(requestRateLimits);
 
         mAdUnitId = adUnitId;
         mAdapterConfigurationClasses = adapterConfigurationClasses;
@@ -83,6 +91,7 @@ public class SdkConfiguration {
         mMediatedNetworkConfigurations = mediatedNetworkConfigurations;
         mMoPubRequestOptions = moPubRequestOptions;
         mLegitimateInterestAllowed = legitimateInterestAllowed;
+        mRequestRateLimits = requestRateLimits;
     }
 
     @NonNull
@@ -118,6 +127,11 @@ public class SdkConfiguration {
         return mLegitimateInterestAllowed;
     }
 
+    @NonNull
+    public Map<String, RequestRateLimit> getRequestRateLimits() {
+        return Collections.unmodifiableMap(mRequestRateLimits);
+    }
+
     public static class Builder {
         @NonNull private String adUnitId;
         @NonNull private final Set<String> adapterConfigurations;
@@ -126,6 +140,7 @@ public class SdkConfiguration {
         @NonNull private final Map<String, Map<String, String>> mediatedNetworkConfigurations;
         @NonNull private final Map<String, Map<String, String>> moPubRequestOptions;
         private boolean legitimateInterestAllowed;
+        @NonNull private final Map<String, RequestRateLimit> requestRateLimits;
 
         /**
          * Use this builder instead of creating a new SdkConfiguration. This Builder needs any ad
@@ -150,6 +165,7 @@ public class SdkConfiguration {
             mediatedNetworkConfigurations = new HashMap<>();
             moPubRequestOptions = new HashMap<>();
             legitimateInterestAllowed = false;
+            requestRateLimits = new HashMap<>();
         }
 
         /**
@@ -242,9 +258,31 @@ public class SdkConfiguration {
             return this;
         }
 
+        /**
+         * Limits how often an ad unit can request ads, to save battery and data on ad units that
+         * are loaded more often than they need to be. The ad unit can make bursts of up to
+         * {@code maxRequests} requests, refilled evenly over {@code periodMillis}. Loads over the
+         * limit fail with {@link com.mopub.mobileads.MoPubErrorCode#NO_FILL}.
+         *
+         * @param adUnitId     The ad unit to limit.
+         * @param maxRequests  The most requests the ad unit can make at once. Must be positive.
+         * @param periodMillis How long it takes to earn back {@code maxRequests} requests. Must
+         *                     be positive.
+         * @return The builder.
+         */
+        public Builder withRequestRateLimit(@NonNull final String adUnitId,
+                final int maxRequests,
+                final long periodMillis) {
+            Preconditions.checkNotNull(adUnitId);
+
+            this.requestRateLimits.put(adUnitId, new RequestRateLimit(maxRequests, periodMillis));
+            return this;
+        }
+
         public SdkConfiguration build() {
             return new SdkConfiguration(adUnitId, adapterConfigurations, mediationSettings,
-                    logLevel, mediatedNetworkConfigurations, moPubRequestOptions, legitimateInterestAllowed);
+                    logLevel, mediatedNetworkConfigurations, moPubRequestOptions, legitimateInterestAllowed,
+                    requestRateLimits);
         }
     }
 }
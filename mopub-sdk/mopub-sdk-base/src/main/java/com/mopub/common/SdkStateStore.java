@@ -0,0 +1,407 @@
+// Copyright 2018-2020 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.common;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.mopub.common.logging.MoPubLog;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.mopub.common.logging.MoPubLog.SdkLogEvent.CUSTOM;
+
+/**
+ * Keeps the SDK's persistent state in a single file instead of one preference file per feature.
+ *
+ * The file is read on a background thread as soon as the store is created.
+ * {@link #getReadyFuture()} completes once it has been read, and reads made before then wait for
+ * it. Edits are applied to the in-memory snapshot atomically and right away. The file is written
+ * behind them on the same background thread, and edits applied while a write is pending share the
+ * next write.
+ *
+ * The first time the store is read, it takes over the values of the preference files it
+ * replaces. Those files are left as they were, so an SDK from before the store still finds its
+ * settings after a rollback, although without the changes made since.
+ */
+public class SdkStateStore {
+    @VisibleForTesting
+    static final String FILE_NAME = "mopub_state";
+    /**
+     * Preference files whose values now live in the store.
+     */
+    private static final LegacyPreferences[] LEGACY_PREFERENCES = {
+            new LegacyPreferences("com.mopub.privacy", "", null),
+            new LegacyPreferences("com.mopub.settings.identifier", "", null),
+            new LegacyPreferences(BaseAdapterConfiguration.CUSTOM_EVENT_PREF_NAME,
+                    BaseAdapterConfiguration.INIT_SETTINGS_KEY_PREFIX, null),
+            // Also holds settings that stay in preferences, so only the conversion keys move.
+            new LegacyPreferences(SharedPreferencesHelper.DEFAULT_PREFERENCE_NAME, "",
+                    new String[]{" wantToTrack", " tracked"})
+    };
+
+    @Nullable private static SdkStateStore sInstance;
+
+    @NonNull private final File mFile;
+    @NonNull private final Context mAppContext;
+    @NonNull private final Executor mExecutor;
+    @NonNull private final FutureTask<SdkStateStore> mLoadTask;
+    @NonNull private final Object mWriteLock = new Object();
+    @NonNull private final AtomicLong mApplyCount = new AtomicLong();
+    @NonNull private final AtomicLong mWriteCount = new AtomicLong();
+
+    // Replaced as a whole by each edit, so reads never see half of one.
+    @NonNull private volatile Map<String, Object> mValues = Collections.emptyMap();
+    private volatile long mLoadTimeMillis = -1;
+    // Guarded by mWriteLock.
+    private boolean mWritePending;
+
+    /**
+     * Creates the store if needed and starts reading it in the background.
+     */
+    @NonNull
+    public static synchronized SdkStateStore getInstance(@NonNull final Context context) {
+        Preconditions.checkNotNull(context);
+
+        final Context appContext = context.getApplicationContext();
+        final File file = new File(appContext.getFilesDir(), FILE_NAME);
+        if (sInstance == null || !sInstance.mFile.equals(file)) {
+            sInstance = new SdkStateStore(appContext, file, Executors.newSingleThreadExecutor(
+                    new ThreadFactory() {
+                        @Override
+                        public Thread newThread(@NonNull final Runnable runnable) {
+                            final Thread thread = new Thread(runnable, "MoPubSdkStateStore");
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    }));
+        }
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    SdkStateStore(@NonNull final Context appContext, @NonNull final File file,
+            @NonNull final Executor executor) {
+        Preconditions.checkNotNull(appContext);
+        Preconditions.checkNotNull(file);
+        Preconditions.checkNotNull(executor);
+
+        mAppContext = appContext;
+        mFile = file;
+        mExecutor = executor;
+        mLoadTask = new FutureTask<>(new Runnable() {
+            @Override
+            public void run() {
+                load();
+            }
+        }, this);
+        mExecutor.execute(mLoadTask);
+    }
+
+    /**
+     * @return A future that completes once the store has been read, without waiting for it.
+     */
+    @NonNull
+    public Future<SdkStateStore> getReadyFuture() {
+        return mLoadTask;
+    }
+
+    public boolean isReady() {
+        return mLoadTask.isDone();
+    }
+
+    @Nullable
+    public String getString(@NonNull final String key, @Nullable final String defaultValue) {
+        final Object value = get(key);
+        return value instanceof String ? (String) value : defaultValue;
+    }
+
+    public boolean getBoolean(@NonNull final String key, final boolean defaultValue) {
+        final Object value = get(key);
+        return value instanceof Boolean ? (Boolean) value : defaultValue;
+    }
+
+    public long getLong(@NonNull final String key, final long defaultValue) {
+        final Object value = get(key);
+        return value instanceof Number ? ((Number) value).longValue() : defaultValue;
+    }
+
+    /**
+     * @return An editor whose changes are all applied at once by {@link Editor#apply()}.
+     */
+    @NonNull
+    public Editor edit() {
+        return new Editor();
+    }
+
+    /**
+     * @return How long reading the store took, including taking over the preference files, or
+     * -1 if it hasn't been read yet.
+     */
+    public long getLoadTimeMillis() {
+        return mLoadTimeMillis;
+    }
+
+    /**
+     * @return How many edits have been applied.
+     */
+    public long getApplyCount() {
+        return mApplyCount.get();
+    }
+
+    /**
+     * @return How many times the file has been written.
+     */
+    public long getWriteCount() {
+        return mWriteCount.get();
+    }
+
+    public class Editor {
+        @NonNull private final Map<String, Object> mChanges = new HashMap<>();
+
+        private Editor() {
+        }
+
+        /**
+         * Sets a value. A null value removes the key.
+         */
+        @NonNull
+        public Editor putString(@NonNull final String key, @Nullable final String value) {
+            Preconditions.checkNotNull(key);
+
+            mChanges.put(key, value);
+            return this;
+        }
+
+        @NonNull
+        public Editor putBoolean(@NonNull final String key, final boolean value) {
+            Preconditions.checkNotNull(key);
+
+            mChanges.put(key, value);
+            return this;
+        }
+
+        @NonNull
+        public Editor putLong(@NonNull final String key, final long value) {
+            Preconditions.checkNotNull(key);
+
+            mChanges.put(key, value);
+            return this;
+        }
+
+        @NonNull
+        public Editor remove(@NonNull final String key) {
+            Preconditions.checkNotNull(key);
+
+            mChanges.put(key, null);
+            return this;
+        }
+
+        /**
+         * Applies every change of this editor at once and schedules the file to be written.
+         */
+        public void apply() {
+            awaitLoad();
+            synchronized (mWriteLock) {
+                final Map<String, Object> values = new HashMap<>(mValues);
+                for (final Map.Entry<String, Object> change : mChanges.entrySet()) {
+                    if (change.getValue() == null) {
+                        values.remove(change.getKey());
+                    } else {
+                        values.put(change.getKey(), change.getValue());
+                    }
+                }
+                mValues = Collections.unmodifiableMap(values);
+                mApplyCount.incrementAndGet();
+                if (mWritePending) {
+                    // The pending write picks these changes up.
+                    return;
+                }
+                mWritePending = true;
+            }
+            mExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    write();
+                }
+            });
+        }
+    }
+
+    @Nullable
+    private Object get(@NonNull final String key) {
+        Preconditions.checkNotNull(key);
+
+        awaitLoad();
+        return mValues.get(key);
+    }
+
+    private void awaitLoad() {
+        if (mLoadTask.isDone()) {
+            return;
+        }
+        try {
+            mLoadTask.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            MoPubLog.log(CUSTOM, "Unable to load the SDK state", e);
+        }
+    }
+
+    private void load() {
+        final long startTime = System.nanoTime();
+        final Map<String, Object> values = new HashMap<>();
+        if (mFile.exists()) {
+            try {
+                final JSONObject json = new JSONObject(readFile(mFile));
+                final Iterator<String> keys = json.keys();
+                while (keys.hasNext()) {
+                    final String key = keys.next();
+                    values.put(key, json.get(key));
+                }
+            } catch (IOException | JSONException e) {
+                MoPubLog.log(CUSTOM, "Unable to read the SDK state", e);
+            }
+        } else {
+            migratePreferences(values);
+        }
+        synchronized (mWriteLock) {
+            mValues = Collections.unmodifiableMap(values);
+        }
+        mLoadTimeMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+    }
+
+    private void migratePreferences(@NonNull final Map<String, Object> values) {
+        for (final LegacyPreferences legacyPreferences : LEGACY_PREFERENCES) {
+            final SharedPreferences preferences = SharedPreferencesHelper.getSharedPreferences(
+                    mAppContext, legacyPreferences.mName);
+            for (final Map.Entry<String, ?> entry : preferences.getAll().entrySet()) {
+                final Object value = entry.getValue();
+                if (legacyPreferences.isMoved(entry.getKey()) && (value instanceof String
+                        || value instanceof Boolean || value instanceof Long
+                        || value instanceof Integer)) {
+                    values.put(legacyPreferences.mKeyPrefix + entry.getKey(), value);
+                }
+            }
+        }
+        if (values.isEmpty()) {
+            return;
+        }
+
+        if (writeFile(values)) {
+            MoPubLog.log(CUSTOM, "Copied SDK preferences into " + FILE_NAME);
+        }
+    }
+
+    private void write() {
+        final Map<String, Object> values;
+        synchronized (mWriteLock) {
+            mWritePending = false;
+            values = mValues;
+        }
+        writeFile(values);
+    }
+
+    /**
+     * Writes a temporary file and renames it over the old one, so a crash leaves one or the
+     * other.
+     */
+    private boolean writeFile(@NonNull final Map<String, Object> values) {
+        final File tempFile = new File(mFile.getPath() + ".tmp");
+        FileOutputStream outputStream = null;
+        try {
+            outputStream = new FileOutputStream(tempFile);
+            outputStream.write(new JSONObject(values).toString().getBytes("UTF-8"));
+            outputStream.flush();
+            outputStream.getFD().sync();
+            outputStream.close();
+            outputStream = null;
+            if (!tempFile.renameTo(mFile)) {
+                throw new IOException("Unable to replace " + mFile);
+            }
+            mWriteCount.incrementAndGet();
+            return true;
+        } catch (IOException e) {
+            MoPubLog.log(CUSTOM, "Unable to write the SDK state", e);
+            return false;
+        } finally {
+            if (outputStream != null) {
+                try {
+                    outputStream.close();
+                } catch (IOException e) {
+                    // Nothing left to do.
+                }
+            }
+        }
+    }
+
+    /**
+     * A preference file whose values moved into the store, and the prefix its keys get there.
+     */
+    private static class LegacyPreferences {
+        @NonNull final String mName;
+        @NonNull final String mKeyPrefix;
+        // Only keys with one of these endings move, or every key if null.
+        @Nullable private final String[] mKeySuffixes;
+
+        LegacyPreferences(@NonNull final String name, @NonNull final String keyPrefix,
+                @Nullable final String[] keySuffixes) {
+            mName = name;
+            mKeyPrefix = keyPrefix;
+            mKeySuffixes = keySuffixes;
+        }
+
+        boolean isMoved(@NonNull final String key) {
+            if (mKeySuffixes == null) {
+                return true;
+            }
+            for (final String keySuffix : mKeySuffixes) {
+                if (key.endsWith(keySuffix)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    @NonNull
+    private static String readFile(@NonNull final File file) throws IOException {
+        final FileInputStream inputStream = new FileInputStream(file);
+        try {
+            final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[4096];
+            int count;
+            while ((count = inputStream.read(buffer)) != -1) {
+                outputStream.write(buffer, 0, count);
+            }
+            return outputStream.toString("UTF-8");
+        } finally {
+            inputStream.close();
+        }
+    }
+}
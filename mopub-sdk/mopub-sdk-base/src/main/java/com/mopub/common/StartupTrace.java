@@ -0,0 +1,166 @@
+// Copyright 2018-2020 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.common;
+
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.mopub.common.logging.MoPubLog;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static com.mopub.common.logging.MoPubLog.SdkLogEvent.CUSTOM;
+
+/**
+ * Records how long each phase of SDK initialization takes, as named spans with the thread they
+ * ran on. Each finished span is logged to the {@link com.mopub.common.logging.MoPubLogger}s at
+ * the debug level and passed to the {@link Listener}, if one is set.
+ *
+ * Only the first {@link #MAX_SPANS} spans are kept, since tracing is meant for startup.
+ */
+public class StartupTrace {
+
+    /**
+     * Gets told about each span as it finishes, on the thread that finished it.
+     */
+    public interface Listener {
+        void onSpanFinished(@NonNull Span span);
+    }
+
+    /**
+     * One phase of initialization. Timestamps are from {@link SystemClock#elapsedRealtimeNanos()}
+     * so spans from different threads can be lined up.
+     */
+    public static class Span {
+        @NonNull private final String mName;
+        private final long mThreadId;
+        @NonNull private final String mThreadName;
+        private final long mStartNanos;
+        private long mEndNanos;
+        private boolean mFinished;
+
+        private Span(@NonNull final String name) {
+            final Thread thread = Thread.currentThread();
+            mName = name;
+            mThreadId = thread.getId();
+            mThreadName = thread.getName();
+            mStartNanos = SystemClock.elapsedRealtimeNanos();
+        }
+
+        /**
+         * Finishes the span. Calling this more than once has no effect.
+         */
+        public void end() {
+            synchronized (this) {
+                if (mFinished) {
+                    return;
+                }
+                mEndNanos = SystemClock.elapsedRealtimeNanos();
+                mFinished = true;
+            }
+            onSpanFinished(this);
+        }
+
+        @NonNull
+        public String getName() {
+            return mName;
+        }
+
+        /**
+         * @return The id of the thread the span started on.
+         */
+        public long getThreadId() {
+            return mThreadId;
+        }
+
+        @NonNull
+        public String getThreadName() {
+            return mThreadName;
+        }
+
+        public long getStartNanos() {
+            return mStartNanos;
+        }
+
+        /**
+         * @return When the span finished, or -1 if it hasn't.
+         */
+        public synchronized long getEndNanos() {
+            return mFinished ? mEndNanos : -1;
+        }
+
+        /**
+         * @return How long the span took, or -1 if it hasn't finished.
+         */
+        public synchronized long getDurationNanos() {
+            return mFinished ? mEndNanos - mStartNanos : -1;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%s on %s (%d): %.3fms", mName, mThreadName,
+                    mThreadId, getDurationNanos() / 1000000.0);
+        }
+    }
+
+    @VisibleForTesting
+    static final int MAX_SPANS = 64;
+
+    @NonNull private static final List<Span> sSpans = new ArrayList<>();
+    @Nullable private static volatile Listener sListener;
+
+    private StartupTrace() {
+    }
+
+    /**
+     * Starts a span on the current thread. Call {@link Span#end()} when the phase is done.
+     */
+    @NonNull
+    public static Span begin(@NonNull final String name) {
+        Preconditions.checkNotNull(name);
+
+        return new Span(name);
+    }
+
+    public static void setListener(@Nullable final Listener listener) {
+        sListener = listener;
+    }
+
+    /**
+     * @return The finished spans, in the order they finished.
+     */
+    @NonNull
+    public static List<Span> getSpans() {
+        synchronized (sSpans) {
+            return new ArrayList<>(sSpans);
+        }
+    }
+
+    @VisibleForTesting
+    static void clear() {
+        synchronized (sSpans) {
+            sSpans.clear();
+        }
+    }
+
+    private static void onSpanFinished(@NonNull final Span span) {
+        synchronized (sSpans) {
+            if (sSpans.size() < MAX_SPANS) {
+                sSpans.add(span);
+            }
+        }
+
+        MoPubLog.log(CUSTOM, "Startup trace: " + span);
+        final Listener listener = sListener;
+        if (listener != null) {
+            listener.onSpanFinished(span);
+        }
+    }
+}
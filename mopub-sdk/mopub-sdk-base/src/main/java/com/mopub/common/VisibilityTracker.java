@@ -14,6 +14,8 @@ import android.view.View;
 import android.view.ViewTreeObserver;
 
 import com.mopub.common.logging.MoPubLog;
+import com.mopub.common.metrics.Histogram;
+import com.mopub.common.metrics.Metrics;
 import com.mopub.common.util.Views;
 
 import java.lang.ref.WeakReference;
@@ -38,6 +40,10 @@ public class VisibilityTracker {
     // limits the memory leak if a developer forgets to call destroy().
     @VisibleForTesting static final int NUM_ACCESSES_BEFORE_TRIMMING = 50;
 
+    // Main thread time spent in each visibility check.
+    private static final Histogram VISIBILITY_CHECK_HISTOGRAM = Metrics.histogram(
+            "main_thread.visibility_check_us", Histogram.MAIN_THREAD_MICROS_BOUNDS);
+
     // Temporary array of trimmed views so that we don't allocate this on every trim.
     @NonNull private final ArrayList<View> mTrimmedViews;
 
@@ -250,6 +256,7 @@ public class VisibilityTracker {
 
         @Override
         public void run() {
+            final long startNanos = Metrics.startTimer();
             mIsVisibilityScheduled = false;
             for (final Map.Entry<View, TrackingInfo> entry : mTrackedViews.entrySet()) {
                 final View view = entry.getKey();
@@ -274,6 +281,7 @@ public class VisibilityTracker {
             // Clear these immediately so that we don't leak memory
             mVisibleViews.clear();
             mInvisibleViews.clear();
+            Metrics.recordMicrosSince(VISIBILITY_CHECK_HISTOGRAM, startNanos);
         }
     }
 
@@ -0,0 +1,64 @@
+// Copyright 2018-2020 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.common.metrics;
+
+import androidx.annotation.NonNull;
+
+import com.mopub.common.Preconditions;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A counter that threads can update without contending with each other. Each thread adds to one
+ * of several cells, each on its own cache line, and {@link #sum()} adds the cells up. Updates do
+ * nothing while {@link Metrics} has no exporter.
+ */
+public final class Counter {
+    // Must be a power of two.
+    private static final int CELL_COUNT = 8;
+    // Longs per cache line, so cells don't share one.
+    private static final int CELL_STRIDE = 8;
+
+    @NonNull private final String mName;
+    @NonNull private final AtomicLongArray mCells =
+            new AtomicLongArray(CELL_COUNT * CELL_STRIDE);
+
+    Counter(@NonNull final String name) {
+        Preconditions.checkNotNull(name);
+
+        mName = name;
+    }
+
+    @NonNull
+    public String getName() {
+        return mName;
+    }
+
+    public void increment() {
+        add(1);
+    }
+
+    public void add(final long delta) {
+        if (!Metrics.isEnabled()) {
+            return;
+        }
+        final int cell = (int) Thread.currentThread().getId() & (CELL_COUNT - 1);
+        mCells.addAndGet(cell * CELL_STRIDE, delta);
+    }
+
+    public long sum() {
+        long sum = 0;
+        for (int i = 0; i < CELL_COUNT; i++) {
+            sum += mCells.get(i * CELL_STRIDE);
+        }
+        return sum;
+    }
+
+    void reset() {
+        for (int i = 0; i < CELL_COUNT; i++) {
+            mCells.set(i * CELL_STRIDE, 0);
+        }
+    }
+}
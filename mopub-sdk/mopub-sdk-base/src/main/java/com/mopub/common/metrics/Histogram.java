@@ -0,0 +1,147 @@
+// Copyright 2018-2020 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.common.metrics;
+
+import androidx.annotation.NonNull;
+
+import com.mopub.common.Preconditions;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts values into fixed buckets. A value goes into the first bucket whose upper bound it
+ * doesn't exceed, or into the overflow bucket after the last bound. Recording does nothing while
+ * {@link Metrics} has no exporter.
+ */
+public final class Histogram {
+    /**
+     * Upper bounds for latencies in milliseconds.
+     */
+    public static final long[] LATENCY_MILLIS_BOUNDS =
+            {1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000, 30000};
+    /**
+     * Upper bounds for short main thread work in microseconds.
+     */
+    public static final long[] MAIN_THREAD_MICROS_BOUNDS =
+            {50, 100, 200, 500, 1000, 2000, 4000, 8000, 16000, 32000, 100000};
+
+    @NonNull private final String mName;
+    @NonNull private final long[] mBounds;
+    // One more than the bounds for the overflow bucket.
+    @NonNull private final AtomicLongArray mCounts;
+    @NonNull private final Counter mSum;
+
+    Histogram(@NonNull final String name, @NonNull final long[] bounds) {
+        Preconditions.checkNotNull(name);
+        Preconditions.checkNotNull(bounds);
+        Preconditions.checkArgument(bounds.length > 0);
+
+        mName = name;
+        mBounds = Arrays.copyOf(bounds, bounds.length);
+        mCounts = new AtomicLongArray(bounds.length + 1);
+        mSum = new Counter(name);
+    }
+
+    @NonNull
+    public String getName() {
+        return mName;
+    }
+
+    public void record(final long value) {
+        if (!Metrics.isEnabled()) {
+            return;
+        }
+        int bucket = Arrays.binarySearch(mBounds, value);
+        if (bucket < 0) {
+            bucket = -bucket - 1;
+        }
+        mCounts.incrementAndGet(bucket);
+        mSum.add(value);
+    }
+
+    @NonNull
+    public Snapshot snapshot() {
+        final long[] counts = new long[mCounts.length()];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = mCounts.get(i);
+        }
+        return new Snapshot(mBounds, counts, mSum.sum());
+    }
+
+    void reset() {
+        for (int i = 0; i < mCounts.length(); i++) {
+            mCounts.set(i, 0);
+        }
+        mSum.reset();
+    }
+
+    /**
+     * The counts of a histogram at one point in time.
+     */
+    public static final class Snapshot {
+        @NonNull private final long[] mBounds;
+        @NonNull private final long[] mCounts;
+        private final long mCount;
+        private final long mSum;
+
+        Snapshot(@NonNull final long[] bounds, @NonNull final long[] counts, final long sum) {
+            mBounds = bounds;
+            mCounts = counts;
+            long count = 0;
+            for (final long bucketCount : counts) {
+                count += bucketCount;
+            }
+            mCount = count;
+            mSum = sum;
+        }
+
+        /**
+         * @return The upper bounds of the buckets, without the overflow bucket.
+         */
+        @NonNull
+        public long[] getBounds() {
+            return Arrays.copyOf(mBounds, mBounds.length);
+        }
+
+        /**
+         * @return The count of each bucket. The last one is the overflow bucket.
+         */
+        @NonNull
+        public long[] getCounts() {
+            return Arrays.copyOf(mCounts, mCounts.length);
+        }
+
+        public long getCount() {
+            return mCount;
+        }
+
+        public long getSum() {
+            return mSum;
+        }
+
+        /**
+         * @param percentile Between 0 and 100.
+         * @return The upper bound of the bucket the percentile falls in, or
+         * {@link Long#MAX_VALUE} if it falls in the overflow bucket, or 0 if nothing was recorded.
+         */
+        public long getPercentile(final double percentile) {
+            Preconditions.checkArgument(percentile >= 0 && percentile <= 100);
+
+            if (mCount == 0) {
+                return 0;
+            }
+            final long rank = (long) Math.ceil(mCount * percentile / 100);
+            long seen = 0;
+            for (int i = 0; i < mBounds.length; i++) {
+                seen += mCounts[i];
+                if (seen >= rank && seen > 0) {
+                    return mBounds[i];
+                }
+            }
+            return Long.MAX_VALUE;
+        }
+    }
+}
@@ -0,0 +1,194 @@
+// Copyright 2018-2020 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.common.metrics;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.mopub.common.Preconditions;
+import com.mopub.common.VisibleForTesting;
+import com.mopub.common.logging.MoPubLog;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import static com.mopub.common.logging.MoPubLog.SdkLogEvent.CUSTOM;
+
+/**
+ * The SDK's counters and histograms, by name.
+ *
+ * Metrics are off until an exporter is attached with {@link #setExporter}. While they are off,
+ * updating a counter or histogram only reads one volatile field, and code that times its work
+ * checks {@link #isEnabled()} before reading the clock. Get counters and histograms once and keep
+ * them, rather than looking them up by name on every update.
+ */
+public final class Metrics {
+    private static final long NANOS_PER_MICRO = 1000;
+
+    private static volatile boolean sEnabled;
+
+    @NonNull private static final ConcurrentMap<String, Counter> sCounters =
+            new ConcurrentHashMap<>();
+    @NonNull private static final ConcurrentMap<String, Histogram> sHistograms =
+            new ConcurrentHashMap<>();
+
+    @Nullable private static MetricsExporter sExporter;
+    @Nullable private static ScheduledExecutorService sExecutor;
+    @Nullable private static ScheduledFuture<?> sExportFuture;
+
+    private Metrics() {
+    }
+
+    public static boolean isEnabled() {
+        return sEnabled;
+    }
+
+    @NonNull
+    public static Counter counter(@NonNull final String name) {
+        Preconditions.checkNotNull(name);
+
+        Counter counter = sCounters.get(name);
+        if (counter == null) {
+            final Counter newCounter = new Counter(name);
+            counter = sCounters.putIfAbsent(name, newCounter);
+            if (counter == null) {
+                counter = newCounter;
+            }
+        }
+        return counter;
+    }
+
+    /**
+     * @return A histogram of latencies in milliseconds.
+     */
+    @NonNull
+    public static Histogram histogram(@NonNull final String name) {
+        return histogram(name, Histogram.LATENCY_MILLIS_BOUNDS);
+    }
+
+    /**
+     * @param bounds The upper bounds of the buckets, in increasing order. Ignored if the
+     *               histogram already exists.
+     */
+    @NonNull
+    public static Histogram histogram(@NonNull final String name, @NonNull final long[] bounds) {
+        Preconditions.checkNotNull(name);
+        Preconditions.checkNotNull(bounds);
+
+        Histogram histogram = sHistograms.get(name);
+        if (histogram == null) {
+            final Histogram newHistogram = new Histogram(name, bounds);
+            histogram = sHistograms.putIfAbsent(name, newHistogram);
+            if (histogram == null) {
+                histogram = newHistogram;
+            }
+        }
+        return histogram;
+    }
+
+    /**
+     * Turns metrics on and exports them every {@code periodMillis}, or turns them off if the
+     * exporter is null. Values recorded before metrics were turned off are kept.
+     */
+    public static synchronized void setExporter(@Nullable final MetricsExporter exporter,
+            final long periodMillis) {
+        Preconditions.checkArgument(exporter == null || periodMillis > 0);
+
+        if (sExportFuture != null) {
+            sExportFuture.cancel(false);
+            sExportFuture = null;
+        }
+        sExporter = exporter;
+        sEnabled = exporter != null;
+        if (exporter == null) {
+            return;
+        }
+
+        if (sExecutor == null) {
+            sExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(@NonNull final Runnable runnable) {
+                    final Thread thread = new Thread(runnable, "MoPubMetrics");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        sExportFuture = sExecutor.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                export();
+            }
+        }, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Sends the current values to the exporter, if there is one, on the calling thread.
+     */
+    public static void export() {
+        final MetricsExporter exporter;
+        synchronized (Metrics.class) {
+            exporter = sExporter;
+        }
+        if (exporter == null) {
+            return;
+        }
+
+        final Map<String, Long> counters = new HashMap<>();
+        for (final Counter counter : sCounters.values()) {
+            counters.put(counter.getName(), counter.sum());
+        }
+        final Map<String, Histogram.Snapshot> histograms = new HashMap<>();
+        for (final Histogram histogram : sHistograms.values()) {
+            histograms.put(histogram.getName(), histogram.snapshot());
+        }
+        try {
+            exporter.export(Collections.unmodifiableMap(counters),
+                    Collections.unmodifiableMap(histograms));
+        } catch (Exception e) {
+            MoPubLog.log(CUSTOM, "Metrics exporter failed", e);
+        }
+    }
+
+    /**
+     * @return The current time to pass to {@link #recordMicrosSince}, or 0 if metrics are off.
+     */
+    public static long startTimer() {
+        return sEnabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Records the microseconds since {@link #startTimer()}, unless metrics were off then.
+     */
+    public static void recordMicrosSince(@NonNull final Histogram histogram,
+            final long startNanos) {
+        if (startNanos == 0) {
+            return;
+        }
+        histogram.record((System.nanoTime() - startNanos) / NANOS_PER_MICRO);
+    }
+
+    /**
+     * Turns metrics off and zeroes every counter and histogram.
+     */
+    @VisibleForTesting
+    static synchronized void reset() {
+        setExporter(null, 0);
+        for (final Counter counter : sCounters.values()) {
+            counter.reset();
+        }
+        for (final Histogram histogram : sHistograms.values()) {
+            histogram.reset();
+        }
+    }
+}
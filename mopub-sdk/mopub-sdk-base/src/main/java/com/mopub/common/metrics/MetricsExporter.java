@@ -0,0 +1,22 @@
+// Copyright 2018-2020 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.common.metrics;
+
+import androidx.annotation.NonNull;
+
+import java.util.Map;
+
+/**
+ * Receives the SDK's metrics. Attach one with {@link Metrics#setExporter}. Called on a
+ * background thread.
+ */
+public interface MetricsExporter {
+    /**
+     * @param counters   The total of each counter since metrics were enabled.
+     * @param histograms Each histogram since metrics were enabled.
+     */
+    void export(@NonNull Map<String, Long> counters,
+            @NonNull Map<String, Histogram.Snapshot> histograms);
+}
@@ -6,7 +6,6 @@ package com.mopub.common.privacy;
 
 import android.content.ContentResolver;
 import android.content.Context;
-import android.content.SharedPreferences;
 import android.os.AsyncTask;
 import android.provider.Settings;
 import androidx.annotation.NonNull;
@@ -16,22 +15,19 @@ import android.text.TextUtils;
 import com.mopub.common.GpsHelper;
 import com.mopub.common.Preconditions;
 import com.mopub.common.SdkInitializationListener;
-import com.mopub.common.SharedPreferencesHelper;
+import com.mopub.common.SdkStateStore;
 import com.mopub.common.VisibleForTesting;
 import com.mopub.common.logging.MoPubLog;
 import com.mopub.common.util.AsyncTasks;
 
 import java.util.Calendar;
 
-import static com.mopub.common.logging.MoPubLog.SdkLogEvent.CUSTOM;
-
 public class MoPubIdentifier {
 
     public interface AdvertisingIdChangeListener {
         void onIdChanged(@NonNull final AdvertisingId oldId, @NonNull final AdvertisingId newId);
     }
 
-    private static final String PREF_AD_INFO_GROUP = "com.mopub.settings.identifier";
     private static final String PREF_IFA_IDENTIFIER = "privacy.identifier.ifa";
     private static final String PREF_MOPUB_IDENTIFIER = "privacy.identifier.mopub";
     private static final String PREF_IDENTIFIER_TIME = "privacy.identifier.time";
@@ -126,17 +122,13 @@ public class MoPubIdentifier {
         Preconditions.checkNotNull(appContext);
 
         Calendar now = Calendar.getInstance();
-        try {
-            final SharedPreferences preferences = SharedPreferencesHelper.getSharedPreferences(appContext, PREF_AD_INFO_GROUP);
-            final String ifa_id = preferences.getString(PREF_IFA_IDENTIFIER, "");
-            final String mopub_id = preferences.getString(PREF_MOPUB_IDENTIFIER, "");
-            final long time = preferences.getLong(PREF_IDENTIFIER_TIME, now.getTimeInMillis());
-            final boolean limitTracking = preferences.getBoolean(PREF_LIMIT_AD_TRACKING, false);
-            if (!TextUtils.isEmpty(ifa_id) && !TextUtils.isEmpty(mopub_id)) {
-                return new AdvertisingId(ifa_id, mopub_id, limitTracking, time);
-            }
-        } catch (ClassCastException ex) {
-            MoPubLog.log(CUSTOM, "Cannot read identifier from shared preferences");
+        final SdkStateStore store = SdkStateStore.getInstance(appContext);
+        final String ifa_id = store.getString(PREF_IFA_IDENTIFIER, "");
+        final String mopub_id = store.getString(PREF_MOPUB_IDENTIFIER, "");
+        final long time = store.getLong(PREF_IDENTIFIER_TIME, now.getTimeInMillis());
+        final boolean limitTracking = store.getBoolean(PREF_LIMIT_AD_TRACKING, false);
+        if (!TextUtils.isEmpty(ifa_id) && !TextUtils.isEmpty(mopub_id)) {
+            return new AdvertisingId(ifa_id, mopub_id, limitTracking, time);
         }
         return null;
     }
@@ -145,8 +137,7 @@ public class MoPubIdentifier {
         Preconditions.checkNotNull(context);
         Preconditions.checkNotNull(info);
 
-        final SharedPreferences preferences = SharedPreferencesHelper.getSharedPreferences(context, PREF_AD_INFO_GROUP);
-        final SharedPreferences.Editor editor = preferences.edit();
+        final SdkStateStore.Editor editor = SdkStateStore.getInstance(context).edit();
         editor.putBoolean(PREF_LIMIT_AD_TRACKING, info.mDoNotTrack);
         editor.putString(PREF_IFA_IDENTIFIER, info.mAdvertisingId);
         editor.putString(PREF_MOPUB_IDENTIFIER, info.mMopubId);
@@ -158,8 +149,7 @@ public class MoPubIdentifier {
     static synchronized void clearStorage(@NonNull final Context context) {
         Preconditions.checkNotNull(context);
 
-        final SharedPreferences preferences = SharedPreferencesHelper.getSharedPreferences(context, PREF_AD_INFO_GROUP);
-        final SharedPreferences.Editor editor = preferences.edit();
+        final SdkStateStore.Editor editor = SdkStateStore.getInstance(context).edit();
         editor.remove(PREF_LIMIT_AD_TRACKING);
         editor.remove(PREF_IFA_IDENTIFIER);
         editor.remove(PREF_MOPUB_IDENTIFIER);
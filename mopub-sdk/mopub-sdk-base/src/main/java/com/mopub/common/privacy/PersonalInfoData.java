@@ -6,21 +6,19 @@ package com.mopub.common.privacy;
 
 
 import android.content.Context;
-import android.content.SharedPreferences;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import android.text.TextUtils;
 
 import com.mopub.common.ClientMetadata;
 import com.mopub.common.Preconditions;
-import com.mopub.common.SharedPreferencesHelper;
+import com.mopub.common.SdkStateStore;
 import com.mopub.common.VisibleForTesting;
 
 import java.util.Locale;
 
 class PersonalInfoData implements ConsentData {
 
-    private static final String PERSONAL_INFO_DATA_SHARED_PREFS = "com.mopub.privacy";
     private static final String PERSONAL_INFO_PREFIX = "info/";
     private static final String AD_UNIT_ID_SP_KEY = PERSONAL_INFO_PREFIX + "adunit";
     private static final String CACHED_LAST_AD_UNIT_ID_USED_FOR_INIT_SP_KEY = PERSONAL_INFO_PREFIX + "cached_last_ad_unit_id_used_for_init";
@@ -88,14 +86,13 @@ class PersonalInfoData implements ConsentData {
     }
 
     private void getStateFromDisk() {
-        final SharedPreferences sharedPreferences = SharedPreferencesHelper.getSharedPreferences(
-                mAppContext, PERSONAL_INFO_DATA_SHARED_PREFS);
-        mAdUnitId = sharedPreferences.getString(AD_UNIT_ID_SP_KEY, "");
-        mCachedLastAdUnitIdUsedForInit = sharedPreferences.getString(
+        final SdkStateStore store = SdkStateStore.getInstance(mAppContext);
+        mAdUnitId = store.getString(AD_UNIT_ID_SP_KEY, "");
+        mCachedLastAdUnitIdUsedForInit = store.getString(
                 CACHED_LAST_AD_UNIT_ID_USED_FOR_INIT_SP_KEY, null);
-        mConsentStatus = ConsentStatus.fromString(sharedPreferences.getString(
+        mConsentStatus = ConsentStatus.fromString(store.getString(
                 CONSENT_STATUS_SP_KEY, ConsentStatus.UNKNOWN.name()));
-        final String lastSuccessfullySyncedConsentStatusString = sharedPreferences.getString(
+        final String lastSuccessfullySyncedConsentStatusString = store.getString(
                 LAST_SUCCESSFULLY_SYNCED_CONSENT_STATUS_SP_KEY, null);
         if (TextUtils.isEmpty(lastSuccessfullySyncedConsentStatusString)) {
             mLastSuccessfullySyncedConsentStatus = null;
@@ -103,37 +100,37 @@ class PersonalInfoData implements ConsentData {
             mLastSuccessfullySyncedConsentStatus =
                     ConsentStatus.fromString(lastSuccessfullySyncedConsentStatusString);
         }
-        mIsWhitelisted = sharedPreferences.getBoolean(IS_WHITELISTED_SP_KEY, false);
-        mCurrentVendorListVersion = sharedPreferences.getString(CURRENT_VENDOR_LIST_VERSION_SP_KEY,
+        mIsWhitelisted = store.getBoolean(IS_WHITELISTED_SP_KEY, false);
+        mCurrentVendorListVersion = store.getString(CURRENT_VENDOR_LIST_VERSION_SP_KEY,
                 null);
-        mCurrentVendorListLink = sharedPreferences.getString(CURRENT_VENDOR_LIST_LINK_SP_KEY, null);
-        mCurrentPrivacyPolicyVersion = sharedPreferences.getString(
+        mCurrentVendorListLink = store.getString(CURRENT_VENDOR_LIST_LINK_SP_KEY, null);
+        mCurrentPrivacyPolicyVersion = store.getString(
                 CURRENT_PRIVACY_POLICY_VERSION_SP_KEY, null);
-        mCurrentPrivacyPolicyLink = sharedPreferences.getString(CURRENT_PRIVACY_POLICY_LINK_SP_KEY,
+        mCurrentPrivacyPolicyLink = store.getString(CURRENT_PRIVACY_POLICY_LINK_SP_KEY,
                 null);
-        mCurrentVendorListIabFormat = sharedPreferences.getString(
+        mCurrentVendorListIabFormat = store.getString(
                 CURRENT_VENDOR_LIST_IAB_FORMAT_SP_KEY, null);
-        mCurrentVendorListIabHash = sharedPreferences.getString(CURRENT_VENDOR_LIST_IAB_HASH_SP_KEY,
+        mCurrentVendorListIabHash = store.getString(CURRENT_VENDOR_LIST_IAB_HASH_SP_KEY,
                 null);
-        mConsentedVendorListVersion = sharedPreferences.getString(
+        mConsentedVendorListVersion = store.getString(
                 CONSENTED_VENDOR_LIST_VERSION_SP_KEY, null);
-        mConsentedPrivacyPolicyVersion = sharedPreferences.getString(
+        mConsentedPrivacyPolicyVersion = store.getString(
                 CONSENTED_PRIVACY_POLICY_VERSION_SP_KEY, null);
-        mConsentedVendorListIabFormat = sharedPreferences.getString(
+        mConsentedVendorListIabFormat = store.getString(
                 CONSENTED_VENDOR_LIST_IAB_FORMAT_SP_KEY, null);
-        mExtras = sharedPreferences.getString(EXTRAS_SP_KEY, null);
-        mConsentChangeReason = sharedPreferences.getString(CONSENT_CHANGE_REASON_SP_KEY, null);
-        mReacquireConsent = sharedPreferences.getBoolean(REACQUIRE_CONSENT_SP_KEY, false);
-        final String gdprAppliesString = sharedPreferences.getString(GDPR_APPLIES_SP_KEY, null);
+        mExtras = store.getString(EXTRAS_SP_KEY, null);
+        mConsentChangeReason = store.getString(CONSENT_CHANGE_REASON_SP_KEY, null);
+        mReacquireConsent = store.getBoolean(REACQUIRE_CONSENT_SP_KEY, false);
+        final String gdprAppliesString = store.getString(GDPR_APPLIES_SP_KEY, null);
         if (TextUtils.isEmpty(gdprAppliesString)) {
             mGdprApplies = null;
         } else {
             mGdprApplies = Boolean.parseBoolean(gdprAppliesString);
         }
-        mForceGdprApplies = sharedPreferences.getBoolean(FORCE_GDPR_APPLIES_SP_KEY, false);
-        mUdid = sharedPreferences.getString(UDID_SP_KEY, null);
-        mLastChangedMs = sharedPreferences.getString(LAST_CHANGED_MS_SP_KEY, null);
-        final String consentStatusBeforeDnt = sharedPreferences.getString(
+        mForceGdprApplies = store.getBoolean(FORCE_GDPR_APPLIES_SP_KEY, false);
+        mUdid = store.getString(UDID_SP_KEY, null);
+        mLastChangedMs = store.getString(LAST_CHANGED_MS_SP_KEY, null);
+        final String consentStatusBeforeDnt = store.getString(
                 CONSENT_STATUS_BEFORE_DNT_SP_KEY, null);
         if (TextUtils.isEmpty(consentStatusBeforeDnt)) {
             mConsentStatusBeforeDnt = null;
@@ -143,8 +140,8 @@ class PersonalInfoData implements ConsentData {
     }
 
     void writeToDisk() {
-        final SharedPreferences.Editor editor = SharedPreferencesHelper.getSharedPreferences(
-                mAppContext, PERSONAL_INFO_DATA_SHARED_PREFS).edit();
+        // One atomic edit, written to disk with any other pending state.
+        final SdkStateStore.Editor editor = SdkStateStore.getInstance(mAppContext).edit();
         editor.putString(AD_UNIT_ID_SP_KEY, mAdUnitId);
         editor.putString(CACHED_LAST_AD_UNIT_ID_USED_FOR_INIT_SP_KEY, mCachedLastAdUnitIdUsedForInit);
         editor.putString(CONSENT_STATUS_SP_KEY, mConsentStatus.name());
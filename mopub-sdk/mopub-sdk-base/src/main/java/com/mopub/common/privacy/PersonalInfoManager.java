@@ -21,7 +21,10 @@ import com.mopub.common.Preconditions;
 import com.mopub.common.SdkInitializationListener;
 import com.mopub.common.VisibleForTesting;
 import com.mopub.common.logging.MoPubLog;
+import com.mopub.common.metrics.Counter;
+import com.mopub.common.metrics.Metrics;
 import com.mopub.common.util.ManifestUtils;
+import com.mopub.common.util.Utils;
 import com.mopub.mobileads.MoPubConversionTracker;
 import com.mopub.mobileads.MoPubErrorCode;
 import com.mopub.network.MoPubNetworkError;
@@ -53,6 +56,14 @@ public class PersonalInfoManager {
      */
     private static final long MINIMUM_SYNC_DELAY = 5 * 60 * 1000;
 
+    private static final Counter SYNC_SENT_COUNTER = Metrics.counter("consent_sync.sent");
+    // Syncs that were not sent because one was already in flight.
+    private static final Counter SYNC_COALESCED_COUNTER = Metrics.counter("consent_sync.coalesced");
+    // Forced syncs that were not sent because nothing changed since the last sync.
+    private static final Counter SYNC_UNCHANGED_COUNTER = Metrics.counter("consent_sync.unchanged");
+    private static final Counter SYNC_NOT_MODIFIED_COUNTER =
+            Metrics.counter("consent_sync.not_modified");
+
     @NonNull private final Context mAppContext;
     @NonNull private final Set<ConsentStatusChangeListener> mConsentStatusChangeListeners;
     @NonNull private final PersonalInfoData mPersonalInfoData;
@@ -66,6 +77,12 @@ public class PersonalInfoManager {
     @Nullable private Long mLastSyncRequestTimeUptimeMs;
     @Nullable private ConsentStatus mSyncRequestConsentStatus;
     private boolean mSyncRequestInFlight;
+    // A forced sync came in while one was in flight, so sync again when it finishes.
+    private boolean mSyncRequestPending;
+    // The consent state after the last successful sync.
+    @Nullable private String mSyncedConsentStateHash;
+    // The consent state sent by the sync in flight.
+    @Nullable private String mSyncRequestConsentStateHash;
     private boolean mForceGdprAppliesChanged;
     private boolean mForceGdprAppliesChangedSending;
     private boolean mLegitimateInterestAllowed;
@@ -422,13 +439,21 @@ public class PersonalInfoManager {
      *              a GDPR region or if a request is already in flight.
      */
     public void requestSync(final boolean force) {
+        requestSync(force, true);
+    }
+
+    /**
+     * @param skipIfUnchanged Don't send a forced sync if the server already has this consent
+     *                        state.
+     */
+    private void requestSync(final boolean force, final boolean skipIfUnchanged) {
         if (!MoPub.isSdkInitialized()) {
             return;
         }
 
         final AdvertisingId advertisingId = ClientMetadata.getInstance(mAppContext)
                 .getMoPubIdentifier().getAdvertisingInfo();
-        if (!shouldMakeSyncRequest(mSyncRequestInFlight,
+        if (!shouldMakeSyncRequest(false,
                 gdprApplies(),
                 force,
                 mLastSyncRequestTimeUptimeMs,
@@ -438,15 +463,31 @@ public class PersonalInfoManager {
             return;
         }
 
+        if (mSyncRequestInFlight) {
+            // The request in flight may have been built before the change that forced this sync.
+            mSyncRequestPending |= force;
+            SYNC_COALESCED_COUNTER.increment();
+            return;
+        }
+
+        if (force && skipIfUnchanged && isConsentStateSynced()) {
+            SYNC_UNCHANGED_COUNTER.increment();
+            return;
+        }
+
         requestSync();
     }
 
     @VisibleForTesting
     void requestSync() {
         MoPubLog.log(SYNC_ATTEMPTED);
+        SYNC_SENT_COUNTER.increment();
 
+        final String consentStateHash = getConsentStateHash();
+        mSyncRequestConsentStateHash = consentStateHash;
         mSyncRequestConsentStatus = mPersonalInfoData.getConsentStatus();
         mSyncRequestInFlight = true;
+        mSyncRequestPending = false;
 
         mLastSyncRequestTimeUptimeMs = SystemClock.uptimeMillis();
         final SyncUrlGenerator syncUrlGenerator = new SyncUrlGenerator(mAppContext,
@@ -467,6 +508,9 @@ public class PersonalInfoManager {
             mForceGdprAppliesChangedSending = true;
             syncUrlGenerator.withForceGdprAppliesChanged(true);
         }
+        if (consentStateHash.equals(mSyncedConsentStateHash)) {
+            syncUrlGenerator.withConsentStateHash(consentStateHash);
+        }
 
         final SyncRequest syncRequest = new SyncRequest(mAppContext,
                 syncUrlGenerator.generateUrlString(
@@ -474,6 +518,77 @@ public class PersonalInfoManager {
         Networking.getRequestQueue(mAppContext).add(syncRequest);
     }
 
+    /**
+     * @return Whether the consent state is the same as after the last successful sync, and that
+     * sync is recent enough that the server would not have anything new.
+     */
+    private boolean isConsentStateSynced() {
+        if (mSyncedConsentStateHash == null || mLastSyncRequestTimeUptimeMs == null) {
+            return false;
+        }
+        return SystemClock.uptimeMillis() - mLastSyncRequestTimeUptimeMs <= mSyncDelayMs
+                && mSyncedConsentStateHash.equals(getConsentStateHash());
+    }
+
+    /**
+     * Hashes everything a sync request tells the server about the consent state.
+     */
+    @VisibleForTesting
+    @NonNull
+    String getConsentStateHash() {
+        final StringBuilder state = new StringBuilder()
+                .append(mPersonalInfoData.getAdUnitId()).append('\n')
+                .append(mPersonalInfoData.getUdid()).append('\n')
+                .append(mPersonalInfoData.getLastChangedMs()).append('\n')
+                .append(mPersonalInfoData.getConsentStatus()).append('\n')
+                .append(mPersonalInfoData.getLastSuccessfullySyncedConsentStatus()).append('\n')
+                .append(mPersonalInfoData.getConsentChangeReason()).append('\n')
+                .append(mPersonalInfoData.getConsentedVendorListVersion()).append('\n')
+                .append(mPersonalInfoData.getConsentedPrivacyPolicyVersion()).append('\n')
+                .append(mPersonalInfoData.getCurrentVendorListVersion()).append('\n')
+                .append(mPersonalInfoData.getCurrentPrivacyPolicyVersion()).append('\n')
+                .append(mPersonalInfoData.getCurrentVendorListIabHash()).append('\n')
+                .append(mPersonalInfoData.getExtras()).append('\n')
+                .append(gdprApplies()).append('\n')
+                .append(mPersonalInfoData.isForceGdprApplies()).append('\n')
+                .append(mForceGdprAppliesChanged);
+        return Utils.sha1(state.toString());
+    }
+
+    /**
+     * Sends the sync that was held back while the last one was in flight, if there is one. It is
+     * sent even if the consent state looks unchanged, because whatever forced it may have happened
+     * before the state the finished sync recorded.
+     */
+    private void requestPendingSync() {
+        if (mSyncRequestPending && !mSyncRequestInFlight) {
+            mSyncRequestPending = false;
+            requestSync(true, false);
+        }
+    }
+
+    /**
+     * Call when a sync finishes, before applying its response.
+     *
+     * @return Whether the consent state changed while the sync was in flight, so the server
+     * doesn't have it.
+     */
+    private boolean hasConsentStateChangedSinceSyncRequest() {
+        return !getConsentStateHash().equals(mSyncRequestConsentStateHash);
+    }
+
+    /**
+     * Records what the server has after a sync finished. If the consent state changed while the
+     * sync was in flight, that is the state the sync sent. Otherwise it is the current state,
+     * which includes what the response changed.
+     */
+    private void setSyncedConsentStateHash(final boolean changedSinceSyncRequest) {
+        mSyncedConsentStateHash = changedSinceSyncRequest
+                ? mSyncRequestConsentStateHash
+                : getConsentStateHash();
+        mSyncRequestConsentStateHash = null;
+    }
+
     /**
      * For use by whitelisted publishers only. Gets a copy of the current and consented vendor
      * list and privacy policy and their versions.
@@ -634,6 +749,7 @@ public class PersonalInfoManager {
         public void onSuccess(final SyncResponse response) {
             MoPubLog.log(SYNC_COMPLETED);
 
+            final boolean changedSinceSyncRequest = hasConsentStateChangedSinceSyncRequest();
             final boolean oldCanCollectPersonalInformation = canCollectPersonalInformation();
             if (mPersonalInfoData.getGdprApplies() == null) {
                 mPersonalInfoData.setGdprApplies(response.isGdprRegion());
@@ -712,6 +828,7 @@ public class PersonalInfoManager {
             mPersonalInfoData.writeToDisk();
 
             mSyncRequestInFlight = false;
+            setSyncedConsentStateHash(changedSinceSyncRequest);
 
             if (ConsentStatus.POTENTIAL_WHITELIST.equals(
                     mSyncRequestConsentStatus) && mPersonalInfoData.isWhitelisted()) {
@@ -719,6 +836,30 @@ public class PersonalInfoManager {
                         ConsentChangeReason.GRANTED_BY_WHITELISTED_PUB);
                 requestSync(true);
             }
+            requestPendingSync();
+
+            if (mSdkInitializationListener != null) {
+                mSdkInitializationListener.onInitializationFinished();
+                mSdkInitializationListener = null;
+            }
+        }
+
+        @Override
+        public void onNotModified() {
+            MoPubLog.log(SYNC_COMPLETED);
+            SYNC_NOT_MODIFIED_COUNTER.increment();
+
+            final boolean changedSinceSyncRequest = hasConsentStateChangedSinceSyncRequest();
+            // The server already has this state, so only the bookkeeping of onSuccess applies.
+            if (!ConsentStatus.EXPLICIT_YES.equals(mSyncRequestConsentStatus)
+                    && mPersonalInfoData.getUdid() != null) {
+                mPersonalInfoData.setUdid(null);
+                mPersonalInfoData.writeToDisk();
+            }
+
+            mSyncRequestInFlight = false;
+            setSyncedConsentStateHash(changedSinceSyncRequest);
+            requestPendingSync();
 
             if (mSdkInitializationListener != null) {
                 mSdkInitializationListener.onInitializationFinished();
@@ -737,6 +878,7 @@ public class PersonalInfoManager {
             MoPubLog.log(SYNC_FAILED, reason, message);
 
             mSyncRequestInFlight = false;
+            requestPendingSync();
             if (mSdkInitializationListener != null) {
                 MoPubLog.log(CUSTOM, "Personal Info Manager initialization finished but ran into errors.");
                 mSdkInitializationListener.onInitializationFinished();
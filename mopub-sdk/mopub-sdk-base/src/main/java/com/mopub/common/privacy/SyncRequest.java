@@ -22,6 +22,12 @@ public class SyncRequest extends MoPubRequest<SyncResponse> {
 
     public interface Listener extends Response.ErrorListener {
         void onSuccess(SyncResponse response);
+
+        /**
+         * Called when the server answers 304 Not Modified to a sync that sent a consent state
+         * hash, meaning neither side has anything new.
+         */
+        void onNotModified();
     }
 
     @Nullable private Listener mListener;
@@ -43,6 +49,11 @@ public class SyncRequest extends MoPubRequest<SyncResponse> {
 
     @Override
     protected Response<SyncResponse> parseNetworkResponse(final NetworkResponse networkResponse) {
+        if (networkResponse.notModified) {
+            // Delivered as a null response, see deliverResponse.
+            return Response.success(null, HttpHeaderParser.parseCacheHeaders(networkResponse));
+        }
+
         final SyncResponse.Builder builder = new SyncResponse.Builder();
         final String responseBody = parseStringBody(networkResponse);
 
@@ -87,8 +98,13 @@ public class SyncRequest extends MoPubRequest<SyncResponse> {
     }
 
     @Override
-    protected void deliverResponse(final SyncResponse syncResponse) {
-        if (mListener != null) {
+    protected void deliverResponse(@Nullable final SyncResponse syncResponse) {
+        if (mListener == null) {
+            return;
+        }
+        if (syncResponse == null) {
+            mListener.onNotModified();
+        } else {
             mListener.onSuccess(syncResponse);
         }
     }
@@ -47,6 +47,12 @@ public class SyncUrlGenerator extends BaseUrlGenerator {
      */
     private static final String FORCED_GDPR_APPLIES_CHANGED = "forced_gdpr_applies_changed";
 
+    /**
+     * Hash of the consent state, sent only when the state has not changed since the last
+     * successful sync. The server may then answer 304 Not Modified if it has nothing new either.
+     */
+    private static final String CONSENT_STATE_HASH_KEY = "consent_state_hash";
+
     @NonNull private final Context mContext;
     @Nullable private String mAdUnitId;
     @Nullable private String mUdid;
@@ -61,6 +67,7 @@ public class SyncUrlGenerator extends BaseUrlGenerator {
     @Nullable private Boolean mGdprApplies;
     private boolean mForceGdprApplies;
     @Nullable private Boolean mForceGdprAppliesChanged;
+    @Nullable private String mConsentStateHash;
 
     public SyncUrlGenerator(@NonNull final Context context,
             @NonNull final String currentConsentStatus) {
@@ -135,6 +142,11 @@ public class SyncUrlGenerator extends BaseUrlGenerator {
         return this;
     }
 
+    public SyncUrlGenerator withConsentStateHash(@Nullable final String consentStateHash) {
+        mConsentStateHash = consentStateHash;
+        return this;
+    }
+
     @Override
     public String generateUrlString(@NonNull final String serverHostname) {
         initUrlString(serverHostname, Constants.GDPR_SYNC_HANDLER);
@@ -155,6 +167,7 @@ public class SyncUrlGenerator extends BaseUrlGenerator {
         addParam(GDPR_APPLIES, mGdprApplies);
         addParam(FORCE_GDPR_APPLIES, mForceGdprApplies);
         addParam(FORCED_GDPR_APPLIES_CHANGED, mForceGdprAppliesChanged);
+        addParam(CONSENT_STATE_HASH_KEY, mConsentStateHash);
         addParam(BUNDLE_ID_KEY, ClientMetadata.getInstance(mContext).getAppPackageName());
         addParam(DNT_KEY, PlayServicesUrlRewriter.DO_NOT_TRACK_TEMPLATE);
         addParam(MOPUB_ID_KEY, PlayServicesUrlRewriter.MOPUB_ID_TEMPLATE);
@@ -0,0 +1,199 @@
+// Copyright 2018-2020 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.common.util;
+
+import android.os.AsyncTask;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.mopub.common.Preconditions;
+import com.mopub.common.VisibleForTesting;
+import com.mopub.common.logging.MoPubLog;
+
+import java.lang.reflect.Constructor;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.mopub.common.logging.MoPubLog.SdkLogEvent.CUSTOM;
+
+/**
+ * Creates custom events and adapter configurations from their class names without looking the
+ * class up on every ad load.
+ *
+ * A class name can be registered with a {@link Factory} that creates instances directly.
+ * Otherwise, the class and its empty constructor are resolved the first time they're needed, or
+ * ahead of time with {@link #preload(Collection)}, and reused after that. A class name that can't
+ * be resolved is remembered too, so it fails without another lookup.
+ */
+public class ConstructorRegistry {
+
+    /**
+     * Creates instances of one class.
+     */
+    public interface Factory {
+        @NonNull
+        Object create() throws Exception;
+    }
+
+    private static class ConstructorFactory implements Factory {
+        @NonNull private final Constructor<?> mConstructor;
+
+        ConstructorFactory(@NonNull final Constructor<?> constructor) {
+            mConstructor = constructor;
+        }
+
+        @NonNull
+        @Override
+        public Object create() throws Exception {
+            return mConstructor.newInstance();
+        }
+
+        @NonNull
+        Class<?> getInstanceClass() {
+            return mConstructor.getDeclaringClass();
+        }
+    }
+
+    /**
+     * Stands in for a class name that couldn't be resolved.
+     */
+    private static class FailedFactory implements Factory {
+        @NonNull private final Exception mException;
+
+        FailedFactory(@NonNull final Exception exception) {
+            mException = exception;
+        }
+
+        @NonNull
+        @Override
+        public Object create() throws Exception {
+            throw mException;
+        }
+    }
+
+    @NonNull private static final Map<String, Factory> sFactories = new ConcurrentHashMap<>();
+
+    private ConstructorRegistry() {
+    }
+
+    /**
+     * Registers a factory for a class name, replacing whatever was resolved for it before.
+     */
+    public static void register(@NonNull final String className, @NonNull final Factory factory) {
+        Preconditions.checkNotNull(className);
+        Preconditions.checkNotNull(factory);
+
+        sFactories.put(className, factory);
+    }
+
+    /**
+     * Creates an instance of the class with the given name.
+     *
+     * @param className  The fully qualified name of the class.
+     * @param superclass A class the instance has to be, such as CustomEventBanner.
+     * @return The new instance.
+     * @throws ClassNotFoundException if there is no class with that name.
+     * @throws NoSuchMethodException  if the class doesn't have an empty constructor.
+     * @throws ClassCastException     if the class is not a {@code superclass}. The class is
+     *                                checked before its constructor runs.
+     * @throws Exception              if the constructor or factory throws.
+     */
+    @NonNull
+    public static <T> T create(@NonNull final String className,
+            @NonNull final Class<? extends T> superclass) throws Exception {
+        Preconditions.checkNotNull(className);
+        Preconditions.checkNotNull(superclass);
+
+        Factory factory = sFactories.get(className);
+        if (factory == null) {
+            factory = resolve(className);
+            sFactories.put(className, factory);
+        }
+        if (factory instanceof ConstructorFactory && !superclass.isAssignableFrom(
+                ((ConstructorFactory) factory).getInstanceClass())) {
+            throw new ClassCastException(className + " is not a " + superclass.getName());
+        }
+        return superclass.cast(factory.create());
+    }
+
+    /**
+     * Resolves the constructors of the given classes so the first ad load doesn't have to.
+     * Classes that aren't in the app are skipped.
+     */
+    public static void preload(@NonNull final Collection<String> classNames) {
+        Preconditions.checkNotNull(classNames);
+
+        for (final String className : classNames) {
+            if (className == null || sFactories.containsKey(className)) {
+                continue;
+            }
+            final Factory factory = resolve(className);
+            sFactories.put(className, factory);
+            // Not every adapter is included in every app, so missing classes aren't logged.
+            if (factory instanceof FailedFactory
+                    && !(((FailedFactory) factory).mException instanceof ClassNotFoundException)) {
+                MoPubLog.log(CUSTOM, "Unable to resolve the constructor of " + className);
+            }
+        }
+    }
+
+    /**
+     * Calls {@link #preload(Collection)} on a background thread.
+     */
+    public static void preloadInBackground(@NonNull final Collection<String> classNames) {
+        Preconditions.checkNotNull(classNames);
+
+        AsyncTasks.safeExecuteOnExecutor(new PreloadAsyncTask(new ArrayList<>(classNames)));
+    }
+
+    @VisibleForTesting
+    static boolean isResolved(@NonNull final String className) {
+        final Factory factory = sFactories.get(className);
+        return factory != null && !(factory instanceof FailedFactory);
+    }
+
+    @VisibleForTesting
+    static void clear() {
+        sFactories.clear();
+    }
+
+    /**
+     * @return A factory for the class, or a {@link FailedFactory} with the reason it can't be
+     * created.
+     */
+    @NonNull
+    private static Factory resolve(@NonNull final String className) {
+        try {
+            // Static initializers run on the first instance rather than here.
+            final Constructor<?> constructor = Class.forName(className, false,
+                    ConstructorRegistry.class.getClassLoader())
+                    .getDeclaredConstructor((Class[]) null);
+            constructor.setAccessible(true);
+            return new ConstructorFactory(constructor);
+        } catch (ClassNotFoundException e) {
+            return new FailedFactory(e);
+        } catch (NoSuchMethodException e) {
+            return new FailedFactory(e);
+        }
+    }
+
+    private static class PreloadAsyncTask extends AsyncTask<Void, Void, Void> {
+        @NonNull private final Collection<String> mClassNames;
+
+        PreloadAsyncTask(@NonNull final Collection<String> classNames) {
+            mClassNames = classNames;
+        }
+
+        @Nullable
+        @Override
+        protected Void doInBackground(final Void... voids) {
+            preload(mClassNames);
+            return null;
+        }
+    }
+}
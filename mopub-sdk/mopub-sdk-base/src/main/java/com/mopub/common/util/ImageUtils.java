@@ -21,6 +21,17 @@ public class ImageUtils {
         int[] pixels = new int[w * h];
         mutableBitmap.getPixels(pixels, 0, w, 0, 0, w, h);
 
+        blurPixels(pixels, w, h, radius);
+
+        mutableBitmap.setPixels(pixels, 0, w, 0, 0, w, h);
+        return mutableBitmap;
+    }
+
+    /**
+     * Blurs ARGB pixels in place, leaving them opaque. This is the part of
+     * {@link #applyFastGaussianBlurToBitmap} that doesn't need a {@link Bitmap}.
+     */
+    public static void blurPixels(@NonNull int[] pixels, int w, int h, int radius) {
         for (int r = radius; r >= 1; r /= 2) {
             for (int i = r; i < h - r; i++) {
                 for (int j = r; j < w - r; j++) {
@@ -40,8 +51,5 @@ public class ImageUtils {
                 }
             }
         }
-
-        mutableBitmap.setPixels(pixels, 0, w, 0, 0, w, h);
-        return mutableBitmap;
     }
 }
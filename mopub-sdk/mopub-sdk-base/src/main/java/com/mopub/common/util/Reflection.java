@@ -8,19 +8,51 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 import com.mopub.common.Preconditions;
+import com.mopub.common.VisibleForTesting;
 
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * NOTE: Any methods accessed via this class should be annotated with
  * {@link com.mopub.common.util.ReflectionTarget}
+ *
+ * Methods found by {@link MethodBuilder} are cached by class, name, parameter types and whether
+ * they were made accessible, as are methods that weren't found, so each method is only looked up
+ * once. Only the cached copies that were looked up as accessible are ever made accessible.
  */
 public class Reflection {
+    // Values are either a Method or NO_SUCH_METHOD.
+    @NonNull private static final Map<MethodKey, Object> sMethodCache = new ConcurrentHashMap<>();
+    @NonNull private static final Object NO_SUCH_METHOD = new Object();
+    @NonNull private static final Map<String, Class<?>> sClassCache = new ConcurrentHashMap<>();
+
+    /**
+     * Calls a method that has already been found, so calling it repeatedly, such as for every
+     * video event, skips the lookup. Get one from {@link MethodBuilder#bind()}.
+     */
+    public static class Invoker {
+        @Nullable private final Object mInstance;
+        @NonNull private final Method mMethod;
+
+        Invoker(@Nullable final Object instance, @NonNull final Method method) {
+            mInstance = instance;
+            mMethod = method;
+        }
+
+        @Nullable
+        public Object invoke(@Nullable final Object... parameters) throws Exception {
+            return mMethod.invoke(mInstance, parameters);
+        }
+    }
+
     public static class MethodBuilder {
         @Nullable private final Object mInstance;
         @NonNull private final String mMethodName;
@@ -30,6 +62,7 @@ public class Reflection {
         @NonNull private List<Object> mParameters;
         private boolean mIsAccessible;
         private boolean mIsStatic;
+        @Nullable private Method mMethod;
 
         public MethodBuilder(@Nullable final Object instance, @NonNull final String methodName) {
             Preconditions.checkNotNull(methodName);
@@ -59,7 +92,7 @@ public class Reflection {
                 @Nullable final Object parameter) throws ClassNotFoundException {
             Preconditions.checkNotNull(className);
 
-            final Class<?> clazz = Class.forName(className);
+            final Class<?> clazz = forName(className);
 
             mParameterClasses.add(clazz);
             mParameters.add(parameter);
@@ -90,32 +123,150 @@ public class Reflection {
             Preconditions.checkNotNull(className);
 
             mIsStatic = true;
-            mClass = Class.forName(className);
+            mClass = forName(className);
 
             return this;
         }
 
         @Nullable
         public Object execute() throws Exception {
+            final Method method = resolve();
+            final Object[] parameters = mParameters.toArray();
+
+            if (mIsStatic) {
+                return method.invoke(null, parameters);
+            } else {
+                return method.invoke(mInstance, parameters);
+            }
+        }
+
+        /**
+         * Finds the method without calling it. Pass the parameters to {@link Invoker#invoke}
+         * instead of {@link #addParam}, which only needs the parameter classes here.
+         *
+         * @return An invoker for the method on this builder's instance, or on its class if the
+         * method is static.
+         * @throws NoSuchMethodException if there is no such method.
+         */
+        @NonNull
+        public Invoker bind() throws NoSuchMethodException {
+            return new Invoker(mIsStatic ? null : mInstance, resolve());
+        }
+
+        @NonNull
+        private Method resolve() throws NoSuchMethodException {
+            if (mMethod != null) {
+                return mMethod;
+            }
+
             final Class<?>[] classArray = new Class<?>[mParameterClasses.size()];
             final Class<?>[] parameterTypes = mParameterClasses.toArray(classArray);
 
-            final Method method = getDeclaredMethodWithTraversal(mClass, mMethodName, parameterTypes);
+            final Method method = getCachedMethodWithTraversal(mClass, mMethodName,
+                    mIsAccessible, parameterTypes);
 
-            if (mIsAccessible) {
-                method.setAccessible(true);
+            mMethod = method;
+            return method;
+        }
+    }
+
+    private static class MethodKey {
+        @NonNull private final Class<?> mClass;
+        @NonNull private final String mMethodName;
+        @NonNull private final Class<?>[] mParameterTypes;
+        private final boolean mIsAccessible;
+        private final int mHashCode;
+
+        MethodKey(@NonNull final Class<?> clazz, @NonNull final String methodName,
+                final boolean isAccessible, @NonNull final Class<?>[] parameterTypes) {
+            mClass = clazz;
+            mMethodName = methodName;
+            mParameterTypes = parameterTypes;
+            mIsAccessible = isAccessible;
+            mHashCode = 31 * (31 * (31 * clazz.hashCode() + methodName.hashCode())
+                    + Arrays.hashCode(parameterTypes)) + (isAccessible ? 1 : 0);
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
             }
+            if (!(o instanceof MethodKey)) {
+                return false;
+            }
+            final MethodKey other = (MethodKey) o;
+            return mClass == other.mClass
+                    && mIsAccessible == other.mIsAccessible
+                    && mMethodName.equals(other.mMethodName)
+                    && Arrays.equals(mParameterTypes, other.mParameterTypes);
+        }
 
-            final Object[] parameters = mParameters.toArray();
+        @Override
+        public int hashCode() {
+            return mHashCode;
+        }
+    }
 
-            if (mIsStatic) {
-                return method.invoke(null, parameters);
-            } else {
-                return method.invoke(mInstance, parameters);
+    /**
+     * Same as {@link #getDeclaredMethodWithTraversal}, but remembers what it finds, and what it
+     * doesn't.
+     *
+     * @param isAccessible true to get a copy of the method that was made accessible. The copy
+     *                     that isn't accessible is never changed.
+     */
+    @NonNull
+    static Method getCachedMethodWithTraversal(@Nullable final Class<?> clazz,
+            @NonNull final String methodName, final boolean isAccessible,
+            @NonNull final Class<?>... parameterTypes) throws NoSuchMethodException {
+        Preconditions.checkNotNull(methodName);
+        Preconditions.checkNotNull(parameterTypes);
+
+        if (clazz == null) {
+            throw new NoSuchMethodException();
+        }
+
+        final MethodKey key = new MethodKey(clazz, methodName, isAccessible, parameterTypes);
+        final Object cached = sMethodCache.get(key);
+        if (cached == NO_SUCH_METHOD) {
+            throw new NoSuchMethodException();
+        }
+        if (cached != null) {
+            return (Method) cached;
+        }
+
+        try {
+            // getDeclaredMethod returns a new copy each time, so this one is not shared.
+            final Method method = getDeclaredMethodWithTraversal(clazz, methodName,
+                    parameterTypes);
+            if (isAccessible) {
+                method.setAccessible(true);
             }
+            sMethodCache.put(key, method);
+            return method;
+        } catch (NoSuchMethodException e) {
+            sMethodCache.put(key, NO_SUCH_METHOD);
+            throw e;
         }
     }
 
+    @NonNull
+    private static Class<?> forName(@NonNull final String className)
+            throws ClassNotFoundException {
+        Class<?> clazz = sClassCache.get(className);
+        if (clazz == null) {
+            clazz = Class.forName(className);
+            sClassCache.put(className, clazz);
+        }
+        return clazz;
+    }
+
+    @VisibleForTesting
+    static void clearMethodCache() {
+        sMethodCache.clear();
+        sClassCache.clear();
+    }
+
     @Nullable
     public static Method getDeclaredMethodWithTraversal(@Nullable final Class<?> clazz,
             @NonNull final String methodName, @NonNull final Class<?>... parameterTypes)
@@ -35,6 +35,7 @@ public enum ResponseHeader {
     LOCATION("location"),
     USER_AGENT("user-agent"),
     ACCEPT_LANGUAGE("accept-language"),
+    CONTENT_ENCODING("content-encoding"),
 
     BROWSER_AGENT("x-browser-agent"),
 
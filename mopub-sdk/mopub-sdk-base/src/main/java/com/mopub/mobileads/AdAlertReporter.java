@@ -4,60 +4,111 @@
 
 package com.mopub.mobileads;
 
+import android.app.Activity;
 import android.content.Context;
 import android.content.Intent;
 import android.graphics.Bitmap;
+import android.graphics.Canvas;
 import android.net.Uri;
+import android.os.AsyncTask;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.PixelCopy;
+import android.view.View;
+import android.view.Window;
+import android.widget.Toast;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
-import android.util.Base64;
-import android.view.View;
-import android.widget.Toast;
+import androidx.annotation.RequiresApi;
 
 import com.mopub.common.AdReport;
+import com.mopub.common.MoPubFileProvider;
 import com.mopub.common.Preconditions;
 import com.mopub.common.VisibleForTesting;
+import com.mopub.common.logging.MoPubLog;
+import com.mopub.common.metrics.Histogram;
+import com.mopub.common.metrics.Metrics;
 import com.mopub.common.util.DateAndTime;
 import com.mopub.common.util.Intents;
+import com.mopub.common.util.Streams;
 import com.mopub.exceptions.IntentNotResolvableException;
 
-import java.io.ByteArrayOutputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.text.SimpleDateFormat;
 import java.util.Locale;
+import java.util.concurrent.Executor;
 
+import static com.mopub.common.logging.MoPubLog.SdkLogEvent.CUSTOM;
+import static com.mopub.common.logging.MoPubLog.SdkLogEvent.CUSTOM_WITH_THROWABLE;
+
+/**
+ * Emails a report about an ad with a screenshot of it attached. Only the screenshot's pixels are
+ * copied on the main thread. It is compressed into a cache file in the background, and
+ * {@link #send()} opens the email once that is done. The email app reads the file through
+ * {@link MoPubFileProvider}.
+ */
 public class AdAlertReporter {
     private static final String EMAIL_RECIPIENT = "creative-review@mopub.com";
     private static final String DATE_FORMAT_PATTERN = "M/d/yy hh:mm:ss a z";
     private static final int IMAGE_QUALITY = 25;
+    // Screenshots are scaled down so neither side is longer than this, in pixels.
+    private static final int MAX_SCREENSHOT_DIMENSION = 1024;
     private static final String BODY_SEPARATOR = "\n=================\n";
+    // In the cache path of res/xml/mopub_file_paths. Each report replaces the last screenshot.
+    private static final String SCREENSHOT_DIRECTORY = "mopub-ad-alert";
+    private static final String SCREENSHOT_FILE_NAME = "screenshot.jpg";
     @VisibleForTesting
     static final String MESSAGE = "Thank you for taking the time to tell us about your ad experience.\n" +
             "\n" +
             "Please share with us how the ad experience was poor:\n" +
             "\n";
 
+    // Main thread time spent copying the screenshot.
+    private static final Histogram CAPTURE_HISTOGRAM = Metrics.histogram(
+            "main_thread.ad_alert_capture_us", Histogram.MAIN_THREAD_MICROS_BOUNDS);
+    // Background time spent compressing and saving the screenshot.
+    private static final Histogram ENCODE_HISTOGRAM = Metrics.histogram("ad_alert.encode_us",
+            new long[]{1000, 5000, 10000, 20000, 50000, 100000, 200000, 500000, 1000000});
+
     private final String mDateString;
 
     private final View mView;
     @NonNull
     private final Context mContext;
+    @NonNull private final Executor mExecutor;
+    @NonNull private final Handler mHandler;
     private Intent mEmailIntent;
     private String mParameters;
     private String mResponse;
+    // Both only change on the main thread.
+    private boolean mEmailBodyAdded;
+    private boolean mSendRequested;
 
     public AdAlertReporter(@NonNull final Context context, final View view, @Nullable final AdReport adReport) {
+        this(context, view, adReport, AsyncTask.THREAD_POOL_EXECUTOR);
+    }
+
+    @VisibleForTesting
+    AdAlertReporter(@NonNull final Context context, final View view,
+            @Nullable final AdReport adReport, @NonNull final Executor executor) {
         Preconditions.checkNotNull(context);
+        Preconditions.checkNotNull(executor);
 
         mView = view;
         mContext = context;
+        mExecutor = executor;
+        mHandler = new Handler(Looper.getMainLooper());
 
         SimpleDateFormat dateFormat = new SimpleDateFormat(DATE_FORMAT_PATTERN, Locale.US);
         mDateString = dateFormat.format(DateAndTime.now());
 
         initEmailIntent();
-        Bitmap screenShot = takeScreenShot();
-        String screenShotString = convertBitmapInWEBPToBase64EncodedString(screenShot);
         mParameters = "";
         mResponse = "";
         if (adReport != null) {
@@ -66,10 +117,18 @@ public class AdAlertReporter {
         }
 
         addEmailSubject();
-        addEmailBody(mParameters, mResponse, screenShotString);
+        takeScreenShot();
     }
 
+    /**
+     * Opens the email, or opens it once the screenshot is encoded if it isn't yet.
+     */
     public void send() {
+        if (!mEmailBodyAdded) {
+            mSendRequested = true;
+            return;
+        }
+
         try {
             Intents.startActivity(mContext, mEmailIntent);
         } catch (IntentNotResolvableException e) {
@@ -81,46 +140,197 @@ public class AdAlertReporter {
     }
 
     private void initEmailIntent() {
-        mEmailIntent = new Intent(Intent.ACTION_SENDTO);
-        // Should not set type since that either overrides (via setType) or conflicts with
-        // (via setDataAndType) the data, resulting in NO applications being able to handle this
-        // intent.
-        mEmailIntent.setData(Uri.parse("mailto:" + EMAIL_RECIPIENT));
+        // ACTION_SENDTO can't carry an attachment, so it only picks the apps that are offered.
+        final Intent emailAppSelector = new Intent(Intent.ACTION_SENDTO);
+        emailAppSelector.setData(Uri.parse("mailto:"));
+
+        mEmailIntent = new Intent(Intent.ACTION_SEND);
+        mEmailIntent.setType("message/rfc822");
+        mEmailIntent.putExtra(Intent.EXTRA_EMAIL, new String[]{EMAIL_RECIPIENT});
+        mEmailIntent.setSelector(emailAppSelector);
     }
 
-    private Bitmap takeScreenShot() {
-        if (mView == null || mView.getRootView() == null) {
-            return null;
+    private void takeScreenShot() {
+        final long startNanos = Metrics.startTimer();
+        final View rootView = mView == null ? null : mView.getRootView();
+        if (rootView == null || rootView.getWidth() <= 0 || rootView.getHeight() <= 0) {
+            onScreenShotSaved(null);
+            return;
         }
 
-        View rootView = mView.getRootView();
-        boolean wasDrawingCacheEnabled = rootView.isDrawingCacheEnabled();
-        rootView.setDrawingCacheEnabled(true);
+        final float scale = getScreenShotScale(rootView.getWidth(), rootView.getHeight());
+        final Bitmap bitmap;
+        try {
+            bitmap = Bitmap.createBitmap(Math.max(1, Math.round(rootView.getWidth() * scale)),
+                    Math.max(1, Math.round(rootView.getHeight() * scale)),
+                    Bitmap.Config.ARGB_8888);
+        } catch (OutOfMemoryError e) {
+            MoPubLog.log(CUSTOM, "Not enough memory for the ad alert screenshot.");
+            onScreenShotSaved(null);
+            return;
+        }
 
-        Bitmap drawingCache = rootView.getDrawingCache();
-        if (drawingCache == null) {
-            return null;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O && rootView.isHardwareAccelerated()
+                && copyWindowPixels(rootView, bitmap)) {
+            Metrics.recordMicrosSince(CAPTURE_HISTOGRAM, startNanos);
+            return;
+        }
+
+        // Draws straight into the scaled bitmap rather than through the full size drawing cache.
+        final Canvas canvas = new Canvas(bitmap);
+        canvas.scale(scale, scale);
+        rootView.draw(canvas);
+        Metrics.recordMicrosSince(CAPTURE_HISTOGRAM, startNanos);
+        encodeScreenShot(bitmap);
+    }
+
+    /**
+     * Copies the window's pixels with the GPU, which includes hardware layers and surfaces that
+     * a software draw would miss. The screenshot is encoded when the copy finishes.
+     *
+     * @return False if the root view is not the window of an activity.
+     */
+    @RequiresApi(Build.VERSION_CODES.O)
+    private boolean copyWindowPixels(@NonNull final View rootView, @NonNull final Bitmap bitmap) {
+        if (!(mContext instanceof Activity)) {
+            return false;
+        }
+        final Window window = ((Activity) mContext).getWindow();
+        if (window == null || window.peekDecorView() != rootView) {
+            return false;
+        }
+
+        try {
+            PixelCopy.request(window, bitmap, new PixelCopy.OnPixelCopyFinishedListener() {
+                @Override
+                public void onPixelCopyFinished(final int copyResult) {
+                    if (copyResult == PixelCopy.SUCCESS) {
+                        encodeScreenShot(bitmap);
+                    } else {
+                        MoPubLog.log(CUSTOM, "Unable to copy the ad alert screenshot: "
+                                + copyResult);
+                        onScreenShotSaved(null);
+                    }
+                }
+            }, mHandler);
+            return true;
+        } catch (IllegalArgumentException e) {
+            // The window has no surface yet.
+            return false;
+        }
+    }
+
+    private void encodeScreenShot(@NonNull final Bitmap bitmap) {
+        final File file = getScreenShotFile(mContext);
+        if (file == null) {
+            bitmap.recycle();
+            onScreenShotSaved(null);
+            return;
         }
 
-        Bitmap bitmap = Bitmap.createBitmap(drawingCache);
-        rootView.setDrawingCacheEnabled(wasDrawingCacheEnabled);
+        try {
+            mExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    final long startNanos = Metrics.startTimer();
+                    final boolean saved = writeJpeg(bitmap, file);
+                    bitmap.recycle();
+                    Metrics.recordMicrosSince(ENCODE_HISTOGRAM, startNanos);
+                    postScreenShotSaved(saved ? file : null);
+                }
+            });
+        } catch (Exception e) {
+            MoPubLog.log(CUSTOM_WITH_THROWABLE, "Unable to save the ad alert screenshot.", e);
+            onScreenShotSaved(null);
+        }
+    }
 
-        return bitmap;
+    private void postScreenShotSaved(@Nullable final File file) {
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            onScreenShotSaved(file);
+            return;
+        }
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                onScreenShotSaved(file);
+            }
+        });
     }
 
-    private String convertBitmapInWEBPToBase64EncodedString(Bitmap bitmap) {
-        String result = null;
-        if (bitmap != null) {
+    private void onScreenShotSaved(@Nullable final File file) {
+        if (file != null) {
             try {
-                ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-                bitmap.compress(Bitmap.CompressFormat.JPEG, IMAGE_QUALITY, byteArrayOutputStream);
-                byte[] bytes = byteArrayOutputStream.toByteArray();
-                result = Base64.encodeToString(bytes, Base64.DEFAULT);
-            } catch (Exception e) {
-                // should we log something here?
+                attachScreenShot(MoPubFileProvider.getUriForFile(mContext, file));
+            } catch (IllegalArgumentException e) {
+                MoPubLog.log(CUSTOM_WITH_THROWABLE, "Unable to share the ad alert screenshot.", e);
             }
         }
-        return result;
+        addEmailBody(mParameters, mResponse);
+        mEmailBodyAdded = true;
+        if (mSendRequested) {
+            mSendRequested = false;
+            send();
+        }
+    }
+
+    @VisibleForTesting
+    void attachScreenShot(@NonNull final Uri uri) {
+        mEmailIntent.putExtra(Intent.EXTRA_STREAM, uri);
+        mEmailIntent.addFlags(Intent.FLAG_GRANT_READ_URI_PERMISSION);
+    }
+
+    /**
+     * @return The file the screenshot is saved to, or null if there is no cache directory.
+     */
+    @VisibleForTesting
+    @Nullable
+    static File getScreenShotFile(@NonNull final Context context) {
+        final File cacheDir = context.getCacheDir();
+        if (cacheDir == null) {
+            return null;
+        }
+        final File directory = new File(cacheDir, SCREENSHOT_DIRECTORY);
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            return null;
+        }
+        return new File(directory, SCREENSHOT_FILE_NAME);
+    }
+
+    /**
+     * @return How much to scale a screenshot so neither side is longer than the maximum.
+     */
+    @VisibleForTesting
+    static float getScreenShotScale(final int width, final int height) {
+        final int longestSide = Math.max(width, height);
+        if (longestSide <= MAX_SCREENSHOT_DIMENSION) {
+            return 1f;
+        }
+        return (float) MAX_SCREENSHOT_DIMENSION / longestSide;
+    }
+
+    /**
+     * Compresses the bitmap as a JPEG straight into the file.
+     *
+     * @return False if the file couldn't be written.
+     */
+    @VisibleForTesting
+    static boolean writeJpeg(@NonNull final Bitmap bitmap, @NonNull final File file) {
+        OutputStream outputStream = null;
+        try {
+            outputStream = new BufferedOutputStream(new FileOutputStream(file));
+            if (!bitmap.compress(Bitmap.CompressFormat.JPEG, IMAGE_QUALITY, outputStream)) {
+                return false;
+            }
+            outputStream.close();
+            outputStream = null;
+            return true;
+        } catch (IOException e) {
+            MoPubLog.log(CUSTOM_WITH_THROWABLE, "Unable to save the ad alert screenshot.", e);
+            return false;
+        } finally {
+            Streams.closeStream(outputStream);
+        }
     }
 
     private void addEmailSubject() {
@@ -159,4 +369,3 @@ public class AdAlertReporter {
         return mResponse;
     }
 }
-
@@ -14,6 +14,9 @@ import com.mopub.common.util.ResponseHeader;
 
 import org.json.JSONObject;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import static com.mopub.network.HeaderUtils.extractHeader;
 import static com.mopub.network.HeaderUtils.extractIntegerHeader;
 
@@ -92,6 +95,20 @@ public class AdTypeTranslator {
         public static boolean isMoPubSpecific(@Nullable final String className) {
             return fromClassName(className).mIsMoPubSpecific;
         }
+
+        /**
+         * @return The class names of every custom event type.
+         */
+        @NonNull
+        public static List<String> getClassNames() {
+            final List<String> classNames = new ArrayList<>();
+            for (CustomEventType customEventType : values()) {
+                if (customEventType.mClassName != null) {
+                    classNames.add(customEventType.mClassName);
+                }
+            }
+            return classNames;
+        }
     }
 
     public static final String BANNER_SUFFIX = "_banner";
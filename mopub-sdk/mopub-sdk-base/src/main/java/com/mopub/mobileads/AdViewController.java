@@ -31,6 +31,7 @@ import com.mopub.common.util.Dips;
 import com.mopub.common.util.Utils;
 import com.mopub.mraid.MraidNativeCommandHandler;
 import com.mopub.network.AdLoader;
+import com.mopub.network.AdPrefetcher;
 import com.mopub.network.AdResponse;
 import com.mopub.network.MoPubNetworkError;
 import com.mopub.network.SingleImpression;
@@ -52,6 +53,9 @@ public class AdViewController {
     static final int DEFAULT_REFRESH_TIME_MILLISECONDS = 60000;  // 1 minute
     private static final int MAX_REFRESH_TIME_MILLISECONDS = 600000; // 10 minutes
     private static final double BACKOFF_FACTOR = 1.5;
+    // How long before a refresh the next waterfall is requested when prefetching is enabled.
+    @VisibleForTesting
+    static final int PREFETCH_LEAD_MILLISECONDS = 3000;
     private static final FrameLayout.LayoutParams WRAP_AND_CENTER_LAYOUT_PARAMS =
             new FrameLayout.LayoutParams(
                     FrameLayout.LayoutParams.WRAP_CONTENT,
@@ -71,6 +75,8 @@ public class AdViewController {
     @Nullable private AdResponse mAdResponse;
     @Nullable private String mCustomEventClassName;
     private final Runnable mRefreshRunnable;
+    @Nullable private AdPrefetcher mAdPrefetcher;
+    private final Runnable mPrefetchRunnable;
 
     private boolean mIsDestroyed;
     private Handler mHandler;
@@ -145,6 +151,11 @@ public class AdViewController {
                 internalLoadAd();
             }
         };
+        mPrefetchRunnable = new Runnable() {
+            public void run() {
+                prefetchNextAd();
+            }
+        };
         mRefreshTimeMillis = DEFAULT_REFRESH_TIME_MILLISECONDS;
         mHandler = new Handler();
         mLastTrackedRequestId = "";
@@ -241,6 +252,10 @@ public class AdViewController {
 
     public void loadAd() {
         mBackoffPower = 1;
+        // A load asked for by the publisher may have new targeting, so it doesn't use a prefetch.
+        if (mAdPrefetcher != null) {
+            mAdPrefetcher.discard();
+        }
         internalLoadAd();
     }
 
@@ -495,6 +510,10 @@ public class AdViewController {
 
         setAutoRefreshStatus(false);
         cancelRefreshTimer();
+        if (mAdPrefetcher != null) {
+            mAdPrefetcher.discard();
+            mAdPrefetcher = null;
+        }
 
         // WebView subclasses are not garbage-collected in a timely fashion on Froyo and below,
         // thanks to some persistent references in WebViewCore. We manually release some resources
@@ -552,7 +571,12 @@ public class AdViewController {
 
         synchronized (this) {
             if (mAdLoader == null || !mAdLoader.hasMoreAds()) {
-                mAdLoader = new AdLoader(url, moPubView.getAdFormat(), mAdUnitId, mContext, mAdListener);
+                final AdLoader prefetchedAdLoader = (moPubError == null && mAdPrefetcher != null)
+                        ? mAdPrefetcher.claim()
+                        : null;
+                mAdLoader = prefetchedAdLoader != null
+                        ? prefetchedAdLoader
+                        : new AdLoader(url, moPubView.getAdFormat(), mAdUnitId, mContext, mAdListener);
             }
         }
         mActiveRequest = mAdLoader.loadNextAd(moPubError);
@@ -601,11 +625,49 @@ public class AdViewController {
     void scheduleRefreshTimerIfEnabled() {
         cancelRefreshTimer();
         if (mCurrentAutoRefreshStatus && mRefreshTimeMillis != null && mRefreshTimeMillis > 0) {
+            final long refreshDelayMillis = Math.min(MAX_REFRESH_TIME_MILLISECONDS,
+                    mRefreshTimeMillis * (long) Math.pow(BACKOFF_FACTOR, mBackoffPower));
+
+            mHandler.postDelayed(mRefreshRunnable, refreshDelayMillis);
+            if (mAdPrefetcher != null && refreshDelayMillis > PREFETCH_LEAD_MILLISECONDS) {
+                mHandler.postDelayed(mPrefetchRunnable,
+                        refreshDelayMillis - PREFETCH_LEAD_MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * When enabled, the waterfall for the next refresh is requested shortly before the refresh so
+     * the refresh doesn't have to wait for the ad server.
+     */
+    void setPrefetchEnabled(final boolean prefetchEnabled) {
+        if (prefetchEnabled && mAdPrefetcher == null) {
+            mAdPrefetcher = new AdPrefetcher(mAdListener);
+        } else if (!prefetchEnabled && mAdPrefetcher != null) {
+            mHandler.removeCallbacks(mPrefetchRunnable);
+            mAdPrefetcher.discard();
+            mAdPrefetcher = null;
+        }
+    }
 
-            mHandler.postDelayed(mRefreshRunnable,
-                    Math.min(MAX_REFRESH_TIME_MILLISECONDS,
-                            mRefreshTimeMillis * (long) Math.pow(BACKOFF_FACTOR, mBackoffPower)));
+    @VisibleForTesting
+    void prefetchNextAd() {
+        final MoPubView moPubView = getMoPubView();
+        if (mAdPrefetcher == null || moPubView == null || mContext == null
+                || !mCurrentAutoRefreshStatus || TextUtils.isEmpty(mAdUnitId)) {
+            return;
+        }
+        // Don't get ahead of a waterfall that is still loading.
+        if (mAdLoader != null || mActiveRequest != null || !isNetworkAvailable()) {
+            return;
+        }
+
+        setRequestedAdSize(moPubView.resolveAdSize());
+        final String adUrl = generateAdUrl();
+        if (adUrl == null) {
+            return;
         }
+        mAdPrefetcher.prefetch(adUrl, moPubView.getAdFormat(), mAdUnitId, mContext);
     }
 
     void setLocalExtras(Map<String, Object> localExtras) {
@@ -625,6 +687,7 @@ public class AdViewController {
 
     private void cancelRefreshTimer() {
         mHandler.removeCallbacks(mRefreshRunnable);
+        mHandler.removeCallbacks(mPrefetchRunnable);
     }
 
     @SuppressLint("MissingPermission")
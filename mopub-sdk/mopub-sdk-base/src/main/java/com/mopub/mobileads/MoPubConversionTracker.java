@@ -5,16 +5,16 @@
 package com.mopub.mobileads;
 
 import android.content.Context;
-import android.content.SharedPreferences;
 import androidx.annotation.NonNull;
 
 import com.mopub.common.Constants;
 import com.mopub.common.MoPub;
 import com.mopub.common.Preconditions;
-import com.mopub.common.SharedPreferencesHelper;
+import com.mopub.common.SdkStateStore;
 import com.mopub.common.logging.MoPubLog;
 import com.mopub.common.privacy.ConsentData;
 import com.mopub.common.privacy.PersonalInfoManager;
+import com.mopub.network.DurableOutbox;
 import com.mopub.network.TrackingRequest;
 import com.mopub.volley.VolleyError;
 
@@ -30,7 +30,7 @@ public class MoPubConversionTracker {
     @NonNull
     private final String mIsTrackedKey;
     @NonNull
-    private SharedPreferences mSharedPreferences;
+    private final SdkStateStore mStateStore;
 
     public MoPubConversionTracker(@NonNull final Context context) {
         Preconditions.checkNotNull(context);
@@ -39,7 +39,7 @@ public class MoPubConversionTracker {
         String packageName = mContext.getPackageName();
         mWantToTrack = packageName + WANT_TO_TRACK;
         mIsTrackedKey = packageName + " tracked";
-        mSharedPreferences = SharedPreferencesHelper.getSharedPreferences(mContext);
+        mStateStore = SdkStateStore.getInstance(mContext);
     }
 
     /**
@@ -68,7 +68,7 @@ public class MoPubConversionTracker {
         }
 
         if (!sessionTracker && !MoPub.canCollectPersonalInformation()) {
-            mSharedPreferences
+            mStateStore
                     .edit()
                     .putBoolean(mWantToTrack, true)
                     .apply();
@@ -85,38 +85,61 @@ public class MoPubConversionTracker {
                 .withSessionTracker(sessionTracker)
                 .generateUrlString(Constants.HOST);
 
+        if (sessionTracker) {
+            TrackingRequest.makeTrackingHttpRequest(url, mContext);
+            return;
+        }
+
+        final DurableOutbox outbox = DurableOutbox.getInstance(mContext);
+        outbox.enqueue(DurableOutbox.CONVERSION_ID, url, new DurableOutbox.Listener() {
+            @Override
+            public void onEnqueued(final boolean queued) {
+                if (queued) {
+                    sendConversion(outbox, url);
+                } else if (outbox.isCompleted(DurableOutbox.CONVERSION_ID)) {
+                    // Sent again by the outbox after the app was killed.
+                    MoPubLog.log(CUSTOM, "Conversion already tracked");
+                    setTracked();
+                }
+                // Otherwise the outbox is still sending the conversion from an earlier session.
+            }
+        });
+    }
+
+    public boolean shouldTrack() {
+        PersonalInfoManager infoManager = MoPub.getPersonalInformationManager();
+        if (infoManager == null) {
+            return false;
+        }
+
+        return infoManager.canCollectPersonalInformation() &&
+                mStateStore.getBoolean(mWantToTrack, false);
+    }
+
+    private void sendConversion(@NonNull final DurableOutbox outbox, @NonNull final String url) {
         TrackingRequest.makeTrackingHttpRequest(url,
                 mContext, new TrackingRequest.Listener() {
                     @Override
                     public void onResponse(@NonNull final String url) {
-                        if (sessionTracker) {
-                            return;
-                        }
-                        mSharedPreferences
-                                .edit()
-                                .putBoolean(mIsTrackedKey, true)
-                                .putBoolean(mWantToTrack, false)
-                                .apply();
+                        outbox.complete(DurableOutbox.CONVERSION_ID);
+                        setTracked();
                     }
 
                     @Override
                     public void onErrorResponse(final VolleyError volleyError) {
                     }
                 });
-
     }
 
-    public boolean shouldTrack() {
-        PersonalInfoManager infoManager = MoPub.getPersonalInformationManager();
-        if (infoManager == null) {
-            return false;
-        }
-
-        return infoManager.canCollectPersonalInformation() &&
-                mSharedPreferences.getBoolean(mWantToTrack, false);
+    private void setTracked() {
+        mStateStore
+                .edit()
+                .putBoolean(mIsTrackedKey, true)
+                .putBoolean(mWantToTrack, false)
+                .apply();
     }
 
     private boolean isAlreadyTracked() {
-        return mSharedPreferences.getBoolean(mIsTrackedKey, false);
+        return mStateStore.getBoolean(mIsTrackedKey, false);
     }
 }
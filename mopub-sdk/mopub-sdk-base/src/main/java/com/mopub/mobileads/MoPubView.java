@@ -498,6 +498,16 @@ public class MoPubView extends FrameLayout {
         }
     }
 
+    /**
+     * Requests the next ad shortly before each refresh so the new ad shows up sooner. Off by
+     * default.
+     */
+    public void setPrefetchEnabled(final boolean enabled) {
+        if (mAdViewController != null) {
+            mAdViewController.setPrefetchEnabled(enabled);
+        }
+    }
+
     void pauseAutoRefresh() {
         if (mAdViewController != null) {
             mAdViewController.pauseRefresh();
@@ -7,6 +7,7 @@ package com.mopub.network;
 
 import android.content.Context;
 import android.os.Handler;
+import android.os.SystemClock;
 import android.text.TextUtils;
 
 import androidx.annotation.NonNull;
@@ -15,6 +16,9 @@ import androidx.annotation.Nullable;
 import com.mopub.common.AdFormat;
 import com.mopub.common.Preconditions;
 import com.mopub.common.logging.MoPubLog;
+import com.mopub.common.metrics.Counter;
+import com.mopub.common.metrics.Histogram;
+import com.mopub.common.metrics.Metrics;
 import com.mopub.mobileads.MoPubError;
 import com.mopub.volley.Request;
 import com.mopub.volley.RequestQueue;
@@ -22,6 +26,10 @@ import com.mopub.volley.Response;
 import com.mopub.volley.VolleyError;
 
 import java.lang.ref.WeakReference;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
 
 import static com.mopub.common.logging.MoPubLog.AdLogEvent.CUSTOM;
 import static com.mopub.common.logging.MoPubLog.AdLogEvent.REQUESTED;
@@ -38,6 +46,36 @@ public class AdLoader {
         void onSuccess(AdResponse response);
     }
 
+    /**
+     * Loads the line items of a waterfall for {@link #enableParallelWaterfall}. Called on the
+     * main thread.
+     */
+    public interface LineItemLoader {
+        /**
+         * Starts loading a line item, such as creating and loading its custom event, without
+         * showing it. Report the result to the listener on the main thread.
+         */
+        void loadLineItem(@NonNull AdResponse adResponse, @NonNull LineItemListener listener);
+
+        /**
+         * Releases a line item that lost or timed out.
+         */
+        void invalidateLineItem(@NonNull AdResponse adResponse);
+    }
+
+    public interface LineItemListener {
+        void onLineItemLoaded();
+
+        void onLineItemFailed(@NonNull MoPubError errorCode);
+    }
+
+    private static final long[] WATERFALL_DEPTH_BOUNDS = {1, 2, 3, 4, 5, 7, 10, 15, 20, 30};
+    private static final Counter REQUEST_SUCCESS_COUNTER = Metrics.counter("ad_request.success");
+    private static final Counter REQUEST_FAILURE_COUNTER = Metrics.counter("ad_request.failure");
+    // How many line items were tried before the one that loaded.
+    private static final Histogram WATERFALL_DEPTH_HISTOGRAM =
+            Metrics.histogram("waterfall_depth", WATERFALL_DEPTH_BOUNDS);
+
     private final MultiAdRequest.Listener mAdListener;
     private final WeakReference<Context> mContext;
     private final Listener mOriginalListener;
@@ -56,10 +94,21 @@ public class AdLoader {
     private volatile boolean mRunning;
     private volatile boolean mFailed;
     private boolean mContentDownloaded;
+    // Keeps the response from a prefetch until loadNextAd asks for it.
+    private boolean mHoldResponse;
 
     @NonNull
     private Handler mHandler;
 
+    @Nullable
+    private LineItemLoader mLineItemLoader;
+    private int mParallelLineItemCount;
+    private long mParallelDeadlineMillis;
+
+    @NonNull private final Histogram mRequestLatencyHistogram;
+    private long mRequestStartMillis;
+    private int mLineItemsTried;
+
     /**
      * @param url      initial URL to download ads from ads.mopub.com
      * @param adFormat banner, interstitial, etc.
@@ -81,11 +130,15 @@ public class AdLoader {
         mOriginalListener = listener;
 
         mHandler = new Handler();
+        mRequestLatencyHistogram = Metrics.histogram("ad_request_latency_ms."
+                + adFormat.name().toLowerCase(Locale.US));
 
         mAdListener = new MultiAdRequest.Listener() {
             @Override
             public void onErrorResponse(VolleyError volleyError) {
                 MoPubLog.log(RESPONSE_RECEIVED, volleyError.getMessage());
+                REQUEST_FAILURE_COUNTER.increment();
+                recordRequestLatency();
 
                 mFailed = true;
                 mRunning = false;
@@ -94,11 +147,21 @@ public class AdLoader {
 
             @Override
             public void onSuccessResponse(final MultiAdResponse response) {
+                REQUEST_SUCCESS_COUNTER.increment();
+                recordRequestLatency();
                 synchronized (lock) {
                     mRunning = false;
                     mMultiAdResponse = response;
+                    if (mHoldResponse) {
+                        mHoldResponse = false;
+                        return;
+                    }
                     if (mMultiAdResponse.hasNext()) {
-                        deliverResponse(mMultiAdResponse.next());
+                        if (mLineItemLoader != null) {
+                            loadParallelLineItems();
+                        } else {
+                            deliverResponse(mMultiAdResponse.next());
+                        }
                     }
                 }
             }
@@ -114,6 +177,29 @@ public class AdLoader {
         );
     }
 
+    /**
+     * Loads up to {@code maxLineItems} line items of the waterfall at once instead of one at a
+     * time. The line item with the highest priority that loads before the others above it fail,
+     * or before the deadline, is delivered to {@link Listener#onSuccess(AdResponse)}, already
+     * loaded by the {@link LineItemLoader}. If none of them load, the next line items are tried.
+     *
+     * Call this before the first {@link #loadNextAd(MoPubError)}.
+     *
+     * @param lineItemLoader Loads and invalidates the line items.
+     * @param maxLineItems   How many line items to load at once.
+     * @param deadlineMillis How long to wait for each group of line items.
+     */
+    public void enableParallelWaterfall(@NonNull final LineItemLoader lineItemLoader,
+            final int maxLineItems, final long deadlineMillis) {
+        Preconditions.checkNotNull(lineItemLoader);
+        Preconditions.checkArgument(maxLineItems > 0);
+        Preconditions.checkArgument(deadlineMillis > 0);
+
+        mLineItemLoader = lineItemLoader;
+        mParallelLineItemCount = maxLineItems;
+        mParallelDeadlineMillis = deadlineMillis;
+    }
+
     /**
      * @return true if more ads available locally or on the server, otherwise false
      */
@@ -141,8 +227,12 @@ public class AdLoader {
      */
     @Nullable
     public Request<?> loadNextAd(@Nullable final MoPubError errorCode) {
-        if (mRunning) {
-            return mMultiAdRequest;
+        synchronized (lock) {
+            if (mRunning) {
+                // A prefetch still in flight delivers its response as soon as it arrives.
+                mHoldResponse = false;
+                return mMultiAdRequest;
+            }
         }
 
         if (mFailed) {
@@ -160,7 +250,7 @@ public class AdLoader {
 
             // not running and not failed: start it for the first time
             if (mMultiAdResponse == null) {
-                if (RequestRateTracker.getInstance().isBlockedByRateLimit(mMultiAdRequest.mAdUnitId)) {
+                if (!RequestRateTracker.getInstance().tryAcquireRequest(mMultiAdRequest.mAdUnitId)) {
                     // report no fill
                     MoPubLog.log(MoPubLog.SdkLogEvent.CUSTOM, mMultiAdRequest.mAdUnitId + " is blocked by request rate limiting.");
                     mFailed = true;
@@ -182,6 +272,17 @@ public class AdLoader {
             }
 
             // in the middle of waterfall, check if preloaded items available
+            if (mMultiAdResponse.hasNext() && mLineItemLoader != null) {
+                mHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        synchronized (lock) {
+                            loadParallelLineItems();
+                        }
+                    }
+                });
+                return mMultiAdRequest;
+            }
             if (mMultiAdResponse.hasNext()) {
                 // logic to return next preloaded AdResponse item
                 final AdResponse adResponse = mMultiAdResponse.next();
@@ -218,11 +319,41 @@ public class AdLoader {
         return null;
     }
 
+    /**
+     * Requests the first waterfall without delivering an ad. The next {@link
+     * #loadNextAd(MoPubError)} delivers the first ad right away, or as soon as the response
+     * arrives.
+     *
+     * @return The request, or null if nothing was requested.
+     */
+    @Nullable
+    Request<?> prefetch() {
+        synchronized (lock) {
+            if (mRunning || mFailed || mMultiAdResponse != null) {
+                return null;
+            }
+            // Left for loadNextAd to report.
+            if (!RequestRateTracker.getInstance().tryAcquireRequest(mMultiAdRequest.mAdUnitId)) {
+                return null;
+            }
+            mHoldResponse = true;
+            return fetchAd(mMultiAdRequest, mContext.get());
+        }
+    }
+
+    /**
+     * @return true if the response of a prefetch has arrived.
+     */
+    boolean hasResponse() {
+        return mMultiAdResponse != null;
+    }
+
     /**
      * Call this function to notify server that creative content successfully downloaded
      */
     public void creativeDownloadSuccess() {
         mContentDownloaded = true;
+        WATERFALL_DEPTH_HISTOGRAM.record(mLineItemsTried);
 
         if (null == mDownloadTracker) {
             MoPubLog.log(CUSTOM, "Response analytics should not be null here");
@@ -257,6 +388,45 @@ public class AdLoader {
         }
     }
 
+    /**
+     * Loads the next group of line items at once. See {@link #enableParallelWaterfall}.
+     */
+    private void loadParallelLineItems() {
+        final LineItemLoader lineItemLoader = mLineItemLoader;
+        final MultiAdResponse multiAdResponse = mMultiAdResponse;
+        if (lineItemLoader == null || multiAdResponse == null) {
+            return;
+        }
+
+        final List<AdResponse> lineItems = new ArrayList<>(mParallelLineItemCount);
+        while (lineItems.size() < mParallelLineItemCount && multiAdResponse.hasNext()) {
+            lineItems.add(multiAdResponse.next());
+        }
+        if (lineItems.isEmpty()) {
+            return;
+        }
+        mLineItemsTried += lineItems.size();
+
+        new ParallelWaterfallBatch(mContext.get(), lineItems, lineItemLoader, mHandler,
+                mParallelDeadlineMillis, new ParallelWaterfallBatch.Listener() {
+            @Override
+            public void onWinner(@NonNull final AdResponse adResponse,
+                    @NonNull final ContentDownloadAnalytics downloadTracker) {
+                mDownloadTracker = downloadTracker;
+                if (mOriginalListener != null) {
+                    mLastDeliveredResponse = adResponse;
+                    mOriginalListener.onSuccess(adResponse);
+                }
+            }
+
+            @Override
+            public void onNoWinner() {
+                // Failures were already reported for each line item.
+                loadNextAd(null);
+            }
+        }).start();
+    }
+
     /**
      * Submits request to the networking library
      *
@@ -274,12 +444,14 @@ public class AdLoader {
         }
 
         String bodyString = "<no body>";
-        if (request.getBody() != null) {
-            bodyString = new String(request.getBody());
+        final byte[] body = request.getUncompressedBody();
+        if (body != null) {
+            bodyString = new String(body, Charset.forName("UTF-8"));
         }
         MoPubLog.log(REQUESTED, request.getUrl(), bodyString);
 
         mRunning = true;
+        mRequestStartMillis = Metrics.isEnabled() ? SystemClock.elapsedRealtime() : 0;
         RequestQueue requestQueue = Networking.getRequestQueue(context);
         mMultiAdRequest = request;
         requestQueue.add(request);
@@ -314,6 +486,7 @@ public class AdLoader {
     private void deliverResponse(@NonNull final AdResponse adResponse) {
         Preconditions.checkNotNull(adResponse);
 
+        mLineItemsTried++;
         Context context = mContext.get();
         mDownloadTracker = new ContentDownloadAnalytics(adResponse);
         mDownloadTracker.reportBeforeLoad(context);
@@ -324,6 +497,14 @@ public class AdLoader {
         }
     }
 
+    private void recordRequestLatency() {
+        if (mRequestStartMillis == 0) {
+            return;
+        }
+        mRequestLatencyHistogram.record(SystemClock.elapsedRealtime() - mRequestStartMillis);
+        mRequestStartMillis = 0;
+    }
+
     public boolean isRunning() {
         return mRunning;
     }
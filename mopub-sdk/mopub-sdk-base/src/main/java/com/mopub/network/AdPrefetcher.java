@@ -0,0 +1,171 @@
+// Copyright 2018-2020 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.network;
+
+import android.content.Context;
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.mopub.common.AdFormat;
+import com.mopub.common.Preconditions;
+import com.mopub.common.VisibleForTesting;
+import com.mopub.common.logging.MoPubLog;
+import com.mopub.common.metrics.Counter;
+import com.mopub.common.metrics.Metrics;
+import com.mopub.volley.Request;
+import com.mopub.volley.VolleyError;
+
+import static com.mopub.common.logging.MoPubLog.AdLogEvent.CUSTOM;
+
+/**
+ * Requests the next waterfall of an ad unit ahead of time so that a refresh can start loading
+ * the first line item without waiting for the ad server.
+ *
+ * Call {@link #prefetch} a little before the refresh is due and {@link #claim()} when it is. A
+ * prefetched response that is older than {@link #DEFAULT_EXPIRATION_MILLIS} when it is claimed
+ * is thrown away, since the ad server may have changed the waterfall in the meantime. Errors of a
+ * prefetch are only passed on to the listener once the prefetch has been claimed.
+ *
+ * How many prefetches were used, wasted or expired is counted in {@link Metrics}.
+ *
+ * All calls must be made on the main thread.
+ */
+public class AdPrefetcher {
+    @VisibleForTesting
+    static final long DEFAULT_EXPIRATION_MILLIS = 60 * 1000;
+
+    // Prefetched waterfalls used by a refresh, thrown away unused, and expired before a refresh.
+    @VisibleForTesting
+    static final Counter HIT_COUNTER = Metrics.counter("prefetch.hit");
+    @VisibleForTesting
+    static final Counter WASTE_COUNTER = Metrics.counter("prefetch.waste");
+    @VisibleForTesting
+    static final Counter EXPIRED_COUNTER = Metrics.counter("prefetch.expired");
+
+    @NonNull private final AdLoader.Listener mListener;
+    private final long mExpirationMillis;
+
+    @Nullable private AdLoader mAdLoader;
+    @Nullable private Request<?> mRequest;
+    @Nullable private PrefetchListener mPrefetchListener;
+    private long mPrefetchTimeMillis;
+
+    public AdPrefetcher(@NonNull final AdLoader.Listener listener) {
+        this(listener, DEFAULT_EXPIRATION_MILLIS);
+    }
+
+    @VisibleForTesting
+    AdPrefetcher(@NonNull final AdLoader.Listener listener, final long expirationMillis) {
+        Preconditions.checkNotNull(listener);
+
+        mListener = listener;
+        mExpirationMillis = expirationMillis;
+    }
+
+    /**
+     * Starts requesting a waterfall, replacing any earlier prefetch that wasn't claimed. Does
+     * nothing while the ad unit is rate limited.
+     */
+    public void prefetch(@NonNull final String url,
+            @NonNull final AdFormat adFormat,
+            @Nullable final String adUnitId,
+            @NonNull final Context context) {
+        Preconditions.checkNotNull(url);
+        Preconditions.checkNotNull(adFormat);
+        Preconditions.checkNotNull(context);
+
+        discard();
+
+        if (RequestRateTracker.getInstance().isBlockedByRateLimit(adUnitId)) {
+            MoPubLog.log(CUSTOM, "Not prefetching " + adUnitId + " while it is rate limited.");
+            return;
+        }
+
+        mPrefetchListener = new PrefetchListener();
+        mAdLoader = new AdLoader(url, adFormat, adUnitId, context, mPrefetchListener);
+        mPrefetchTimeMillis = SystemClock.elapsedRealtime();
+        mRequest = mAdLoader.prefetch();
+    }
+
+    /**
+     * Hands over the prefetched waterfall. Call {@link AdLoader#loadNextAd} on it to get the
+     * first ad, which arrives right away if the response is already here.
+     *
+     * @return The loader of the prefetch, or null if there is none, it failed or it expired.
+     */
+    @Nullable
+    public AdLoader claim() {
+        final AdLoader adLoader = mAdLoader;
+        final PrefetchListener prefetchListener = mPrefetchListener;
+        if (adLoader == null || prefetchListener == null) {
+            return null;
+        }
+
+        if (adLoader.isFailed()) {
+            clear();
+            return null;
+        }
+
+        if (SystemClock.elapsedRealtime() - mPrefetchTimeMillis > mExpirationMillis) {
+            EXPIRED_COUNTER.increment();
+            MoPubLog.log(CUSTOM, "Prefetched waterfall expired.");
+            // Counted as expired only, not also as waste.
+            cancel();
+            clear();
+            return null;
+        }
+
+        HIT_COUNTER.increment();
+        prefetchListener.mClaimed = true;
+        clear();
+        return adLoader;
+    }
+
+    /**
+     * Throws away a prefetch that wasn't claimed and cancels it if it is still in flight.
+     */
+    public void discard() {
+        if (mAdLoader != null && mAdLoader.hasResponse() && !mAdLoader.isFailed()) {
+            WASTE_COUNTER.increment();
+        }
+        cancel();
+        clear();
+    }
+
+    private void cancel() {
+        if (mRequest != null) {
+            mRequest.cancel();
+        }
+    }
+
+    private void clear() {
+        mAdLoader = null;
+        mRequest = null;
+        mPrefetchListener = null;
+    }
+
+    /**
+     * Holds back errors until the prefetch is claimed. Ads are only delivered after a claim.
+     */
+    private class PrefetchListener implements AdLoader.Listener {
+        private boolean mClaimed;
+
+        @Override
+        public void onSuccess(final AdResponse response) {
+            mListener.onSuccess(response);
+        }
+
+        @Override
+        public void onErrorResponse(final VolleyError volleyError) {
+            if (mClaimed) {
+                mListener.onErrorResponse(volleyError);
+            } else {
+                MoPubLog.log(CUSTOM, "Prefetch failed: " + volleyError.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,215 @@
+// Copyright 2018-2020 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.network;
+
+import android.graphics.Bitmap;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.mopub.common.Preconditions;
+import com.mopub.common.VisibleForTesting;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * Size-bounded pool of mutable bitmaps that can be handed to {@link
+ * android.graphics.BitmapFactory.Options#inBitmap} so decoding a new image reuses the memory of an
+ * image that is no longer displayed.
+ *
+ * A bitmap only enters the pool once it is known to be unused. Bitmaps handed to views must be
+ * tracked with {@link #acquire(Bitmap)} and {@link #release(Bitmap)}; an evicted bitmap that was
+ * never tracked is left to the garbage collector since some other caller may still draw it.
+ */
+public class BitmapPool {
+    private final long mMaxSizeBytes;
+
+    // Least recently pooled first.
+    @NonNull private final LinkedList<Bitmap> mBitmaps;
+    @NonNull private final Map<Bitmap, Integer> mReferenceCounts;
+    @NonNull private final Set<Bitmap> mEvictedWhileInUse;
+    private long mSizeBytes;
+
+    private long mHitCount;
+    private long mMissCount;
+
+    public BitmapPool(final long maxSizeBytes) {
+        Preconditions.checkArgument(maxSizeBytes >= 0);
+
+        mMaxSizeBytes = maxSizeBytes;
+        mBitmaps = new LinkedList<>();
+        mReferenceCounts = new WeakHashMap<>();
+        mEvictedWhileInUse = Collections.newSetFromMap(new WeakHashMap<Bitmap, Boolean>());
+    }
+
+    /**
+     * Returns a pooled bitmap large enough to hold a decoded image of the given size, or null if
+     * none is available. The returned bitmap is removed from the pool.
+     */
+    @Nullable
+    public synchronized Bitmap get(final int width, final int height,
+            @Nullable final Bitmap.Config config) {
+        final long requiredBytes = (long) width * height * getBytesPerPixel(config);
+
+        Bitmap bestMatch = null;
+        for (final Bitmap bitmap : mBitmaps) {
+            final int allocationBytes = bitmap.getAllocationByteCount();
+            if (allocationBytes >= requiredBytes &&
+                    (bestMatch == null || allocationBytes < bestMatch.getAllocationByteCount())) {
+                bestMatch = bitmap;
+            }
+        }
+
+        if (bestMatch == null) {
+            mMissCount++;
+            return null;
+        }
+
+        mBitmaps.remove(bestMatch);
+        mSizeBytes -= bestMatch.getAllocationByteCount();
+        mHitCount++;
+        return bestMatch;
+    }
+
+    /**
+     * Adds a bitmap that the caller owns and no longer needs. Immutable and recycled bitmaps are
+     * ignored since they can't be decoded into. A bitmap that is still acquired is only pooled
+     * after its last {@link #release(Bitmap)}.
+     */
+    public synchronized void put(@Nullable final Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled() || !bitmap.isMutable()) {
+            return;
+        }
+
+        final Integer count = mReferenceCounts.get(bitmap);
+        if (count != null && count > 0) {
+            mEvictedWhileInUse.add(bitmap);
+            return;
+        }
+
+        final int allocationBytes = bitmap.getAllocationByteCount();
+        if (allocationBytes > mMaxSizeBytes || mBitmaps.contains(bitmap)) {
+            return;
+        }
+
+        mReferenceCounts.remove(bitmap);
+        mEvictedWhileInUse.remove(bitmap);
+        mBitmaps.addLast(bitmap);
+        mSizeBytes += allocationBytes;
+        trimToSize(mMaxSizeBytes);
+    }
+
+    /**
+     * Marks a bitmap as displayed. It will not be pooled until every acquire has been matched by a
+     * {@link #release(Bitmap)}.
+     */
+    public synchronized void acquire(@Nullable final Bitmap bitmap) {
+        if (bitmap == null) {
+            return;
+        }
+
+        final Integer count = mReferenceCounts.get(bitmap);
+        mReferenceCounts.put(bitmap, count == null ? 1 : count + 1);
+    }
+
+    public synchronized void release(@Nullable final Bitmap bitmap) {
+        if (bitmap == null) {
+            return;
+        }
+
+        final Integer count = mReferenceCounts.get(bitmap);
+        if (count == null) {
+            return;
+        }
+
+        if (count > 1) {
+            mReferenceCounts.put(bitmap, count - 1);
+            return;
+        }
+
+        mReferenceCounts.put(bitmap, 0);
+        if (mEvictedWhileInUse.remove(bitmap)) {
+            put(bitmap);
+        }
+    }
+
+    /**
+     * Called when a memory cache drops a bitmap. Tracked bitmaps are pooled as soon as nothing
+     * displays them; untracked bitmaps are left alone.
+     */
+    public synchronized void onEvicted(@Nullable final Bitmap bitmap) {
+        if (bitmap == null) {
+            return;
+        }
+
+        final Integer count = mReferenceCounts.get(bitmap);
+        if (count == null) {
+            return;
+        }
+
+        if (count == 0) {
+            put(bitmap);
+        } else {
+            mEvictedWhileInUse.add(bitmap);
+        }
+    }
+
+    public synchronized void clear() {
+        trimToSize(0);
+    }
+
+    public synchronized long getSizeBytes() {
+        return mSizeBytes;
+    }
+
+    public long getMaxSizeBytes() {
+        return mMaxSizeBytes;
+    }
+
+    public synchronized long getHitCount() {
+        return mHitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return mMissCount;
+    }
+
+    private void trimToSize(final long maxSizeBytes) {
+        final Iterator<Bitmap> iterator = mBitmaps.iterator();
+        while (mSizeBytes > maxSizeBytes && iterator.hasNext()) {
+            final Bitmap bitmap = iterator.next();
+            iterator.remove();
+            mSizeBytes -= bitmap.getAllocationByteCount();
+        }
+    }
+
+    @VisibleForTesting
+    static int getBytesPerPixel(@Nullable final Bitmap.Config config) {
+        if (config == null) {
+            return 4;
+        }
+
+        switch (config) {
+            case ALPHA_8:
+                return 1;
+            case RGB_565:
+            case ARGB_4444:
+                return 2;
+            case ARGB_8888:
+            default:
+                return 4;
+        }
+    }
+
+    @VisibleForTesting
+    synchronized int getPooledCount() {
+        return mBitmaps.size();
+    }
+}
@@ -0,0 +1,232 @@
+// Copyright 2018-2020 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.network;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.widget.ImageView.ScaleType;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.mopub.common.Preconditions;
+import com.mopub.common.VisibleForTesting;
+import com.mopub.common.logging.MoPubLog;
+import com.mopub.volley.Cache;
+import com.mopub.volley.NetworkResponse;
+import com.mopub.volley.ParseError;
+import com.mopub.volley.Response;
+import com.mopub.volley.toolbox.HttpHeaderParser;
+import com.mopub.volley.toolbox.ImageRequest;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.mopub.common.logging.MoPubLog.SdkLogEvent.CUSTOM;
+
+/**
+ * Image request that decodes straight to the requested size using the smallest power-of-two
+ * sample size, and decodes into a pooled bitmap when one is big enough.
+ */
+public class DownsamplingImageRequest extends ImageRequest {
+    /**
+     * Decoding is memory heavy, so only decode one image at a time like {@link ImageRequest}.
+     */
+    private static final Object sDecodeLock = new Object();
+
+    private final int mMaxWidth;
+    private final int mMaxHeight;
+    @NonNull private final ScaleType mScaleType;
+    @NonNull private final Bitmap.Config mDecodeConfig;
+    @NonNull private final BitmapPool mBitmapPool;
+    @NonNull private final AtomicLong mDecodedBytes;
+
+    public DownsamplingImageRequest(@NonNull final String url,
+            @NonNull final Response.Listener<Bitmap> listener,
+            final int maxWidth,
+            final int maxHeight,
+            @NonNull final ScaleType scaleType,
+            @NonNull final Bitmap.Config decodeConfig,
+            @Nullable final Response.ErrorListener errorListener,
+            @NonNull final BitmapPool bitmapPool,
+            @NonNull final AtomicLong decodedBytes) {
+        super(url, listener, maxWidth, maxHeight, scaleType, decodeConfig, errorListener);
+
+        Preconditions.checkNotNull(bitmapPool);
+        Preconditions.checkNotNull(decodedBytes);
+
+        mMaxWidth = maxWidth;
+        mMaxHeight = maxHeight;
+        mScaleType = scaleType;
+        mDecodeConfig = decodeConfig;
+        mBitmapPool = bitmapPool;
+        mDecodedBytes = decodedBytes;
+    }
+
+    /**
+     * Routes image responses to the {@link ImageDiskCache} tier.
+     */
+    @Override
+    public String getCacheKey() {
+        return ImageDiskCache.CACHE_KEY_PREFIX + super.getCacheKey();
+    }
+
+    @Override
+    protected Response<Bitmap> parseNetworkResponse(@NonNull final NetworkResponse response) {
+        synchronized (sDecodeLock) {
+            try {
+                final BitmapFactory.Options options = new BitmapFactory.Options();
+                final Bitmap bitmap = decode(response, options);
+                if (bitmap == null) {
+                    return Response.error(new ParseError(response));
+                }
+                mDecodedBytes.addAndGet(bitmap.getByteCount());
+
+                final Cache.Entry cacheEntry = HttpHeaderParser.parseCacheHeaders(response);
+                if (cacheEntry != null) {
+                    ImageDiskCache.setImageDimensions(cacheEntry, options.outWidth,
+                            options.outHeight);
+                }
+                return Response.success(bitmap, cacheEntry);
+            } catch (OutOfMemoryError e) {
+                MoPubLog.log(CUSTOM, "Caught OOM for " + response.data.length + " byte image, url="
+                        + getUrl());
+                return Response.error(new ParseError(e));
+            }
+        }
+    }
+
+    /**
+     * Decodes the response into a bitmap. Responses served from the {@link ImageDiskCache} carry
+     * the image dimensions, so only fresh network responses need a bounds-only decode first.
+     * {@code options.outWidth} and {@code options.outHeight} hold the full image size afterwards.
+     */
+    @Nullable
+    private Bitmap decode(@NonNull final NetworkResponse response,
+            @NonNull final BitmapFactory.Options options) {
+        final byte[] data = response.data;
+        options.inPreferredConfig = mDecodeConfig;
+        options.inMutable = true;
+
+        int actualWidth = ImageDiskCache.getImageDimension(response.headers,
+                ImageDiskCache.IMAGE_WIDTH_HEADER);
+        int actualHeight = ImageDiskCache.getImageDimension(response.headers,
+                ImageDiskCache.IMAGE_HEIGHT_HEADER);
+        if (actualWidth <= 0 || actualHeight <= 0) {
+            options.inJustDecodeBounds = true;
+            BitmapFactory.decodeByteArray(data, 0, data.length, options);
+            actualWidth = options.outWidth;
+            actualHeight = options.outHeight;
+        }
+        if (actualWidth <= 0 || actualHeight <= 0) {
+            return null;
+        }
+
+        final int desiredWidth = getResizedDimension(mMaxWidth, mMaxHeight,
+                actualWidth, actualHeight, mScaleType);
+        final int desiredHeight = getResizedDimension(mMaxHeight, mMaxWidth,
+                actualHeight, actualWidth, mScaleType);
+
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = findBestSampleSize(actualWidth, actualHeight,
+                desiredWidth, desiredHeight);
+
+        final int sampledWidth = divideRoundingUp(actualWidth, options.inSampleSize);
+        final int sampledHeight = divideRoundingUp(actualHeight, options.inSampleSize);
+        options.inBitmap = mBitmapPool.get(sampledWidth, sampledHeight, mDecodeConfig);
+
+        Bitmap decoded;
+        try {
+            decoded = BitmapFactory.decodeByteArray(data, 0, data.length, options);
+        } catch (IllegalArgumentException e) {
+            // The pooled bitmap couldn't be reused for this image. Decode into a new one instead.
+            mBitmapPool.put(options.inBitmap);
+            options.inBitmap = null;
+            decoded = BitmapFactory.decodeByteArray(data, 0, data.length, options);
+        }
+
+        if (decoded == null) {
+            mBitmapPool.put(options.inBitmap);
+            return null;
+        }
+        options.outWidth = actualWidth;
+        options.outHeight = actualHeight;
+
+        if (decoded.getWidth() > desiredWidth || decoded.getHeight() > desiredHeight) {
+            final Bitmap scaled = Bitmap.createScaledBitmap(decoded, desiredWidth, desiredHeight,
+                    true);
+            if (scaled != decoded) {
+                mBitmapPool.put(decoded);
+            }
+            return scaled;
+        }
+        return decoded;
+    }
+
+    /**
+     * Scales one side of a rectangle to fit aspect ratio. Mirrors {@link ImageRequest} so that
+     * bitmaps decoded here are the same size as the ones Volley would produce.
+     */
+    @VisibleForTesting
+    static int getResizedDimension(final int maxPrimary, final int maxSecondary,
+            final int actualPrimary, final int actualSecondary,
+            @NonNull final ScaleType scaleType) {
+        if (maxPrimary == 0 && maxSecondary == 0) {
+            return actualPrimary;
+        }
+
+        if (scaleType == ScaleType.FIT_XY) {
+            return maxPrimary == 0 ? actualPrimary : maxPrimary;
+        }
+
+        if (maxPrimary == 0) {
+            final double ratio = (double) maxSecondary / (double) actualSecondary;
+            return (int) (actualPrimary * ratio);
+        }
+
+        if (maxSecondary == 0) {
+            return maxPrimary;
+        }
+
+        final double ratio = (double) actualSecondary / (double) actualPrimary;
+        int resized = maxPrimary;
+
+        if (scaleType == ScaleType.CENTER_CROP) {
+            if ((resized * ratio) < maxSecondary) {
+                resized = (int) (maxSecondary / ratio);
+            }
+            return resized;
+        }
+
+        if ((resized * ratio) > maxSecondary) {
+            resized = (int) (maxSecondary / ratio);
+        }
+        return resized;
+    }
+
+    /**
+     * Returns the largest power-of-two divisor that keeps the decoded image at least as large as
+     * the desired size.
+     */
+    @VisibleForTesting
+    static int findBestSampleSize(final int actualWidth, final int actualHeight,
+            final int desiredWidth, final int desiredHeight) {
+        if (desiredWidth <= 0 || desiredHeight <= 0) {
+            return 1;
+        }
+
+        final double widthRatio = (double) actualWidth / desiredWidth;
+        final double heightRatio = (double) actualHeight / desiredHeight;
+        final double ratio = Math.min(widthRatio, heightRatio);
+        int sampleSize = 1;
+        while ((sampleSize * 2) <= ratio) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+
+    private static int divideRoundingUp(final int value, final int divisor) {
+        return (value + divisor - 1) / divisor;
+    }
+}
@@ -0,0 +1,633 @@
+// Copyright 2018-2020 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.network;
+
+import android.content.Context;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.mopub.common.Preconditions;
+import com.mopub.common.VisibleForTesting;
+import com.mopub.common.logging.MoPubLog;
+import com.mopub.volley.DefaultRetryPolicy;
+import com.mopub.volley.NetworkResponse;
+import com.mopub.volley.Response;
+import com.mopub.volley.VolleyError;
+import com.mopub.volley.toolbox.HttpHeaderParser;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import static com.mopub.common.logging.MoPubLog.SdkLogEvent.CUSTOM;
+
+/**
+ * Keeps server callbacks that must not be lost, such as rewarded video completions and
+ * conversion tracking, on disk until the server has answered them, so they survive the process
+ * being killed. Callbacks that are still pending when the SDK initializes again are sent again
+ * with backoff.
+ *
+ * Each callback has an id. A callback whose id is already pending or was recently completed is
+ * not queued again.
+ *
+ * The outbox is an append-only file of records, each synced to disk before the next is written.
+ * Records are written on a background thread. When the file fills up with completed records, it
+ * is rewritten with only the ones still needed.
+ *
+ * The file is read on the background thread as soon as the outbox is created, and
+ * {@link #enqueue} and {@link #complete} do their work on that thread after it, so the calling
+ * thread never waits for the file. Whether a callback was queued is reported back on the main
+ * thread. A callback whose record hasn't been written yet when the process dies is lost, the same
+ * as if there were no outbox. That window is the time the background thread takes to get to the
+ * record, usually a few milliseconds. The file is written under a separate lock, so a slow sync
+ * never holds up a thread reading the in-memory state.
+ */
+public class DurableOutbox {
+    /**
+     * The id of the conversion. It is sent once per install, so it is remembered after it
+     * completes however many other callbacks complete after it.
+     */
+    public static final String CONVERSION_ID = "conversion";
+
+    @VisibleForTesting
+    static final String FILE_NAME = "mopub_outbox";
+    /**
+     * How many other completed ids are remembered, so that the same callback isn't queued twice.
+     */
+    @VisibleForTesting
+    static final int MAX_COMPLETED_IDS = 128;
+    /**
+     * The file is rewritten once it has this many records and most of them are no longer
+     * needed.
+     */
+    @VisibleForTesting
+    static final int COMPACT_RECORD_COUNT = 256;
+    /**
+     * Pending callbacks older than this are dropped instead of being sent again.
+     */
+    @VisibleForTesting
+    static final long MAX_PENDING_AGE_MILLIS = 7 * 24 * 60 * 60 * 1000L;
+    /**
+     * Delays between the attempts to send a pending callback. The last delay repeats.
+     */
+    @VisibleForTesting
+    static final int[] RETRY_TIMES = {0, 5000, 10000, 20000, 40000, 60000};
+    @VisibleForTesting
+    static final int MAX_ATTEMPTS = 10;
+
+    private static final String ADD = "A";
+    private static final String DONE = "D";
+    private static final String SEPARATOR = " ";
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    @Nullable private static DurableOutbox sInstance;
+    @Nullable private static Executor sExecutorForTesting;
+
+    public interface Listener {
+        /**
+         * Called on the main thread.
+         *
+         * @param queued false if a callback with this id is already pending or was completed.
+         */
+        void onEnqueued(boolean queued);
+    }
+
+    private static class Entry {
+        @NonNull final String mId;
+        @NonNull final String mUrl;
+        final long mCreatedTimeMillis;
+
+        Entry(@NonNull final String id, @NonNull final String url,
+                final long createdTimeMillis) {
+            mId = id;
+            mUrl = url;
+            mCreatedTimeMillis = createdTimeMillis;
+        }
+    }
+
+    @NonNull private final File mFile;
+    @NonNull private final Executor mExecutor;
+    @NonNull private final Handler mHandler;
+    @NonNull private final Map<String, Entry> mPending = new LinkedHashMap<>();
+    @NonNull private final Set<String> mCompleted = new LinkedHashSet<>();
+    // Pending when the outbox was loaded, so left over from an earlier run of the app.
+    @NonNull private final Set<String> mLeftOver = new LinkedHashSet<>();
+    // Held while writing the file. Taken before the lock on the outbox, never after it.
+    @VisibleForTesting
+    @NonNull final Object mWriteLock = new Object();
+    private boolean mLoaded;
+    private boolean mNeedsCompaction;
+    private int mRecordCount;
+
+    @NonNull
+    public static synchronized DurableOutbox getInstance(@NonNull final Context context) {
+        Preconditions.checkNotNull(context);
+
+        final File file = new File(context.getApplicationContext().getFilesDir(), FILE_NAME);
+        if (sInstance == null || !sInstance.mFile.equals(file)) {
+            sInstance = new DurableOutbox(file, sExecutorForTesting != null
+                    ? sExecutorForTesting
+                    : Executors.newSingleThreadExecutor(new ThreadFactory() {
+                        @Override
+                        public Thread newThread(@NonNull final Runnable runnable) {
+                            final Thread thread = new Thread(runnable, "MoPubDurableOutbox");
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    }));
+        }
+        return sInstance;
+    }
+
+    /**
+     * Makes {@link #getInstance(Context)} create an outbox that runs its background work on the
+     * given executor, or on its own thread if it is null.
+     */
+    @VisibleForTesting
+    public static synchronized void setExecutorForTesting(@Nullable final Executor executor) {
+        sExecutorForTesting = executor;
+        sInstance = null;
+    }
+
+    @VisibleForTesting
+    DurableOutbox(@NonNull final File file, @NonNull final Executor executor) {
+        Preconditions.checkNotNull(file);
+        Preconditions.checkNotNull(executor);
+
+        mFile = file;
+        mExecutor = executor;
+        mHandler = new Handler(Looper.getMainLooper());
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                synchronized (DurableOutbox.this) {
+                    load();
+                }
+            }
+        });
+    }
+
+    /**
+     * Queues a callback once the outbox has been read. The caller sends it only if the listener
+     * is told it was queued, and calls {@link #complete(String)} once the server has answered.
+     */
+    public void enqueue(@NonNull final String id, @NonNull final String url,
+            @NonNull final Listener listener) {
+        Preconditions.checkNotNull(id);
+        Preconditions.checkNotNull(url);
+        Preconditions.checkNotNull(listener);
+
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final boolean queued;
+                synchronized (DurableOutbox.this) {
+                    awaitLoad();
+                    if (mPending.containsKey(id) || mCompleted.contains(id)) {
+                        queued = false;
+                    } else {
+                        final Entry entry = new Entry(id, url, System.currentTimeMillis());
+                        mPending.put(id, entry);
+                        // Queued under the lock so records reach the file in the order they
+                        // happened.
+                        append(toAddRecord(entry));
+                        queued = true;
+                    }
+                }
+                mHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        listener.onEnqueued(queued);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Removes a callback from the outbox once the server has answered it.
+     */
+    public void complete(@NonNull final String id) {
+        Preconditions.checkNotNull(id);
+
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                synchronized (DurableOutbox.this) {
+                    awaitLoad();
+                    if (mPending.remove(id) == null) {
+                        return;
+                    }
+                    mLeftOver.remove(id);
+                    addCompleted(id);
+                    append(DONE + SEPARATOR + Uri.encode(id));
+                }
+            }
+        });
+    }
+
+    /**
+     * Waits for the outbox to be read, so call it off the main thread or from a
+     * {@link Listener}, by which time it has been.
+     */
+    public synchronized boolean isPending(@NonNull final String id) {
+        awaitLoad();
+        return mPending.containsKey(id);
+    }
+
+    /**
+     * Waits for the outbox to be read, so call it off the main thread or from a
+     * {@link Listener}, by which time it has been.
+     */
+    public synchronized boolean isCompleted(@NonNull final String id) {
+        awaitLoad();
+        return mCompleted.contains(id);
+    }
+
+    /**
+     * Loads the outbox on a background thread and sends the callbacks left over from earlier
+     * runs of the app again. Callbacks queued since the app started are left to their callers.
+     */
+    public void replayInBackground(@NonNull final Context context) {
+        Preconditions.checkNotNull(context);
+
+        final Context applicationContext = context.getApplicationContext();
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final List<Entry> entries = new ArrayList<>();
+                synchronized (DurableOutbox.this) {
+                    awaitLoad();
+                    dropExpired();
+                    for (final String id : mLeftOver) {
+                        entries.add(mPending.get(id));
+                    }
+                }
+                if (!entries.isEmpty()) {
+                    MoPubLog.log(CUSTOM, "Sending " + entries.size()
+                            + " server callbacks from an earlier session.");
+                }
+                for (final Entry entry : entries) {
+                    scheduleAttempt(applicationContext, entry, 0);
+                }
+                compactIfNeeded();
+            }
+        });
+    }
+
+    @VisibleForTesting
+    synchronized List<String> getPendingIds() {
+        awaitLoad();
+        return new ArrayList<>(mPending.keySet());
+    }
+
+    private void scheduleAttempt(@NonNull final Context context, @NonNull final Entry entry,
+            final int attempt) {
+        mHandler.postDelayed(new Runnable() {
+            @Override
+            public void run() {
+                send(context, entry, attempt);
+            }
+        }, getRetryTime(attempt));
+    }
+
+    private void send(@NonNull final Context context, @NonNull final Entry entry,
+            final int attempt) {
+        if (!isPending(entry.mId)) {
+            return;
+        }
+
+        final OutboxRequest request = new OutboxRequest(context, entry.mUrl,
+                new OutboxRequest.Listener() {
+                    @Override
+                    public void onResponse(final int statusCode) {
+                        if (isServerError(statusCode)) {
+                            retry(context, entry, attempt);
+                        } else {
+                            complete(entry.mId);
+                        }
+                    }
+
+                    @Override
+                    public void onErrorResponse(final VolleyError volleyError) {
+                        // Only a response that isn't a server error means the server has it.
+                        if (volleyError != null && volleyError.networkResponse != null
+                                && !isServerError(volleyError.networkResponse.statusCode)) {
+                            complete(entry.mId);
+                        } else {
+                            retry(context, entry, attempt);
+                        }
+                    }
+                });
+        Networking.getRequestQueue(context).add(request);
+    }
+
+    private void retry(@NonNull final Context context, @NonNull final Entry entry,
+            final int attempt) {
+        if (attempt + 1 >= MAX_ATTEMPTS) {
+            // Tried again on the next start.
+            MoPubLog.log(CUSTOM, "Giving up on server callback for this session: "
+                    + entry.mUrl);
+            return;
+        }
+        scheduleAttempt(context, entry, attempt + 1);
+    }
+
+    private static boolean isServerError(final int statusCode) {
+        return statusCode >= 500 && statusCode < 600;
+    }
+
+    @VisibleForTesting
+    static int getRetryTime(final int attempt) {
+        return RETRY_TIMES[Math.min(attempt, RETRY_TIMES.length - 1)];
+    }
+
+    private void dropExpired() {
+        final long now = System.currentTimeMillis();
+        final Iterator<Entry> iterator = mPending.values().iterator();
+        while (iterator.hasNext()) {
+            final Entry entry = iterator.next();
+            if (now - entry.mCreatedTimeMillis > MAX_PENDING_AGE_MILLIS) {
+                MoPubLog.log(CUSTOM, "Dropping expired server callback: " + entry.mUrl);
+                iterator.remove();
+                mLeftOver.remove(entry.mId);
+                mNeedsCompaction = true;
+            }
+        }
+    }
+
+    private void addCompleted(@NonNull final String id) {
+        mCompleted.add(id);
+        final int maxCompletedIds = mCompleted.contains(CONVERSION_ID)
+                ? MAX_COMPLETED_IDS + 1
+                : MAX_COMPLETED_IDS;
+        if (mCompleted.size() > maxCompletedIds) {
+            final Iterator<String> iterator = mCompleted.iterator();
+            if (CONVERSION_ID.equals(iterator.next())) {
+                iterator.next();
+            }
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Waits for the background thread to read the file. Must hold the lock.
+     */
+    private void awaitLoad() {
+        boolean interrupted = false;
+        while (!mLoaded) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Reads the file. Runs first on the background thread. Must hold the lock.
+     */
+    private void load() {
+        try {
+            if (mFile.exists()) {
+                readFile();
+            }
+        } finally {
+            mLoaded = true;
+            notifyAll();
+        }
+        mLeftOver.addAll(mPending.keySet());
+    }
+
+    private void readFile() {
+        InputStreamReader reader = null;
+        try {
+            reader = new InputStreamReader(new FileInputStream(mFile), UTF_8);
+            final StringBuilder contents = new StringBuilder();
+            final char[] buffer = new char[4096];
+            int count;
+            while ((count = reader.read(buffer)) != -1) {
+                contents.append(buffer, 0, count);
+            }
+
+            int start = 0;
+            int end;
+            while ((end = contents.indexOf("\n", start)) != -1) {
+                mRecordCount++;
+                if (!readRecord(contents.substring(start, end))) {
+                    mNeedsCompaction = true;
+                }
+                start = end + 1;
+            }
+            if (start < contents.length()) {
+                // Every record ends with a newline, so this one was cut short by the process
+                // dying, even if what was written looks like a whole record. Rewrite the file so
+                // the next record doesn't start on the same line.
+                mNeedsCompaction = true;
+            }
+        } catch (IOException e) {
+            MoPubLog.log(CUSTOM, "Unable to read the outbox: " + e.getMessage());
+            mNeedsCompaction = true;
+        } finally {
+            closeQuietly(reader);
+        }
+    }
+
+    private boolean readRecord(@NonNull final String line) {
+        final String[] fields = line.split(SEPARATOR);
+        try {
+            if (ADD.equals(fields[0]) && fields.length == 4) {
+                final String id = Uri.decode(fields[2]);
+                mPending.put(id, new Entry(id, Uri.decode(fields[3]),
+                        Long.parseLong(fields[1])));
+                return true;
+            }
+            if (DONE.equals(fields[0]) && fields.length == 2) {
+                final String id = Uri.decode(fields[1]);
+                mPending.remove(id);
+                addCompleted(id);
+                return true;
+            }
+        } catch (NumberFormatException e) {
+            return false;
+        }
+        return false;
+    }
+
+    @NonNull
+    private static String toAddRecord(@NonNull final Entry entry) {
+        return ADD + SEPARATOR + entry.mCreatedTimeMillis + SEPARATOR + Uri.encode(entry.mId)
+                + SEPARATOR + Uri.encode(entry.mUrl);
+    }
+
+    private void append(@NonNull final String record) {
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                synchronized (mWriteLock) {
+                    final String[] records;
+                    synchronized (DurableOutbox.this) {
+                        // The record is already in memory, so a rewrite includes it.
+                        records = mNeedsCompaction ? getNeededRecords() : null;
+                    }
+                    if (records != null) {
+                        compact(records);
+                        return;
+                    }
+
+                    boolean written = false;
+                    try {
+                        writeRecords(mFile, true, record);
+                        written = true;
+                    } catch (IOException e) {
+                        MoPubLog.log(CUSTOM, "Unable to write to the outbox: " + e.getMessage());
+                    }
+                    synchronized (DurableOutbox.this) {
+                        if (written) {
+                            mRecordCount++;
+                        } else {
+                            mNeedsCompaction = true;
+                        }
+                    }
+                }
+                compactIfNeeded();
+            }
+        });
+    }
+
+    private void compactIfNeeded() {
+        synchronized (mWriteLock) {
+            final String[] records;
+            synchronized (this) {
+                final int neededRecords = mPending.size() + mCompleted.size();
+                if (!mNeedsCompaction && (mRecordCount < COMPACT_RECORD_COUNT
+                        || mRecordCount <= 2 * neededRecords)) {
+                    return;
+                }
+                records = getNeededRecords();
+            }
+            compact(records);
+        }
+    }
+
+    /**
+     * @return The records of the callbacks still pending and the ids completed. Must hold the
+     * lock on the outbox.
+     */
+    @NonNull
+    private String[] getNeededRecords() {
+        final List<String> records = new ArrayList<>();
+        for (final Entry entry : mPending.values()) {
+            records.add(toAddRecord(entry));
+        }
+        for (final String id : mCompleted) {
+            records.add(DONE + SEPARATOR + Uri.encode(id));
+        }
+        return records.toArray(new String[records.size()]);
+    }
+
+    /**
+     * Rewrites the file with only the records still needed. Must hold the write lock and not the
+     * lock on the outbox.
+     */
+    private void compact(@NonNull final String[] records) {
+        final File tempFile = new File(mFile.getPath() + ".tmp");
+        try {
+            writeRecords(tempFile, false, records);
+            if (!tempFile.renameTo(mFile)) {
+                throw new IOException("Unable to replace " + mFile);
+            }
+            synchronized (this) {
+                mRecordCount = records.length;
+                mNeedsCompaction = false;
+            }
+        } catch (IOException e) {
+            MoPubLog.log(CUSTOM, "Unable to compact the outbox: " + e.getMessage());
+        }
+    }
+
+    private static void writeRecords(@NonNull final File file, final boolean append,
+            @NonNull final String... records) throws IOException {
+        final StringBuilder builder = new StringBuilder();
+        for (final String record : records) {
+            builder.append(record).append('\n');
+        }
+
+        FileOutputStream outputStream = null;
+        try {
+            outputStream = new FileOutputStream(file, append);
+            outputStream.write(builder.toString().getBytes(UTF_8));
+            outputStream.flush();
+            outputStream.getFD().sync();
+        } finally {
+            closeQuietly(outputStream);
+        }
+    }
+
+    private static void closeQuietly(@Nullable final Closeable closeable) {
+        if (closeable == null) {
+            return;
+        }
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            // Nothing left to do.
+        }
+    }
+
+    /**
+     * Only the status code of a callback matters.
+     */
+    @VisibleForTesting
+    static class OutboxRequest extends MoPubRequest<Integer> {
+        interface Listener extends Response.ErrorListener {
+            void onResponse(int statusCode);
+        }
+
+        @NonNull private final Listener mListener;
+
+        OutboxRequest(@NonNull final Context context, @NonNull final String url,
+                @NonNull final Listener listener) {
+            super(context, url, listener);
+            mListener = listener;
+            setShouldCache(false);
+            // Retries are scheduled by the outbox.
+            setRetryPolicy(new DefaultRetryPolicy(DefaultRetryPolicy.DEFAULT_TIMEOUT_MS, 0,
+                    DefaultRetryPolicy.DEFAULT_BACKOFF_MULT));
+        }
+
+        @Override
+        protected Response<Integer> parseNetworkResponse(final NetworkResponse networkResponse) {
+            return Response.success(networkResponse.statusCode,
+                    HttpHeaderParser.parseCacheHeaders(networkResponse));
+        }
+
+        @Override
+        protected void deliverResponse(final Integer statusCode) {
+            mListener.onResponse(statusCode);
+        }
+    }
+}
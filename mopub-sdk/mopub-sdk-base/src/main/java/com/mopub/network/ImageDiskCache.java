@@ -0,0 +1,443 @@
+// Copyright 2018-2020 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.network;
+
+import android.text.TextUtils;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.mopub.common.DiskBudget;
+import com.mopub.common.DiskLruCache;
+import com.mopub.common.Preconditions;
+import com.mopub.common.VisibleForTesting;
+import com.mopub.common.logging.MoPubLog;
+import com.mopub.common.util.Streams;
+import com.mopub.common.util.Utils;
+import com.mopub.volley.Cache;
+import com.mopub.volley.Header;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import static com.mopub.common.logging.MoPubLog.SdkLogEvent.CUSTOM;
+
+/**
+ * Dedicated disk tier for native ad images. Entries are addressed by the SHA-1 of the image
+ * request's cache key and kept in their own {@link DiskLruCache}, so images that recur across
+ * sessions aren't pushed out by other Volley responses.
+ *
+ * Each entry stores the response metadata (including the decoded image dimensions written by
+ * {@link DownsamplingImageRequest}) separately from the encoded bytes. Opening the cache reads
+ * the journal, which warms the index on the Volley cache thread before any request is served.
+ *
+ * Once it joins a {@link DiskBudget}, the budget decides its size.
+ */
+public class ImageDiskCache implements Cache, DiskBudget.Participant {
+    /**
+     * Prefix on the cache keys of image requests. {@link ImageRoutingCache} sends keys with this
+     * prefix here.
+     */
+    public static final String CACHE_KEY_PREFIX = "mopub-image:";
+
+    static final String IMAGE_WIDTH_HEADER = "X-MoPub-Image-Width";
+    static final String IMAGE_HEIGHT_HEADER = "X-MoPub-Image-Height";
+
+    /**
+     * Creative image urls don't change content, so keep them at least this long even when the
+     * server sends no caching headers.
+     */
+    @VisibleForTesting
+    static final long MIN_FRESHNESS_MILLIS = TimeUnit.DAYS.toMillis(7);
+
+    private static final int APP_VERSION = 1;
+    private static final int VALUE_COUNT = 2;
+    private static final int METADATA_INDEX = 0;
+    private static final int DATA_INDEX = 1;
+
+    private static final String ETAG_KEY = "etag";
+    private static final String SERVER_DATE_KEY = "server_date";
+    private static final String LAST_MODIFIED_KEY = "last_modified";
+    private static final String TTL_KEY = "ttl";
+    private static final String SOFT_TTL_KEY = "soft_ttl";
+    private static final String HEADERS_KEY = "headers";
+
+    @NonNull private final File mDirectory;
+    private long mMaxSizeBytes;
+    @Nullable private DiskLruCache mDiskLruCache;
+    @Nullable private DiskBudget mDiskBudget;
+
+    private long mHitCount;
+    private long mMissCount;
+    private long mBytesServed;
+
+    public ImageDiskCache(@NonNull final File directory, final long maxSizeBytes) {
+        Preconditions.checkNotNull(directory);
+        Preconditions.checkArgument(maxSizeBytes > 0);
+
+        mDirectory = directory;
+        mMaxSizeBytes = maxSizeBytes;
+    }
+
+    @Override
+    public synchronized void initialize() {
+        if (mDiskLruCache != null) {
+            return;
+        }
+
+        try {
+            mDiskLruCache = DiskLruCache.open(mDirectory, APP_VERSION, VALUE_COUNT, mMaxSizeBytes);
+            MoPubLog.log(CUSTOM, "Image disk cache opened with " + mDiskLruCache.size()
+                    + " bytes.");
+        } catch (IOException e) {
+            MoPubLog.log(CUSTOM, "Unable to open image disk cache.", e);
+        }
+    }
+
+    @Nullable
+    @Override
+    public synchronized Entry get(@NonNull final String key) {
+        if (mDiskLruCache == null) {
+            return null;
+        }
+
+        DiskLruCache.Snapshot snapshot = null;
+        try {
+            snapshot = mDiskLruCache.get(createDiskCacheKey(key));
+            if (snapshot == null) {
+                mMissCount++;
+                recordLookup(false);
+                return null;
+            }
+
+            final Entry entry = readMetadata(snapshot.getString(METADATA_INDEX));
+            final byte[] data = new byte[(int) snapshot.getLength(DATA_INDEX)];
+            final InputStream in = new BufferedInputStream(snapshot.getInputStream(DATA_INDEX));
+            try {
+                Streams.readStream(in, data);
+            } finally {
+                Streams.closeStream(in);
+            }
+            entry.data = data;
+
+            mHitCount++;
+            mBytesServed += data.length;
+            recordLookup(true);
+            return entry;
+        } catch (IOException | JSONException e) {
+            MoPubLog.log(CUSTOM, "Unable to read image from disk cache.", e);
+            remove(key);
+            mMissCount++;
+            recordLookup(false);
+            return null;
+        } finally {
+            if (snapshot != null) {
+                snapshot.close();
+            }
+        }
+    }
+
+    @Override
+    public synchronized void put(@NonNull final String key, @NonNull final Entry entry) {
+        if (mDiskLruCache == null || entry.data == null) {
+            return;
+        }
+
+        final long minTtl = System.currentTimeMillis() + MIN_FRESHNESS_MILLIS;
+        entry.ttl = Math.max(entry.ttl, minTtl);
+        entry.softTtl = Math.max(entry.softTtl, minTtl);
+
+        DiskLruCache.Editor editor = null;
+        try {
+            editor = mDiskLruCache.edit(createDiskCacheKey(key));
+            if (editor == null) {
+                // another edit is in progress
+                return;
+            }
+
+            editor.set(METADATA_INDEX, writeMetadata(entry));
+            final OutputStream out = editor.newOutputStream(DATA_INDEX);
+            try {
+                out.write(entry.data);
+            } finally {
+                Streams.closeStream(out);
+            }
+            editor.commit();
+        } catch (IOException | JSONException e) {
+            MoPubLog.log(CUSTOM, "Unable to write image to disk cache.", e);
+            if (editor != null) {
+                editor.abortUnlessCommitted();
+            }
+        }
+    }
+
+    @Override
+    public synchronized void invalidate(@NonNull final String key, final boolean fullExpire) {
+        // Not a lookup for an image, so it isn't counted as a hit or a miss.
+        final Entry entry = readMetadataOnly(key);
+        if (entry == null) {
+            return;
+        }
+
+        entry.softTtl = 0;
+        if (fullExpire) {
+            entry.ttl = 0;
+        }
+        writeMetadataOnly(key, entry);
+    }
+
+    @Override
+    public synchronized void remove(@NonNull final String key) {
+        if (mDiskLruCache == null) {
+            return;
+        }
+
+        try {
+            mDiskLruCache.remove(createDiskCacheKey(key));
+        } catch (IOException e) {
+            MoPubLog.log(CUSTOM, "Unable to remove image from disk cache.", e);
+        }
+    }
+
+    @Override
+    public synchronized void clear() {
+        if (mDiskLruCache == null) {
+            return;
+        }
+
+        try {
+            mDiskLruCache.delete();
+        } catch (IOException e) {
+            MoPubLog.log(CUSTOM, "Unable to clear image disk cache.", e);
+        }
+        mDiskLruCache = null;
+        initialize();
+    }
+
+    public synchronized long getSizeBytes() {
+        return mDiskLruCache == null ? 0 : mDiskLruCache.size();
+    }
+
+    public synchronized long getMaxSizeBytes() {
+        return mMaxSizeBytes;
+    }
+
+    /**
+     * Lets the budget size the cache from now on. Call before {@link #initialize()}.
+     */
+    public synchronized void setDiskBudget(@NonNull final DiskBudget diskBudget) {
+        Preconditions.checkNotNull(diskBudget);
+
+        mDiskBudget = diskBudget;
+        setQuotaBytes(diskBudget.register(this));
+    }
+
+    @NonNull
+    @Override
+    public String getName() {
+        return mDirectory.getName();
+    }
+
+    @Override
+    public synchronized void setQuotaBytes(final long quotaBytes) {
+        mMaxSizeBytes = quotaBytes;
+        if (mDiskLruCache != null) {
+            mDiskLruCache.setMaxSize(quotaBytes);
+        }
+    }
+
+    @Override
+    public synchronized long getLeastRecentAccessTime() {
+        return mDiskLruCache == null ? -1 : mDiskLruCache.getLeastRecentAccessTime();
+    }
+
+    @Override
+    public synchronized long evictLeastRecentlyUsed() {
+        if (mDiskLruCache == null) {
+            return 0;
+        }
+        try {
+            return mDiskLruCache.evictLeastRecentlyUsed();
+        } catch (IOException e) {
+            MoPubLog.log(CUSTOM, "Unable to evict image from disk cache.", e);
+            return 0;
+        }
+    }
+
+    public synchronized long getHitCount() {
+        return mHitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return mMissCount;
+    }
+
+    /**
+     * @return Image bytes served from disk instead of the network since the cache was created.
+     */
+    public synchronized long getBytesServed() {
+        return mBytesServed;
+    }
+
+    private void recordLookup(final boolean hit) {
+        if (mDiskBudget == null) {
+            return;
+        }
+        if (hit) {
+            mDiskBudget.recordHit(getName());
+        } else {
+            mDiskBudget.recordMiss(getName());
+        }
+    }
+
+    /**
+     * Records the dimensions of the image in an entry, so decoding it from disk can skip reading
+     * the bounds first.
+     */
+    static void setImageDimensions(@NonNull final Entry entry, final int width, final int height) {
+        final Map<String, String> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        if (entry.responseHeaders != null) {
+            headers.putAll(entry.responseHeaders);
+        }
+        headers.put(IMAGE_WIDTH_HEADER, String.valueOf(width));
+        headers.put(IMAGE_HEIGHT_HEADER, String.valueOf(height));
+        entry.responseHeaders = headers;
+        entry.allResponseHeaders = toHeaderList(headers);
+    }
+
+    /**
+     * @return The recorded image dimension, or 0 if the response doesn't have it.
+     */
+    static int getImageDimension(@Nullable final Map<String, String> headers,
+            @NonNull final String headerName) {
+        if (headers == null) {
+            return 0;
+        }
+
+        final String value = headers.get(headerName);
+        if (TextUtils.isEmpty(value)) {
+            return 0;
+        }
+
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * @return The entry without its data, or null if there is none.
+     */
+    @Nullable
+    private Entry readMetadataOnly(@NonNull final String key) {
+        if (mDiskLruCache == null) {
+            return null;
+        }
+
+        DiskLruCache.Snapshot snapshot = null;
+        try {
+            snapshot = mDiskLruCache.get(createDiskCacheKey(key));
+            return snapshot == null ? null : readMetadata(snapshot.getString(METADATA_INDEX));
+        } catch (IOException | JSONException e) {
+            MoPubLog.log(CUSTOM, "Unable to read image disk cache entry.", e);
+            return null;
+        } finally {
+            if (snapshot != null) {
+                snapshot.close();
+            }
+        }
+    }
+
+    private void writeMetadataOnly(@NonNull final String key, @NonNull final Entry entry) {
+        if (mDiskLruCache == null) {
+            return;
+        }
+
+        DiskLruCache.Editor editor = null;
+        try {
+            editor = mDiskLruCache.edit(createDiskCacheKey(key));
+            if (editor == null) {
+                return;
+            }
+            editor.set(METADATA_INDEX, writeMetadata(entry));
+            editor.commit();
+        } catch (IOException | JSONException e) {
+            MoPubLog.log(CUSTOM, "Unable to update image disk cache entry.", e);
+            if (editor != null) {
+                editor.abortUnlessCommitted();
+            }
+        }
+    }
+
+    @NonNull
+    private static String createDiskCacheKey(@NonNull final String key) {
+        return Utils.sha1(key);
+    }
+
+    @NonNull
+    private static String writeMetadata(@NonNull final Entry entry) throws JSONException {
+        final JSONObject metadata = new JSONObject();
+        metadata.put(ETAG_KEY, entry.etag);
+        metadata.put(SERVER_DATE_KEY, entry.serverDate);
+        metadata.put(LAST_MODIFIED_KEY, entry.lastModified);
+        metadata.put(TTL_KEY, entry.ttl);
+        metadata.put(SOFT_TTL_KEY, entry.softTtl);
+
+        final JSONArray headers = new JSONArray();
+        if (entry.responseHeaders != null) {
+            for (final Map.Entry<String, String> header : entry.responseHeaders.entrySet()) {
+                headers.put(new JSONArray().put(header.getKey()).put(header.getValue()));
+            }
+        }
+        metadata.put(HEADERS_KEY, headers);
+        return metadata.toString();
+    }
+
+    @NonNull
+    private static Entry readMetadata(@NonNull final String metadataString) throws JSONException {
+        final JSONObject metadata = new JSONObject(metadataString);
+        final Entry entry = new Entry();
+        entry.etag = metadata.optString(ETAG_KEY, null);
+        entry.serverDate = metadata.optLong(SERVER_DATE_KEY);
+        entry.lastModified = metadata.optLong(LAST_MODIFIED_KEY);
+        entry.ttl = metadata.optLong(TTL_KEY);
+        entry.softTtl = metadata.optLong(SOFT_TTL_KEY);
+
+        final Map<String, String> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        final JSONArray headerArray = metadata.optJSONArray(HEADERS_KEY);
+        if (headerArray != null) {
+            for (int i = 0; i < headerArray.length(); i++) {
+                final JSONArray header = headerArray.getJSONArray(i);
+                headers.put(header.getString(0), header.getString(1));
+            }
+        }
+        entry.responseHeaders = headers;
+        entry.allResponseHeaders = toHeaderList(headers);
+        return entry;
+    }
+
+    @NonNull
+    private static List<Header> toHeaderList(@NonNull final Map<String, String> headers) {
+        final List<Header> headerList = new ArrayList<>(headers.size());
+        for (final Map.Entry<String, String> header : headers.entrySet()) {
+            headerList.add(new Header(header.getKey(), header.getValue()));
+        }
+        return Collections.unmodifiableList(headerList);
+    }
+}
@@ -0,0 +1,152 @@
+// Copyright 2018-2020 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.network;
+
+import android.graphics.Bitmap;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.collection.LruCache;
+
+import com.mopub.common.Preconditions;
+import com.mopub.common.VisibleForTesting;
+import com.mopub.volley.toolbox.ImageLoader;
+
+/**
+ * In-memory bitmap cache backing {@link MaxWidthImageLoader}. Icons and main images are kept in
+ * separate LRU caches so a few large main images can't push every icon out of memory. Bitmaps
+ * dropped from either cache are offered to the {@link BitmapPool} for reuse, if there is one.
+ */
+public class ImageMemoryCache implements ImageLoader.ImageCache {
+    /**
+     * Bitmaps at or below this size are budgeted as icons. 256 KB is a 256x256 ARGB_8888 bitmap,
+     * comfortably above a 48dp icon at xxxhdpi.
+     */
+    @VisibleForTesting
+    static final int ICON_MAX_BYTES = 256 * 1024;
+
+    /**
+     * Fraction of the total budget reserved for icons.
+     */
+    @VisibleForTesting
+    static final int ICON_BUDGET_DIVISOR = 4;
+
+    @NonNull private final BitmapCache mIconCache;
+    @NonNull private final BitmapCache mMainImageCache;
+    @Nullable private final BitmapPool mBitmapPool;
+
+    public ImageMemoryCache(final int maxSizeBytes, @Nullable final BitmapPool bitmapPool) {
+        Preconditions.checkArgument(maxSizeBytes > 0);
+
+        final int iconBudget = Math.max(1, maxSizeBytes / ICON_BUDGET_DIVISOR);
+        mIconCache = new BitmapCache(iconBudget);
+        mMainImageCache = new BitmapCache(Math.max(1, maxSizeBytes - iconBudget));
+        mBitmapPool = bitmapPool;
+    }
+
+    @Nullable
+    @Override
+    public Bitmap getBitmap(@NonNull final String key) {
+        final Bitmap icon = mIconCache.get(key);
+        if (icon != null) {
+            return icon;
+        }
+        return mMainImageCache.get(key);
+    }
+
+    @Override
+    public void putBitmap(@NonNull final String key, @NonNull final Bitmap bitmap) {
+        if (isIcon(bitmap)) {
+            mMainImageCache.remove(key);
+            mIconCache.put(key, bitmap);
+        } else {
+            mIconCache.remove(key);
+            mMainImageCache.put(key, bitmap);
+        }
+    }
+
+    /**
+     * Removes a bitmap without offering it to the pool, so the caller takes ownership of it.
+     */
+    @Nullable
+    public Bitmap take(@NonNull final String key) {
+        final Bitmap icon = mIconCache.take(key);
+        if (icon != null) {
+            return icon;
+        }
+        return mMainImageCache.take(key);
+    }
+
+    public void evictAll() {
+        mIconCache.evictAll();
+        mMainImageCache.evictAll();
+    }
+
+    /**
+     * @return The fraction of lookups that found a bitmap in memory, or 0 if there were none.
+     */
+    public double getHitRate() {
+        final long hits = getHitCount();
+        final long total = hits + getMissCount();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    /**
+     * A lookup is only a miss if neither cache has the key. The icon cache is always consulted
+     * first, so its misses are only counted when the main image cache misses too.
+     */
+    public long getHitCount() {
+        return mIconCache.hitCount() + mMainImageCache.hitCount();
+    }
+
+    public long getMissCount() {
+        return mMainImageCache.missCount();
+    }
+
+    public int getIconSizeBytes() {
+        return mIconCache.size();
+    }
+
+    public int getMainImageSizeBytes() {
+        return mMainImageCache.size();
+    }
+
+    @VisibleForTesting
+    static boolean isIcon(@NonNull final Bitmap bitmap) {
+        return bitmap.getByteCount() <= ICON_MAX_BYTES;
+    }
+
+    private class BitmapCache extends LruCache<String, Bitmap> {
+        private boolean mTaking;
+
+        BitmapCache(final int maxSizeBytes) {
+            super(maxSizeBytes);
+        }
+
+        @Nullable
+        synchronized Bitmap take(@NonNull final String key) {
+            mTaking = true;
+            try {
+                return remove(key);
+            } finally {
+                mTaking = false;
+            }
+        }
+
+        @Override
+        protected int sizeOf(@NonNull final String key, @NonNull final Bitmap value) {
+            return value.getRowBytes() * value.getHeight();
+        }
+
+        @Override
+        protected void entryRemoved(final boolean evicted, @NonNull final String key,
+                @NonNull final Bitmap oldValue, @Nullable final Bitmap newValue) {
+            if (mBitmapPool == null || mTaking || oldValue == newValue) {
+                return;
+            }
+            mBitmapPool.onEvicted(oldValue);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+// Copyright 2018-2020 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.network;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.mopub.common.Preconditions;
+import com.mopub.volley.Cache;
+
+/**
+ * Volley cache that sends image requests to the {@link ImageDiskCache} and everything else to the
+ * shared response cache.
+ */
+public class ImageRoutingCache implements Cache {
+    @NonNull private final Cache mDefaultCache;
+    @NonNull private final ImageDiskCache mImageDiskCache;
+
+    public ImageRoutingCache(@NonNull final Cache defaultCache,
+            @NonNull final ImageDiskCache imageDiskCache) {
+        Preconditions.checkNotNull(defaultCache);
+        Preconditions.checkNotNull(imageDiskCache);
+
+        mDefaultCache = defaultCache;
+        mImageDiskCache = imageDiskCache;
+    }
+
+    @Nullable
+    @Override
+    public Entry get(@NonNull final String key) {
+        return getCache(key).get(key);
+    }
+
+    @Override
+    public void put(@NonNull final String key, @NonNull final Entry entry) {
+        getCache(key).put(key, entry);
+    }
+
+    @Override
+    public void initialize() {
+        mImageDiskCache.initialize();
+        mDefaultCache.initialize();
+    }
+
+    @Override
+    public void invalidate(@NonNull final String key, final boolean fullExpire) {
+        getCache(key).invalidate(key, fullExpire);
+    }
+
+    @Override
+    public void remove(@NonNull final String key) {
+        getCache(key).remove(key);
+    }
+
+    @Override
+    public void clear() {
+        mImageDiskCache.clear();
+        mDefaultCache.clear();
+    }
+
+    @NonNull
+    public ImageDiskCache getImageDiskCache() {
+        return mImageDiskCache;
+    }
+
+    @NonNull
+    private Cache getCache(@NonNull final String key) {
+        return key.startsWith(ImageDiskCache.CACHE_KEY_PREFIX) ? mImageDiskCache : mDefaultCache;
+    }
+}
@@ -4,24 +4,52 @@
 
 package com.mopub.network;
 
+import android.os.Looper;
+
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 import com.mopub.common.Preconditions;
 import com.mopub.common.VisibleForTesting;
+import com.mopub.common.logging.MoPubLog;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
-import java.util.HashSet;
-import java.util.Set;
+import static com.mopub.common.logging.MoPubLog.SdkLogEvent.CUSTOM;
 
 /**
  * Single source of impression level revenue data. Implement interface {@link ImpressionListener}
  * and subscribe to events from ImpressionEmitter to receive detailed impression data.
  * This class is not linked to the activity lifecycle. It is recommended to subscribe to events
  * when application starts even before the first activity created.
+ *
+ * Listeners are called on the thread that showed the ad, usually the main thread. Call {@link
+ * #setAsyncDelivery(boolean, boolean)} to call them on a background thread instead.
  */
 @SuppressWarnings("WeakerAccess")
 public class ImpressionsEmitter {
-    private static final HashSet<ImpressionListener> mListeners = new HashSet<>();
+    @VisibleForTesting
+    static final int MAX_QUEUED_IMPRESSIONS = 256;
+    // How long send() waits for room in a full queue before dropping the impression.
+    @VisibleForTesting
+    static final long MAX_QUEUE_WAIT_MILLIS = 1000;
+
+    private static final ImpressionListener[] NO_LISTENERS = new ImpressionListener[0];
+
+    // Replaced, never changed, so send() can read it without locking.
+    private static volatile ImpressionListener[] sListeners = NO_LISTENERS;
+
+    @Nullable private static volatile ThreadPoolExecutor sExecutor;
+    private static volatile boolean sAsyncDelivery;
+    private static volatile boolean sDropWhenQueueFull;
+    @NonNull private static final AtomicLong sDroppedCount = new AtomicLong();
+    @NonNull private static final AtomicLong sWaitedCount = new AtomicLong();
+    @NonNull private static final AtomicLong sDeliveredDirectlyCount = new AtomicLong();
 
     /**
      * Call this method to start listening for impression level revenue data events.
@@ -32,7 +60,14 @@ public class ImpressionsEmitter {
         Preconditions.checkNotNull(listener);
 
         synchronized (ImpressionsEmitter.class) {
-            mListeners.add(listener);
+            final ImpressionListener[] listeners = sListeners;
+            if (indexOf(listeners, listener) >= 0) {
+                return;
+            }
+            final ImpressionListener[] newListeners = new ImpressionListener[listeners.length + 1];
+            System.arraycopy(listeners, 0, newListeners, 0, listeners.length);
+            newListeners[listeners.length] = listener;
+            sListeners = newListeners;
         }
     }
 
@@ -45,32 +80,183 @@ public class ImpressionsEmitter {
         Preconditions.checkNotNull(listener);
 
         synchronized (ImpressionsEmitter.class) {
-            mListeners.remove(listener);
+            final ImpressionListener[] listeners = sListeners;
+            final int index = indexOf(listeners, listener);
+            if (index < 0) {
+                return;
+            }
+            final ImpressionListener[] newListeners = new ImpressionListener[listeners.length - 1];
+            System.arraycopy(listeners, 0, newListeners, 0, index);
+            System.arraycopy(listeners, index + 1, newListeners, index,
+                    listeners.length - index - 1);
+            sListeners = newListeners;
+        }
+    }
+
+    /**
+     * Calls listeners on a single background thread, in the order impressions happen, instead of
+     * on the thread that showed the ad. Up to {@link #MAX_QUEUED_IMPRESSIONS} impressions wait
+     * for slow listeners. Past that, an impression is either dropped right away or the thread
+     * that showed the ad waits up to {@link #MAX_QUEUE_WAIT_MILLIS} for room in the queue, so the
+     * impression still arrives in order. It is dropped if there is no room by then. The main
+     * thread never waits. It calls the listeners itself instead, ahead of the queued impressions.
+     *
+     * Turning this off lets the background thread finish the impressions already queued and then
+     * stops it.
+     *
+     * @param enabled          true to call listeners on a background thread.
+     * @param dropWhenQueueFull true to drop impressions when the queue is full, false to wait for
+     *                          room first.
+     */
+    public static void setAsyncDelivery(final boolean enabled, final boolean dropWhenQueueFull) {
+        synchronized (ImpressionsEmitter.class) {
+            if (enabled && sExecutor == null) {
+                sExecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                        new ArrayBlockingQueue<Runnable>(MAX_QUEUED_IMPRESSIONS),
+                        new ThreadFactory() {
+                            @Override
+                            public Thread newThread(@NonNull final Runnable runnable) {
+                                final Thread thread = new Thread(runnable,
+                                        "MoPubImpressionsEmitter");
+                                thread.setDaemon(true);
+                                return thread;
+                            }
+                        });
+                // send() may add to the queue directly, which only runs with a live thread.
+                sExecutor.prestartCoreThread();
+            } else if (!enabled && sExecutor != null) {
+                sExecutor.shutdown();
+                sExecutor = null;
+            }
+            sDropWhenQueueFull = dropWhenQueueFull;
+            sAsyncDelivery = enabled;
         }
     }
 
+    /**
+     * @return How many impressions were dropped because the queue of {@link
+     * #setAsyncDelivery(boolean, boolean)} was full.
+     */
+    public static long getDroppedCount() {
+        return sDroppedCount.get();
+    }
+
+    /**
+     * @return How many impressions waited for room because the queue of {@link
+     * #setAsyncDelivery(boolean, boolean)} was full, and were then queued.
+     */
+    public static long getWaitedCount() {
+        return sWaitedCount.get();
+    }
+
+    /**
+     * @return How many impressions the main thread delivered itself because the queue of {@link
+     * #setAsyncDelivery(boolean, boolean)} was full, instead of waiting for room.
+     */
+    public static long getDeliveredDirectlyCount() {
+        return sDeliveredDirectlyCount.get();
+    }
+
     /**
      * MoPub SDK internal method. Should not be used by publishers.
      */
     static void send(@NonNull final String adUnitId, @Nullable final ImpressionData impressionData) {
         Preconditions.checkNotNull(adUnitId);
 
-        Set<ImpressionListener> listenerSet = cloneListeners();
-        for (ImpressionListener listener : listenerSet) {
+        final ImpressionListener[] listeners = sListeners;
+        if (listeners.length == 0) {
+            return;
+        }
+
+        final ThreadPoolExecutor executor = sExecutor;
+        if (!sAsyncDelivery || executor == null) {
+            deliver(listeners, adUnitId, impressionData);
+            return;
+        }
+
+        final Runnable delivery = new Runnable() {
+            @Override
+            public void run() {
+                deliver(listeners, adUnitId, impressionData);
+            }
+        };
+        try {
+            executor.execute(delivery);
+        } catch (RejectedExecutionException e) {
+            if (executor.isShutdown()) {
+                // Async delivery was turned off in the meantime.
+                deliver(listeners, adUnitId, impressionData);
+            } else if (sDropWhenQueueFull) {
+                drop(adUnitId);
+            } else if (Looper.myLooper() == Looper.getMainLooper()) {
+                // Waiting would freeze the UI, so this impression skips the queue.
+                sDeliveredDirectlyCount.incrementAndGet();
+                deliver(listeners, adUnitId, impressionData);
+            } else if (!waitForRoom(executor, delivery)) {
+                drop(adUnitId);
+            } else {
+                sWaitedCount.incrementAndGet();
+                // If async delivery was turned off while waiting, the thread may already be gone
+                // and would never run it.
+                if (executor.isShutdown() && executor.getQueue().remove(delivery)) {
+                    deliver(listeners, adUnitId, impressionData);
+                }
+            }
+        }
+    }
+
+    private static void drop(@NonNull final String adUnitId) {
+        sDroppedCount.incrementAndGet();
+        MoPubLog.log(CUSTOM, "Impression queue is full. Dropping impression for " + adUnitId);
+    }
+
+    /**
+     * Waits up to {@link #MAX_QUEUE_WAIT_MILLIS} to queue the delivery behind the impressions
+     * already queued.
+     *
+     * @return False if there was no room in time.
+     */
+    private static boolean waitForRoom(@NonNull final ThreadPoolExecutor executor,
+            @NonNull final Runnable delivery) {
+        try {
+            return executor.getQueue().offer(delivery, MAX_QUEUE_WAIT_MILLIS,
+                    TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static void deliver(@NonNull final ImpressionListener[] listeners,
+            @NonNull final String adUnitId, @Nullable final ImpressionData impressionData) {
+        for (final ImpressionListener listener : listeners) {
             listener.onImpression(adUnitId, impressionData);
         }
     }
 
-    private static Set<ImpressionListener> cloneListeners() {
-        synchronized (ImpressionsEmitter.class) {
-            return new HashSet<>(mListeners);
+    private static int indexOf(@NonNull final ImpressionListener[] listeners,
+            @NonNull final ImpressionListener listener) {
+        for (int i = 0; i < listeners.length; i++) {
+            if (listeners[i].equals(listener)) {
+                return i;
+            }
         }
+        return -1;
     }
 
     @VisibleForTesting
     static void clear() {
         synchronized (ImpressionsEmitter.class) {
-            mListeners.clear();
+            sListeners = NO_LISTENERS;
+            if (sExecutor != null) {
+                sExecutor.shutdownNow();
+                sExecutor = null;
+            }
+            sAsyncDelivery = false;
+            sDropWhenQueueFull = false;
+            sDroppedCount.set(0);
+            sWaitedCount.set(0);
+            sDeliveredDirectlyCount.set(0);
         }
     }
 }
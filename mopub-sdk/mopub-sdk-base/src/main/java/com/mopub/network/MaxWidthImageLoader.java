@@ -5,17 +5,41 @@
 package com.mopub.network;
 
 import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
 import android.graphics.Point;
+import android.graphics.Rect;
 import android.view.Display;
 import android.view.WindowManager;
+import android.widget.ImageView.ScaleType;
 
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.mopub.common.Preconditions;
+import com.mopub.common.VisibleForTesting;
+import com.mopub.volley.Request;
 import com.mopub.volley.RequestQueue;
+import com.mopub.volley.Response;
+import com.mopub.volley.VolleyError;
+
+import java.util.concurrent.atomic.AtomicLong;
 
 public class MaxWidthImageLoader extends com.mopub.volley.toolbox.ImageLoader {
     private final int mMaxImageWidth;
-
+    @Nullable private final ImageMemoryCache mImageMemoryCache;
+    @Nullable private final BitmapPool mBitmapPool;
+    @NonNull private final AtomicLong mDecodedBytes;
 
     public MaxWidthImageLoader(final RequestQueue queue, final Context context, final ImageCache imageCache) {
+        this(queue, context, imageCache, null);
+    }
+
+    public MaxWidthImageLoader(@NonNull final RequestQueue queue,
+            @NonNull final Context context,
+            @NonNull final ImageCache imageCache,
+            @Nullable final BitmapPool bitmapPool) {
         super(queue, imageCache);
 
         // Get Display Options
@@ -26,10 +50,151 @@ public class MaxWidthImageLoader extends com.mopub.volley.toolbox.ImageLoader {
 
         // Make our images no wider than the skinny side of the display.
         mMaxImageWidth = Math.min(size.x, size.y);
+        mImageMemoryCache = imageCache instanceof ImageMemoryCache
+                ? (ImageMemoryCache) imageCache
+                : null;
+        mBitmapPool = bitmapPool;
+        mDecodedBytes = new AtomicLong();
     }
 
     @Override
     public ImageContainer get(final String requestUrl, final ImageListener listener) {
         return super.get(requestUrl, listener, mMaxImageWidth, 0 /* no height limit */);
     }
+
+    /**
+     * Loads an image sized for a view of the given dimensions. If the full-width image was already
+     * pre-cached, it is scaled down in memory so the result is still delivered immediately, and
+     * the full-width bitmap is reused once no view shows it.
+     */
+    @Override
+    public ImageContainer get(final String requestUrl, final ImageListener listener,
+            final int maxWidth, final int maxHeight, final ScaleType scaleType) {
+        final int cappedWidth = maxWidth <= 0 ? mMaxImageWidth : Math.min(maxWidth, mMaxImageWidth);
+
+        if (mImageMemoryCache != null && requestUrl != null
+                && (cappedWidth != mMaxImageWidth || maxHeight != 0)) {
+            downsampleFromMemory(requestUrl, cappedWidth, maxHeight, scaleType);
+        }
+
+        return super.get(requestUrl, listener, cappedWidth, maxHeight, scaleType);
+    }
+
+    @Override
+    protected Request<Bitmap> makeImageRequest(final String requestUrl, final int maxWidth,
+            final int maxHeight, final ScaleType scaleType, final String cacheKey) {
+        if (mBitmapPool == null) {
+            return super.makeImageRequest(requestUrl, maxWidth, maxHeight, scaleType, cacheKey);
+        }
+
+        return new DownsamplingImageRequest(requestUrl,
+                new Response.Listener<Bitmap>() {
+                    @Override
+                    public void onResponse(final Bitmap response) {
+                        onGetImageSuccess(cacheKey, response);
+                    }
+                },
+                maxWidth, maxHeight, scaleType, Bitmap.Config.RGB_565,
+                new Response.ErrorListener() {
+                    @Override
+                    public void onErrorResponse(final VolleyError error) {
+                        onGetImageError(cacheKey, error);
+                    }
+                },
+                mBitmapPool, mDecodedBytes);
+    }
+
+    /**
+     * @return Total bytes of bitmaps decoded from network or disk responses.
+     */
+    public long getDecodedBytes() {
+        return mDecodedBytes.get();
+    }
+
+    @Nullable
+    public ImageMemoryCache getImageMemoryCache() {
+        return mImageMemoryCache;
+    }
+
+    @Nullable
+    public BitmapPool getBitmapPool() {
+        return mBitmapPool;
+    }
+
+    private void downsampleFromMemory(@NonNull final String requestUrl, final int maxWidth,
+            final int maxHeight, @NonNull final ScaleType scaleType) {
+        Preconditions.checkNotNull(mImageMemoryCache);
+
+        final String cacheKey = getCacheKey(requestUrl, maxWidth, maxHeight, scaleType);
+        if (mImageMemoryCache.getBitmap(cacheKey) != null) {
+            return;
+        }
+
+        final Bitmap fullWidth = mImageMemoryCache.take(
+                getCacheKey(requestUrl, mMaxImageWidth, 0, ScaleType.CENTER_INSIDE));
+        if (fullWidth == null) {
+            return;
+        }
+
+        final int actualWidth = fullWidth.getWidth();
+        final int actualHeight = fullWidth.getHeight();
+        final int desiredWidth = Math.min(actualWidth, DownsamplingImageRequest.getResizedDimension(
+                maxWidth, maxHeight, actualWidth, actualHeight, scaleType));
+        final int desiredHeight = Math.min(actualHeight, DownsamplingImageRequest.getResizedDimension(
+                maxHeight, maxWidth, actualHeight, actualWidth, scaleType));
+
+        if (desiredWidth <= 0 || desiredHeight <= 0
+                || (desiredWidth == actualWidth && desiredHeight == actualHeight)) {
+            mImageMemoryCache.putBitmap(cacheKey, fullWidth);
+            return;
+        }
+
+        mImageMemoryCache.putBitmap(cacheKey,
+                scaleInto(fullWidth, desiredWidth, desiredHeight));
+        // Views may still show the full-width bitmap, so it is pooled the same way as a bitmap
+        // the memory cache evicts.
+        if (mBitmapPool != null) {
+            mBitmapPool.onEvicted(fullWidth);
+        }
+    }
+
+    @NonNull
+    private Bitmap scaleInto(@NonNull final Bitmap source, final int width, final int height) {
+        final Bitmap.Config config = source.getConfig() != null
+                ? source.getConfig()
+                : Bitmap.Config.ARGB_8888;
+        Bitmap target = mBitmapPool != null ? mBitmapPool.get(width, height, config) : null;
+        if (target != null) {
+            try {
+                target.reconfigure(width, height, config);
+            } catch (IllegalArgumentException e) {
+                target = null;
+            }
+        }
+
+        if (target == null) {
+            return Bitmap.createScaledBitmap(source, width, height, true);
+        }
+
+        target.eraseColor(0);
+        final Canvas canvas = new Canvas(target);
+        canvas.drawBitmap(source, null, new Rect(0, 0, width, height),
+                new Paint(Paint.FILTER_BITMAP_FLAG));
+        return target;
+    }
+
+    /**
+     * Matches the memory cache key Volley's {@link com.mopub.volley.toolbox.ImageLoader} uses.
+     */
+    @VisibleForTesting
+    @NonNull
+    static String getCacheKey(@NonNull final String url, final int maxWidth, final int maxHeight,
+            @NonNull final ScaleType scaleType) {
+        return new StringBuilder(url.length() + 12)
+                .append("#W").append(maxWidth)
+                .append("#H").append(maxHeight)
+                .append("#S").append(scaleType.ordinal())
+                .append(url)
+                .toString();
+    }
 }
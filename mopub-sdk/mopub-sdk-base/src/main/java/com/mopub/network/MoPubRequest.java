@@ -34,6 +34,9 @@ public abstract class MoPubRequest<T> extends Request<T>  {
 
     @NonNull private final String mOriginalUrl;
     @NonNull private final Context mContext;
+    // Volley gets the headers and then the body each time the request is sent, so the body is
+    // compressed along with the headers to keep the two consistent.
+    @Nullable private volatile byte[] mCompressedBody;
 
     public MoPubRequest(@NonNull final Context context,
                         @NonNull final String url,
@@ -62,13 +65,29 @@ public abstract class MoPubRequest<T> extends Request<T>  {
         return super.getBodyContentType();
     }
 
+    /**
+     * Gets the body sent with this request. If {@link #getHeaders()} chose to gzip the body, this
+     * is the gzipped body.
+     */
     @Override
     public byte[] getBody() {
-        final String body = MoPubRequestUtils.generateBodyFromParams(getParams(), getUrl());
-        if (body == null) {
+        final byte[] compressedBody = mCompressedBody;
+        if (compressedBody != null) {
+            return compressedBody;
+        }
+        return getUncompressedBody();
+    }
+
+    /**
+     * Gets the JSON body of this request before any compression.
+     */
+    @Nullable
+    public byte[] getUncompressedBody() {
+        if (!MoPubRequestUtils.isMoPubRequest(getUrl())) {
             return null;
         }
-        return body.getBytes();
+
+        return MoPubRequestUtils.generateBodyFromUrl(mContext, mOriginalUrl);
     }
 
     @NonNull
@@ -124,6 +143,15 @@ public abstract class MoPubRequest<T> extends Request<T>  {
             headers.put(ResponseHeader.ACCEPT_LANGUAGE.getKey(), languageCode);
         }
 
+        final RequestBodyCompressor compressor = Networking.getRequestBodyCompressor();
+        final byte[] compressedBody = compressor.isEnabled()
+                ? compressor.compressIfEnabled(getUncompressedBody())
+                : null;
+        mCompressedBody = compressedBody;
+        if (compressedBody != null) {
+            headers.put(ResponseHeader.CONTENT_ENCODING.getKey(), RequestBodyCompressor.GZIP);
+        }
+
         return headers;
     }
 }
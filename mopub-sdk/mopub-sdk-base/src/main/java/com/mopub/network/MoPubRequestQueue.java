@@ -9,6 +9,8 @@ import androidx.annotation.NonNull;
 
 import com.mopub.common.Preconditions;
 import com.mopub.common.VisibleForTesting;
+import com.mopub.common.metrics.Counter;
+import com.mopub.common.metrics.Metrics;
 import com.mopub.volley.Cache;
 import com.mopub.volley.Network;
 import com.mopub.volley.Request;
@@ -30,6 +32,12 @@ import java.util.Map;
 public class MoPubRequestQueue extends RequestQueue {
 
     private static final int CAPACITY = 10;
+    private static final Counter REQUESTS_ADDED_COUNTER = Metrics.counter("request_queue.added");
+    private static final Counter REQUESTS_DELAYED_COUNTER =
+            Metrics.counter("request_queue.delayed");
+    @VisibleForTesting
+    static final Counter REQUESTS_CANCELLED_COUNTER =
+            Metrics.counter("request_queue.cancelled");
 
     @NonNull
     private final Map<Request<?>, DelayedRequestHelper> mDelayedRequests;
@@ -49,6 +57,12 @@ public class MoPubRequestQueue extends RequestQueue {
         mDelayedRequests = new HashMap<Request<?>, DelayedRequestHelper>(CAPACITY);
     }
 
+    @Override
+    public <T> Request<T> add(final Request<T> request) {
+        REQUESTS_ADDED_COUNTER.increment();
+        return super.add(request);
+    }
+
     /**
      * Convenience method for adding a request with a time delay to the request queue.
      *
@@ -65,9 +79,11 @@ public class MoPubRequestQueue extends RequestQueue {
         Preconditions.checkNotNull(delayedRequestHelper);
 
         if (mDelayedRequests.containsKey(request)) {
-            cancel(request);
+            // Replaced by the new delay rather than cancelled.
+            cancelRequest(request);
         }
 
+        REQUESTS_DELAYED_COUNTER.increment();
         delayedRequestHelper.start();
         mDelayedRequests.put(request, delayedRequestHelper);
     }
@@ -118,6 +134,13 @@ public class MoPubRequestQueue extends RequestQueue {
     public void cancel(@NonNull final Request<?> request) {
         Preconditions.checkNotNull(request);
 
+        if (!request.isCanceled()) {
+            REQUESTS_CANCELLED_COUNTER.increment();
+        }
+        cancelRequest(request);
+    }
+
+    private void cancelRequest(@NonNull final Request<?> request) {
         cancelAll(new RequestFilter() {
             @Override
             public boolean apply(Request<?> _request) {
@@ -12,6 +12,7 @@ import android.text.TextUtils;
 
 import com.mopub.common.Constants;
 import com.mopub.common.Preconditions;
+import com.mopub.common.VisibleForTesting;
 import com.mopub.common.logging.MoPubLog;
 import com.mopub.volley.Request;
 import com.mopub.volley.toolbox.HurlStack;
@@ -19,6 +20,8 @@ import com.mopub.volley.toolbox.HurlStack;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -29,6 +32,12 @@ import static com.mopub.common.logging.MoPubLog.SdkLogEvent.CUSTOM;
  */
 public class MoPubRequestUtils {
 
+    private static final byte[] HEX_DIGITS = "0123456789abcdef".getBytes();
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    // U+FFFD, written for malformed percent escapes the same way Uri decodes them.
+    private static final byte[] REPLACEMENT_CHARACTER = {(byte) 0xEF, (byte) 0xBF, (byte) 0xBD};
+
     public static String truncateQueryParamsIfPost(@NonNull final String url) {
         Preconditions.checkNotNull(url);
         if (!isMoPubRequest(url)) {
@@ -103,6 +112,264 @@ public class MoPubRequestUtils {
         return jsonBody.toString();
     }
 
+    /**
+     * Generates the UTF-8 JSON body for a MoPub request directly from the query of its url. This
+     * gives the same JSON as {@link #convertQueryToMap} followed by {@link
+     * #generateBodyFromParams}, except that keys keep the order of the query, but it walks the
+     * query once and writes the bytes straight out instead of building a Uri, a Map, a
+     * JSONObject and a String for every request.
+     *
+     * @param context Used to get the url rewriter that fills in the advertising info templates.
+     * @param url The original url, including the query.
+     * @return The body, or null if the url is not a MoPub url or has no query params.
+     */
+    @Nullable
+    public static byte[] generateBodyFromUrl(@NonNull final Context context,
+            @NonNull final String url) {
+        Preconditions.checkNotNull(context);
+        Preconditions.checkNotNull(url);
+
+        if (!isMoPubRequest(url)) {
+            return null;
+        }
+        return generateBodyFromQuery(Networking.getUrlRewriter(context).rewriteUrl(url));
+    }
+
+    @VisibleForTesting
+    @Nullable
+    static byte[] generateBodyFromQuery(@NonNull final String url) {
+        Preconditions.checkNotNull(url);
+
+        int queryStart = url.indexOf('?');
+        int queryEnd = url.indexOf('#');
+        if (queryEnd == -1) {
+            queryEnd = url.length();
+        }
+        if (queryStart == -1 || queryStart > queryEnd) {
+            return null;
+        }
+        queryStart++;
+        if (queryStart == queryEnd) {
+            return null;
+        }
+
+        // Find the bounds of every param first so that repeated keys can be joined into one
+        // value, the same as getQueryParamMap. Params with the same name are chained in query
+        // order through nextWithName. Empty segments, as in "a=1&&b=2", are not params.
+        int segmentCount = 1;
+        for (int i = queryStart; i < queryEnd; i++) {
+            if (url.charAt(i) == '&') {
+                segmentCount++;
+            }
+        }
+        final int[] nameStarts = new int[segmentCount];
+        final int[] separators = new int[segmentCount];
+        final int[] valueEnds = new int[segmentCount];
+        final int[] nextWithName = new int[segmentCount];
+        final boolean[] repeatedName = new boolean[segmentCount];
+        final Map<String, Integer> lastWithName = new HashMap<>(segmentCount * 2);
+        int paramCount = 0;
+        int start = queryStart;
+        for (int segment = 0; segment < segmentCount; segment++) {
+            int end = url.indexOf('&', start);
+            if (end == -1 || end > queryEnd) {
+                end = queryEnd;
+            }
+            if (end == start) {
+                start = end + 1;
+                continue;
+            }
+            int separator = url.indexOf('=', start);
+            if (separator == -1 || separator > end) {
+                separator = end;
+            }
+            final int param = paramCount++;
+            nameStarts[param] = start;
+            separators[param] = separator;
+            valueEnds[param] = end;
+            nextWithName[param] = -1;
+            start = end + 1;
+
+            final Integer previous = lastWithName.put(url.substring(nameStarts[param], separator),
+                    param);
+            if (previous != null) {
+                nextWithName[previous] = param;
+                repeatedName[param] = true;
+            }
+        }
+        if (paramCount == 0) {
+            return null;
+        }
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(
+                (queryEnd - queryStart) + 6 * paramCount + 2);
+        out.write('{');
+        boolean first = true;
+        for (int param = 0; param < paramCount; param++) {
+            if (repeatedName[param]) {
+                // Already written along with the first param of the same name.
+                continue;
+            }
+            if (!first) {
+                out.write(',');
+            }
+            first = false;
+
+            out.write('"');
+            writeDecodedJsonString(out, url, nameStarts[param], separators[param]);
+            out.write('"');
+            out.write(':');
+            out.write('"');
+            for (int other = param; other != -1; other = nextWithName[other]) {
+                if (other != param) {
+                    out.write(',');
+                }
+                final int valueStart = Math.min(separators[other] + 1, valueEnds[other]);
+                writeDecodedJsonString(out, url, valueStart, valueEnds[other]);
+            }
+            out.write('"');
+        }
+        out.write('}');
+        return out.toByteArray();
+    }
+
+    /**
+     * Percent-decodes url[start, end) and writes it as the contents of a JSON string, escaped the
+     * same way as {@link JSONObject#toString()}. A run of percent-encoded bytes is decoded as
+     * UTF-8, with malformed sequences replaced by U+FFFD, the same as {@link Uri#decode(String)}.
+     * A '+' is kept as is, the same as {@link Uri#getQueryParameters(String)}.
+     */
+    private static void writeDecodedJsonString(@NonNull final ByteArrayOutputStream out,
+            @NonNull final String url, final int start, final int end) {
+        for (int i = start; i < end; i++) {
+            final char c = url.charAt(i);
+            if (c != '%') {
+                i = writeJsonChar(out, url, i, end);
+                continue;
+            }
+
+            final int escapesEnd = getEscapesEnd(url, i, end);
+            if (escapesEnd == i) {
+                out.write(REPLACEMENT_CHARACTER, 0, REPLACEMENT_CHARACTER.length);
+                continue;
+            }
+            writeDecodedEscapes(out, url, i, escapesEnd);
+            i = escapesEnd - 1;
+        }
+    }
+
+    /**
+     * @return The end of the run of well-formed "%XX" escapes starting at url[start].
+     */
+    private static int getEscapesEnd(@NonNull final String url, final int start, final int end) {
+        int i = start;
+        while (i + 2 < end && url.charAt(i) == '%'
+                && Character.digit(url.charAt(i + 1), 16) != -1
+                && Character.digit(url.charAt(i + 2), 16) != -1) {
+            i += 3;
+        }
+        return i;
+    }
+
+    private static void writeDecodedEscapes(@NonNull final ByteArrayOutputStream out,
+            @NonNull final String url, final int start, final int end) {
+        final byte[] bytes = new byte[(end - start) / 3];
+        boolean ascii = true;
+        for (int i = 0; i < bytes.length; i++) {
+            final int escape = start + 3 * i;
+            final int decoded = (Character.digit(url.charAt(escape + 1), 16) << 4)
+                    | Character.digit(url.charAt(escape + 2), 16);
+            bytes[i] = (byte) decoded;
+            ascii &= decoded < 0x80;
+        }
+
+        if (ascii) {
+            for (final byte b : bytes) {
+                writeJsonAscii(out, b);
+            }
+            return;
+        }
+
+        final String decoded = new String(bytes, UTF_8);
+        for (int i = 0; i < decoded.length(); i++) {
+            i = writeJsonChar(out, decoded, i, decoded.length());
+        }
+    }
+
+    /**
+     * Writes s[i] as UTF-8, along with s[i + 1] if the two form a surrogate pair.
+     *
+     * @return The index of the last char written.
+     */
+    private static int writeJsonChar(@NonNull final ByteArrayOutputStream out,
+            @NonNull final CharSequence s, final int i, final int end) {
+        final char c = s.charAt(i);
+        if (c < 0x80) {
+            writeJsonAscii(out, c);
+        } else if (c < 0x800) {
+            out.write(0xC0 | (c >> 6));
+            out.write(0x80 | (c & 0x3F));
+        } else if (Character.isHighSurrogate(c) && i + 1 < end
+                && Character.isLowSurrogate(s.charAt(i + 1))) {
+            final int codePoint = Character.toCodePoint(c, s.charAt(i + 1));
+            out.write(0xF0 | (codePoint >> 18));
+            out.write(0x80 | ((codePoint >> 12) & 0x3F));
+            out.write(0x80 | ((codePoint >> 6) & 0x3F));
+            out.write(0x80 | (codePoint & 0x3F));
+            return i + 1;
+        } else if (Character.isSurrogate(c)) {
+            out.write('?');
+        } else {
+            out.write(0xE0 | (c >> 12));
+            out.write(0x80 | ((c >> 6) & 0x3F));
+            out.write(0x80 | (c & 0x3F));
+        }
+        return i;
+    }
+
+    private static void writeJsonAscii(@NonNull final ByteArrayOutputStream out, final int c) {
+        switch (c) {
+            case '"':
+            case '\\':
+            case '/':
+                out.write('\\');
+                out.write(c);
+                break;
+            case '\t':
+                out.write('\\');
+                out.write('t');
+                break;
+            case '\b':
+                out.write('\\');
+                out.write('b');
+                break;
+            case '\n':
+                out.write('\\');
+                out.write('n');
+                break;
+            case '\r':
+                out.write('\\');
+                out.write('r');
+                break;
+            case '\f':
+                out.write('\\');
+                out.write('f');
+                break;
+            default:
+                if (c <= 0x1F) {
+                    out.write('\\');
+                    out.write('u');
+                    out.write('0');
+                    out.write('0');
+                    out.write(HEX_DIGITS[c >> 4]);
+                    out.write(HEX_DIGITS[c & 0xF]);
+                } else {
+                    out.write(c);
+                }
+                break;
+        }
+    }
+
     /**
      * This is a helper class and should not be instantiated.
      */
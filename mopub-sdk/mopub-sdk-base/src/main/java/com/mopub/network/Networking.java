@@ -5,16 +5,15 @@
 package com.mopub.network;
 
 import android.content.Context;
-import android.graphics.Bitmap;
 import android.os.Looper;
 import android.text.TextUtils;
 import android.webkit.WebSettings;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
-import androidx.collection.LruCache;
 
 import com.mopub.common.Constants;
+import com.mopub.common.DiskBudget;
 import com.mopub.common.Preconditions;
 import com.mopub.common.VisibleForTesting;
 import com.mopub.common.logging.MoPubLog;
@@ -37,6 +36,18 @@ import static com.mopub.common.logging.MoPubLog.SdkLogEvent.CUSTOM;
 public class Networking {
     @VisibleForTesting
     static final String CACHE_DIRECTORY_NAME = "mopub-volley-cache";
+    @VisibleForTesting
+    static final String IMAGE_CACHE_DIRECTORY_NAME = "mopub-image-cache";
+    private static final long IMAGE_CACHE_SIZE_BYTES = 2 * Constants.TEN_MB;
+    /**
+     * Share of the memory cache budget for images loaded through {@link #getImageLoader}. Native ad
+     * images, loaded through {@link #getNativeImageLoader}, get the rest.
+     */
+    private static final int SHARED_IMAGE_CACHE_DIVISOR = 8;
+    /**
+     * The bitmap pool holds evicted bitmaps on top of the memory cache budget.
+     */
+    private static final int BITMAP_POOL_DIVISOR = 8;
     @NonNull private static final String DEFAULT_USER_AGENT;
 
     static {
@@ -55,8 +66,11 @@ public class Networking {
     private volatile static MoPubRequestQueue sRequestQueue;
     private volatile static String sUserAgent;
     private volatile static MaxWidthImageLoader sMaxWidthImageLoader;
+    private volatile static MaxWidthImageLoader sNativeImageLoader;
     private static boolean sUseHttps = false;
     private static HurlStack.UrlRewriter sUrlRewriter;
+    @NonNull private static final RequestBodyCompressor sRequestBodyCompressor =
+            new RequestBodyCompressor();
 
     @Nullable
     public static MoPubRequestQueue getRequestQueue() {
@@ -93,8 +107,19 @@ public class Networking {
                     final Network network = new BasicNetwork(httpStack);
                     final File volleyCacheDir = new File(context.getCacheDir().getPath() +
                             File.separator + CACHE_DIRECTORY_NAME);
-                    final Cache cache = new DiskBasedCache(volleyCacheDir,
-                            (int) DeviceUtils.diskCacheSizeBytes(volleyCacheDir, Constants.TEN_MB));
+                    final File imageCacheDir = new File(context.getCacheDir().getPath() +
+                            File.separator + IMAGE_CACHE_DIRECTORY_NAME);
+                    // Both disk caches share the DiskBudget with the other MoPub caches. Volley's
+                    // cache can't be resized, so it gets a fixed reservation.
+                    final DiskBudget diskBudget = DiskBudget.getInstance(context);
+                    final ImageDiskCache imageDiskCache = new ImageDiskCache(imageCacheDir,
+                            IMAGE_CACHE_SIZE_BYTES);
+                    imageDiskCache.setDiskBudget(diskBudget);
+                    final Cache cache = new ImageRoutingCache(
+                            new DiskBasedCache(volleyCacheDir,
+                                    (int) diskBudget.reserve(CACHE_DIRECTORY_NAME,
+                                            Constants.TEN_MB)),
+                            imageDiskCache);
                     requestQueue = new MoPubRequestQueue(cache, network);
                     sRequestQueue = requestQueue;
                     requestQueue.start();
@@ -115,27 +140,9 @@ public class Networking {
                 if (imageLoader == null) {
                     RequestQueue queue = getRequestQueue(context);
                     int cacheSize = DeviceUtils.memoryCacheSizeBytes(context);
-                    final LruCache<String, Bitmap> imageCache = new LruCache<String, Bitmap>(cacheSize) {
-                        @Override
-                        protected int sizeOf(String key, Bitmap value) {
-                            if (value != null) {
-                                return value.getRowBytes() * value.getHeight();
-                            }
-
-                            return super.sizeOf(key, value);
-                        }
-                    };
-                    imageLoader = new MaxWidthImageLoader(queue, context, new MaxWidthImageLoader.ImageCache() {
-                        @Override
-                        public Bitmap getBitmap(final String key) {
-                            return imageCache.get(key);
-                        }
-
-                        @Override
-                        public void putBitmap(final String key, final Bitmap bitmap) {
-                            imageCache.put(key, bitmap);
-                        }
-                    });
+                    final ImageMemoryCache imageCache = new ImageMemoryCache(
+                            Math.max(1, cacheSize / SHARED_IMAGE_CACHE_DIVISOR), null);
+                    imageLoader = new MaxWidthImageLoader(queue, context, imageCache);
                     sMaxWidthImageLoader = imageLoader;
                 }
             }
@@ -143,6 +150,43 @@ public class Networking {
         return imageLoader;
     }
 
+    /**
+     * Gets the image loader for {@link com.mopub.nativeads.NativeImageHelper}. Its bitmaps are
+     * decoded into and reused through {@link #getBitmapPool()}, so it has its own memory cache and
+     * must only be used by callers that acquire and release every bitmap they display. Other
+     * callers should use {@link #getImageLoader}.
+     */
+    @NonNull
+    public static ImageLoader getNativeImageLoader(@NonNull Context context) {
+        MaxWidthImageLoader imageLoader = sNativeImageLoader;
+        // Double-check locking to initialize.
+        if (imageLoader == null) {
+            synchronized (Networking.class) {
+                imageLoader = sNativeImageLoader;
+                if (imageLoader == null) {
+                    RequestQueue queue = getRequestQueue(context);
+                    int cacheSize = DeviceUtils.memoryCacheSizeBytes(context);
+                    cacheSize = Math.max(1, cacheSize - cacheSize / SHARED_IMAGE_CACHE_DIVISOR);
+                    final BitmapPool bitmapPool = new BitmapPool(cacheSize / BITMAP_POOL_DIVISOR);
+                    final ImageMemoryCache imageCache = new ImageMemoryCache(cacheSize, bitmapPool);
+                    imageLoader = new MaxWidthImageLoader(queue, context, imageCache, bitmapPool);
+                    sNativeImageLoader = imageLoader;
+                }
+            }
+        }
+        return imageLoader;
+    }
+
+    /**
+     * Gets the pool of reusable bitmaps behind the native image loader, if the native image loader
+     * has been created.
+     */
+    @Nullable
+    public static BitmapPool getBitmapPool() {
+        final MaxWidthImageLoader imageLoader = sNativeImageLoader;
+        return imageLoader == null ? null : imageLoader.getBitmapPool();
+    }
+
     /**
      * Caches and returns the WebView user agent to be used across all SDK requests. This is
      * important because advertisers expect the same user agent across all request, impression, and
@@ -198,6 +242,7 @@ public class Networking {
     public static synchronized void clearForTesting() {
         sRequestQueue = null;
         sMaxWidthImageLoader = null;
+        sNativeImageLoader = null;
         sUserAgent = null;
     }
 
@@ -211,12 +256,26 @@ public class Networking {
         sMaxWidthImageLoader = imageLoader;
     }
 
+    @VisibleForTesting
+    public static synchronized void setNativeImageLoaderForTesting(MaxWidthImageLoader imageLoader) {
+        sNativeImageLoader = imageLoader;
+    }
+
     @Deprecated
     @VisibleForTesting
     public static synchronized void setUserAgentForTesting(String userAgent) {
         sUserAgent = userAgent;
     }
 
+    /**
+     * Gets the compressor for ad server request bodies. Compression is off until enabled with
+     * {@link RequestBodyCompressor#setEnabled(boolean)}.
+     */
+    @NonNull
+    public static RequestBodyCompressor getRequestBodyCompressor() {
+        return sRequestBodyCompressor;
+    }
+
     /**
      * Set whether to use HTTP or HTTPS for WebView base urls.
      */
@@ -0,0 +1,216 @@
+// Copyright 2018-2020 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.network;
+
+import android.content.Context;
+import android.os.Handler;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.mopub.common.Preconditions;
+import com.mopub.common.logging.MoPubLog;
+import com.mopub.mobileads.MoPubError;
+import com.mopub.mobileads.MoPubErrorCode;
+
+import java.lang.ref.WeakReference;
+import java.util.List;
+
+import static com.mopub.common.logging.MoPubLog.AdLogEvent.CUSTOM;
+
+/**
+ * Loads several line items of a waterfall at once under a shared deadline and picks the one with
+ * the highest priority that loaded. Line items are in priority order, highest first.
+ *
+ * A line item wins as soon as it has loaded and every line item above it has failed. When the
+ * deadline passes, the highest line item that has loaded wins and the ones still loading are
+ * reported as timed out. Every other line item that was started is invalidated.
+ *
+ * Each line item reports its own before-load and after-load analytics. A line item that loaded
+ * but lost reports that it loaded, without the after-load success urls, which belong to the ad
+ * that is shown. A line item that was still loading when a higher one won reports no load result.
+ *
+ * All calls must be made on the main thread.
+ */
+class ParallelWaterfallBatch {
+
+    interface Listener {
+        void onWinner(@NonNull AdResponse adResponse,
+                @NonNull ContentDownloadAnalytics downloadTracker);
+
+        void onNoWinner();
+    }
+
+    private enum State { NOT_STARTED, LOADING, LOADED, FAILED }
+
+    @NonNull private final WeakReference<Context> mContext;
+    @NonNull private final List<AdResponse> mLineItems;
+    @NonNull private final ContentDownloadAnalytics[] mDownloadTrackers;
+    @NonNull private final State[] mStates;
+    @NonNull private final AdLoader.LineItemLoader mLineItemLoader;
+    @NonNull private final Handler mHandler;
+    @NonNull private final Listener mListener;
+    private final long mDeadlineMillis;
+    @NonNull private final Runnable mDeadlineRunnable;
+
+    private boolean mStarting;
+    private boolean mFinished;
+
+    ParallelWaterfallBatch(@Nullable final Context context,
+            @NonNull final List<AdResponse> lineItems,
+            @NonNull final AdLoader.LineItemLoader lineItemLoader,
+            @NonNull final Handler handler,
+            final long deadlineMillis,
+            @NonNull final Listener listener) {
+        Preconditions.checkNotNull(lineItems);
+        Preconditions.checkArgument(!lineItems.isEmpty());
+        Preconditions.checkNotNull(lineItemLoader);
+        Preconditions.checkNotNull(handler);
+        Preconditions.checkNotNull(listener);
+
+        mContext = new WeakReference<>(context);
+        mLineItems = lineItems;
+        mDownloadTrackers = new ContentDownloadAnalytics[lineItems.size()];
+        mStates = new State[lineItems.size()];
+        for (int i = 0; i < mStates.length; i++) {
+            mStates[i] = State.NOT_STARTED;
+        }
+        mLineItemLoader = lineItemLoader;
+        mHandler = handler;
+        mDeadlineMillis = deadlineMillis;
+        mListener = listener;
+        mDeadlineRunnable = new Runnable() {
+            @Override
+            public void run() {
+                onDeadline();
+            }
+        };
+    }
+
+    void start() {
+        mHandler.postDelayed(mDeadlineRunnable, mDeadlineMillis);
+
+        mStarting = true;
+        for (int i = 0; i < mLineItems.size(); i++) {
+            final AdResponse lineItem = mLineItems.get(i);
+            mDownloadTrackers[i] = new ContentDownloadAnalytics(lineItem);
+            mDownloadTrackers[i].reportBeforeLoad(mContext.get());
+            mStates[i] = State.LOADING;
+            mLineItemLoader.loadLineItem(lineItem, new LineItemListener(i));
+        }
+        mStarting = false;
+
+        // Line items may have finished while the ones after them were starting.
+        evaluate();
+    }
+
+    private void onLineItemLoaded(final int index) {
+        if (mFinished || mStates[index] != State.LOADING) {
+            return;
+        }
+
+        mStates[index] = State.LOADED;
+        evaluate();
+    }
+
+    private void onLineItemFailed(final int index, @NonNull final MoPubError errorCode) {
+        if (mFinished || mStates[index] != State.LOADING) {
+            return;
+        }
+
+        mStates[index] = State.FAILED;
+        reportFailure(index, errorCode);
+        evaluate();
+    }
+
+    private void evaluate() {
+        if (mStarting) {
+            return;
+        }
+
+        for (int i = 0; i < mStates.length; i++) {
+            switch (mStates[i]) {
+                case FAILED:
+                    continue;
+                case LOADED:
+                    finish(i);
+                    return;
+                default:
+                    // A line item above the rest is still loading.
+                    return;
+            }
+        }
+        finish(-1);
+    }
+
+    private void onDeadline() {
+        if (mFinished) {
+            return;
+        }
+
+        int winner = -1;
+        for (int i = 0; i < mStates.length; i++) {
+            if (mStates[i] == State.LOADED && winner == -1) {
+                winner = i;
+            } else if (mStates[i] == State.LOADING) {
+                mStates[i] = State.FAILED;
+                reportFailure(i, MoPubErrorCode.NETWORK_TIMEOUT);
+                mLineItemLoader.invalidateLineItem(mLineItems.get(i));
+            }
+        }
+        MoPubLog.log(CUSTOM, "Parallel waterfall deadline of " + mDeadlineMillis +
+                "ms passed.");
+        finish(winner);
+    }
+
+    private void finish(final int winner) {
+        mFinished = true;
+        mHandler.removeCallbacks(mDeadlineRunnable);
+
+        for (int i = 0; i < mStates.length; i++) {
+            if (i == winner) {
+                continue;
+            }
+            if (mStates[i] == State.LOADED) {
+                mDownloadTrackers[i].reportAfterLoad(mContext.get(), null);
+                mLineItemLoader.invalidateLineItem(mLineItems.get(i));
+            } else if (mStates[i] == State.LOADING) {
+                mLineItemLoader.invalidateLineItem(mLineItems.get(i));
+            }
+        }
+
+        if (winner == -1) {
+            mListener.onNoWinner();
+        } else {
+            mListener.onWinner(mLineItems.get(winner), mDownloadTrackers[winner]);
+        }
+    }
+
+    private void reportFailure(final int index, @NonNull final MoPubError errorCode) {
+        final Context context = mContext.get();
+        mDownloadTrackers[index].reportAfterLoad(context, errorCode);
+        mDownloadTrackers[index].reportAfterLoadFail(context, errorCode);
+    }
+
+    private class LineItemListener implements AdLoader.LineItemListener {
+        private final int mIndex;
+
+        LineItemListener(final int index) {
+            mIndex = index;
+        }
+
+        @Override
+        public void onLineItemLoaded() {
+            ParallelWaterfallBatch.this.onLineItemLoaded(mIndex);
+        }
+
+        @Override
+        public void onLineItemFailed(@NonNull final MoPubError errorCode) {
+            Preconditions.checkNotNull(errorCode);
+
+            ParallelWaterfallBatch.this.onLineItemFailed(mIndex, errorCode);
+        }
+    }
+}
@@ -0,0 +1,160 @@
+// Copyright 2018-2020 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.network;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.mopub.common.Preconditions;
+import com.mopub.common.VisibleForTesting;
+
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Gzips the JSON bodies of ad server requests when enabled with {@link #setEnabled(boolean)}.
+ * Bodies smaller than {@link #getMinBodyBytes()} are sent as is since gzip doesn't save enough
+ * on them to be worth the CPU.
+ *
+ * Each network thread keeps its own deflater and buffers, so compressing a body only allocates
+ * the returned array. Counters of the bytes before and after compression are kept for the bodies
+ * that were compressed.
+ */
+public class RequestBodyCompressor {
+    public static final String GZIP = "gzip";
+    @VisibleForTesting
+    static final int DEFAULT_MIN_BODY_BYTES = 1024;
+
+    private static final int BUFFER_SIZE = 4096;
+    // The gzip header with no file name, modification time or extra flags. See RFC 1952.
+    private static final byte[] GZIP_HEADER = {
+            (byte) 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0};
+    private static final int MAX_RETAINED_OUTPUT_SIZE = 64 * 1024;
+
+    private static class Buffers {
+        @NonNull final Deflater mDeflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        @NonNull final CRC32 mCrc = new CRC32();
+        @NonNull final byte[] mChunk = new byte[BUFFER_SIZE];
+        @NonNull final ByteArrayOutputStream mOutput = new ByteArrayOutputStream(BUFFER_SIZE);
+    }
+
+    @NonNull private final ThreadLocal<Buffers> mBuffers = new ThreadLocal<Buffers>() {
+        @Override
+        protected Buffers initialValue() {
+            return new Buffers();
+        }
+    };
+
+    @NonNull private final AtomicLong mCompressedBodyCount = new AtomicLong();
+    @NonNull private final AtomicLong mRawBytes = new AtomicLong();
+    @NonNull private final AtomicLong mCompressedBytes = new AtomicLong();
+
+    private volatile boolean mEnabled;
+    private volatile int mMinBodyBytes = DEFAULT_MIN_BODY_BYTES;
+
+    public void setEnabled(final boolean enabled) {
+        mEnabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return mEnabled;
+    }
+
+    /**
+     * Sets the smallest body, in bytes, that will be compressed.
+     */
+    public void setMinBodyBytes(final int minBodyBytes) {
+        Preconditions.checkArgument(minBodyBytes >= 0);
+
+        mMinBodyBytes = minBodyBytes;
+    }
+
+    public int getMinBodyBytes() {
+        return mMinBodyBytes;
+    }
+
+    /**
+     * Compresses the body if compression is enabled and the body is large enough.
+     *
+     * @param body The uncompressed body.
+     * @return The gzipped body, or null if the body should be sent uncompressed.
+     */
+    @Nullable
+    public byte[] compressIfEnabled(@Nullable final byte[] body) {
+        if (!mEnabled || body == null || body.length < mMinBodyBytes) {
+            return null;
+        }
+
+        final byte[] compressed = compress(body);
+        mCompressedBodyCount.incrementAndGet();
+        mRawBytes.addAndGet(body.length);
+        mCompressedBytes.addAndGet(compressed.length);
+        return compressed;
+    }
+
+    @VisibleForTesting
+    @NonNull
+    byte[] compress(@NonNull final byte[] body) {
+        Preconditions.checkNotNull(body);
+
+        final Buffers buffers = mBuffers.get();
+        final Deflater deflater = buffers.mDeflater;
+        final ByteArrayOutputStream output = buffers.mOutput;
+        deflater.reset();
+        buffers.mCrc.reset();
+        output.reset();
+
+        output.write(GZIP_HEADER, 0, GZIP_HEADER.length);
+        deflater.setInput(body);
+        deflater.finish();
+        while (!deflater.finished()) {
+            final int length = deflater.deflate(buffers.mChunk);
+            output.write(buffers.mChunk, 0, length);
+        }
+
+        buffers.mCrc.update(body, 0, body.length);
+        writeIntLittleEndian(output, (int) buffers.mCrc.getValue());
+        writeIntLittleEndian(output, body.length);
+
+        final byte[] compressed = output.toByteArray();
+        if (output.size() > MAX_RETAINED_OUTPUT_SIZE) {
+            // Don't hold on to the memory of an unusually large body.
+            deflater.end();
+            mBuffers.remove();
+        }
+        return compressed;
+    }
+
+    /**
+     * @return The number of bodies that were compressed.
+     */
+    public long getCompressedBodyCount() {
+        return mCompressedBodyCount.get();
+    }
+
+    /**
+     * @return The total size of the compressed bodies before compression.
+     */
+    public long getRawBytes() {
+        return mRawBytes.get();
+    }
+
+    /**
+     * @return The total size of the compressed bodies after compression.
+     */
+    public long getCompressedBytes() {
+        return mCompressedBytes.get();
+    }
+
+    private static void writeIntLittleEndian(@NonNull final ByteArrayOutputStream output,
+            final int value) {
+        output.write(value);
+        output.write(value >> 8);
+        output.write(value >> 16);
+        output.write(value >> 24);
+    }
+}
@@ -9,14 +9,22 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import android.text.TextUtils;
 
+import com.mopub.common.DoubleTimeTracker;
+import com.mopub.common.Preconditions;
 import com.mopub.common.VisibleForTesting;
 
-import java.util.Collections;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Singleton to cache ad request rate limit time interval and reason.
+ *
+ * Ad units are limited in two ways. The ad server can ask an ad unit to back off for a while,
+ * and the app can give an ad unit a {@link RequestRateLimit} that caps how often it requests ads.
+ * Checks don't lock or allocate, since every ad load on every thread goes through here. Backoffs
+ * that ended long ago are swept out as new ones are registered and as ad requests are made.
  */
 public class RequestRateTracker {
 
@@ -25,20 +33,93 @@ public class RequestRateTracker {
         public final int mBlockIntervalMs;
         @NonNull
         public final String mReason;
+        private final long mTargetTime;
 
         TimeRecord(int interval, @Nullable final String reason) {
             mBlockStartTime = currentTimeMs();
             mBlockIntervalMs = interval;
             mReason = reason == null ? "unknown" : reason;
+            mTargetTime = mBlockStartTime + interval;
         }
 
         long getTargetTime() {
-            return mBlockStartTime + mBlockIntervalMs;
+            return mTargetTime;
         }
     }
 
+    /**
+     * Lets an ad unit make bursts of up to {@code maxRequests} ad requests, refilled evenly over
+     * {@code periodMillis}. Requests over the limit fail with no fill without reaching the ad
+     * server.
+     */
+    public static class RequestRateLimit {
+        final int mMaxRequests;
+        final long mPeriodMillis;
+        // The emission interval and burst tolerance of the generic cell rate algorithm.
+        final long mIntervalMillis;
+        final long mToleranceMillis;
+        // When the bucket would be empty again, as in GCRA's theoretical arrival time.
+        @NonNull final AtomicLong mTheoreticalArrivalTime = new AtomicLong();
+
+        public RequestRateLimit(final int maxRequests, final long periodMillis) {
+            Preconditions.checkArgument(maxRequests > 0);
+            Preconditions.checkArgument(periodMillis > 0);
+
+            mMaxRequests = maxRequests;
+            mPeriodMillis = periodMillis;
+            mIntervalMillis = Math.max(1, periodMillis / maxRequests);
+            mToleranceMillis = mIntervalMillis * (maxRequests - 1);
+        }
+
+        public int getMaxRequests() {
+            return mMaxRequests;
+        }
+
+        public long getPeriodMillis() {
+            return mPeriodMillis;
+        }
+
+        boolean hasToken(final long now) {
+            return mTheoreticalArrivalTime.get() - now <= mToleranceMillis;
+        }
+
+        boolean tryAcquire(final long now) {
+            while (true) {
+                final long storedTime = mTheoreticalArrivalTime.get();
+                final long arrivalTime = Math.max(storedTime, now);
+                if (arrivalTime - now > mToleranceMillis) {
+                    return false;
+                }
+                if (mTheoreticalArrivalTime.compareAndSet(storedTime,
+                        arrivalTime + mIntervalMillis)) {
+                    return true;
+                }
+            }
+        }
+    }
+
+    /**
+     * How often registering a backoff or making an ad request also sweeps out the backoffs that
+     * are over.
+     */
+    @VisibleForTesting
+    static final long SWEEP_INTERVAL_MS = 60 * 1000;
+    /**
+     * How long a backoff is kept after it ends. The ad server is told about the last backoff on
+     * the next request, so it isn't dropped as soon as it ends.
+     */
+    @VisibleForTesting
+    static final long EXPIRED_RECORD_RETENTION_MS = 10 * 60 * 1000;
+
+    @NonNull
+    private final ConcurrentMap<String, TimeRecord> mTimeRecordMap;
+    @NonNull
+    private final Map<String, RequestRateLimit> mRequestRateLimits;
     @NonNull
-    private Map<String, TimeRecord> mTimeRecordMap;
+    private final AtomicLong mLastSweepTime;
+
+    // Null for the system clock.
+    @Nullable private static volatile DoubleTimeTracker.Clock sClock;
 
     private static class Helper {
         @NonNull
@@ -46,7 +127,9 @@ public class RequestRateTracker {
     }
 
     RequestRateTracker() {
-        mTimeRecordMap = Collections.synchronizedMap(new HashMap<String, TimeRecord>());
+        mTimeRecordMap = new ConcurrentHashMap<>();
+        mRequestRateLimits = new ConcurrentHashMap<>();
+        mLastSweepTime = new AtomicLong(currentTimeMs());
     }
 
     @NonNull
@@ -64,28 +147,108 @@ public class RequestRateTracker {
         } else {
             mTimeRecordMap.remove(adUnit);
         }
+        sweepIfDue(currentTimeMs());
+    }
+
+    /**
+     * Limits how often an ad unit can request ads, or removes its limit if {@code
+     * requestRateLimit} is null.
+     */
+    public void setRequestRateLimit(@Nullable final String adUnitId,
+            @Nullable final RequestRateLimit requestRateLimit) {
+        if (TextUtils.isEmpty(adUnitId)) {
+            return;
+        }
+
+        if (requestRateLimit != null) {
+            mRequestRateLimits.put(adUnitId, requestRateLimit);
+        } else {
+            mRequestRateLimits.remove(adUnitId);
+        }
     }
 
     boolean isBlockedByRateLimit(@Nullable final String adUnitId) {
-        return getTimeUntilLimitEnds(adUnitId) > 0;
+        if (adUnitId == null) {
+            return false;
+        }
+
+        final long now = currentTimeMs();
+        if (isBackingOff(adUnitId, now)) {
+            return true;
+        }
+        final RequestRateLimit requestRateLimit = mRequestRateLimits.get(adUnitId);
+        return requestRateLimit != null && !requestRateLimit.hasToken(now);
+    }
+
+    /**
+     * Counts an ad request against the ad unit's {@link RequestRateLimit}.
+     *
+     * @return false if the ad unit is backing off or over its limit, in which case nothing is
+     * counted.
+     */
+    boolean tryAcquireRequest(@Nullable final String adUnitId) {
+        if (adUnitId == null) {
+            return true;
+        }
+
+        final long now = currentTimeMs();
+        // Ad units that stop getting backoffs would otherwise never be swept.
+        sweepIfDue(now);
+        if (isBackingOff(adUnitId, now)) {
+            return false;
+        }
+        final RequestRateLimit requestRateLimit = mRequestRateLimits.get(adUnitId);
+        return requestRateLimit == null || requestRateLimit.tryAcquire(now);
     }
 
     @Nullable
     public TimeRecord getRecordForAdUnit(@Nullable final String adUnitId) {
+        if (adUnitId == null) {
+            return null;
+        }
         return mTimeRecordMap.get(adUnitId);
     }
 
-    private long getTimeUntilLimitEnds(@Nullable final String adUnitId) {
+    @VisibleForTesting
+    int getRecordCount() {
+        return mTimeRecordMap.size();
+    }
+
+    private boolean isBackingOff(@NonNull final String adUnitId, final long now) {
         final TimeRecord record = mTimeRecordMap.get(adUnitId);
-        if (record == null) {
-            return 0;
+        return record != null && record.getTargetTime() > now;
+    }
+
+    private void sweepIfDue(final long now) {
+        final long lastSweepTime = mLastSweepTime.get();
+        // Only one thread sweeps at a time.
+        if (now - lastSweepTime < SWEEP_INTERVAL_MS
+                || !mLastSweepTime.compareAndSet(lastSweepTime, now)) {
+            return;
         }
 
-        return record.getTargetTime() - currentTimeMs();
+        for (final Map.Entry<String, TimeRecord> entry : mTimeRecordMap.entrySet()) {
+            final TimeRecord record = entry.getValue();
+            if (record.getTargetTime() + EXPIRED_RECORD_RETENTION_MS < now) {
+                // Leaves a backoff registered in the meantime alone.
+                mTimeRecordMap.remove(entry.getKey(), record);
+            }
+        }
     }
 
     private static long currentTimeMs() {
-        return SystemClock.elapsedRealtime();
+        final DoubleTimeTracker.Clock clock = sClock;
+        return clock == null ? SystemClock.elapsedRealtime() : clock.elapsedRealTime();
+    }
+
+    /**
+     * Replaces the system clock, for benchmarks that run without the Android framework.
+     *
+     * @param clock The clock to use, or null for the system clock.
+     */
+    @VisibleForTesting
+    static void setClock(@Nullable final DoubleTimeTracker.Clock clock) {
+        sClock = clock;
     }
 
     @Deprecated
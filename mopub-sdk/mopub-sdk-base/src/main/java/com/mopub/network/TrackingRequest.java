@@ -11,6 +11,8 @@ import android.text.TextUtils;
 
 import com.mopub.common.Preconditions;
 import com.mopub.common.logging.MoPubLog;
+import com.mopub.common.metrics.Counter;
+import com.mopub.common.metrics.Metrics;
 import com.mopub.common.util.Utils;
 import com.mopub.mobileads.VastErrorCode;
 import com.mopub.mobileads.VastMacroHelper;
@@ -34,6 +36,9 @@ public class TrackingRequest extends MoPubRequest<Void> {
     // Retrying may cause duplicate impressions
     private static final int ZERO_RETRIES = 0;
 
+    private static final Counter SUCCESS_COUNTER = Metrics.counter("tracking.success");
+    private static final Counter FAILURE_COUNTER = Metrics.counter("tracking.failure");
+
     public interface Listener extends Response.ErrorListener {
         void onResponse(@NonNull String url);
     }
@@ -151,6 +156,7 @@ public class TrackingRequest extends MoPubRequest<Void> {
                 @Override
                 public void onResponse(@NonNull String url) {
                     MoPubLog.log(CUSTOM, "Successfully hit tracking endpoint: " + url);
+                    SUCCESS_COUNTER.increment();
                     if (listener != null) {
                         listener.onResponse(url);
                     }
@@ -159,6 +165,7 @@ public class TrackingRequest extends MoPubRequest<Void> {
                 @Override
                 public void onErrorResponse(final VolleyError volleyError) {
                     MoPubLog.log(CUSTOM, "Failed to hit tracking endpoint: " + url);
+                    FAILURE_COUNTER.increment();
                     if (listener != null) {
                         listener.onErrorResponse(volleyError);
                     }
@@ -0,0 +1,69 @@
+// Copyright 2018-2020 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.common;
+
+import com.mopub.common.ClientMetadata.MoPubNetworkType;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds an ad request URL with the parameters of a typical banner request.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AdUrlGeneratorBenchmark {
+    private final AdUrlGenerator mGenerator = new FixedAdUrlGenerator()
+            .withAdUnitId("b195f8dd8ded45fe847ad89ed1d016da")
+            .withKeywords("m_age:24,m_gender:f,interests:sports & outdoors,city:S\u00e3o Paulo");
+
+    @Benchmark
+    public String generateUrlString() {
+        return mGenerator.generateUrlString(Constants.HOST);
+    }
+
+    /**
+     * {@link AdUrlGenerator#addBaseParams} with the values ClientMetadata would read from the
+     * device filled in, and without the parameters that need a device to compute.
+     */
+    private static class FixedAdUrlGenerator extends AdUrlGenerator {
+        FixedAdUrlGenerator() {
+            super(null);
+        }
+
+        @Override
+        public String generateUrlString(final String serverHostname) {
+            initUrlString(serverHostname, Constants.AD_HANDLER);
+            setApiVersion("6");
+            setAdUnitId(mAdUnitId);
+            setSdkVersion(MoPub.SDK_VERSION);
+            appendAppEngineInfo();
+            appendWrapperVersion();
+            setDeviceInfo("Google", "Pixel 3", "blueline");
+            setBundleId("com.mopub.simpleadsdemo");
+            setKeywords(mKeywords);
+            setTimezone("-0700");
+            setOrientation("p");
+            setDensity(2.75f);
+            setMccCode("310260");
+            setMncCode("310260");
+            setIsoCountryCode("us");
+            setCarrierName("T-Mobile");
+            setNetworkType(MoPubNetworkType.WIFI);
+            setAppVersion("5.11.1");
+            appendAdvertisingInfoTemplates();
+            setExternalStoragePermission(false);
+            setMraidFlag(true);
+            return getFinalUrlString();
+        }
+    }
+}
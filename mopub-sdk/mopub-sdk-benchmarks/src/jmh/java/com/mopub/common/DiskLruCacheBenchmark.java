@@ -0,0 +1,92 @@
+// Copyright 2018-2020 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.common;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The cache CacheService keeps creatives in, with entries the size of a typical image.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DiskLruCacheBenchmark {
+    private static final int ENTRY_COUNT = 100;
+    private static final int ENTRY_SIZE = 32 * 1024;
+    private static final long MAX_SIZE = 100L * 1024 * 1024;
+
+    private File mDirectory;
+    private DiskLruCache mCache;
+    private byte[] mValue;
+    private int mNextKey;
+
+    @Setup
+    public void setUp() throws IOException {
+        mDirectory = Files.createTempDirectory("mopub-disk-lru-cache").toFile();
+        mValue = new byte[ENTRY_SIZE];
+        Arrays.fill(mValue, (byte) 1);
+
+        mCache = DiskLruCache.open(mDirectory, 1, 1, MAX_SIZE);
+        for (int i = 0; i < ENTRY_COUNT; i++) {
+            put(mCache, key(i));
+        }
+        mCache.flush();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        mCache.delete();
+    }
+
+    @Benchmark
+    public DiskLruCache.Snapshot get() throws IOException {
+        final DiskLruCache.Snapshot snapshot = mCache.get(key(mNextKey++ % ENTRY_COUNT));
+        snapshot.close();
+        return snapshot;
+    }
+
+    @Benchmark
+    public void put() throws IOException {
+        put(mCache, key(mNextKey++ % ENTRY_COUNT));
+    }
+
+    /**
+     * Reads the journal of a cache with {@link #ENTRY_COUNT} entries, as CacheService does on
+     * startup.
+     */
+    @Benchmark
+    public long open() throws IOException {
+        final DiskLruCache cache = DiskLruCache.open(mDirectory, 1, 1, MAX_SIZE);
+        final long size = cache.size();
+        cache.close();
+        return size;
+    }
+
+    private void put(final DiskLruCache cache, final String key) throws IOException {
+        final DiskLruCache.Editor editor = cache.edit(key);
+        final OutputStream outputStream = editor.newOutputStream(0);
+        outputStream.write(mValue);
+        outputStream.close();
+        editor.commit();
+    }
+
+    private static String key(final int index) {
+        return "entry" + index;
+    }
+}
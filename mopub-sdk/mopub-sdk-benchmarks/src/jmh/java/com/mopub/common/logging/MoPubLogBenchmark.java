@@ -0,0 +1,55 @@
+// Copyright 2018-2020 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.common.logging;
+
+import androidx.annotation.Nullable;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.mopub.common.logging.MoPubLog.SdkLogEvent.CUSTOM;
+import static com.mopub.common.logging.MoPubLog.SdkLogEvent.INIT_FINISHED;
+
+/**
+ * Most SDK log calls are debug events that an app at the default INFO level filters out, so the
+ * filtered path is the one that matters. The logger here stands in for the default logger, which
+ * needs the device.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MoPubLogBenchmark {
+    private static Blackhole sBlackhole;
+
+    @Setup
+    public void setUp(final Blackhole blackhole) {
+        sBlackhole = blackhole;
+        MoPubLog.addLogger(new MoPubLogger() {
+            @Override
+            public void log(@Nullable final String className, @Nullable final String methodName,
+                    @Nullable final String identifier, @Nullable final String message) {
+                sBlackhole.consume(message);
+            }
+        }, MoPubLog.LogLevel.INFO);
+    }
+
+    @Benchmark
+    public void logFiltered() {
+        MoPubLog.log(CUSTOM, "Filtered message");
+    }
+
+    @Benchmark
+    public void logPassed() {
+        MoPubLog.log(INIT_FINISHED, "Passed message");
+    }
+}
@@ -0,0 +1,64 @@
+// Copyright 2018-2020 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.common.metrics;
+
+import androidx.annotation.NonNull;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Metrics are off in most apps, so updates without an exporter should cost next to nothing and
+ * allocate nothing. Run with {@code -prof gc} to see the allocation rate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MetricsBenchmark {
+    @Param({"false", "true"})
+    public boolean enabled;
+
+    private Counter mCounter;
+    private Histogram mHistogram;
+
+    @Setup
+    public void setUp() {
+        if (enabled) {
+            Metrics.setExporter(new MetricsExporter() {
+                @Override
+                public void export(@NonNull final Map<String, Long> counters,
+                        @NonNull final Map<String, Histogram.Snapshot> histograms) {
+                }
+            }, TimeUnit.HOURS.toMillis(1));
+        }
+        mCounter = Metrics.counter("benchmark.counter");
+        mHistogram = Metrics.histogram("benchmark.histogram");
+    }
+
+    @TearDown
+    public void tearDown() {
+        Metrics.reset();
+    }
+
+    @Benchmark
+    public void incrementCounter() {
+        mCounter.increment();
+    }
+
+    @Benchmark
+    public void recordTimer() {
+        Metrics.recordMicrosSince(mHistogram, Metrics.startTimer());
+    }
+}
@@ -0,0 +1,60 @@
+// Copyright 2018-2020 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.common.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.lang.reflect.Constructor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Every ad load creates its custom event from a class name. {@link ConstructorRegistry#create}
+ * reuses the constructor it resolved the first time, where the SDK used to look up the class and
+ * its constructor on every load.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ConstructorRegistryBenchmark {
+    /**
+     * Stands in for a custom event, which the SDK modules on this classpath don't include.
+     */
+    public static class CustomEvent {
+    }
+
+    private static final String CLASS_NAME = CustomEvent.class.getName();
+
+    @Setup
+    public void setUp() throws Exception {
+        ConstructorRegistry.create(CLASS_NAME, CustomEvent.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        ConstructorRegistry.clear();
+    }
+
+    @Benchmark
+    public CustomEvent create() throws Exception {
+        return ConstructorRegistry.create(CLASS_NAME, CustomEvent.class);
+    }
+
+    @Benchmark
+    public CustomEvent forNameAndGetDeclaredConstructor() throws Exception {
+        final Class<? extends CustomEvent> clazz = Class.forName(CLASS_NAME)
+                .asSubclass(CustomEvent.class);
+        final Constructor<? extends CustomEvent> constructor =
+                clazz.getDeclaredConstructor((Class[]) null);
+        constructor.setAccessible(true);
+        return constructor.newInstance();
+    }
+}
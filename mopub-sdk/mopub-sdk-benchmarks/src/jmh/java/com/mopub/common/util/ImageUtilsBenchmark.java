@@ -0,0 +1,57 @@
+// Copyright 2018-2020 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.common.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Blurs a video frame the size of the ones behind the VAST end card. Bitmaps need the device, so
+ * this measures {@link ImageUtils#blurPixels}, which is all of the blur but the pixel copies.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ImageUtilsBenchmark {
+    private static final int WIDTH = 640;
+    private static final int HEIGHT = 360;
+
+    @Param({"4", "25"})
+    public int radius;
+
+    private int[] mOriginal;
+    private int[] mPixels;
+
+    @Setup(Level.Trial)
+    public void setUpTrial() {
+        final Random random = new Random(0);
+        mOriginal = new int[WIDTH * HEIGHT];
+        for (int i = 0; i < mOriginal.length; i++) {
+            mOriginal[i] = 0xFF000000 | random.nextInt(0x1000000);
+        }
+        mPixels = new int[mOriginal.length];
+    }
+
+    @Setup(Level.Invocation)
+    public void setUpInvocation() {
+        System.arraycopy(mOriginal, 0, mPixels, 0, mOriginal.length);
+    }
+
+    @Benchmark
+    public int[] blurPixels() {
+        ImageUtils.blurPixels(mPixels, WIDTH, HEIGHT, radius);
+        return mPixels;
+    }
+}
@@ -0,0 +1,77 @@
+// Copyright 2018-2020 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.common.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The viewability sessions call into their SDKs through {@link Reflection} for every video
+ * event. This compares a lookup on every call, a lookup served from the method cache and an
+ * {@link Reflection.Invoker} bound once.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ReflectionBenchmark {
+    /**
+     * Stands in for a viewability session, which the SDK modules on this classpath don't include.
+     */
+    public static class Session {
+        public String recordEvent(final String event) {
+            return event;
+        }
+    }
+
+    private static final String METHOD_NAME = "recordEvent";
+    private static final String EVENT = "AdVideoFirstQuartile";
+
+    private Session mSession;
+    private Reflection.Invoker mInvoker;
+
+    @Setup
+    public void setUp() throws Exception {
+        mSession = new Session();
+        mInvoker = new Reflection.MethodBuilder(mSession, METHOD_NAME)
+                .addParam(String.class, null)
+                .bind();
+    }
+
+    @TearDown
+    public void tearDown() {
+        Reflection.clearMethodCache();
+    }
+
+    /**
+     * Includes clearing the method cache, which is small next to the lookup.
+     */
+    @Benchmark
+    public Object uncachedExecute() throws Exception {
+        Reflection.clearMethodCache();
+        return new Reflection.MethodBuilder(mSession, METHOD_NAME)
+                .addParam(String.class, EVENT)
+                .execute();
+    }
+
+    @Benchmark
+    public Object cachedExecute() throws Exception {
+        return new Reflection.MethodBuilder(mSession, METHOD_NAME)
+                .addParam(String.class, EVENT)
+                .execute();
+    }
+
+    @Benchmark
+    public Object boundInvoke() throws Exception {
+        return mInvoker.invoke(EVENT);
+    }
+}
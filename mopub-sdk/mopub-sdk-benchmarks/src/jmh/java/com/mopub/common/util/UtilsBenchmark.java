@@ -0,0 +1,42 @@
+// Copyright 2018-2020 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.common.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link Utils#sha1} hashes cache keys, so it runs for every image and video the SDK caches.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class UtilsBenchmark {
+    @Param({"32", "256"})
+    public int length;
+
+    private String mInput;
+
+    @Setup
+    public void setUp() {
+        final char[] chars = new char[length];
+        Arrays.fill(chars, 'a');
+        mInput = "https://www.mopub.com/" + new String(chars);
+    }
+
+    @Benchmark
+    public String sha1() {
+        return Utils.sha1(mInput);
+    }
+}
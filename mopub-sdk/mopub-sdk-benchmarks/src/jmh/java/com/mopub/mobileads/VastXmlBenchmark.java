@@ -0,0 +1,128 @@
+// Copyright 2018-2020 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.mobileads;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The parsing VastXmlManagerAggregator does for each VAST document, over the creatives in
+ * mopub-sdk-common. The aggregator itself is an AsyncTask that also downloads wrapped documents,
+ * so this parses with the XML managers it uses and reads what it reads from them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class VastXmlBenchmark {
+    @Param({"vast.xml", "vast+companion.xml", "vast+extensions.xml",
+            "vast+extensions+companion.xml"})
+    public String creative;
+
+    private String mXml;
+    private VastXmlManager mParsed;
+
+    @Setup
+    public void setUp() throws Exception {
+        mXml = readResource(creative);
+        mParsed = new VastXmlManager();
+        mParsed.parseVastXml(mXml);
+    }
+
+    @Benchmark
+    public VastXmlManager parse() throws Exception {
+        final VastXmlManager vastXmlManager = new VastXmlManager();
+        vastXmlManager.parseVastXml(mXml);
+        return vastXmlManager;
+    }
+
+    @Benchmark
+    public void read(final Blackhole blackhole) {
+        read(mParsed, blackhole);
+    }
+
+    @Benchmark
+    public void parseAndRead(final Blackhole blackhole) throws Exception {
+        final VastXmlManager vastXmlManager = new VastXmlManager();
+        vastXmlManager.parseVastXml(mXml);
+        read(vastXmlManager, blackhole);
+    }
+
+    private static void read(final VastXmlManager vastXmlManager, final Blackhole blackhole) {
+        blackhole.consume(vastXmlManager.getMoPubImpressionTrackers());
+        blackhole.consume(vastXmlManager.getErrorTracker());
+        blackhole.consume(vastXmlManager.getCustomCtaText());
+        blackhole.consume(vastXmlManager.getCustomSkipText());
+        blackhole.consume(vastXmlManager.getCustomCloseIconUrl());
+
+        for (final VastAdXmlManager vastAdXmlManager : vastXmlManager.getAdXmlManagers()) {
+            blackhole.consume(VastXmlManagerAggregator.isValidSequenceNumber(
+                    vastAdXmlManager.getSequence()));
+            final VastInLineXmlManager inLineXmlManager = vastAdXmlManager.getInLineXmlManager();
+            if (inLineXmlManager == null) {
+                continue;
+            }
+
+            blackhole.consume(inLineXmlManager.getImpressionTrackers());
+            blackhole.consume(inLineXmlManager.getErrorTrackers());
+            for (final VastLinearXmlManager linearXmlManager :
+                    inLineXmlManager.getLinearXmlManagers()) {
+                blackhole.consume(linearXmlManager.getFractionalProgressTrackers());
+                blackhole.consume(linearXmlManager.getAbsoluteProgressTrackers());
+                blackhole.consume(linearXmlManager.getVideoCompleteTrackers());
+                blackhole.consume(linearXmlManager.getClickThroughUrl());
+                blackhole.consume(linearXmlManager.getClickTrackers());
+                blackhole.consume(linearXmlManager.getSkipOffset());
+                for (final VastMediaXmlManager mediaXmlManager :
+                        linearXmlManager.getMediaXmlManagers()) {
+                    blackhole.consume(mediaXmlManager.getMediaUrl());
+                    blackhole.consume(mediaXmlManager.getType());
+                    blackhole.consume(mediaXmlManager.getWidth());
+                    blackhole.consume(mediaXmlManager.getHeight());
+                }
+                blackhole.consume(linearXmlManager.getIconXmlManagers());
+            }
+            for (final VastCompanionAdXmlManager companionAdXmlManager :
+                    inLineXmlManager.getCompanionAdXmlManagers()) {
+                blackhole.consume(companionAdXmlManager.getWidth());
+                blackhole.consume(companionAdXmlManager.getHeight());
+                blackhole.consume(companionAdXmlManager.getResourceXmlManager());
+                blackhole.consume(companionAdXmlManager.getClickTrackers());
+                blackhole.consume(companionAdXmlManager.getCompanionCreativeViewTrackers());
+            }
+            blackhole.consume(inLineXmlManager.getVastExtensionParentXmlManager());
+        }
+    }
+
+    private static String readResource(final String name) throws IOException {
+        final InputStream inputStream = VastXmlBenchmark.class.getClassLoader()
+                .getResourceAsStream(name);
+        if (inputStream == null) {
+            throw new IOException("Missing creative " + name);
+        }
+        try {
+            final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[4096];
+            int count;
+            while ((count = inputStream.read(buffer)) != -1) {
+                outputStream.write(buffer, 0, count);
+            }
+            return outputStream.toString("UTF-8");
+        } finally {
+            inputStream.close();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+// Copyright 2018-2020 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.nativeads;
+
+import com.mopub.nativeads.MoPubNativeAdPositioning.MoPubClientPositioning;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The position bookkeeping MoPubStreamAdPlacer does for a feed of {@link #ITEM_COUNT} items with
+ * an ad after the second item and then every fifth.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PlacementDataBenchmark {
+    private static final int ITEM_COUNT = 1000;
+
+    private final MoPubClientPositioning mPositioning = MoPubNativeAdPositioning.clientPositioning()
+            .addFixedPosition(2)
+            .enableRepeatingPositions(5);
+
+    private PlacementData mPlacementData;
+    private int mAdjustedCount;
+
+    @Setup
+    public void setUp() {
+        mPlacementData = fillPlacementData();
+        mAdjustedCount = mPlacementData.getAdjustedCount(ITEM_COUNT);
+    }
+
+    @Benchmark
+    public PlacementData fill() {
+        return fillPlacementData();
+    }
+
+    /**
+     * What the adapter asks for each row as it binds the whole feed.
+     */
+    @Benchmark
+    public int bindAll() {
+        int sum = 0;
+        for (int position = 0; position < mAdjustedCount; position++) {
+            if (mPlacementData.isPlacedAd(position)) {
+                sum++;
+            } else {
+                sum += mPlacementData.getOriginalPosition(position);
+            }
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int getAdjustedPositions() {
+        int sum = 0;
+        for (int position = 0; position < ITEM_COUNT; position++) {
+            sum += mPlacementData.getAdjustedPosition(position);
+        }
+        return sum;
+    }
+
+    /**
+     * Inserts and removes an item at the top of the feed, which moves every ad after it.
+     */
+    @Benchmark
+    public int insertAndRemoveItem() {
+        mPlacementData.insertItem(0);
+        mPlacementData.removeItem(0);
+        return mPlacementData.getAdjustedCount(ITEM_COUNT);
+    }
+
+    private PlacementData fillPlacementData() {
+        final PlacementData placementData = PlacementData.fromAdPositioning(mPositioning);
+        int position = placementData.nextInsertionPosition(0);
+        while (position != PlacementData.NOT_FOUND && position < ITEM_COUNT) {
+            placementData.placeAd(position, null);
+            position = placementData.nextInsertionPosition(position);
+        }
+        return placementData;
+    }
+}
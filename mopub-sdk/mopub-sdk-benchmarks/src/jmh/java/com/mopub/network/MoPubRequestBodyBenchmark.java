@@ -0,0 +1,47 @@
+// Copyright 2018-2020 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.network;
+
+import android.net.Uri;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.UnsupportedEncodingException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds the POST body of an ad request from its url, directly from the query and through the
+ * query map it replaced.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MoPubRequestBodyBenchmark {
+    private static final String AD_URL = "https://ads.mopub.com/m/ad?v=6&nv=5.13.1&id=b195f8dd8ded45fe847ad89ed1d016da"
+            + "&bundle=com.mopub.simpleadsdemo&q=m_age%3A26%2Cgender%3Af&user_data=a+b%20c"
+            + "&assets=title&assets=text&assets=mainimage&empty&o=p&sc=2.625"
+            + "&abt=%7B%22network%22%3A%7B%22token%22%3A%22a%2Fb%5Cc%5C%22%5Cn%22%7D%7D"
+            + "&ct=%09tab%0Anewline&dn=Google%2CPixel%203%2Csargo&lang=fr%E2%80%94%C3%A9%F0%9F%98%80"
+            + "&udid=ifa%3A12345678-1234-1234-1234-123456789012&dnt=0";
+
+    /**
+     * Skips the url rewriter, which needs a context, the same as {@link #queryMap()}.
+     */
+    @Benchmark
+    public byte[] direct() {
+        return MoPubRequestUtils.generateBodyFromQuery(AD_URL);
+    }
+
+    @Benchmark
+    public byte[] queryMap() throws UnsupportedEncodingException {
+        return MoPubRequestUtils.generateBodyFromParams(
+                MoPubRequestUtils.getQueryParamMap(Uri.parse(AD_URL)), AD_URL).getBytes("UTF-8");
+    }
+}
@@ -0,0 +1,70 @@
+// Copyright 2018-2020 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.network;
+
+import android.content.Context;
+import android.content.ContextWrapper;
+
+import com.mopub.common.AdFormat;
+import com.mopub.volley.NetworkResponse;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parses a banner waterfall of three ads: an MRAID ad, an HTML ad and a network ad.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MultiAdResponseBenchmark {
+    // Parsing only checks that there is a context.
+    private final Context mContext = new ContextWrapper(null);
+
+    private NetworkResponse mNetworkResponse;
+
+    @Setup
+    public void setUp() throws IOException {
+        mNetworkResponse = new NetworkResponse(readResource("multi_ad_response.json"));
+    }
+
+    /**
+     * The ad unit id is left out so that the response isn't checked against the request rate
+     * limits, which read the device's clock.
+     */
+    @Benchmark
+    public MultiAdResponse parse() throws Exception {
+        return new MultiAdResponse(mContext, mNetworkResponse, AdFormat.BANNER, null);
+    }
+
+    private static byte[] readResource(final String name) throws IOException {
+        final InputStream inputStream = MultiAdResponseBenchmark.class.getClassLoader()
+                .getResourceAsStream(name);
+        if (inputStream == null) {
+            throw new IOException("Missing resource " + name);
+        }
+        try {
+            final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[4096];
+            int count;
+            while ((count = inputStream.read(buffer)) != -1) {
+                outputStream.write(buffer, 0, count);
+            }
+            return outputStream.toByteArray();
+        } finally {
+            inputStream.close();
+        }
+    }
+}
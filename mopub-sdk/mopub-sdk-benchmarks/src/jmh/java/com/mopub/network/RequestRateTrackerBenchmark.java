@@ -0,0 +1,67 @@
+// Copyright 2018-2020 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.network;
+
+import com.mopub.common.DoubleTimeTracker;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checks the rate limits of ad units from several threads at once, the way ad loads on every
+ * thread do. One ad unit is backing off and the other has a request rate limit.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Threads(8)
+public class RequestRateTrackerBenchmark {
+    private static final String BACKING_OFF_AD_UNIT = "backing_off_ad_unit";
+    private static final String LIMITED_AD_UNIT = "limited_ad_unit";
+
+    private RequestRateTracker mRequestRateTracker;
+
+    @Setup
+    public void setUp() {
+        // SystemClock is native, so the benchmark uses the JVM's clock.
+        RequestRateTracker.setClock(new DoubleTimeTracker.Clock() {
+            @Override
+            public long elapsedRealTime() {
+                return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+            }
+        });
+
+        mRequestRateTracker = new RequestRateTracker();
+        mRequestRateTracker.registerRateLimit(BACKING_OFF_AD_UNIT, Integer.MAX_VALUE, "backoff");
+        // Hands out a token every millisecond, so most calls find none left.
+        mRequestRateTracker.setRequestRateLimit(LIMITED_AD_UNIT,
+                new RequestRateTracker.RequestRateLimit(10, 10));
+    }
+
+    @TearDown
+    public void tearDown() {
+        RequestRateTracker.setClock(null);
+    }
+
+    @Benchmark
+    public boolean isBlockedByRateLimit() {
+        return mRequestRateTracker.isBlockedByRateLimit(BACKING_OFF_AD_UNIT)
+                | mRequestRateTracker.isBlockedByRateLimit(LIMITED_AD_UNIT);
+    }
+
+    @Benchmark
+    public boolean tryAcquireRequest() {
+        return mRequestRateTracker.tryAcquireRequest(LIMITED_AD_UNIT);
+    }
+}
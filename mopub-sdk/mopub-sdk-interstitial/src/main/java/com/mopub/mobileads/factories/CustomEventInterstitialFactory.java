@@ -4,10 +4,9 @@
 
 package com.mopub.mobileads.factories;
 
+import com.mopub.common.util.ConstructorRegistry;
 import com.mopub.mobileads.CustomEventInterstitial;
 
-import java.lang.reflect.Constructor;
-
 public class CustomEventInterstitialFactory {
     private static CustomEventInterstitialFactory instance = new CustomEventInterstitialFactory();
 
@@ -21,10 +20,6 @@ public class CustomEventInterstitialFactory {
     }
 
     protected CustomEventInterstitial internalCreate(String className) throws Exception {
-        Class<? extends CustomEventInterstitial> interstitialClass = Class.forName(className)
-                .asSubclass(CustomEventInterstitial.class);
-        Constructor<?> interstitialConstructor = interstitialClass.getDeclaredConstructor((Class[]) null);
-        interstitialConstructor.setAccessible(true);
-        return (CustomEventInterstitial) interstitialConstructor.newInstance();
+        return ConstructorRegistry.create(className, CustomEventInterstitial.class);
     }
 }
@@ -0,0 +1,147 @@
+// Copyright 2018-2020 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.nativeads;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.mopub.common.Preconditions;
+import com.mopub.common.VisibleForTesting;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collects single item insertions and removals made during a batch and reports them as the
+ * fewest item range updates that have the same effect. Outside of a batch, updates are reported
+ * right away.
+ *
+ * Positions are given as they are at the time of each update, the same as {@code
+ * RecyclerView.Adapter#notifyItemInserted} and {@code notifyItemRemoved}, so the ranges can be
+ * forwarded in order without rewriting positions.
+ *
+ * This class is not thread safe and should only be called from the UI thread.
+ */
+class ItemUpdateBatcher {
+    interface Listener {
+        void onItemRangeInserted(int positionStart, int itemCount);
+        void onItemRangeRemoved(int positionStart, int itemCount);
+    }
+
+    private static class Update {
+        final boolean mIsInsert;
+        int mPositionStart;
+        int mItemCount;
+
+        Update(final boolean isInsert, final int positionStart) {
+            mIsInsert = isInsert;
+            mPositionStart = positionStart;
+            mItemCount = 1;
+        }
+    }
+
+    @NonNull private final Listener mListener;
+    @NonNull private final List<Update> mPendingUpdates;
+    private int mBatchDepth;
+
+    ItemUpdateBatcher(@NonNull final Listener listener) {
+        Preconditions.checkNotNull(listener);
+
+        mListener = listener;
+        mPendingUpdates = new ArrayList<>();
+    }
+
+    /**
+     * Starts holding updates until the matching {@link #endBatch()}. Batches may be nested.
+     */
+    void beginBatch() {
+        mBatchDepth++;
+    }
+
+    /**
+     * Ends a batch, reporting the pending updates once the outermost batch ends.
+     */
+    void endBatch() {
+        if (mBatchDepth == 0) {
+            return;
+        }
+        mBatchDepth--;
+        if (mBatchDepth == 0) {
+            flush();
+        }
+    }
+
+    void itemInserted(final int position) {
+        final Update last = getLastUpdate();
+        if (last != null && last.mIsInsert
+                && position >= last.mPositionStart
+                && position <= last.mPositionStart + last.mItemCount) {
+            // Inserting into or right next to the inserted range grows it.
+            last.mItemCount++;
+        } else {
+            mPendingUpdates.add(new Update(true, position));
+        }
+
+        if (mBatchDepth == 0) {
+            flush();
+        }
+    }
+
+    void itemRemoved(final int position) {
+        final Update last = getLastUpdate();
+        if (last != null && last.mIsInsert
+                && position >= last.mPositionStart
+                && position < last.mPositionStart + last.mItemCount) {
+            // Removing an item inserted in this batch cancels both updates.
+            last.mItemCount--;
+            if (last.mItemCount == 0) {
+                mPendingUpdates.remove(mPendingUpdates.size() - 1);
+            }
+        } else if (last != null && !last.mIsInsert && position == last.mPositionStart) {
+            // Removing the item that moved into the removed range's place grows it.
+            last.mItemCount++;
+        } else if (last != null && !last.mIsInsert && position == last.mPositionStart - 1) {
+            // Removing the item right before the removed range grows it backwards.
+            last.mPositionStart--;
+            last.mItemCount++;
+        } else {
+            mPendingUpdates.add(new Update(false, position));
+        }
+
+        if (mBatchDepth == 0) {
+            flush();
+        }
+    }
+
+    /**
+     * Reports all pending updates now, even during a batch.
+     */
+    void flush() {
+        // Copy first in case the listener causes more updates.
+        final List<Update> updates = new ArrayList<>(mPendingUpdates);
+        mPendingUpdates.clear();
+
+        for (final Update update : updates) {
+            if (update.mIsInsert) {
+                mListener.onItemRangeInserted(update.mPositionStart, update.mItemCount);
+            } else {
+                mListener.onItemRangeRemoved(update.mPositionStart, update.mItemCount);
+            }
+        }
+    }
+
+    @VisibleForTesting
+    int getPendingUpdateCount() {
+        return mPendingUpdates.size();
+    }
+
+    @Nullable
+    private Update getLastUpdate() {
+        if (mPendingUpdates.isEmpty()) {
+            return null;
+        }
+        return mPendingUpdates.get(mPendingUpdates.size() - 1);
+    }
+}
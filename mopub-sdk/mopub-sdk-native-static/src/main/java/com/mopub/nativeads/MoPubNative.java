@@ -73,6 +73,9 @@ public class MoPubNative {
     @NonNull private final AdLoader.Listener mVolleyListener;
     @Nullable private Request mNativeRequest;
     @NonNull AdRendererRegistry mAdRendererRegistry;
+    private int mParallelLineItemCount;
+    private long mParallelDeadlineMillis;
+    @Nullable private NativeLineItemLoader mLineItemLoader;
 
     public MoPubNative(@NonNull final Context context,
             @NonNull final String adUnitId,
@@ -118,6 +121,23 @@ public class MoPubNative {
         mAdRendererRegistry.registerAdRenderer(moPubAdRenderer);
     }
 
+    /**
+     * Loads up to {@code maxLineItems} line items of each waterfall at once instead of one at a
+     * time. The highest priority line item that loads is delivered, and the native ads of the
+     * others are destroyed. This is off by default, and applies from the next request.
+     *
+     * @param maxLineItems   How many line items to load at once. 1 or less turns this off.
+     * @param deadlineMillis How long to wait for each group of line items before delivering the
+     *                       best one that loaded.
+     */
+    public void setParallelWaterfall(final int maxLineItems, final long deadlineMillis) {
+        Preconditions.checkArgument(maxLineItems <= 1 || deadlineMillis > 0,
+                "deadlineMillis must be positive.");
+
+        mParallelLineItemCount = maxLineItems;
+        mParallelDeadlineMillis = deadlineMillis;
+    }
+
     public void destroy() {
         mContext.clear();
         if (mNativeRequest != null) {
@@ -125,6 +145,10 @@ public class MoPubNative {
             mNativeRequest = null;
         }
         mAdLoader = null;
+        if (mLineItemLoader != null) {
+            mLineItemLoader.invalidateAll();
+            mLineItemLoader = null;
+        }
 
         mMoPubNativeNetworkListener = EMPTY_NETWORK_LISTENER;
     }
@@ -199,51 +223,52 @@ public class MoPubNative {
                 return;
             } else {
                 mAdLoader = new AdLoader(endpointUrl, AdFormat.NATIVE, mAdUnitId, context, mVolleyListener);
+                enableParallelWaterfall(context, mAdLoader);
             }
         }
         mNativeRequest = mAdLoader.loadNextAd(errorCode);
     }
 
+    private void enableParallelWaterfall(@NonNull final Context context,
+            @NonNull final AdLoader adLoader) {
+        if (mLineItemLoader != null) {
+            mLineItemLoader.invalidateAll();
+            mLineItemLoader = null;
+        }
+        if (mParallelLineItemCount > 1) {
+            mLineItemLoader = new NativeLineItemLoader(context, mLocalExtras);
+            adLoader.enableParallelWaterfall(mLineItemLoader, mParallelLineItemCount,
+                    mParallelDeadlineMillis);
+        }
+    }
+
     private void onAdLoad(@NonNull final AdResponse response) {
         final Context context = getContextOrDestroy();
         if (context == null) {
             return;
         }
+
+        // A parallel waterfall delivers line items that already loaded.
+        if (mLineItemLoader != null) {
+            final BaseNativeAd loadedAd = mLineItemLoader.takeLoadedAd(response);
+            if (loadedAd != null) {
+                onNativeAdLoaded(response, loadedAd);
+                return;
+            }
+        }
+
         final CustomEventNativeListener customEventNativeListener =
                 new CustomEventNativeListener() {
                     @Override
                     public void onNativeAdLoaded(@NonNull final BaseNativeAd nativeAd) {
-                        MoPubLog.log(LOAD_SUCCESS);
                         mNativeAdapter = null;
-
-                        final Context context = getContextOrDestroy();
-                        if (context == null) {
-                            return;
-                        }
-
-                        MoPubAdRenderer renderer = mAdRendererRegistry.getRendererForAd(nativeAd);
-                        if (renderer == null) {
-                            onNativeAdFailed(NATIVE_RENDERER_CONFIGURATION_ERROR);
-                            return;
-                        }
-
-                        if(mAdLoader!=null) {
-                            mAdLoader.creativeDownloadSuccess();
-                        }
-
-                        mMoPubNativeNetworkListener.onNativeLoad(new NativeAd(context,
-                                        response,
-                                        mAdUnitId,
-                                        nativeAd,
-                                        renderer)
-                        );
+                        MoPubNative.this.onNativeAdLoaded(response, nativeAd);
                     }
 
                     @Override
                     public void onNativeAdFailed(final NativeErrorCode errorCode) {
-                        MoPubLog.log(LOAD_FAILED, errorCode.getIntCode(), errorCode.toString());
                         mNativeAdapter = null;
-                        requestNativeAd("", errorCode);
+                        MoPubNative.this.onNativeAdFailed(errorCode);
                     }
                 };
 
@@ -259,6 +284,38 @@ public class MoPubNative {
                 response);
     }
 
+    private void onNativeAdLoaded(@NonNull final AdResponse response,
+            @NonNull final BaseNativeAd nativeAd) {
+        MoPubLog.log(LOAD_SUCCESS);
+
+        final Context context = getContextOrDestroy();
+        if (context == null) {
+            return;
+        }
+
+        MoPubAdRenderer renderer = mAdRendererRegistry.getRendererForAd(nativeAd);
+        if (renderer == null) {
+            onNativeAdFailed(NATIVE_RENDERER_CONFIGURATION_ERROR);
+            return;
+        }
+
+        if(mAdLoader!=null) {
+            mAdLoader.creativeDownloadSuccess();
+        }
+
+        mMoPubNativeNetworkListener.onNativeLoad(new NativeAd(context,
+                        response,
+                        mAdUnitId,
+                        nativeAd,
+                        renderer)
+        );
+    }
+
+    private void onNativeAdFailed(@NonNull final NativeErrorCode errorCode) {
+        MoPubLog.log(LOAD_FAILED, errorCode.getIntCode(), errorCode.toString());
+        requestNativeAd("", errorCode);
+    }
+
     @VisibleForTesting
     void onAdError(@NonNull final VolleyError volleyError) {
         MoPubLog.log(CUSTOM, "Native ad request failed.", volleyError);
@@ -42,6 +42,7 @@ public final class MoPubRecyclerAdapter extends RecyclerView.Adapter<RecyclerVie
     @NonNull private final RecyclerView.Adapter mOriginalAdapter;
     @NonNull private final VisibilityTracker mVisibilityTracker;
     @NonNull private final WeakHashMap<View, Integer> mViewPositionMap;
+    @NonNull private final ItemUpdateBatcher mItemUpdateBatcher;
 
     @NonNull private ContentChangeStrategy mStrategy = INSERT_AT_END;
     @Nullable private MoPubNativeAdLoadedListener mAdLoadedListener;
@@ -82,7 +83,31 @@ public final class MoPubRecyclerAdapter extends RecyclerView.Adapter<RecyclerVie
 
         setHasStableIdsInternal(mOriginalAdapter.hasStableIds());
 
+        mItemUpdateBatcher = new ItemUpdateBatcher(new ItemUpdateBatcher.Listener() {
+            @Override
+            public void onItemRangeInserted(final int positionStart, final int itemCount) {
+                notifyItemRangeInserted(positionStart, itemCount);
+            }
+
+            @Override
+            public void onItemRangeRemoved(final int positionStart, final int itemCount) {
+                notifyItemRangeRemoved(positionStart, itemCount);
+            }
+        });
+
         mStreamAdPlacer = streamAdPlacer;
+        // Ads placed or removed together are reported to the RecyclerView as item ranges.
+        mStreamAdPlacer.setAdBatchListener(new MoPubStreamAdPlacer.AdBatchListener() {
+            @Override
+            public void onAdBatchStarted() {
+                mItemUpdateBatcher.beginBatch();
+            }
+
+            @Override
+            public void onAdBatchFinished() {
+                mItemUpdateBatcher.endBatch();
+            }
+        });
         mStreamAdPlacer.setAdLoadedListener(new MoPubNativeAdLoadedListener() {
             @Override
             public void onAdLoaded(final int position) {
@@ -99,12 +124,14 @@ public final class MoPubRecyclerAdapter extends RecyclerView.Adapter<RecyclerVie
         mAdapterDataObserver = new RecyclerView.AdapterDataObserver() {
             @Override
             public void onChanged() {
+                mItemUpdateBatcher.flush();
                 mStreamAdPlacer.setItemCount(mOriginalAdapter.getItemCount());
                 notifyDataSetChanged();
             }
 
             @Override
             public void onItemRangeChanged(final int positionStart, final int itemCount) {
+                mItemUpdateBatcher.flush();
                 int adjustedEndPosition = mStreamAdPlacer.getAdjustedPosition(positionStart + itemCount - 1);
                 int adjustedStartPosition = mStreamAdPlacer.getAdjustedPosition(positionStart);
                 int adjustedCount = adjustedEndPosition - adjustedStartPosition + 1;
@@ -113,6 +140,7 @@ public final class MoPubRecyclerAdapter extends RecyclerView.Adapter<RecyclerVie
 
             @Override
             public void onItemRangeInserted(final int positionStart, final int itemCount) {
+                mItemUpdateBatcher.flush();
                 final int adjustedStartPosition = mStreamAdPlacer.getAdjustedPosition(positionStart);
                 final int newOriginalCount = mOriginalAdapter.getItemCount();
                 mStreamAdPlacer.setItemCount(newOriginalCount);
@@ -122,16 +150,15 @@ public final class MoPubRecyclerAdapter extends RecyclerView.Adapter<RecyclerVie
                         && addingToEnd)) {
                     notifyDataSetChanged();
                 } else {
-                    for (int i = 0; i < itemCount; i++) {
-                        // We insert itemCount items at the original position, moving ads downstream.
-                        mStreamAdPlacer.insertItem(positionStart);
-                    }
+                    // We insert itemCount items at the original position, moving ads downstream.
+                    mStreamAdPlacer.insertItems(positionStart, itemCount);
                     notifyItemRangeInserted(adjustedStartPosition, itemCount);
                 }
             }
 
             @Override
             public void onItemRangeRemoved(final int positionStart, final int itemsRemoved) {
+                mItemUpdateBatcher.flush();
                 int adjustedStartPosition = mStreamAdPlacer.getAdjustedPosition(positionStart);
                 final int newOriginalCount = mOriginalAdapter.getItemCount();
                 mStreamAdPlacer.setItemCount(newOriginalCount);
@@ -142,10 +169,8 @@ public final class MoPubRecyclerAdapter extends RecyclerView.Adapter<RecyclerVie
                     notifyDataSetChanged();
                 } else {
                     final int oldAdjustedCount = mStreamAdPlacer.getAdjustedCount(newOriginalCount + itemsRemoved);
-                    for (int i = 0; i < itemsRemoved; i++) {
-                        // We remove itemsRemoved items at the original position.
-                        mStreamAdPlacer.removeItem(positionStart);
-                    }
+                    // We remove itemsRemoved items at the original position.
+                    mStreamAdPlacer.removeItems(positionStart, itemsRemoved);
 
                     final int itemsRemovedIncludingAds = oldAdjustedCount - mStreamAdPlacer.getAdjustedCount(newOriginalCount);
                     // Need to move the start position back by the # of ads removed.
@@ -157,6 +182,7 @@ public final class MoPubRecyclerAdapter extends RecyclerView.Adapter<RecyclerVie
             @Override
             public void onItemRangeMoved(final int fromPosition, final int toPosition,
                     final int itemCount) {
+                mItemUpdateBatcher.flush();
                 notifyDataSetChanged();
             }
         };
@@ -532,7 +558,7 @@ public final class MoPubRecyclerAdapter extends RecyclerView.Adapter<RecyclerVie
             mAdLoadedListener.onAdLoaded(position);
         }
 
-        notifyItemInserted(position);
+        mItemUpdateBatcher.itemInserted(position);
     }
 
     @VisibleForTesting
@@ -541,7 +567,7 @@ public final class MoPubRecyclerAdapter extends RecyclerView.Adapter<RecyclerVie
             mAdLoadedListener.onAdRemoved(position);
         }
 
-        notifyItemRemoved(position);
+        mItemUpdateBatcher.itemRemoved(position);
     }
 
     private void handleVisibilityChanged(final List<View> visibleViews,
@@ -7,6 +7,7 @@ package com.mopub.nativeads;
 import android.app.Activity;
 import android.content.Context;
 import android.os.Handler;
+import android.os.SystemClock;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import android.view.View;
@@ -40,6 +41,15 @@ import static com.mopub.common.logging.MoPubLog.SdkLogEvent.CUSTOM;
  * UI thread.
  */
 public class MoPubStreamAdPlacer {
+    /**
+     * Called around a group of {@link MoPubNativeAdLoadedListener} calls made while placing or
+     * removing several ads at once, so that adapters can report them as a single update.
+     */
+    interface AdBatchListener {
+        void onAdBatchStarted();
+        void onAdBatchFinished();
+    }
+
     /**
      * Constant representing that the view type for a given position is a regular content item
      * instead of an ad.
@@ -76,6 +86,7 @@ public class MoPubStreamAdPlacer {
 
     @NonNull private MoPubNativeAdLoadedListener mAdLoadedListener =
             EMPTY_NATIVE_AD_LOADED_LISTENER;
+    @Nullable private AdBatchListener mAdBatchListener;
 
     // The visible range is the range of items which we believe are visible, inclusive.
     // Placing ads near this range makes for a smoother user experience when scrolling up
@@ -87,8 +98,17 @@ public class MoPubStreamAdPlacer {
     private int mItemCount;
     // A buffer around the visible range where we'll place ads if possible.
     private static final int RANGE_BUFFER = 6;
+    // While scrolling quickly, the buffer grows to cover where the user will be this far ahead.
+    private static final int MAX_RANGE_BUFFER = 30;
+    @VisibleForTesting static final long PLACEMENT_HORIZON_MILLIS = 1000;
+    // Roughly how long an ad takes to load, including its images. The ad source keeps enough ads
+    // loaded for the slots the user may reach in this time.
+    @VisibleForTesting static final long PREFETCH_HORIZON_MILLIS = 3000;
     private boolean mNeedsPlacement;
 
+    @NonNull private final ScrollVelocityTracker mScrollVelocityTracker;
+    private boolean mPredictivePlacementEnabled = true;
+
     /**
      * Creates a new MoPubStreamAdPlacer object.
      *
@@ -161,6 +181,7 @@ public class MoPubStreamAdPlacer {
 
         mVisibleRangeStart = 0;
         mVisibleRangeEnd = 0;
+        mScrollVelocityTracker = new ScrollVelocityTracker();
     }
 
     /**
@@ -202,6 +223,10 @@ public class MoPubStreamAdPlacer {
         mAdLoadedListener = (listener == null) ? EMPTY_NATIVE_AD_LOADED_LISTENER : listener;
     }
 
+    void setAdBatchListener(@Nullable final AdBatchListener listener) {
+        mAdBatchListener = listener;
+    }
+
     /**
      * Start loading ads from the MoPub server.
      *
@@ -323,15 +348,39 @@ public class MoPubStreamAdPlacer {
      * numbers or numbers greater than the current stream item count. The ad placer will only place
      * ads between 0 and item count.
      *
+     * The ad placer tracks how fast the range moves between calls. While the user scrolls
+     * quickly, ads are placed further ahead of the visible range and more ads are loaded in
+     * advance, so ads are ready by the time their positions come into view.
+     *
      * @param startPosition The start of the range in which to place ads, inclusive.
      * @param endPosition The end of the range in which to place ads, exclusive.
      */
     public void placeAdsInRange(final int startPosition, final int endPosition) {
         mVisibleRangeStart = startPosition;
         mVisibleRangeEnd = Math.min(endPosition, startPosition + MAX_VISIBLE_RANGE);
+
+        if (mPredictivePlacementEnabled) {
+            final long now = SystemClock.uptimeMillis();
+            mScrollVelocityTracker.addSample(startPosition, now);
+            mAdSource.setCacheLimit(getPrefetchDepth(now));
+        }
+
         notifyNeedsPlacement();
     }
 
+    /**
+     * Turns scroll velocity based placement and prefetching on or off. When off, ads are placed
+     * within a fixed buffer after the visible range and only one ad is loaded in advance.
+     */
+    @VisibleForTesting
+    void setPredictivePlacementEnabled(final boolean enabled) {
+        mPredictivePlacementEnabled = enabled;
+        if (!enabled) {
+            mScrollVelocityTracker.reset();
+            mAdSource.setCacheLimit(1);
+        }
+    }
+
     /**
      * Whether the given position is an ad.
      *
@@ -469,8 +518,13 @@ public class MoPubStreamAdPlacer {
         }
 
         int clearedAdsCount = mPlacementData.clearAdsInRange(adjustedStartRange, adjustedEndRange);
-        for (int position : removedPositions) {
-            mAdLoadedListener.onAdRemoved(position);
+        startAdBatch();
+        try {
+            for (int position : removedPositions) {
+                mAdLoadedListener.onAdRemoved(position);
+            }
+        } finally {
+            finishAdBatch();
         }
         return clearedAdsCount;
     }
@@ -593,6 +647,23 @@ public class MoPubStreamAdPlacer {
         mPlacementData.insertItem(originalPosition);
     }
 
+    /**
+     * Inserts content rows at the given position, adjusting ad positions accordingly.
+     *
+     * This is the same as calling {@link #insertItem} {@code itemCount} times with the same
+     * position, but only updates ad positions once.
+     *
+     * @param originalPosition The position at which to add the items. If you have an adjusted
+     * position, you will need to call {@link #getOriginalPosition} to get this value.
+     * @param itemCount The number of items added.
+     */
+    public void insertItems(final int originalPosition, final int itemCount) {
+        if (!NoThrow.checkArgument(itemCount >= 0, "Cannot insert a negative number of items")) {
+            return;
+        }
+        mPlacementData.insertItems(originalPosition, itemCount);
+    }
+
     /**
      * Removes the content row at the given position, adjusting ad positions accordingly.
      *
@@ -614,6 +685,24 @@ public class MoPubStreamAdPlacer {
         mPlacementData.removeItem(originalPosition);
     }
 
+    /**
+     * Removes content rows starting at the given position, adjusting ad positions accordingly.
+     *
+     * This is the same as calling {@link #removeItem} {@code itemCount} times with the same
+     * position, but only updates ad positions once. Ads between the removed items end up next to
+     * each other.
+     *
+     * @param originalPosition The position of the first item removed. If you have an adjusted
+     * position, you will need to call {@link #getOriginalPosition} to get this value.
+     * @param itemCount The number of items removed.
+     */
+    public void removeItems(final int originalPosition, final int itemCount) {
+        if (!NoThrow.checkArgument(itemCount >= 0, "Cannot remove a negative number of items")) {
+            return;
+        }
+        mPlacementData.removeItems(originalPosition, itemCount);
+    }
+
     /**
      * Moves the content row at the given position adjusting ad positions accordingly.
      *
@@ -651,15 +740,69 @@ public class MoPubStreamAdPlacer {
      * Places ads using the current visible range.
      */
     private void placeAds() {
-        // Place ads within the visible range
-        if (!tryPlaceAdsInRange(mVisibleRangeStart, mVisibleRangeEnd)) {
-            return;
+        startAdBatch();
+        try {
+            // Place ads within the visible range
+            if (!tryPlaceAdsInRange(mVisibleRangeStart, mVisibleRangeEnd)) {
+                return;
+            }
+
+            // Place ads after the visible range so that user will see an ad if they scroll down.
+            // We don't place an ad before the visible range, because we are trying to be mindful
+            // of changes that will affect scrolling.
+            tryPlaceAdsInRange(mVisibleRangeEnd, mVisibleRangeEnd + getRangeBuffer());
+        } finally {
+            finishAdBatch();
+        }
+    }
+
+    private void startAdBatch() {
+        if (mAdBatchListener != null) {
+            mAdBatchListener.onAdBatchStarted();
+        }
+    }
+
+    private void finishAdBatch() {
+        if (mAdBatchListener != null) {
+            mAdBatchListener.onAdBatchFinished();
+        }
+    }
+
+    /**
+     * The number of positions after the visible range in which to place ads. This covers where
+     * the user will scroll to in the next {@link #PLACEMENT_HORIZON_MILLIS}.
+     */
+    @VisibleForTesting
+    int getRangeBuffer() {
+        if (!mPredictivePlacementEnabled) {
+            return RANGE_BUFFER;
         }
 
-        // Place ads after the visible range so that user will see an ad if they scroll down. We
-        // don't place an ad before the visible range, because we are trying to be mindful of
-        // changes that will affect scrolling.
-        tryPlaceAdsInRange(mVisibleRangeEnd, mVisibleRangeEnd + RANGE_BUFFER);
+        final int lookAhead = mScrollVelocityTracker.getLookAheadCount(
+                SystemClock.uptimeMillis(), PLACEMENT_HORIZON_MILLIS);
+        return Math.max(RANGE_BUFFER, Math.min(lookAhead, MAX_RANGE_BUFFER));
+    }
+
+    /**
+     * The number of ads the ad source should have loaded. Ads within {@link #RANGE_BUFFER} of the
+     * visible range are covered by the default of one cached ad. On top of that, keep one ad for
+     * each unfilled position further out that the user may reach in the next {@link
+     * #PREFETCH_HORIZON_MILLIS} at their recent peak scroll speed.
+     */
+    private int getPrefetchDepth(final long nowMillis) {
+        final int prefetchCount = mScrollVelocityTracker.getPrefetchCount(nowMillis,
+                PREFETCH_HORIZON_MILLIS);
+        final int start = mVisibleRangeEnd + RANGE_BUFFER;
+        final int end = mVisibleRangeEnd + prefetchCount;
+
+        int depth = 1;
+        int position = mPlacementData.nextInsertionPosition(start - 1);
+        while (position != PlacementData.NOT_FOUND && position < end
+                && depth < NativeAdSource.MAX_CACHE_LIMIT) {
+            depth++;
+            position = mPlacementData.nextInsertionPosition(position);
+        }
+        return depth;
     }
 
     /**
@@ -40,6 +40,11 @@ class NativeAdSource {
      */
     private static final int CACHE_LIMIT = 1;
 
+    /**
+     * Upper bound for {@link #setCacheLimit}. Cached ads hold images in memory, so keep this small.
+     */
+    @VisibleForTesting static final int MAX_CACHE_LIMIT = 3;
+
     private static final int EXPIRATION_TIME_MILLISECONDS = AD_EXPIRATION_DELAY;
     private static final int MAXIMUM_RETRY_TIME_MILLISECONDS = 5 * 60 * 1000; // 5 minutes.
     @VisibleForTesting static final int[] RETRY_TIME_ARRAY_MILLISECONDS = new int[]{1000, 3000, 5000, 25000, 60000, MAXIMUM_RETRY_TIME_MILLISECONDS};
@@ -53,6 +58,10 @@ class NativeAdSource {
     @VisibleForTesting boolean mRetryInFlight;
     @VisibleForTesting int mSequenceNumber;
     @VisibleForTesting int mCurrentRetries;
+    @VisibleForTesting int mCacheLimit;
+
+    private int mLoadedAdCount;
+    private int mWastedAdCount;
 
     @Nullable private AdSourceListener mAdSourceListener;
 
@@ -73,7 +82,7 @@ class NativeAdSource {
     }
 
     NativeAdSource() {
-        this(new ArrayList<TimestampWrapper<NativeAd>>(CACHE_LIMIT),
+        this(new ArrayList<TimestampWrapper<NativeAd>>(MAX_CACHE_LIMIT),
                 new Handler(),
                 new AdRendererRegistry());
     }
@@ -108,6 +117,7 @@ class NativeAdSource {
                 mSequenceNumber++;
                 resetRetryTime();
 
+                mLoadedAdCount++;
                 mNativeAdCache.add(new TimestampWrapper<NativeAd>(nativeAd));
                 if (mNativeAdCache.size() == 1 && mAdSourceListener != null) {
                     mAdSourceListener.onAdsAvailable();
@@ -135,6 +145,7 @@ class NativeAdSource {
         };
 
         mSequenceNumber = 0;
+        mCacheLimit = CACHE_LIMIT;
         resetRetryTime();
     }
 
@@ -207,6 +218,7 @@ class NativeAdSource {
         for (final TimestampWrapper<NativeAd> timestampWrapper : mNativeAdCache) {
             timestampWrapper.mInstance.destroy();
         }
+        mWastedAdCount += mNativeAdCache.size();
         mNativeAdCache.clear();
 
         mReplenishCacheHandler.removeMessages(0);
@@ -241,10 +253,45 @@ class NativeAdSource {
             if (now - responseWrapper.mCreatedTimestamp < EXPIRATION_TIME_MILLISECONDS) {
                 return responseWrapper.mInstance;
             }
+            mWastedAdCount++;
         }
         return null;
     }
 
+    /**
+     * Sets how many ads to keep loaded ahead of {@link #dequeueAd}. The stream ad placer raises
+     * this while the user scrolls quickly so ads are ready before their positions come into view.
+     * Raising the limit starts loading right away; lowering it lets the cache drain naturally.
+     *
+     * @param cacheLimit The number of ads to cache, clamped to [1, {@link #MAX_CACHE_LIMIT}].
+     */
+    void setCacheLimit(final int cacheLimit) {
+        final int clampedLimit = Math.max(CACHE_LIMIT, Math.min(cacheLimit, MAX_CACHE_LIMIT));
+        final boolean increased = clampedLimit > mCacheLimit;
+        mCacheLimit = clampedLimit;
+        if (increased && !mRetryInFlight) {
+            replenishCache();
+        }
+    }
+
+    int getCacheLimit() {
+        return mCacheLimit;
+    }
+
+    /**
+     * @return The number of ads loaded from the server since this ad source was created.
+     */
+    int getLoadedAdCount() {
+        return mLoadedAdCount;
+    }
+
+    /**
+     * @return The number of loaded ads that expired or were cleared before being dequeued.
+     */
+    int getWastedAdCount() {
+        return mWastedAdCount;
+    }
+
     @VisibleForTesting
     void updateRetryTime() {
         if (mCurrentRetries < RETRY_TIME_ARRAY_MILLISECONDS.length - 1) {
@@ -272,7 +319,7 @@ class NativeAdSource {
      */
     @VisibleForTesting
     void replenishCache() {
-        if (!mRequestInFlight && mMoPubNative != null && mNativeAdCache.size() < CACHE_LIMIT) {
+        if (!mRequestInFlight && mMoPubNative != null && mNativeAdCache.size() < mCacheLimit) {
             mRequestInFlight = true;
             mMoPubNative.makeRequest(mRequestParameters, mSequenceNumber);
         }
@@ -5,6 +5,7 @@
 package com.mopub.nativeads;
 
 import android.content.Context;
+import android.graphics.Bitmap;
 import android.text.TextUtils;
 import android.widget.ImageView;
 
@@ -12,13 +13,17 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 import com.mopub.common.Preconditions;
+import com.mopub.common.VisibleForTesting;
 import com.mopub.common.logging.MoPubLog;
 import com.mopub.nativeads.CustomEventNative.CustomEventNativeListener;
+import com.mopub.network.BitmapPool;
 import com.mopub.network.Networking;
 import com.mopub.volley.VolleyError;
 import com.mopub.volley.toolbox.ImageLoader;
 
 import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -29,6 +34,11 @@ import static com.mopub.common.logging.MoPubLog.SdkLogEvent.ERROR_WITH_THROWABLE
  * Collection of helper methods to assist with image downloading and displaying
  */
 public class NativeImageHelper {
+    /**
+     * Bitmaps currently shown by image views loaded through {@link #loadImageView}. Only accessed
+     * on the main thread.
+     */
+    @NonNull private static final Map<ImageView, Bitmap> sBoundBitmaps = new WeakHashMap<>();
 
     public interface ImageListener {
         /**
@@ -54,7 +64,7 @@ public class NativeImageHelper {
     public static void preCacheImages(@NonNull final Context context,
             @NonNull final List<String> imageUrls,
             @NonNull final ImageListener imageListener) {
-        final ImageLoader imageLoader = Networking.getImageLoader(context);
+        final ImageLoader imageLoader = Networking.getNativeImageLoader(context);
         // These Atomics are only accessed on the main thread.
         // We use Atomics here so we can change their values while keeping a reference for the inner class.
         final AtomicInteger imageCounter = new AtomicInteger(imageUrls.size());
@@ -106,26 +116,71 @@ public class NativeImageHelper {
         }
 
         if (!Preconditions.NoThrow.checkNotNull(url, "Cannot load image with null url")) {
-            imageView.setImageDrawable(null);
+            setImageBitmap(imageView, null);
             return;
         }
 
-        final ImageLoader mImageLoader = Networking.getImageLoader(imageView.getContext());
-        mImageLoader.get(url, new ImageLoader.ImageListener() {
+        final ImageLoader mImageLoader = Networking.getNativeImageLoader(imageView.getContext());
+        final ImageLoader.ImageListener imageListener = new ImageLoader.ImageListener() {
             @Override
             public void onResponse(final ImageLoader.ImageContainer imageContainer,
                     final boolean isImmediate) {
                 if (!isImmediate) {
                     MoPubLog.log(CUSTOM, "Image was not loaded immediately into your ad view. You should call preCacheImages as part of your custom event loading process.");
                 }
-                imageView.setImageBitmap(imageContainer.getBitmap());
+                setImageBitmap(imageView, imageContainer.getBitmap());
             }
 
             @Override
             public void onErrorResponse(final VolleyError volleyError) {
                 MoPubLog.log(CUSTOM, "Failed to load image.", volleyError);
-                imageView.setImageDrawable(null);
+                setImageBitmap(imageView, null);
             }
-        });
+        };
+
+        final int targetWidth = getTargetDimension(imageView.getWidth(),
+                imageView.getLayoutParams() == null ? 0 : imageView.getLayoutParams().width);
+        final int targetHeight = getTargetDimension(imageView.getHeight(),
+                imageView.getLayoutParams() == null ? 0 : imageView.getLayoutParams().height);
+        if (targetWidth > 0 && targetHeight > 0) {
+            mImageLoader.get(url, imageListener, targetWidth, targetHeight,
+                    imageView.getScaleType());
+        } else {
+            mImageLoader.get(url, imageListener);
+        }
+    }
+
+    /**
+     * Sets the bitmap on the view and tells the bitmap pool which bitmap the view stops showing,
+     * so that bitmap can be reused once it leaves the memory cache.
+     */
+    private static void setImageBitmap(@NonNull final ImageView imageView,
+            @Nullable final Bitmap bitmap) {
+        final BitmapPool bitmapPool = Networking.getBitmapPool();
+        final Bitmap previous = sBoundBitmaps.get(imageView);
+        if (bitmapPool != null && previous != bitmap) {
+            bitmapPool.acquire(bitmap);
+            bitmapPool.release(previous);
+        }
+
+        if (bitmap == null) {
+            sBoundBitmaps.remove(imageView);
+            imageView.setImageDrawable(null);
+        } else {
+            sBoundBitmaps.put(imageView, bitmap);
+            imageView.setImageBitmap(bitmap);
+        }
+    }
+
+    /**
+     * Uses the laid out size, or else a fixed size from the layout params. Returns 0 when the view
+     * has no known size, such as wrap_content or match_parent before layout.
+     */
+    @VisibleForTesting
+    static int getTargetDimension(final int measuredSize, final int layoutParamsSize) {
+        if (measuredSize > 0) {
+            return measuredSize;
+        }
+        return Math.max(layoutParamsSize, 0);
     }
 }
@@ -0,0 +1,133 @@
+// Copyright 2018-2020 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.nativeads;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.mopub.common.Preconditions;
+import com.mopub.network.AdLoader;
+import com.mopub.network.AdResponse;
+
+import java.lang.ref.WeakReference;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Loads the line items of a native waterfall in parallel for {@link MoPubNative}. Each line item
+ * loads its own custom event. The native ad of the line item that wins is kept until
+ * {@link #takeLoadedAd(AdResponse)}, and the native ads of the others are destroyed.
+ *
+ * All calls must be made on the main thread.
+ */
+class NativeLineItemLoader implements AdLoader.LineItemLoader {
+
+    private static class LineItem {
+        @Nullable CustomEventNativeAdapter mAdapter;
+        @Nullable BaseNativeAd mNativeAd;
+    }
+
+    @NonNull private final WeakReference<Context> mContext;
+    @NonNull private final Map<String, Object> mLocalExtras;
+    @NonNull private final Map<AdResponse, LineItem> mLineItems = new IdentityHashMap<>();
+
+    NativeLineItemLoader(@NonNull final Context context,
+            @NonNull final Map<String, Object> localExtras) {
+        Preconditions.checkNotNull(context);
+        Preconditions.checkNotNull(localExtras);
+
+        mContext = new WeakReference<>(context);
+        mLocalExtras = new TreeMap<>(localExtras);
+    }
+
+    @Override
+    public void loadLineItem(@NonNull final AdResponse adResponse,
+            @NonNull final AdLoader.LineItemListener listener) {
+        Preconditions.checkNotNull(adResponse);
+        Preconditions.checkNotNull(listener);
+
+        final Context context = mContext.get();
+        if (context == null) {
+            listener.onLineItemFailed(NativeErrorCode.UNSPECIFIED);
+            return;
+        }
+
+        final LineItem lineItem = new LineItem();
+        mLineItems.put(adResponse, lineItem);
+        lineItem.mAdapter = new CustomEventNativeAdapter(
+                new CustomEventNative.CustomEventNativeListener() {
+                    @Override
+                    public void onNativeAdLoaded(@NonNull final BaseNativeAd nativeAd) {
+                        if (mLineItems.get(adResponse) != lineItem) {
+                            // Invalidated while it was loading.
+                            nativeAd.destroy();
+                            return;
+                        }
+                        lineItem.mNativeAd = nativeAd;
+                        listener.onLineItemLoaded();
+                    }
+
+                    @Override
+                    public void onNativeAdFailed(@NonNull final NativeErrorCode errorCode) {
+                        if (mLineItems.get(adResponse) == lineItem) {
+                            mLineItems.remove(adResponse);
+                        }
+                        listener.onLineItemFailed(errorCode);
+                    }
+                });
+        // Custom events add to their local extras, so each one gets its own copy.
+        lineItem.mAdapter.loadNativeAd(context, new TreeMap<>(mLocalExtras), adResponse);
+    }
+
+    @Override
+    public void invalidateLineItem(@NonNull final AdResponse adResponse) {
+        Preconditions.checkNotNull(adResponse);
+
+        invalidate(mLineItems.remove(adResponse));
+    }
+
+    /**
+     * Removes the native ad a line item loaded, so it can be shown.
+     *
+     * @return The native ad, or null if the line item didn't load.
+     */
+    @Nullable
+    BaseNativeAd takeLoadedAd(@NonNull final AdResponse adResponse) {
+        Preconditions.checkNotNull(adResponse);
+
+        final LineItem lineItem = mLineItems.get(adResponse);
+        if (lineItem == null || lineItem.mNativeAd == null) {
+            return null;
+        }
+        mLineItems.remove(adResponse);
+        return lineItem.mNativeAd;
+    }
+
+    /**
+     * Stops every line item that is loading and destroys the native ads that weren't taken.
+     */
+    void invalidateAll() {
+        for (final LineItem lineItem : mLineItems.values()) {
+            invalidate(lineItem);
+        }
+        mLineItems.clear();
+    }
+
+    private static void invalidate(@Nullable final LineItem lineItem) {
+        if (lineItem == null) {
+            return;
+        }
+        if (lineItem.mAdapter != null) {
+            lineItem.mAdapter.stopLoading();
+        }
+        if (lineItem.mNativeAd != null) {
+            lineItem.mNativeAd.destroy();
+            lineItem.mNativeAd = null;
+        }
+    }
+}
@@ -7,6 +7,7 @@ package com.mopub.nativeads;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
+import com.mopub.common.VisibleForTesting;
 import com.mopub.common.logging.MoPubLog;
 import com.mopub.nativeads.MoPubNativeAdPositioning.MoPubClientPositioning;
 
@@ -18,11 +19,11 @@ import static com.mopub.common.logging.MoPubLog.SdkLogEvent.CUSTOM;
  * A data that represents placed ads in a {@link com.mopub.nativeads.MoPubStreamAdPlacer},
  * useful for tracking insertion and placed ad positions.
  *
- * It maintains four lists of integers
+ * It represents four lists of integers
  * 1) Desired insertion positions - positions to place ads
  * 2) Desired original positions - original position for each ad to place
- * 2) Adjusted ad positions - ad positions that were placed
- * 3) Original ad positions - original position of the item after each placed ad
+ * 3) Adjusted ad positions - ad positions that were placed
+ * 4) Original ad positions - original position of the item after each placed ad
  *
  * For example, consider the following ad positions:
  * ORIGINAL LIST    ADJUSTED LIST
@@ -119,10 +120,19 @@ import static com.mopub.common.logging.MoPubLog.SdkLogEvent.CUSTOM;
  * originalPositions: {3}
  * adjustedPositions: {3}
  *
+ * The lists aren't stored directly. Every ad, desired or placed, is a slot in a fixed sequence
+ * ordered by original position. The adjusted position of a slot is its original position plus
+ * the number of placed slots before it. This is the ad's position if it's placed, or its insertion
+ * position if not. Original positions, adjusted positions and the placed and desired slots are
+ * each kept as counts in a {@link FenwickTree}. Inserting or removing an item only changes the
+ * difference between two neighboring slots, and placing or clearing an ad only flips one slot.
+ *
  * Some runtime guarantees in terms of number of insertion ads:
  * - Finds the next or previous insertion position in O(logN)
  * - Maps from adjusted to original positions and vice versa in O(logN)
- * - Places an ad (moves positions from desired to placed) in O(N)
+ * - Places an ad (moves positions from desired to placed) in O(logN)
+ * - Inserts, removes or moves an item in O(logN)
+ * - Clears K ads in O(K logN)
  */
 class PlacementData {
     /**
@@ -130,35 +140,60 @@ class PlacementData {
      */
     public final static int NOT_FOUND = -1;
 
-    // Cap the number of ads to avoid unrestrained memory usage. 200 allows the 5 positioning
-    // arrays to fit in less than 4K.
-    private final static int MAX_ADS = 200;
-
-    // Initialize all of these to their max capacity. This prevents garbage collection when
-    // reallocating the list, which causes noticeable stuttering when scrolling on some devices.
-    @NonNull private final int[] mDesiredOriginalPositions = new int[MAX_ADS];
-    @NonNull private final int[] mDesiredInsertionPositions = new int[MAX_ADS];
-    private int mDesiredCount = 0;
-    @NonNull private final int[] mOriginalAdPositions = new int[MAX_ADS];
-    @NonNull private final int[] mAdjustedAdPositions = new int[MAX_ADS];
-    @NonNull private final NativeAd[] mNativeAds = new NativeAd[MAX_ADS];
+    // Cap the number of ads to avoid unrestrained memory usage. Each ad takes about 24 bytes, so
+    // 2000 ads (10000 items with an ad every 5 items) fit in less than 48K.
+    @VisibleForTesting static final int MAX_ADS = 2000;
+
+    // Allocate everything up front. This prevents garbage collection when reallocating, which
+    // causes noticeable stuttering when scrolling on some devices.
+    private final int mSlotCount;
+    // Each slot's original position, stored as the difference from the slot before it.
+    @NonNull private final FenwickTree mOriginalPositions;
+    // Each slot's adjusted position, stored as the difference from the slot before it.
+    @NonNull private final FenwickTree mAdjustedPositions;
+    // 1 for each placed slot.
+    @NonNull private final FenwickTree mPlacedSlots;
+    // 1 for each desired slot.
+    @NonNull private final FenwickTree mDesiredSlots;
+    @NonNull private final boolean[] mPlaced;
+    @NonNull private final NativeAd[] mNativeAds;
     private int mPlacedCount = 0;
 
     /**
      * @param desiredInsertionPositions Insertion positions, expressed as original positions
      */
-    private PlacementData(@NonNull final int[] desiredInsertionPositions) {
-        mDesiredCount = Math.min(desiredInsertionPositions.length, MAX_ADS);
-        System.arraycopy(desiredInsertionPositions, 0, mDesiredInsertionPositions, 0, mDesiredCount);
-        System.arraycopy(desiredInsertionPositions, 0, mDesiredOriginalPositions, 0, mDesiredCount);
+    private PlacementData(@NonNull final int[] desiredInsertionPositions, final int maxAds) {
+        mSlotCount = Math.min(desiredInsertionPositions.length, maxAds);
+
+        final int[] differences = new int[mSlotCount];
+        final int[] ones = new int[mSlotCount];
+        for (int i = 0; i < mSlotCount; i++) {
+            differences[i] = desiredInsertionPositions[i]
+                    - (i == 0 ? 0 : desiredInsertionPositions[i - 1]);
+            ones[i] = 1;
+        }
+
+        mOriginalPositions = new FenwickTree(differences);
+        mAdjustedPositions = new FenwickTree(differences);
+        mPlacedSlots = new FenwickTree(new int[mSlotCount]);
+        mDesiredSlots = new FenwickTree(ones);
+        mPlaced = new boolean[mSlotCount];
+        mNativeAds = new NativeAd[mSlotCount];
     }
 
     @NonNull
     static PlacementData fromAdPositioning(@NonNull final MoPubClientPositioning adPositioning) {
+        return fromAdPositioning(adPositioning, MAX_ADS);
+    }
+
+    @VisibleForTesting
+    @NonNull
+    static PlacementData fromAdPositioning(@NonNull final MoPubClientPositioning adPositioning,
+            final int maxAds) {
         final List<Integer> fixed = adPositioning.getFixedPositions();
         final int interval = adPositioning.getRepeatingInterval();
 
-        final int size = (interval == MoPubClientPositioning.NO_REPEAT ? fixed.size() : MAX_ADS);
+        final int size = (interval == MoPubClientPositioning.NO_REPEAT ? fixed.size() : maxAds);
         final int[] desiredInsertionPositions = new int[size];
 
         // Fixed positions are in terms of final positions. Calculate current insertion positions
@@ -166,6 +201,9 @@ class PlacementData {
         int numAds = 0;
         int lastPos = 0;
         for (final Integer position : fixed) {
+            if (numAds == size) {
+                break;
+            }
             lastPos = position - numAds;
             desiredInsertionPositions[numAds++] = lastPos;
         }
@@ -175,20 +213,19 @@ class PlacementData {
             lastPos = lastPos + interval - 1;
             desiredInsertionPositions[numAds++] = lastPos;
         }
-        return new PlacementData(desiredInsertionPositions);
+        return new PlacementData(desiredInsertionPositions, maxAds);
     }
 
     @NonNull
     static PlacementData empty() {
-        return new PlacementData(new int[] {});
+        return new PlacementData(new int[] {}, MAX_ADS);
     }
 
     /**
      * Whether the given position should be an ad.
      */
     boolean shouldPlaceAd(final int position) {
-        final int index = binarySearch(mDesiredInsertionPositions, 0, mDesiredCount, position);
-        return index >= 0;
+        return findDesiredSlot(position) != NOT_FOUND;
     }
 
     /**
@@ -196,12 +233,11 @@ class PlacementData {
      * more ads.
      */
     int nextInsertionPosition(final int position) {
-        final int index = binarySearchGreaterThan(
-                mDesiredInsertionPositions, mDesiredCount, position);
-        if (index == mDesiredCount) {
+        final int slot = nextDesiredSlot(mAdjustedPositions.lowerBound(position + 1));
+        if (slot == mSlotCount) {
             return NOT_FOUND;
         }
-        return mDesiredInsertionPositions[index];
+        return mAdjustedPositions.sum(slot);
     }
 
     /**
@@ -209,12 +245,12 @@ class PlacementData {
      * are no more ads.
      */
     int previousInsertionPosition(final int position) {
-        final int index = binarySearchFirstEquals(
-                mDesiredInsertionPositions,  mDesiredCount, position);
-        if (index == 0) {
+        final int slot = mAdjustedPositions.lowerBound(position);
+        final int desiredBefore = mDesiredSlots.sum(slot - 1);
+        if (desiredBefore == 0) {
             return NOT_FOUND;
         }
-        return mDesiredInsertionPositions[index - 1];
+        return mAdjustedPositions.sum(mDesiredSlots.lowerBound(desiredBefore));
     }
 
     /**
@@ -222,45 +258,21 @@ class PlacementData {
      */
     void placeAd(final int adjustedPosition, final NativeAd nativeAd) {
         // See if this is a insertion ad
-        final int desiredIndex = binarySearchFirstEquals(
-                mDesiredInsertionPositions, mDesiredCount, adjustedPosition);
-        if (desiredIndex == mDesiredCount
-                || mDesiredInsertionPositions[desiredIndex] != adjustedPosition) {
+        final int slot = findDesiredSlot(adjustedPosition);
+        if (slot == NOT_FOUND) {
             MoPubLog.log(CUSTOM, "Attempted to insert an ad at an invalid position");
             return;
         }
 
-        // Add to placed array
-        final int originalPosition = mDesiredOriginalPositions[desiredIndex];
-        int placeIndex = binarySearchGreaterThan(
-                mOriginalAdPositions, mPlacedCount, originalPosition);
-        if (placeIndex < mPlacedCount) {
-            final int num = mPlacedCount - placeIndex;
-            System.arraycopy(mOriginalAdPositions, placeIndex,
-                    mOriginalAdPositions, placeIndex + 1, num);
-            System.arraycopy(mAdjustedAdPositions, placeIndex,
-                    mAdjustedAdPositions, placeIndex + 1, num);
-            System.arraycopy(mNativeAds, placeIndex, mNativeAds, placeIndex + 1, num);
-        }
-        mOriginalAdPositions[placeIndex] = originalPosition;
-        mAdjustedAdPositions[placeIndex] = adjustedPosition;
-        mNativeAds[placeIndex] = nativeAd;
+        mPlaced[slot] = true;
+        mNativeAds[slot] = nativeAd;
+        mPlacedSlots.add(slot, 1);
+        mDesiredSlots.add(slot, -1);
         mPlacedCount++;
 
-        // Remove desired index
-        final int num = mDesiredCount - desiredIndex - 1;
-        System.arraycopy(mDesiredInsertionPositions, desiredIndex + 1,
-                mDesiredInsertionPositions, desiredIndex, num);
-        System.arraycopy(mDesiredOriginalPositions, desiredIndex + 1,
-                mDesiredOriginalPositions, desiredIndex, num);
-        mDesiredCount--;
-
-        // Increment adjusted positions
-        for (int i = desiredIndex; i < mDesiredCount; ++i) {
-            mDesiredInsertionPositions[i]++;
-        }
-        for (int i = placeIndex + 1; i < mPlacedCount; ++i) {
-            mAdjustedAdPositions[i]++;
+        // Every slot after this one moves down by one.
+        if (slot + 1 < mSlotCount) {
+            mAdjustedPositions.add(slot + 1, 1);
         }
     }
 
@@ -268,8 +280,7 @@ class PlacementData {
      * @see {@link com.mopub.nativeads.MoPubStreamAdPlacer#isAd(int)}
      */
     boolean isPlacedAd(final int position) {
-        final int index = binarySearch(mAdjustedAdPositions, 0, mPlacedCount, position);
-        return index >= 0;
+        return findPlacedSlot(position) != NOT_FOUND;
     }
 
     /**
@@ -278,11 +289,11 @@ class PlacementData {
      */
     @Nullable
     NativeAd getPlacedAd(final int position) {
-        final int index = binarySearch(mAdjustedAdPositions, 0, mPlacedCount, position);
-        if (index < 0) {
+        final int slot = findPlacedSlot(position);
+        if (slot == NOT_FOUND) {
             return null;
         }
-        return mNativeAds[index];
+        return mNativeAds[slot];
     }
 
     /**
@@ -292,7 +303,9 @@ class PlacementData {
     @NonNull
     int[] getPlacedAdPositions() {
         int[] positions = new int[mPlacedCount];
-        System.arraycopy(mAdjustedAdPositions, 0, positions, 0, mPlacedCount);
+        for (int i = 0; i < mPlacedCount; i++) {
+            positions[i] = mAdjustedPositions.sum(mPlacedSlots.lowerBound(i + 1));
+        }
         return positions;
     }
 
@@ -300,24 +313,21 @@ class PlacementData {
      * @see com.mopub.nativeads.MoPubStreamAdPlacer#getOriginalPosition(int)
      */
     int getOriginalPosition(final int position) {
-        final int index = binarySearch(mAdjustedAdPositions, 0, mPlacedCount, position);
-
-        // No match, ~index is the number of ads before this pos.
-        if (index < 0) {
-            return position - ~index;
+        // This is an ad - there is no original position
+        if (isPlacedAd(position)) {
+            return NOT_FOUND;
         }
 
-        // This is an ad - there is no original position
-        return NOT_FOUND;
+        return position - countPlacedAdsBefore(position);
     }
 
     /**
      * @see com.mopub.nativeads.MoPubStreamAdPlacer#getAdjustedPosition(int)
      */
     int getAdjustedPosition(final int originalPosition) {
-        // This is an ad. Since binary search doesn't properly handle dups, find the first non-ad.
-        int index = binarySearchGreaterThan(mOriginalAdPositions, mPlacedCount, originalPosition);
-        return originalPosition + index;
+        // Ads with the same original position come before the item, so count them too.
+        final int slot = mOriginalPositions.lowerBound(originalPosition + 1);
+        return originalPosition + mPlacedSlots.sum(slot - 1);
     }
 
     /**
@@ -349,60 +359,36 @@ class PlacementData {
      * positions.
      */
     int clearAdsInRange(final int adjustedStartRange, final int adjustedEndRange) {
-        // Temporary arrays to store the cleared positions. Using temporary arrays makes it
-        // easy to debug what positions are being cleared.
-        int[] clearOriginalPositions = new int[mPlacedCount];
-        int[] clearAdjustedPositions = new int[mPlacedCount];
-        int clearCount = 0;
-
-        // Add to the clear position arrays any positions that fall inside
-        // [adjustedRangeStart, adjustedRangeEnd).
-        for (int i = 0; i < mPlacedCount; ++i) {
-            int originalPosition = mOriginalAdPositions[i];
-            int adjustedPosition = mAdjustedAdPositions[i];
-            if (adjustedStartRange <= adjustedPosition && adjustedPosition < adjustedEndRange) {
-                // When copying adjusted positions, subtract the current clear count because there
-                // is no longer an ad incrementing the desired insertion position.
-                clearOriginalPositions[clearCount] = originalPosition;
-                clearAdjustedPositions[clearCount] = adjustedPosition - clearCount;
-
-                // Destroying and nulling out the ad objects to avoids a memory leak.
-                mNativeAds[i].destroy();
-                mNativeAds[i] = null;
-                clearCount++;
-            } else if (clearCount > 0) {
-                // The position is not in the range; shift it by the number of cleared ads.
-                int newIndex = i - clearCount;
-                mOriginalAdPositions[newIndex] = originalPosition;
-                mAdjustedAdPositions[newIndex] = adjustedPosition - clearCount;
-                mNativeAds[newIndex] = mNativeAds[i];
-            }
-        }
+        // Placed ads are ordered by adjusted position, so the ads in
+        // [adjustedStartRange, adjustedEndRange) are a run of placed slots.
+        final int firstIndex = countPlacedAdsBefore(adjustedStartRange);
+        final int endIndex = countPlacedAdsBefore(adjustedEndRange);
+        final int clearCount = endIndex - firstIndex;
 
         // If we have cleared nothing, this method was a no-op.
-        if (clearCount == 0) {
+        if (clearCount <= 0) {
             return 0;
         }
 
-        // Modify the desired positions arrays in order to make space to put back the
-        // cleared ad positions. For example if the desired array was {1, 10,
-        // 15} and we need to insert {3, 7} we'll shift the desired array to be {1, ?, ? , 10, 15}.
-        int firstCleared = clearAdjustedPositions[0];
-        int desiredIndex = binarySearchFirstEquals(
-                mDesiredInsertionPositions, mDesiredCount, firstCleared);
-        for (int i = mDesiredCount - 1; i >= desiredIndex; --i) {
-            mDesiredOriginalPositions[i + clearCount] = mDesiredOriginalPositions[i];
-            mDesiredInsertionPositions[i + clearCount] = mDesiredInsertionPositions[i] - clearCount;
+        // Find all the slots before changing any counts.
+        final int[] clearSlots = new int[clearCount];
+        for (int i = 0; i < clearCount; ++i) {
+            clearSlots[i] = mPlacedSlots.lowerBound(firstIndex + i + 1);
         }
 
-        // Copy the cleared ad positions into the desired arrays.
-        for (int i = 0; i < clearCount; ++i) {
-            mDesiredOriginalPositions[desiredIndex + i] = clearOriginalPositions[i];
-            mDesiredInsertionPositions[desiredIndex + i] = clearAdjustedPositions[i];
+        for (final int slot : clearSlots) {
+            // Destroying and nulling out the ad objects to avoids a memory leak.
+            mNativeAds[slot].destroy();
+            mNativeAds[slot] = null;
+
+            mPlaced[slot] = false;
+            mPlacedSlots.add(slot, -1);
+            mDesiredSlots.add(slot, 1);
+            if (slot + 1 < mSlotCount) {
+                mAdjustedPositions.add(slot + 1, -1);
+            }
         }
 
-        // Update the array counts, and we're done.
-        mDesiredCount = mDesiredCount + clearCount;
         mPlacedCount = mPlacedCount - clearCount;
         return clearCount;
     }
@@ -416,29 +402,26 @@ class PlacementData {
             return;
         }
 
-        clearAdsInRange(0, mAdjustedAdPositions[mPlacedCount - 1] + 1);
+        final int lastAdPosition = mAdjustedPositions.sum(mPlacedSlots.lowerBound(mPlacedCount));
+        clearAdsInRange(0, lastAdPosition + 1);
     }
 
     /**
      * @see com.mopub.nativeads.MoPubStreamAdPlacer#insertItem(int)
      */
     void insertItem(final int originalPosition) {
+        // Increment the positions of every slot at or after the original position.
+        shiftPositions(mOriginalPositions.lowerBound(originalPosition), 1);
+    }
 
-        // Increment desired arrays.
-        int indexToIncrement = binarySearchFirstEquals(
-                mDesiredOriginalPositions, mDesiredCount, originalPosition);
-        for (int i = indexToIncrement; i < mDesiredCount; ++i) {
-            mDesiredOriginalPositions[i]++;
-            mDesiredInsertionPositions[i]++;
-        }
-
-        // Increment placed arrays.
-        indexToIncrement = binarySearchFirstEquals(
-                mOriginalAdPositions, mPlacedCount, originalPosition);
-        for (int i = indexToIncrement; i < mPlacedCount; ++i) {
-            mOriginalAdPositions[i]++;
-            mAdjustedAdPositions[i]++;
+    /**
+     * @see com.mopub.nativeads.MoPubStreamAdPlacer#insertItems(int, int)
+     */
+    void insertItems(final int originalPosition, final int count) {
+        if (count <= 0) {
+            return;
         }
+        shiftPositions(mOriginalPositions.lowerBound(originalPosition), count);
     }
 
     /**
@@ -449,22 +432,28 @@ class PlacementData {
         // position we're removing. The original position associated with an ad is the original
         // position of the first content item after the ad, so we shouldn't change the original
         // position of an ad that matches the original position removed.
-        int indexToDecrement = binarySearchGreaterThan(
-                mDesiredOriginalPositions, mDesiredCount, originalPosition);
+        shiftPositions(mOriginalPositions.lowerBound(originalPosition + 1), -1);
+    }
 
-        // Decrement desired arrays.
-        for (int i = indexToDecrement; i < mDesiredCount; ++i) {
-            mDesiredOriginalPositions[i]--;
-            mDesiredInsertionPositions[i]--;
+    /**
+     * @see com.mopub.nativeads.MoPubStreamAdPlacer#removeItems(int, int)
+     */
+    void removeItems(final int originalPosition, final int count) {
+        if (count <= 0) {
+            return;
         }
 
-        indexToDecrement = binarySearchGreaterThan(
-                mOriginalAdPositions, mPlacedCount, originalPosition);
-
-        for (int i = indexToDecrement; i < mPlacedCount; ++i) {
-            mOriginalAdPositions[i]--;
-            mAdjustedAdPositions[i]--;
+        // Ads before removed items move to the original position, the same as removing the items
+        // one at a time. Moving a single slot doesn't change the positions of later slots.
+        final int firstSlot = mOriginalPositions.lowerBound(originalPosition + 1);
+        final int endSlot = mOriginalPositions.lowerBound(originalPosition + count + 1);
+        for (int slot = firstSlot; slot < endSlot; slot++) {
+            final int delta = originalPosition - mOriginalPositions.sum(slot);
+            shiftPositions(slot, delta);
+            shiftPositions(slot + 1, -delta);
         }
+
+        shiftPositions(endSlot, -count);
     }
 
     /**
@@ -475,59 +464,119 @@ class PlacementData {
         insertItem(newPosition);
     }
 
-    private static int binarySearchFirstEquals(int[] array, int count, int value) {
-        int index = binarySearch(array, 0, count, value);
-
-        // If not found, binarySearch returns the 2's complement of the index of the nearest
-        // value higher than the target value, which is also the insertion index.
-        if (index < 0) {
-            return ~index;
+    /**
+     * Returns the desired slot whose insertion position is the given position, or NOT_FOUND.
+     */
+    private int findDesiredSlot(final int position) {
+        // Slots sharing an adjusted position are desired, except possibly the last one. Return
+        // the first, like the insertion positions list would.
+        final int slot = mAdjustedPositions.lowerBound(position);
+        if (slot == mSlotCount || mPlaced[slot] || mAdjustedPositions.sum(slot) != position) {
+            return NOT_FOUND;
         }
+        return slot;
+    }
 
-        int duplicateValue = array[index];
-        while (index >= 0 && array[index] == duplicateValue) {
-            index--;
+    /**
+     * Returns the placed slot whose ad is at the given position, or NOT_FOUND.
+     */
+    private int findPlacedSlot(final int position) {
+        // A placed slot is always the last slot at its adjusted position.
+        final int slot = mAdjustedPositions.lowerBound(position + 1) - 1;
+        if (slot < 0 || !mPlaced[slot] || mAdjustedPositions.sum(slot) != position) {
+            return NOT_FOUND;
         }
-
-        return index + 1;
+        return slot;
     }
 
-    private static int binarySearchGreaterThan(int[] array, int count, int value) {
-        int index = binarySearch(array, 0, count, value);
+    /**
+     * Returns the number of placed ads before the given adjusted position.
+     */
+    private int countPlacedAdsBefore(final int position) {
+        return mPlacedSlots.sum(mAdjustedPositions.lowerBound(position) - 1);
+    }
 
-        // If not found, binarySearch returns the 2's complement of the index of the nearest
-        // value higher than the target value, which is also the insertion index.
-        if (index < 0) {
-            return ~index;
+    /**
+     * Returns the first desired slot at or after the given slot, or the slot count if none.
+     */
+    private int nextDesiredSlot(final int slot) {
+        if (slot >= mSlotCount) {
+            return mSlotCount;
         }
+        return mDesiredSlots.lowerBound(mDesiredSlots.sum(slot - 1) + 1);
+    }
 
-        int duplicateValue = array[index];
-        while (index < count && array[index] == duplicateValue) {
-            index++;
+    /**
+     * Adds delta to the original and adjusted positions of the given slot and every slot after it.
+     */
+    private void shiftPositions(final int slot, final int delta) {
+        if (slot == mSlotCount) {
+            return;
         }
-
-        return index;
+        mOriginalPositions.add(slot, delta);
+        mAdjustedPositions.add(slot, delta);
     }
 
     /**
-     * Copied from Arrays.java, which isn't available until Gingerbread.
+     * Binary indexed tree over a fixed number of ints, supporting point updates, prefix sums and
+     * searching prefix sums, all in O(logN).
      */
-    private static int binarySearch(int[] array, int startIndex, int endIndex, int value) {
-        int lo = startIndex;
-        int hi = endIndex - 1;
-
-        while (lo <= hi) {
-            int mid = (lo + hi) >>> 1;
-            int midVal = array[mid];
-
-            if (midVal < value) {
-                lo = mid + 1;
-            } else if (midVal > value) {
-                hi = mid - 1;
-            } else {
-                return mid;  // value found
+    @VisibleForTesting
+    static class FenwickTree {
+        private final int mSize;
+        // 1-based. mTree[i] is the sum of the (i & -i) values ending at index i - 1.
+        @NonNull private final int[] mTree;
+        private final int mHighestBit;
+
+        FenwickTree(@NonNull final int[] values) {
+            mSize = values.length;
+            mTree = new int[mSize + 1];
+            System.arraycopy(values, 0, mTree, 1, mSize);
+            for (int i = 1; i <= mSize; i++) {
+                final int parent = i + (i & -i);
+                if (parent <= mSize) {
+                    mTree[parent] += mTree[i];
+                }
+            }
+            mHighestBit = mSize == 0 ? 0 : Integer.highestOneBit(mSize);
+        }
+
+        /**
+         * Adds delta to the value at the given index.
+         */
+        void add(final int index, final int delta) {
+            for (int i = index + 1; i <= mSize; i += i & -i) {
+                mTree[i] += delta;
+            }
+        }
+
+        /**
+         * Returns the sum of the values from 0 to index, inclusive. Returns 0 for negative
+         * indexes.
+         */
+        int sum(final int index) {
+            int sum = 0;
+            for (int i = Math.min(index + 1, mSize); i > 0; i -= i & -i) {
+                sum += mTree[i];
+            }
+            return sum;
+        }
+
+        /**
+         * Returns the first index whose sum is at least the given value, or the size if there is
+         * none. Only valid while sums don't decrease with the index.
+         */
+        int lowerBound(final int value) {
+            int index = 0;
+            int remaining = value;
+            for (int step = mHighestBit; step > 0; step >>= 1) {
+                final int next = index + step;
+                if (next <= mSize && mTree[next] < remaining) {
+                    index = next;
+                    remaining -= mTree[next];
+                }
             }
+            return index;
         }
-        return ~lo;  // value not present
     }
 }
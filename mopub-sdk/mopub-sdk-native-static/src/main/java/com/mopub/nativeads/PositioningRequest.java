@@ -6,10 +6,14 @@ package com.mopub.nativeads;
 
 import android.content.Context;
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
 import com.mopub.common.VisibleForTesting;
+import com.mopub.common.util.ResponseHeader;
 import com.mopub.network.MoPubNetworkError;
 import com.mopub.network.MoPubRequestUtils;
+import com.mopub.network.Networking;
+import com.mopub.network.RequestBodyCompressor;
 import com.mopub.volley.NetworkResponse;
 import com.mopub.volley.Response;
 import com.mopub.volley.VolleyError;
@@ -22,6 +26,7 @@ import org.json.JSONObject;
 
 import java.io.UnsupportedEncodingException;
 import java.net.HttpURLConnection;
+import java.util.Collections;
 import java.util.Map;
 
 import static com.mopub.nativeads.MoPubNativeAdPositioning.MoPubClientPositioning;
@@ -38,6 +43,8 @@ public class PositioningRequest extends JsonRequest<MoPubClientPositioning> {
 
     @NonNull private final String mOriginalUrl;
     @NonNull private final Context mContext;
+    // Set along with the headers. See MoPubRequest.
+    @Nullable private volatile byte[] mCompressedBody;
 
     public PositioningRequest(@NonNull final Context context,
             final String url,
@@ -152,12 +159,35 @@ public class PositioningRequest extends JsonRequest<MoPubClientPositioning> {
         return MoPubRequestUtils.convertQueryToMap(mContext, mOriginalUrl);
     }
 
+    @Override
+    public Map<String, String> getHeaders() {
+        final RequestBodyCompressor compressor = Networking.getRequestBodyCompressor();
+        final byte[] compressedBody = compressor.isEnabled()
+                ? compressor.compressIfEnabled(getUncompressedBody())
+                : null;
+        mCompressedBody = compressedBody;
+        if (compressedBody == null) {
+            return Collections.emptyMap();
+        }
+        return Collections.singletonMap(ResponseHeader.CONTENT_ENCODING.getKey(),
+                RequestBodyCompressor.GZIP);
+    }
+
     @Override
     public byte[] getBody() {
-        final String body = MoPubRequestUtils.generateBodyFromParams(getParams(), getUrl());
-        if (body == null) {
+        final byte[] compressedBody = mCompressedBody;
+        if (compressedBody != null) {
+            return compressedBody;
+        }
+        return getUncompressedBody();
+    }
+
+    @Nullable
+    private byte[] getUncompressedBody() {
+        if (!MoPubRequestUtils.isMoPubRequest(getUrl())) {
             return null;
         }
-        return body.getBytes();
+
+        return MoPubRequestUtils.generateBodyFromUrl(mContext, mOriginalUrl);
     }
 }
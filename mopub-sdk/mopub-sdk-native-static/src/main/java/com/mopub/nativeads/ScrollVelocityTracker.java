@@ -0,0 +1,137 @@
+// Copyright 2018-2020 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.nativeads;
+
+import com.mopub.common.VisibleForTesting;
+
+/**
+ * Estimates how fast and in which direction a stream is scrolling from the visible ranges passed
+ * to {@link MoPubStreamAdPlacer#placeAdsInRange}.
+ *
+ * Two estimates are kept. The smoothed velocity follows the current gesture and goes to 0 as soon
+ * as updates stop. The peak speed decays slowly, so a user who has been flinging keeps a deeper
+ * ad prefetch while reading, ready for the next fling.
+ *
+ * This class is not thread safe and should only be called from the UI thread.
+ */
+class ScrollVelocityTracker {
+    /**
+     * Without an update for this long, the stream is considered idle.
+     */
+    @VisibleForTesting static final long IDLE_TIMEOUT_MILLIS = 1000;
+
+    /**
+     * Velocity is measured over windows at least this long. Visible positions are whole items, so
+     * measuring between consecutive frames would read a slow scroll as alternating stops and
+     * bursts.
+     */
+    @VisibleForTesting static final long VELOCITY_WINDOW_MILLIS = 500;
+
+    /**
+     * The peak speed halves every this many millis.
+     */
+    @VisibleForTesting static final long PEAK_HALF_LIFE_MILLIS = 15 * 1000;
+
+    /**
+     * Weight of the newest window in the smoothed velocity.
+     */
+    private static final double SMOOTHING_FACTOR = 0.5;
+
+    private boolean mHasSample;
+    private int mWindowStartPosition;
+    private long mWindowStartMillis;
+    private long mLastSampleMillis;
+
+    // Items per second. Positive when scrolling towards the end of the stream.
+    private double mVelocity;
+    private double mPeakSpeed;
+    private long mPeakTimeMillis;
+
+    /**
+     * Records the first visible position at the given time.
+     */
+    void addSample(final int position, final long timeMillis) {
+        if (!mHasSample || timeMillis - mLastSampleMillis > IDLE_TIMEOUT_MILLIS) {
+            // Start a new gesture so it isn't averaged with an old one.
+            mHasSample = true;
+            mVelocity = 0;
+            startWindow(position, timeMillis);
+            return;
+        }
+
+        if (timeMillis <= mLastSampleMillis) {
+            return;
+        }
+        mLastSampleMillis = timeMillis;
+
+        final long windowMillis = timeMillis - mWindowStartMillis;
+        if (windowMillis < VELOCITY_WINDOW_MILLIS) {
+            return;
+        }
+
+        final double windowVelocity = (position - mWindowStartPosition) * 1000.0 / windowMillis;
+        mVelocity = SMOOTHING_FACTOR * windowVelocity + (1 - SMOOTHING_FACTOR) * mVelocity;
+
+        if (Math.abs(mVelocity) >= getPeakSpeed(timeMillis)) {
+            mPeakSpeed = Math.abs(mVelocity);
+            mPeakTimeMillis = timeMillis;
+        }
+
+        startWindow(position, timeMillis);
+    }
+
+    /**
+     * @return The smoothed velocity in items per second, or 0 if the stream is idle.
+     */
+    double getVelocity(final long nowMillis) {
+        if (!mHasSample || nowMillis - mLastSampleMillis > IDLE_TIMEOUT_MILLIS) {
+            return 0;
+        }
+        return mVelocity;
+    }
+
+    /**
+     * @return The recent peak speed in items per second, decayed by the time since it was seen.
+     */
+    double getPeakSpeed(final long nowMillis) {
+        if (mPeakSpeed == 0) {
+            return 0;
+        }
+        final long elapsedMillis = Math.max(0, nowMillis - mPeakTimeMillis);
+        return mPeakSpeed * Math.pow(0.5, (double) elapsedMillis / PEAK_HALF_LIFE_MILLIS);
+    }
+
+    /**
+     * @return How many items past the visible range the user will scroll in the given time at the
+     * current velocity. Returns 0 when idle or scrolling backwards.
+     */
+    int getLookAheadCount(final long nowMillis, final long horizonMillis) {
+        final double velocity = getVelocity(nowMillis);
+        if (velocity <= 0) {
+            return 0;
+        }
+        return (int) Math.ceil(velocity * horizonMillis / 1000.0);
+    }
+
+    /**
+     * @return How many items the user may scroll through in the given time at the recent peak
+     * speed, in either direction.
+     */
+    int getPrefetchCount(final long nowMillis, final long horizonMillis) {
+        return (int) Math.ceil(getPeakSpeed(nowMillis) * horizonMillis / 1000.0);
+    }
+
+    void reset() {
+        mHasSample = false;
+        mVelocity = 0;
+        mPeakSpeed = 0;
+    }
+
+    private void startWindow(final int position, final long timeMillis) {
+        mWindowStartPosition = position;
+        mWindowStartMillis = timeMillis;
+        mLastSampleMillis = timeMillis;
+    }
+}
@@ -8,19 +8,16 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 import com.mopub.common.Preconditions;
+import com.mopub.common.util.ConstructorRegistry;
 import com.mopub.nativeads.CustomEventNative;
 import com.mopub.nativeads.MoPubCustomEventNative;
 
-import java.lang.reflect.Constructor;
-
 public class CustomEventNativeFactory {
     protected static CustomEventNativeFactory instance = new CustomEventNativeFactory();
 
     public static CustomEventNative create(@Nullable final String className) throws Exception {
         if (className != null) {
-            final Class<? extends CustomEventNative> nativeClass = Class.forName(className)
-                    .asSubclass(CustomEventNative.class);
-            return instance.internalCreate(nativeClass);
+            return instance.internalCreate(className);
         } else {
             return new MoPubCustomEventNative();
         }
@@ -34,13 +31,18 @@ public class CustomEventNativeFactory {
         instance = customEventNativeFactory;
     }
 
+    @NonNull
+    protected CustomEventNative internalCreate(@NonNull final String className) throws Exception {
+        Preconditions.checkNotNull(className);
+
+        return ConstructorRegistry.create(className, CustomEventNative.class);
+    }
+
     @NonNull
     protected CustomEventNative internalCreate(
             @NonNull final Class<? extends CustomEventNative> nativeClass) throws Exception {
         Preconditions.checkNotNull(nativeClass);
 
-        final Constructor<?> nativeConstructor = nativeClass.getDeclaredConstructor((Class[]) null);
-        nativeConstructor.setAccessible(true);
-        return (CustomEventNative) nativeConstructor.newInstance();
+        return internalCreate(nativeClass.getName());
     }
 }
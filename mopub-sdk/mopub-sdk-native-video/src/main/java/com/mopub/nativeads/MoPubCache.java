@@ -9,14 +9,20 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 import com.google.android.exoplayer2.upstream.cache.Cache;
-import com.google.android.exoplayer2.upstream.cache.LeastRecentlyUsedCacheEvictor;
+import com.google.android.exoplayer2.upstream.cache.CacheSpan;
 import com.google.android.exoplayer2.upstream.cache.SimpleCache;
+import com.mopub.common.DiskBudget;
 import com.mopub.common.Preconditions;
 import com.mopub.common.VisibleForTesting;
-import com.mopub.common.util.DeviceUtils;
+import com.mopub.common.logging.MoPubLog;
 
 import java.io.File;
 
+import static com.mopub.common.logging.MoPubLog.SdkLogEvent.CUSTOM;
+
+/**
+ * The disk cache for native video. It is sized by the shared {@link DiskBudget}.
+ */
 class MoPubCache {
 
     private static final String NATIVE_CACHE_NAME = "mopub-native-cache";
@@ -38,9 +44,13 @@ class MoPubCache {
                         final File nativeCacheDir = new File(cacheDir.getPath()
                                 + File.separator
                                 + NATIVE_CACHE_NAME);
-                        final long cacheSize = DeviceUtils.diskCacheSizeBytes(cacheDir);
-                        final LeastRecentlyUsedCacheEvictor lruEvictor = new LeastRecentlyUsedCacheEvictor(cacheSize);
-                        instance = new SimpleCache(nativeCacheDir, lruEvictor);
+                        final BudgetParticipant participant = new BudgetParticipant();
+                        final long cacheSize = DiskBudget.getInstance(context).register(
+                                participant);
+                        final ResizableCacheEvictor evictor = new ResizableCacheEvictor(cacheSize);
+                        instance = new SimpleCache(nativeCacheDir, evictor);
+                        participant.mEvictor = evictor;
+                        participant.mCache = instance;
                         sInstance = instance;
                     }
                 }
@@ -50,6 +60,69 @@ class MoPubCache {
         return instance;
     }
 
+    /**
+     * Passes quota changes on to the cache's evictor, which evicts down to a smaller quota and
+     * lets the cache grow into a larger one.
+     */
+    private static class BudgetParticipant implements DiskBudget.Participant {
+        @Nullable volatile ResizableCacheEvictor mEvictor;
+        @Nullable volatile Cache mCache;
+
+        @NonNull
+        @Override
+        public String getName() {
+            return NATIVE_CACHE_NAME;
+        }
+
+        @Override
+        public long getSizeBytes() {
+            final Cache cache = mCache;
+            return cache == null ? 0 : cache.getCacheSpace();
+        }
+
+        @Override
+        public void setQuotaBytes(final long quotaBytes) {
+            final ResizableCacheEvictor evictor = mEvictor;
+            final Cache cache = mCache;
+            if (evictor != null && cache != null) {
+                evictor.setMaxBytes(cache, quotaBytes);
+            }
+        }
+
+        @Override
+        public long getLeastRecentAccessTime() {
+            final ResizableCacheEvictor evictor = mEvictor;
+            final Cache cache = mCache;
+            if (evictor == null || cache == null) {
+                return -1;
+            }
+            final CacheSpan span = evictor.getLeastRecentlyUsedSpan(cache);
+            return span == null ? -1 : span.lastTouchTimestamp;
+        }
+
+        @Override
+        public long evictLeastRecentlyUsed() {
+            final ResizableCacheEvictor evictor = mEvictor;
+            final Cache cache = mCache;
+            if (evictor == null || cache == null) {
+                return 0;
+            }
+            synchronized (cache) {
+                final CacheSpan span = evictor.getLeastRecentlyUsedSpan(cache);
+                if (span == null) {
+                    return 0;
+                }
+                try {
+                    cache.removeSpan(span);
+                    return span.length;
+                } catch (Exception e) {
+                    MoPubLog.log(CUSTOM, "Unable to evict from the native video cache", e);
+                    return 0;
+                }
+            }
+        }
+    }
+
     @VisibleForTesting
     static void resetInstance() {
         if (sInstance != null) {
@@ -0,0 +1,123 @@
+// Copyright 2018-2020 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.nativeads;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.upstream.cache.Cache;
+import com.google.android.exoplayer2.upstream.cache.CacheEvictor;
+import com.google.android.exoplayer2.upstream.cache.CacheSpan;
+import com.google.android.exoplayer2.upstream.cache.LeastRecentlyUsedCacheEvictor;
+import com.mopub.common.Preconditions;
+import com.mopub.common.logging.MoPubLog;
+
+import java.util.Comparator;
+import java.util.TreeSet;
+
+import static com.mopub.common.logging.MoPubLog.SdkLogEvent.CUSTOM;
+
+/**
+ * Evicts the least recently used spans once the cache is over its maximum size, like
+ * {@link LeastRecentlyUsedCacheEvictor}, except that the maximum can be changed after the cache
+ * has been created.
+ *
+ * SimpleCache holds its own lock while it calls the evictor, so the evictor's state is guarded by
+ * the lock of its cache.
+ */
+class ResizableCacheEvictor implements CacheEvictor, Comparator<CacheSpan> {
+    @NonNull private final TreeSet<CacheSpan> mLeastRecentlyUsed = new TreeSet<>(this);
+    private long mMaxBytes;
+    private long mCurrentBytes;
+
+    ResizableCacheEvictor(final long maxBytes) {
+        mMaxBytes = maxBytes;
+    }
+
+    /**
+     * Changes the maximum size and evicts spans until the cache fits in it.
+     */
+    void setMaxBytes(@NonNull final Cache cache, final long maxBytes) {
+        Preconditions.checkNotNull(cache);
+
+        synchronized (cache) {
+            mMaxBytes = maxBytes;
+            evict(cache, 0);
+        }
+    }
+
+    /**
+     * @return The span that was read or written the longest time ago, or null if there is none.
+     */
+    @Nullable
+    CacheSpan getLeastRecentlyUsedSpan(@NonNull final Cache cache) {
+        Preconditions.checkNotNull(cache);
+
+        synchronized (cache) {
+            return mLeastRecentlyUsed.isEmpty() ? null : mLeastRecentlyUsed.first();
+        }
+    }
+
+    @Override
+    public boolean requiresCacheSpanTouches() {
+        return true;
+    }
+
+    @Override
+    public void onCacheInitialized() {
+    }
+
+    @Override
+    public void onStartFile(final Cache cache, final String key, final long position,
+            final long length) {
+        if (length != C.LENGTH_UNSET) {
+            evict(cache, length);
+        }
+    }
+
+    @Override
+    public void onSpanAdded(final Cache cache, final CacheSpan span) {
+        mLeastRecentlyUsed.add(span);
+        mCurrentBytes += span.length;
+        evict(cache, 0);
+    }
+
+    @Override
+    public void onSpanRemoved(final Cache cache, final CacheSpan span) {
+        mLeastRecentlyUsed.remove(span);
+        mCurrentBytes -= span.length;
+    }
+
+    @Override
+    public void onSpanTouched(final Cache cache, final CacheSpan oldSpan,
+            final CacheSpan newSpan) {
+        onSpanRemoved(cache, oldSpan);
+        onSpanAdded(cache, newSpan);
+    }
+
+    @Override
+    public int compare(final CacheSpan lhs, final CacheSpan rhs) {
+        if (lhs.lastTouchTimestamp == rhs.lastTouchTimestamp) {
+            return lhs.compareTo(rhs);
+        }
+        return lhs.lastTouchTimestamp < rhs.lastTouchTimestamp ? -1 : 1;
+    }
+
+    private void evict(@NonNull final Cache cache, final long requiredBytes) {
+        while (mCurrentBytes + requiredBytes > mMaxBytes && !mLeastRecentlyUsed.isEmpty()) {
+            final CacheSpan span = mLeastRecentlyUsed.first();
+            try {
+                cache.removeSpan(span);
+            } catch (Exception e) {
+                MoPubLog.log(CUSTOM, "Unable to evict from the native video cache", e);
+            }
+            // The cache only reports spans it still knows about, so forget one it didn't remove.
+            if (mLeastRecentlyUsed.remove(span)) {
+                mCurrentBytes -= span.length;
+            }
+        }
+    }
+}
@@ -30,9 +30,9 @@ import com.mopub.common.Preconditions;
 import com.mopub.common.SharedPreferencesHelper;
 import com.mopub.common.VisibleForTesting;
 import com.mopub.common.logging.MoPubLog;
+import com.mopub.common.util.ConstructorRegistry;
 import com.mopub.common.util.Json;
 import com.mopub.common.util.MoPubCollections;
-import com.mopub.common.util.Reflection;
 import com.mopub.common.util.ReflectionTarget;
 import com.mopub.common.util.Utils;
 import com.mopub.network.AdResponse;
@@ -460,8 +460,7 @@ public class MoPubRewardedVideoManager {
         try {
             // Instantiate a custom event
             final CustomEventRewardedAd customEvent =
-                    Reflection.instantiateClassWithEmptyConstructor(
-                            customEventClassName,
+                    ConstructorRegistry.create(customEventClassName,
                             CustomEventRewardedAd.class);
 
             // Put important data into localExtras...
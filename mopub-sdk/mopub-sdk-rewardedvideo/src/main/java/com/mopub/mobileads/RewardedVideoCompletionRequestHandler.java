@@ -15,6 +15,7 @@ import com.mopub.common.MoPub;
 import com.mopub.common.Preconditions;
 import com.mopub.common.VisibleForTesting;
 import com.mopub.common.logging.MoPubLog;
+import com.mopub.network.DurableOutbox;
 import com.mopub.network.Networking;
 import com.mopub.volley.DefaultRetryPolicy;
 import com.mopub.volley.RequestQueue;
@@ -23,7 +24,9 @@ import com.mopub.volley.VolleyError;
 import static com.mopub.common.logging.MoPubLog.SdkLogEvent.CUSTOM;
 
 /**
- * Handles the server-to-server rewarded video completion handshake.
+ * Handles the server-to-server rewarded video completion handshake. Completions are kept in the
+ * {@link DurableOutbox} until the server answers, so they are sent again if the app is killed
+ * first.
  */
 public class RewardedVideoCompletionRequestHandler implements
         RewardedVideoCompletionRequest.RewardedVideoCompletionRequestListener {
@@ -53,6 +56,7 @@ public class RewardedVideoCompletionRequestHandler implements
     @NonNull private final Handler mHandler;
     @NonNull private final RequestQueue mRequestQueue;
     @NonNull private final Context mContext;
+    @NonNull private final DurableOutbox mOutbox;
     private int mRetryCount;
     private volatile boolean mShouldStop;
 
@@ -87,6 +91,7 @@ public class RewardedVideoCompletionRequestHandler implements
         mHandler = handler;
         mRequestQueue = Networking.getRequestQueue(context);
         mContext = context.getApplicationContext();
+        mOutbox = DurableOutbox.getInstance(mContext);
     }
 
     void makeRewardedVideoCompletionRequest() {
@@ -122,6 +127,7 @@ public class RewardedVideoCompletionRequestHandler implements
         // Only consider it a failure if we get a 5xx status code.
         if (response != null && !(response >= 500 && response < 600)) {
             mShouldStop = true;
+            mOutbox.complete(mUrl);
         }
     }
 
@@ -131,6 +137,7 @@ public class RewardedVideoCompletionRequestHandler implements
                 !(volleyError.networkResponse.statusCode >= 500
                         && volleyError.networkResponse.statusCode < 600)) {
             mShouldStop = true;
+            mOutbox.complete(mUrl);
         }
     }
 
@@ -146,9 +153,20 @@ public class RewardedVideoCompletionRequestHandler implements
             return;
         }
 
-        new RewardedVideoCompletionRequestHandler(context, url, customerId, rewardName,
-                rewardAmount, rewardedAd, customData)
-                .makeRewardedVideoCompletionRequest();
+        final RewardedVideoCompletionRequestHandler handler =
+                new RewardedVideoCompletionRequestHandler(context, url, customerId, rewardName,
+                        rewardAmount, rewardedAd, customData);
+        // The completion url is unique to the ad, so it identifies the completion.
+        handler.mOutbox.enqueue(handler.mUrl, handler.mUrl, new DurableOutbox.Listener() {
+            @Override
+            public void onEnqueued(final boolean queued) {
+                if (!queued) {
+                    MoPubLog.log(CUSTOM, "Rewarded video completion was already sent.");
+                    return;
+                }
+                handler.makeRewardedVideoCompletionRequest();
+            }
+        });
     }
 
     static int getTimeout(int retryCount) {
@@ -6,7 +6,6 @@ package com.mopub.common;
 
 import android.app.Activity;
 import android.content.Context;
-import android.content.SharedPreferences;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
@@ -22,14 +21,16 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
-import static com.mopub.common.BaseAdapterConfiguration.CUSTOM_EVENT_PREF_NAME;
+import static com.mopub.common.BaseAdapterConfiguration.INIT_SETTINGS_KEY_PREFIX;
 import static org.fest.assertions.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 
 @RunWith(SdkTestRunner.class)
 public class AdapterConfigurationManagerTest {
+    private static final long SLOW_INITIALIZATION_MILLIS = 300;
 
     private Context context;
     private AdapterConfigurationManager subject;
@@ -99,10 +100,8 @@ public class AdapterConfigurationManagerTest {
         moPubRequestOption.put("key4", "value4");
         moPubRequestOptions.put(ACMTestAdapterConfiguration.class.getName(),
                 moPubRequestOption);
-        final SharedPreferences sharedPreferences = SharedPreferencesHelper.getSharedPreferences(
-                context, CUSTOM_EVENT_PREF_NAME);
-        sharedPreferences.edit().putString(
-                ACMTestAdapterConfiguration.class.getName(),
+        SdkStateStore.getInstance(context).edit().putString(
+                INIT_SETTINGS_KEY_PREFIX + ACMTestAdapterConfiguration.class.getName(),
                 "{\"key1\":\"oldValue\",\"key5\":\"value5\"}").apply();
 
         subject.initialize(context, set, networkMediationConfigurations, moPubRequestOptions);
@@ -118,6 +117,74 @@ public class AdapterConfigurationManagerTest {
         assertThat(actualMoPubRequestOptions.get("key4")).isEqualTo("value4");
     }
 
+    @Test
+    public void initialize_withSlowAdapterConfigurations_shouldInitializeThemInParallel() {
+        final Set<String> set = new HashSet<>();
+        set.add(ACMSlowAdapterConfiguration1.class.getName());
+        set.add(ACMSlowAdapterConfiguration2.class.getName());
+        set.add(ACMSlowAdapterConfiguration3.class.getName());
+        final long startNanos = System.nanoTime();
+
+        subject.initialize(context, set, new HashMap<String, Map<String, String>>(),
+                new HashMap<String, Map<String, String>>());
+
+        // One after another would take 3 * SLOW_INITIALIZATION_MILLIS.
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos))
+                .isLessThan(2 * SLOW_INITIALIZATION_MILLIS);
+        verify(mockInitializationListener).onInitializationFinished();
+        assertThat(subject.getAdapterConfiguration(ACMSlowAdapterConfiguration1.class)).isNotNull();
+        assertThat(subject.getAdapterConfiguration(ACMSlowAdapterConfiguration2.class)).isNotNull();
+        assertThat(subject.getAdapterConfiguration(ACMSlowAdapterConfiguration3.class)).isNotNull();
+    }
+
+    @Test
+    public void initialize_withAdapterConfigurationSlowerThanTimeout_shouldFinishWithoutIt_shouldAddItLater()
+            throws Exception {
+        subject = new AdapterConfigurationManager(mockInitializationListener, 50);
+        final Set<String> set = new HashSet<>();
+        set.add(ACMTestAdapterConfiguration.class.getName());
+        set.add(ACMSlowAdapterConfiguration1.class.getName());
+
+        subject.initialize(context, set, new HashMap<String, Map<String, String>>(),
+                new HashMap<String, Map<String, String>>());
+
+        verify(mockInitializationListener).onInitializationFinished();
+        assertThat(subject.getAdapterConfiguration(ACMTestAdapterConfiguration.class)).isNotNull();
+        assertThat(subject.getAdapterConfiguration(ACMSlowAdapterConfiguration1.class)).isNull();
+        assertThat(subject.getTokensAsJsonString(context)).isEqualTo(
+                "{\"AdapterConfigurationTest\":{\"token\":\"AdapterConfigurationTestToken\"}}");
+
+        final long deadlineNanos = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (subject.getAdapterConfiguration(ACMSlowAdapterConfiguration1.class) == null
+                && System.nanoTime() < deadlineNanos) {
+            Thread.sleep(10);
+        }
+
+        assertThat(subject.getAdapterConfiguration(ACMSlowAdapterConfiguration1.class)).isNotNull();
+        assertThat(subject.getAdapterConfiguration(ACMTestAdapterConfiguration.class)).isNotNull();
+        assertThat(subject.getAdvancedBidderNames()).hasSize(2);
+        assertThat(subject.getTokensAsJsonString(context)).contains("SlowAdapterConfiguration");
+    }
+
+    @Test
+    public void initialize_shouldRecordInitializationTimes() {
+        final Set<String> set = new HashSet<>();
+        set.add(ACMTestAdapterConfiguration.class.getName());
+        set.add(ACMNoTokenAdapterConfiguration.class.getName());
+        set.add("com.mopub.common.NotAnAdapterConfiguration");
+
+        subject.initialize(context, set, new HashMap<String, Map<String, String>>(),
+                new HashMap<String, Map<String, String>>());
+
+        final Map<String, Long> initializationTimesMillis =
+                subject.getAdapterInitializationTimesMillis();
+        assertThat(initializationTimesMillis).hasSize(2);
+        assertThat(initializationTimesMillis.get(ACMTestAdapterConfiguration.class.getName()))
+                .isGreaterThanOrEqualTo(0);
+        assertThat(initializationTimesMillis.get(ACMNoTokenAdapterConfiguration.class.getName()))
+                .isGreaterThanOrEqualTo(0);
+    }
+
     private static class ACMTestAdapterConfiguration extends BaseAdapterConfiguration {
 
         @NonNull
@@ -190,6 +257,55 @@ public class AdapterConfigurationManagerTest {
         }
     }
 
+    private static abstract class ACMSlowAdapterConfiguration extends BaseAdapterConfiguration {
+
+        @NonNull
+        @Override
+        public String getAdapterVersion() {
+            return "adapterVersion";
+        }
+
+        @Nullable
+        @Override
+        public String getBiddingToken(@NonNull final Context context) {
+            return "SlowAdapterConfigurationToken";
+        }
+
+        @NonNull
+        @Override
+        public String getMoPubNetworkName() {
+            return "SlowAdapterConfiguration" + getClass().getSimpleName();
+        }
+
+        @NonNull
+        @Override
+        public String getNetworkSdkVersion() {
+            return "networkVersion";
+        }
+
+        @Override
+        public void initializeNetwork(@NonNull final Context context,
+                @Nullable final Map<String, String> configuration,
+                @NonNull final OnNetworkInitializationFinishedListener listener) {
+            try {
+                Thread.sleep(SLOW_INITIALIZATION_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            listener.onNetworkInitializationFinished(getClass(),
+                    MoPubErrorCode.ADAPTER_INITIALIZATION_SUCCESS);
+        }
+    }
+
+    private static class ACMSlowAdapterConfiguration1 extends ACMSlowAdapterConfiguration {
+    }
+
+    private static class ACMSlowAdapterConfiguration2 extends ACMSlowAdapterConfiguration {
+    }
+
+    private static class ACMSlowAdapterConfiguration3 extends ACMSlowAdapterConfiguration {
+    }
+
     // Creating extra class to prevent Robolectric cache conflict with
     // MoPub.initializeSdk_withCallbackSet_shouldCallCallback
     private abstract class SdkInitializationListenerMockClass implements SdkInitializationListener {
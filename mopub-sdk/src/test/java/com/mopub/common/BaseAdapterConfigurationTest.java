@@ -6,7 +6,6 @@ package com.mopub.common;
 
 import android.app.Activity;
 import android.content.Context;
-import android.content.SharedPreferences;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
@@ -22,12 +21,15 @@ import org.robolectric.Robolectric;
 import java.util.HashMap;
 import java.util.Map;
 
-import static com.mopub.common.BaseAdapterConfiguration.CUSTOM_EVENT_PREF_NAME;
+import static com.mopub.common.BaseAdapterConfiguration.INIT_SETTINGS_KEY_PREFIX;
 import static org.fest.assertions.api.Assertions.assertThat;
 
 @RunWith(SdkTestRunner.class)
 public class BaseAdapterConfigurationTest {
 
+    private static final String INIT_SETTINGS_KEY =
+            INIT_SETTINGS_KEY_PREFIX + TestAdapterConfiguration.class.getName();
+
     private Context context;
     private BaseAdapterConfiguration subject;
 
@@ -40,32 +42,24 @@ public class BaseAdapterConfigurationTest {
 
     @After
     public void tearDown() {
-        final SharedPreferences sharedPreferences = SharedPreferencesHelper.getSharedPreferences(
-                context, CUSTOM_EVENT_PREF_NAME);
-        sharedPreferences.edit().clear().apply();
+        SdkStateStore.getInstance(context).edit().remove(INIT_SETTINGS_KEY).apply();
     }
 
     @Test
-    public void setCachedInitializationParameters_withInitializationParameters_shouldSetSharedPreferences() {
+    public void setCachedInitializationParameters_withInitializationParameters_shouldSetSdkState() {
         final Map<String, String> initializationParameters = new HashMap<>();
         initializationParameters.put("key1", "value1");
         initializationParameters.put("key2", "value2");
 
         subject.setCachedInitializationParameters(context, initializationParameters);
 
-        final SharedPreferences sharedPreferences = SharedPreferencesHelper.getSharedPreferences(
-                context, CUSTOM_EVENT_PREF_NAME);
-        Map<String, ?> sharedPreferencesMap = sharedPreferences.getAll();
-        assertThat(sharedPreferencesMap.size()).isEqualTo(1);
-        assertThat(sharedPreferencesMap.get(TestAdapterConfiguration.class.getName()))
+        assertThat(SdkStateStore.getInstance(context).getString(INIT_SETTINGS_KEY, null))
                 .isEqualTo("{\"key1\":\"value1\",\"key2\":\"value2\"}");
     }
 
     @Test
     public void getCachedInitializationParameters_withInitializationParameters_shouldReturnMapOfInitializationParameters() {
-        final SharedPreferences sharedPreferences = SharedPreferencesHelper.getSharedPreferences(
-                context, CUSTOM_EVENT_PREF_NAME);
-        sharedPreferences.edit().putString(TestAdapterConfiguration.class.getName(),
+        SdkStateStore.getInstance(context).edit().putString(INIT_SETTINGS_KEY,
                 "{\"key1\":\"value1\",\"key2\":\"value2\"}").apply();
 
         final Map<String, String> initializationParameters =
@@ -78,10 +72,8 @@ public class BaseAdapterConfigurationTest {
 
     @Test
     public void getCachedInitializationParameters_withInvalidInitializationParameters_shouldReturnEmptyMap() {
-        final SharedPreferences sharedPreferences = SharedPreferencesHelper.getSharedPreferences(
-                context, CUSTOM_EVENT_PREF_NAME);
         // missing the last curly brace
-        sharedPreferences.edit().putString(TestAdapterConfiguration.class.getName(),
+        SdkStateStore.getInstance(context).edit().putString(INIT_SETTINGS_KEY,
                 "{\"key1\":\"value1\",\"key2\":\"value2\"").apply();
 
         final Map<String, String> initializationParameters =
@@ -0,0 +1,260 @@
+// Copyright 2018-2020 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.common;
+
+import android.app.Activity;
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.mopub.common.test.support.SdkTestRunner;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+@RunWith(SdkTestRunner.class)
+public class BiddingTokenCacheTest {
+    private static final long TTL_MILLIS = 1000;
+
+    private Context context;
+    private List<Runnable> scheduledRefreshes;
+    private BiddingTokenCache subject;
+
+    @Before
+    public void setUp() {
+        context = Robolectric.buildActivity(Activity.class).create().get();
+        scheduledRefreshes = new ArrayList<>();
+        subject = new BiddingTokenCache(new Executor() {
+            @Override
+            public void execute(@NonNull final Runnable runnable) {
+                scheduledRefreshes.add(runnable);
+            }
+        });
+    }
+
+    @Test
+    public void getTokensJson_withNoAdapters_shouldReturnNull() {
+        assertThat(subject.getTokensJson(context)).isNull();
+
+        subject.setAdapterConfigurations(Collections.<AdapterConfiguration>emptyList());
+
+        assertThat(subject.getTokensJson(context)).isNull();
+        assertThat(scheduledRefreshes).isEmpty();
+    }
+
+    @Test
+    public void getTokensJson_withFirstRead_shouldFetchTokensOnCallingThread() {
+        final FakeAdapterConfiguration network1 = new FakeAdapterConfiguration("network1", "a");
+        final FakeAdapterConfiguration network2 = new FakeAdapterConfiguration("network2", null);
+        subject.setAdapterConfigurations(
+                Arrays.<AdapterConfiguration>asList(network1, network2));
+
+        assertThat(subject.getTokensJson(context)).isEqualTo("{\"network1\":{\"token\":\"a\"}}");
+        assertThat(network1.mTokenCount).isEqualTo(1);
+        assertThat(network2.mTokenCount).isEqualTo(1);
+        assertThat(scheduledRefreshes).isEmpty();
+    }
+
+    @Test
+    public void getTokensJson_withinTtl_shouldReturnSnapshotWithoutFetching() {
+        final FakeAdapterConfiguration network1 = new FakeAdapterConfiguration("network1", "a");
+        subject.setAdapterConfigurations(Collections.<AdapterConfiguration>singletonList(network1));
+
+        for (int i = 0; i < 5; i++) {
+            assertThat(subject.getTokensJson(context))
+                    .isEqualTo("{\"network1\":{\"token\":\"a\"}}");
+        }
+
+        assertThat(network1.mTokenCount).isEqualTo(1);
+        assertThat(scheduledRefreshes).isEmpty();
+    }
+
+    @Test
+    public void getTokensJson_afterHalfOfTtl_shouldReturnSnapshotAndRefreshInBackground() {
+        final FakeAdapterConfiguration network1 = new FakeAdapterConfiguration("network1", "a");
+        subject.setAdapterConfigurations(Collections.<AdapterConfiguration>singletonList(network1));
+        subject.getTokensJson(context);
+        network1.mToken = "b";
+        advanceTime(TTL_MILLIS / 2);
+
+        // Still valid, so the request doesn't wait for the adapter.
+        assertThat(subject.getTokensJson(context)).isEqualTo("{\"network1\":{\"token\":\"a\"}}");
+        assertThat(subject.getTokensJson(context)).isEqualTo("{\"network1\":{\"token\":\"a\"}}");
+        assertThat(network1.mTokenCount).isEqualTo(1);
+        assertThat(scheduledRefreshes).hasSize(1);
+
+        scheduledRefreshes.remove(0).run();
+
+        assertThat(network1.mTokenCount).isEqualTo(2);
+        assertThat(subject.getTokensJson(context)).isEqualTo("{\"network1\":{\"token\":\"b\"}}");
+        assertThat(scheduledRefreshes).isEmpty();
+    }
+
+    @Test
+    public void getTokensJson_afterTtl_withoutBackgroundRefresh_shouldFetchOnCallingThread() {
+        final FakeAdapterConfiguration network1 = new FakeAdapterConfiguration("network1", "a");
+        subject.setAdapterConfigurations(Collections.<AdapterConfiguration>singletonList(network1));
+        subject.getTokensJson(context);
+        network1.mToken = "b";
+        advanceTime(TTL_MILLIS / 2);
+        subject.getTokensJson(context);
+        advanceTime(TTL_MILLIS / 2);
+
+        // The scheduled refresh hasn't run, but the expired token is never sent.
+        assertThat(subject.getTokensJson(context)).isEqualTo("{\"network1\":{\"token\":\"b\"}}");
+        assertThat(network1.mTokenCount).isEqualTo(2);
+    }
+
+    @Test
+    public void getTokensJson_withDefaultTtl_shouldFetchForEveryRead() {
+        final FakeAdapterConfiguration network1 = new FakeAdapterConfiguration("network1", "a");
+        network1.mUseDefaultTtl = true;
+        subject.setAdapterConfigurations(Collections.<AdapterConfiguration>singletonList(network1));
+
+        assertThat(subject.getTokensJson(context)).isEqualTo("{\"network1\":{\"token\":\"a\"}}");
+        network1.mToken = "b";
+        assertThat(subject.getTokensJson(context)).isEqualTo("{\"network1\":{\"token\":\"b\"}}");
+
+        assertThat(network1.mTokenCount).isEqualTo(2);
+        assertThat(scheduledRefreshes).isEmpty();
+    }
+
+    @Test
+    public void refresh_shouldOnlyFetchExpiredTokens() {
+        final FakeAdapterConfiguration shortTtl = new FakeAdapterConfiguration("short", "a");
+        final FakeAdapterConfiguration longTtl = new FakeAdapterConfiguration("long", "b");
+        longTtl.mTtlMillis = TTL_MILLIS * 10;
+        subject.setAdapterConfigurations(Arrays.<AdapterConfiguration>asList(shortTtl, longTtl));
+        subject.getTokensJson(context);
+
+        advanceTime(TTL_MILLIS / 2);
+        subject.getTokensJson(context);
+        scheduledRefreshes.remove(0).run();
+
+        assertThat(shortTtl.mTokenCount).isEqualTo(2);
+        assertThat(longTtl.mTokenCount).isEqualTo(1);
+    }
+
+    @Test
+    public void setAdapterConfigurations_duringRefresh_shouldDiscardOldTokens() {
+        final FakeAdapterConfiguration network1 = new FakeAdapterConfiguration("network1", "a");
+        subject.setAdapterConfigurations(Collections.<AdapterConfiguration>singletonList(network1));
+        subject.getTokensJson(context);
+        advanceTime(TTL_MILLIS / 2);
+        subject.getTokensJson(context);
+
+        final FakeAdapterConfiguration network2 = new FakeAdapterConfiguration("network2", "c");
+        subject.setAdapterConfigurations(Collections.<AdapterConfiguration>singletonList(network2));
+        scheduledRefreshes.remove(0).run();
+
+        assertThat(subject.getTokensJson(context)).isEqualTo("{\"network2\":{\"token\":\"c\"}}");
+    }
+
+    @Test
+    public void getTokensJson_withAdapterThrowing_shouldSkipAdapter() {
+        final FakeAdapterConfiguration network1 = new FakeAdapterConfiguration("network1", "a");
+        final FakeAdapterConfiguration network2 = new FakeAdapterConfiguration("network2", "b");
+        network2.mThrow = true;
+        subject.setAdapterConfigurations(
+                Arrays.<AdapterConfiguration>asList(network1, network2));
+
+        assertThat(subject.getTokensJson(context)).isEqualTo("{\"network1\":{\"token\":\"a\"}}");
+    }
+
+    @Test
+    public void getTokenLatencies_shouldRecordTimeToFetchEachToken() {
+        final FakeAdapterConfiguration slow = new FakeAdapterConfiguration("slow", "a");
+        slow.mLatencyMillis = 40;
+        final FakeAdapterConfiguration fast = new FakeAdapterConfiguration("fast", "b");
+        subject.setAdapterConfigurations(Arrays.<AdapterConfiguration>asList(slow, fast));
+        subject.getTokensJson(context);
+
+        slow.mLatencyMillis = 20;
+        advanceTime(TTL_MILLIS / 2);
+        subject.getTokensJson(context);
+        scheduledRefreshes.remove(0).run();
+
+        final Map<String, BiddingTokenCache.TokenLatency> latencies =
+                subject.getTokenLatencies();
+        final BiddingTokenCache.TokenLatency slowLatency = latencies.get("slow");
+        assertThat(slowLatency.mFetchCount).isEqualTo(2);
+        assertThat(slowLatency.mLastMillis).isEqualTo(20);
+        assertThat(slowLatency.mMaxMillis).isEqualTo(40);
+        assertThat(slowLatency.getAverageMillis()).isEqualTo(30);
+        assertThat(latencies.get("fast").mMaxMillis).isEqualTo(0);
+    }
+
+    private static void advanceTime(final long millis) {
+        Robolectric.getForegroundThreadScheduler().advanceBy(millis, TimeUnit.MILLISECONDS);
+    }
+
+    private static class FakeAdapterConfiguration extends BaseAdapterConfiguration {
+        @NonNull private final String mNetworkName;
+        @Nullable String mToken;
+        long mTtlMillis = TTL_MILLIS;
+        boolean mUseDefaultTtl;
+        long mLatencyMillis;
+        boolean mThrow;
+        int mTokenCount;
+
+        FakeAdapterConfiguration(@NonNull final String networkName, @Nullable final String token) {
+            mNetworkName = networkName;
+            mToken = token;
+        }
+
+        @NonNull
+        @Override
+        public String getAdapterVersion() {
+            return "adapterVersion";
+        }
+
+        @Nullable
+        @Override
+        public String getBiddingToken(@NonNull final Context context) {
+            mTokenCount++;
+            advanceTime(mLatencyMillis);
+            if (mThrow) {
+                throw new IllegalStateException("Network not ready");
+            }
+            return mToken;
+        }
+
+        @NonNull
+        @Override
+        public String getMoPubNetworkName() {
+            return mNetworkName;
+        }
+
+        @NonNull
+        @Override
+        public String getNetworkSdkVersion() {
+            return "networkVersion";
+        }
+
+        @Override
+        public long getBiddingTokenTtlMillis() {
+            return mUseDefaultTtl ? super.getBiddingTokenTtlMillis() : mTtlMillis;
+        }
+
+        @Override
+        public void initializeNetwork(@NonNull final Context context,
+                @Nullable final Map<String, String> configuration,
+                @NonNull final OnNetworkInitializationFinishedListener listener) {
+        }
+    }
+}
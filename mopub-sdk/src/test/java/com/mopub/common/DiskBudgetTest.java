@@ -0,0 +1,157 @@
+// Copyright 2018-2020 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.common;
+
+import androidx.annotation.NonNull;
+
+import com.mopub.common.test.support.SdkTestRunner;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.Executor;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+@RunWith(SdkTestRunner.class)
+public class DiskBudgetTest {
+    private static final long MAX_BYTES = 1000;
+
+    private DiskBudget subject;
+    private FakeCache cacheA;
+    private FakeCache cacheB;
+    private List<String> evictions;
+
+    @Before
+    public void setUp() {
+        subject = new DiskBudget(MAX_BYTES, new Executor() {
+            @Override
+            public void execute(@NonNull final Runnable runnable) {
+                runnable.run();
+            }
+        });
+        evictions = new ArrayList<>();
+        cacheA = new FakeCache("a");
+        cacheB = new FakeCache("b");
+    }
+
+    @Test
+    public void register_shouldSplitBudgetEvenly_shouldUpdateEarlierParticipants() {
+        assertThat(subject.register(cacheA)).isEqualTo(MAX_BYTES);
+        assertThat(cacheA.quotaBytes).isEqualTo(MAX_BYTES);
+
+        assertThat(subject.register(cacheB)).isEqualTo(MAX_BYTES / 2);
+
+        assertThat(cacheA.quotaBytes).isEqualTo(MAX_BYTES / 2);
+        assertThat(subject.getQuotaBytes("a")).isEqualTo(MAX_BYTES / 2);
+    }
+
+    @Test
+    public void reserve_shouldBeCapped_shouldShrinkParticipants() {
+        subject.register(cacheA);
+
+        assertThat(subject.reserve("fixed", MAX_BYTES)).isEqualTo(MAX_BYTES / 4);
+
+        assertThat(cacheA.quotaBytes).isEqualTo(MAX_BYTES - MAX_BYTES / 4);
+        assertThat(subject.getQuotaBytes("fixed")).isEqualTo(MAX_BYTES / 4);
+    }
+
+    @Test
+    public void recordLookup_shouldGiveMoreRoomToCacheWithHigherHitRate() {
+        subject.register(cacheA);
+        subject.register(cacheB);
+
+        for (int i = 0; i < DiskBudget.REBALANCE_LOOKUP_COUNT / 2; i++) {
+            subject.recordHit("a");
+            subject.recordMiss("b");
+        }
+
+        assertThat(cacheA.quotaBytes).isGreaterThan(cacheB.quotaBytes);
+        assertThat(cacheB.quotaBytes).isGreaterThanOrEqualTo(
+                (long) (MAX_BYTES * DiskBudget.MIN_SHARE));
+        assertThat(cacheA.quotaBytes + cacheB.quotaBytes).isLessThanOrEqualTo(MAX_BYTES);
+    }
+
+    @Test
+    public void setMaxBytes_shouldEvictLeastRecentlyUsedAcrossCaches() {
+        subject.register(cacheA);
+        subject.register(cacheB);
+        cacheA.put(1, 100);
+        cacheB.put(2, 100);
+        cacheB.put(3, 100);
+        cacheA.put(4, 100);
+
+        subject.setMaxBytes(250);
+
+        assertThat(evictions).containsExactly("a1", "b2");
+        assertThat(subject.getTotalUsageBytes()).isEqualTo(200);
+        assertThat(subject.getEvictionCount()).isEqualTo(2);
+        assertThat(cacheA.quotaBytes + cacheB.quotaBytes).isEqualTo(250);
+    }
+
+    @Test
+    public void getTotalUsageBytes_shouldIncludeReservations() {
+        subject.register(cacheA);
+        cacheA.put(1, 100);
+        subject.reserve("fixed", 50);
+
+        assertThat(subject.getTotalUsageBytes()).isEqualTo(150);
+    }
+
+    /**
+     * Entries are keyed by their last access time.
+     */
+    private class FakeCache implements DiskBudget.Participant {
+        private final String mName;
+        private final TreeMap<Long, Long> mEntries = new TreeMap<>();
+        long quotaBytes;
+
+        FakeCache(final String name) {
+            mName = name;
+        }
+
+        void put(final long accessTime, final long bytes) {
+            mEntries.put(accessTime, bytes);
+        }
+
+        @NonNull
+        @Override
+        public String getName() {
+            return mName;
+        }
+
+        @Override
+        public long getSizeBytes() {
+            long size = 0;
+            for (final long bytes : mEntries.values()) {
+                size += bytes;
+            }
+            return size;
+        }
+
+        @Override
+        public void setQuotaBytes(final long quotaBytes) {
+            this.quotaBytes = quotaBytes;
+        }
+
+        @Override
+        public long getLeastRecentAccessTime() {
+            return mEntries.isEmpty() ? -1 : mEntries.firstKey();
+        }
+
+        @Override
+        public long evictLeastRecentlyUsed() {
+            if (mEntries.isEmpty()) {
+                return 0;
+            }
+            evictions.add(mName + mEntries.firstKey());
+            return mEntries.pollFirstEntry().getValue();
+        }
+    }
+}
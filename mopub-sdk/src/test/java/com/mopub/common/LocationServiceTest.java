@@ -8,6 +8,7 @@ import android.app.Activity;
 import android.content.Context;
 import android.location.Location;
 import android.location.LocationManager;
+import android.os.AsyncTask;
 import android.os.SystemClock;
 
 import com.mopub.common.privacy.PersonalInfoManager;
@@ -23,6 +24,12 @@ import org.robolectric.RuntimeEnvironment;
 import org.robolectric.Shadows;
 import org.robolectric.shadows.ShadowLocationManager;
 
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executor;
+
 import static android.Manifest.permission.ACCESS_COARSE_LOCATION;
 import static android.Manifest.permission.ACCESS_FINE_LOCATION;
 import static org.fest.assertions.api.Assertions.assertThat;
@@ -79,6 +86,7 @@ public class LocationServiceTest {
     @After
     public void tearDown() throws Exception {
         LocationService.clearLastKnownLocation();
+        LocationService.getInstance().mExecutor = AsyncTask.THREAD_POOL_EXECUTOR;
         new Reflection.MethodBuilder(null, "resetMoPub")
                 .setStatic(MoPub.class)
                 .setAccessible()
@@ -339,4 +347,159 @@ public class LocationServiceTest {
         assertThat(gpsLocation.getLongitude()).isEqualTo(98.7654321);
         assertThat(gpsLocation.getAccuracy()).isEqualTo(1000);
     }
+
+    @Test
+    public void truncateCoordinate_shouldMatchBigDecimalRounding() {
+        final Random random = new Random(1);
+        for (int i = 0; i < 100000; i++) {
+            final double coordinate = (random.nextDouble() * 2 - 1) * 180;
+            for (int precision = 0; precision <= 6; precision++) {
+                assertTruncatesLikeBigDecimal(coordinate, precision);
+            }
+        }
+    }
+
+    @Test
+    public void truncateCoordinate_atHalfway_shouldMatchBigDecimalRounding() {
+        final Random random = new Random(2);
+        for (int i = 0; i < 100000; i++) {
+            final int precision = random.nextInt(7);
+            final double powerOfTen = Math.pow(10, precision);
+            final long units = (long) (random.nextDouble() * 180 * powerOfTen);
+            final double halfway = (units + 0.5) / powerOfTen;
+            for (final double coordinate : new double[]{halfway, Math.nextUp(halfway),
+                    Math.nextAfter(halfway, 0), units / powerOfTen, -halfway}) {
+                assertTruncatesLikeBigDecimal(coordinate, precision);
+            }
+        }
+    }
+
+    @Test
+    public void truncateCoordinate_withEdgeValues_shouldMatchBigDecimalRounding() {
+        final double[] coordinates = {0.0, -0.0, -0.001, 0.005, -0.005, 1.005, 1.015, 1.025,
+                2.675, 180, -180, 90, -90, 37.776822, -122.416604, 1e-300, -Double.MIN_VALUE,
+                123456789.123456789};
+        for (final double coordinate : coordinates) {
+            for (int precision = 0; precision <= 20; precision++) {
+                assertTruncatesLikeBigDecimal(coordinate, precision);
+            }
+        }
+    }
+
+    @Test
+    public void truncateCoordinate_withNegativePrecision_shouldNotChangeCoordinate() {
+        assertThat(LocationService.truncateCoordinate(-1.23456789, -1)).isEqualTo(-1.23456789);
+    }
+
+    @Test
+    public void getLocationSnapshot_shouldFormatLocation() {
+        Shadows.shadowOf(activity).grantPermissions(ACCESS_FINE_LOCATION);
+
+        final LocationService.LocationSnapshot snapshot = LocationService.getLocationSnapshot(
+                activity, 10, MoPub.LocationAwareness.NORMAL);
+
+        assertThat(snapshot.getLatLon()).isEqualTo("-1.23456789,98.7654321");
+        assertThat(snapshot.getAccuracy()).isEqualTo("1000");
+    }
+
+    @Test
+    public void getLocationSnapshot_withLocationAwarenessTruncated_shouldTruncateLatLon() {
+        Shadows.shadowOf(activity).grantPermissions(ACCESS_FINE_LOCATION);
+
+        final LocationService.LocationSnapshot snapshot = LocationService.getLocationSnapshot(
+                activity, 2, MoPub.LocationAwareness.TRUNCATED);
+
+        assertThat(snapshot.getLatLon()).isEqualTo("-1.23,98.77");
+        // the provider's location should be unchanged
+        assertThat(gpsLocation.getLatitude()).isEqualTo(-1.23456789);
+    }
+
+    @Test
+    public void getLocationSnapshot_withFreshSnapshot_shouldNotReadProviders() {
+        Shadows.shadowOf(activity).grantPermissions(ACCESS_FINE_LOCATION);
+        final LocationService.LocationSnapshot snapshot = LocationService.getLocationSnapshot(
+                activity, 10, MoPub.LocationAwareness.NORMAL);
+        shadowLocationManager.setLastKnownLocation(LocationManager.GPS_PROVIDER, cachedLocation);
+
+        final LocationService.LocationSnapshot result = LocationService.getLocationSnapshot(
+                activity, 10, MoPub.LocationAwareness.NORMAL);
+
+        assertThat(result).isSameAs(snapshot);
+    }
+
+    @Test
+    public void getLocationSnapshot_withStaleSnapshot_shouldReturnItAndRefreshInBackground() {
+        Shadows.shadowOf(activity).grantPermissions(ACCESS_FINE_LOCATION);
+        final List<Runnable> refreshes = new ArrayList<>();
+        final LocationService locationService = LocationService.getInstance();
+        locationService.mExecutor = new Executor() {
+            @Override
+            public void execute(final Runnable runnable) {
+                refreshes.add(runnable);
+            }
+        };
+        final LocationService.LocationSnapshot staleSnapshot = new LocationService.LocationSnapshot(
+                cachedLocation, 10, MoPub.LocationAwareness.NORMAL,
+                SystemClock.elapsedRealtime() - MoPub.getMinimumLocationRefreshTimeMillis() * 2);
+        locationService.mLocationSnapshot = staleSnapshot;
+
+        final LocationService.LocationSnapshot result = LocationService.getLocationSnapshot(
+                activity, 10, MoPub.LocationAwareness.NORMAL);
+        LocationService.getLocationSnapshot(activity, 10, MoPub.LocationAwareness.NORMAL);
+
+        assertThat(result).isSameAs(staleSnapshot);
+        assertThat(refreshes).hasSize(1);
+
+        refreshes.get(0).run();
+
+        assertThat(locationService.mLocationSnapshot.getLatLon())
+                .isEqualTo("-1.23456789,98.7654321");
+    }
+
+    @Test
+    public void getLocationSnapshot_withDifferentPrecision_shouldMakeNewSnapshot() {
+        Shadows.shadowOf(activity).grantPermissions(ACCESS_FINE_LOCATION);
+        LocationService.getLocationSnapshot(activity, 2, MoPub.LocationAwareness.TRUNCATED);
+
+        final LocationService.LocationSnapshot result = LocationService.getLocationSnapshot(
+                activity, 4, MoPub.LocationAwareness.TRUNCATED);
+
+        assertThat(result.getLatLon()).isEqualTo("-1.2346,98.7654");
+    }
+
+    @Test
+    public void getLocationSnapshot_withNoLocationPermissions_shouldReturnNull() {
+        assertThat(LocationService.getLocationSnapshot(activity, 10,
+                MoPub.LocationAwareness.NORMAL)).isNull();
+    }
+
+    @Test
+    public void getLocationSnapshot_withLocationAwarenessDisabled_shouldReturnNull() {
+        Shadows.shadowOf(activity).grantPermissions(ACCESS_COARSE_LOCATION, ACCESS_FINE_LOCATION);
+
+        assertThat(LocationService.getLocationSnapshot(activity, 10,
+                MoPub.LocationAwareness.DISABLED)).isNull();
+    }
+
+    @Test
+    public void getLocationSnapshot_withoutConsent_shouldReturnNull() {
+        Shadows.shadowOf(activity).grantPermissions(ACCESS_COARSE_LOCATION, ACCESS_FINE_LOCATION);
+        when(mockPersonalInfoManager.canCollectPersonalInformation()).thenReturn(false);
+
+        assertThat(LocationService.getLocationSnapshot(activity, 10,
+                MoPub.LocationAwareness.NORMAL)).isNull();
+    }
+
+    private static void assertTruncatesLikeBigDecimal(final double coordinate,
+            final int precision) {
+        final double expected = BigDecimal.valueOf(coordinate)
+                .setScale(precision, BigDecimal.ROUND_HALF_DOWN)
+                .doubleValue();
+        final double result = LocationService.truncateCoordinate(coordinate, precision);
+
+        assertThat(Double.doubleToLongBits(result))
+                .as(coordinate + " to " + precision + " places gave " + result
+                        + " instead of " + expected)
+                .isEqualTo(Double.doubleToLongBits(expected));
+    }
 }
@@ -0,0 +1,225 @@
+// Copyright 2018-2020 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.common;
+
+import android.app.Activity;
+import android.content.SharedPreferences;
+
+import androidx.annotation.NonNull;
+
+import com.mopub.common.test.support.SdkTestRunner;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+@RunWith(SdkTestRunner.class)
+public class SdkStateStoreTest {
+    private static final int CONSENT_KEY_COUNT = 22;
+
+    private Activity activity;
+    private File file;
+    private QueuedExecutor executor;
+    private SdkStateStore subject;
+
+    @Before
+    public void setUp() {
+        activity = Robolectric.buildActivity(Activity.class).create().get();
+        file = new File(activity.getFilesDir(), SdkStateStore.FILE_NAME);
+        executor = new QueuedExecutor();
+
+        subject = new SdkStateStore(activity, file, executor);
+    }
+
+    @Test
+    public void getReadyFuture_shouldCompleteOnceLoaded() throws Exception {
+        assertThat(subject.getReadyFuture().isDone()).isFalse();
+        assertThat(subject.isReady()).isFalse();
+
+        executor.runAll();
+
+        assertThat(subject.getReadyFuture().get()).isSameAs(subject);
+        assertThat(subject.isReady()).isTrue();
+        assertThat(subject.getLoadTimeMillis()).isGreaterThanOrEqualTo(0);
+    }
+
+    @Test
+    public void apply_shouldUpdateSnapshotRightAway_shouldSurviveRestart() {
+        executor.runAll();
+
+        subject.edit()
+                .putString("string", "value")
+                .putBoolean("boolean", true)
+                .putLong("long", 5000000000L)
+                .apply();
+
+        assertThat(subject.getString("string", null)).isEqualTo("value");
+        executor.runAll();
+
+        final SdkStateStore restarted = restart();
+        assertThat(restarted.getString("string", null)).isEqualTo("value");
+        assertThat(restarted.getBoolean("boolean", false)).isTrue();
+        assertThat(restarted.getLong("long", 0)).isEqualTo(5000000000L);
+    }
+
+    @Test
+    public void apply_withNullOrRemove_shouldRemoveKey() {
+        executor.runAll();
+        subject.edit().putString("a", "1").putString("b", "2").apply();
+
+        subject.edit().putString("a", null).remove("b").apply();
+        executor.runAll();
+
+        assertThat(subject.getString("a", "default")).isEqualTo("default");
+        assertThat(restart().getString("b", "default")).isEqualTo("default");
+    }
+
+    @Test
+    public void apply_whileWritePending_shouldShareOneWrite() {
+        executor.runAll();
+
+        for (int i = 0; i < 10; i++) {
+            subject.edit().putLong("count", i).apply();
+        }
+        executor.runAll();
+
+        assertThat(subject.getApplyCount()).isEqualTo(10);
+        assertThat(subject.getWriteCount()).isEqualTo(1);
+        assertThat(restart().getLong("count", -1)).isEqualTo(9);
+    }
+
+    @Test
+    public void load_withLegacyPreferences_shouldTakeThemOver_shouldKeepThem() {
+        final SharedPreferences privacy = SharedPreferencesHelper.getSharedPreferences(
+                activity, "com.mopub.privacy");
+        privacy.edit()
+                .putString("info/consent_status", "EXPLICIT_YES")
+                .putBoolean("info/is_whitelisted", true)
+                .commit();
+        final SharedPreferences identifier = SharedPreferencesHelper.getSharedPreferences(
+                activity, "com.mopub.settings.identifier");
+        identifier.edit()
+                .putString("privacy.identifier.ifa", "ifa")
+                .putLong("privacy.identifier.time", 5000000000L)
+                .commit();
+
+        executor.runAll();
+
+        assertThat(subject.getString("info/consent_status", null)).isEqualTo("EXPLICIT_YES");
+        assertThat(subject.getBoolean("info/is_whitelisted", false)).isTrue();
+        assertThat(subject.getString("privacy.identifier.ifa", null)).isEqualTo("ifa");
+        assertThat(subject.getLong("privacy.identifier.time", 0)).isEqualTo(5000000000L);
+        assertThat(file.exists()).isTrue();
+        // Left for an SDK that is rolled back to before the store.
+        assertThat(privacy.getString("info/consent_status", null)).isEqualTo("EXPLICIT_YES");
+        assertThat(identifier.getString("privacy.identifier.ifa", null)).isEqualTo("ifa");
+    }
+
+    @Test
+    public void load_withLegacyAdapterSettings_shouldPrefixKeys() {
+        SharedPreferencesHelper.getSharedPreferences(activity,
+                BaseAdapterConfiguration.CUSTOM_EVENT_PREF_NAME)
+                .edit().putString("com.example.AdapterConfiguration", "{}").commit();
+
+        executor.runAll();
+
+        assertThat(subject.getString(BaseAdapterConfiguration.INIT_SETTINGS_KEY_PREFIX
+                + "com.example.AdapterConfiguration", null)).isEqualTo("{}");
+        assertThat(subject.getString("com.example.AdapterConfiguration", null)).isNull();
+    }
+
+    @Test
+    public void load_withDefaultPreferences_shouldOnlyTakeOverConversionKeys() {
+        final String packageName = activity.getPackageName();
+        final SharedPreferences preferences =
+                SharedPreferencesHelper.getSharedPreferences(activity);
+        preferences.edit()
+                .putBoolean(packageName + " wantToTrack", true)
+                .putBoolean(packageName + " tracked", true)
+                .putString("adId", "other setting")
+                .commit();
+
+        executor.runAll();
+
+        assertThat(subject.getBoolean(packageName + " wantToTrack", false)).isTrue();
+        assertThat(subject.getBoolean(packageName + " tracked", false)).isTrue();
+        assertThat(subject.getString("adId", null)).isNull();
+        assertThat(preferences.getString("adId", null)).isEqualTo("other setting");
+    }
+
+    @Test
+    public void load_withNoLegacyPreferences_shouldNotWriteFile() {
+        executor.runAll();
+
+        assertThat(file.exists()).isFalse();
+        assertThat(subject.getWriteCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void load_withExistingFile_shouldIgnoreLegacyPreferences() {
+        executor.runAll();
+        subject.edit().putString("info/consent_status", "EXPLICIT_NO").apply();
+        executor.runAll();
+        SharedPreferencesHelper.getSharedPreferences(activity, "com.mopub.privacy")
+                .edit().putString("info/consent_status", "EXPLICIT_YES").commit();
+
+        assertThat(restart().getString("info/consent_status", null)).isEqualTo("EXPLICIT_NO");
+    }
+
+    @Test
+    public void apply_withConsentChanges_shouldWriteOnceAndReadBackLastChange() {
+        executor.runAll();
+
+        // PersonalInfoData.writeToDisk edits every key of the consent state in one batch.
+        for (int change = 0; change < 5; change++) {
+            final SdkStateStore.Editor editor = subject.edit();
+            for (int i = 0; i < CONSENT_KEY_COUNT; i++) {
+                editor.putString("info/key" + i, "value" + change);
+            }
+            editor.apply();
+        }
+        executor.runAll();
+
+        assertThat(subject.getApplyCount()).isEqualTo(5);
+        assertThat(subject.getWriteCount()).isEqualTo(1);
+        final SdkStateStore restarted = restart();
+        assertThat(restarted.getLoadTimeMillis()).isGreaterThanOrEqualTo(0);
+        for (int i = 0; i < CONSENT_KEY_COUNT; i++) {
+            assertThat(restarted.getString("info/key" + i, null)).isEqualTo("value4");
+        }
+    }
+
+    private SdkStateStore restart() {
+        final SdkStateStore restarted = new SdkStateStore(activity, file, executor);
+        executor.runAll();
+        return restarted;
+    }
+
+    /**
+     * Runs the store's background work only when the test asks for it.
+     */
+    private static class QueuedExecutor implements Executor {
+        private final List<Runnable> mRunnables = new ArrayList<>();
+
+        @Override
+        public void execute(@NonNull final Runnable runnable) {
+            mRunnables.add(runnable);
+        }
+
+        void runAll() {
+            while (!mRunnables.isEmpty()) {
+                mRunnables.remove(0).run();
+            }
+        }
+    }
+}
@@ -0,0 +1,106 @@
+// Copyright 2018-2020 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.common;
+
+import androidx.annotation.NonNull;
+
+import com.mopub.common.test.support.SdkTestRunner;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+@RunWith(SdkTestRunner.class)
+public class StartupTraceTest {
+    private List<StartupTrace.Span> finishedSpans;
+
+    @Before
+    public void setUp() {
+        StartupTrace.clear();
+        finishedSpans = new ArrayList<>();
+        StartupTrace.setListener(new StartupTrace.Listener() {
+            @Override
+            public void onSpanFinished(@NonNull final StartupTrace.Span span) {
+                finishedSpans.add(span);
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        StartupTrace.setListener(null);
+        StartupTrace.clear();
+    }
+
+    @Test
+    public void end_shouldRecordDurationAndThread() {
+        final StartupTrace.Span span = StartupTrace.begin("phase");
+        Robolectric.getForegroundThreadScheduler().advanceBy(25, TimeUnit.MILLISECONDS);
+
+        assertThat(span.getDurationNanos()).isEqualTo(-1);
+
+        span.end();
+
+        assertThat(span.getName()).isEqualTo("phase");
+        assertThat(span.getDurationNanos()).isEqualTo(TimeUnit.MILLISECONDS.toNanos(25));
+        assertThat(span.getEndNanos() - span.getStartNanos()).isEqualTo(span.getDurationNanos());
+        assertThat(span.getThreadId()).isEqualTo(Thread.currentThread().getId());
+        assertThat(span.getThreadName()).isEqualTo(Thread.currentThread().getName());
+        assertThat(StartupTrace.getSpans()).containsExactly(span);
+        assertThat(finishedSpans).containsExactly(span);
+    }
+
+    @Test
+    public void end_calledTwice_shouldOnlyRecordSpanOnce() {
+        final StartupTrace.Span span = StartupTrace.begin("phase");
+
+        span.end();
+        Robolectric.getForegroundThreadScheduler().advanceBy(25, TimeUnit.MILLISECONDS);
+        span.end();
+
+        assertThat(span.getDurationNanos()).isEqualTo(0);
+        assertThat(StartupTrace.getSpans()).hasSize(1);
+        assertThat(finishedSpans).hasSize(1);
+    }
+
+    @Test
+    public void end_onAnotherThread_shouldKeepThreadThatStartedSpan() throws Exception {
+        final StartupTrace.Span[] span = new StartupTrace.Span[1];
+        final Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                span[0] = StartupTrace.begin("background");
+            }
+        }, "StartupTraceTest");
+        thread.start();
+        thread.join();
+
+        span[0].end();
+
+        assertThat(span[0].getThreadName()).isEqualTo("StartupTraceTest");
+        assertThat(span[0].getThreadId()).isEqualTo(thread.getId());
+    }
+
+    @Test
+    public void getSpans_shouldKeepFirstMaxSpans() {
+        for (int i = 0; i < StartupTrace.MAX_SPANS + 10; i++) {
+            StartupTrace.begin("span" + i).end();
+        }
+
+        final List<StartupTrace.Span> spans = StartupTrace.getSpans();
+        assertThat(spans).hasSize(StartupTrace.MAX_SPANS);
+        assertThat(spans.get(0).getName()).isEqualTo("span0");
+        // The listener still hears about every span.
+        assertThat(finishedSpans).hasSize(StartupTrace.MAX_SPANS + 10);
+    }
+}
@@ -0,0 +1,159 @@
+// Copyright 2018-2020 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.common.metrics;
+
+import androidx.annotation.NonNull;
+
+import com.mopub.common.test.support.SdkTestRunner;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+@RunWith(SdkTestRunner.class)
+public class MetricsTest {
+    private static final int THREAD_COUNT = 4;
+    private static final int INCREMENTS_PER_THREAD = 10000;
+
+    private Map<String, Long> exportedCounters;
+    private Map<String, Histogram.Snapshot> exportedHistograms;
+    private MetricsExporter exporter;
+
+    @Before
+    public void setUp() {
+        Metrics.reset();
+        exporter = new MetricsExporter() {
+            @Override
+            public void export(@NonNull final Map<String, Long> counters,
+                    @NonNull final Map<String, Histogram.Snapshot> histograms) {
+                exportedCounters = counters;
+                exportedHistograms = histograms;
+            }
+        };
+    }
+
+    @After
+    public void tearDown() {
+        Metrics.reset();
+    }
+
+    @Test
+    public void counter_withoutExporter_shouldNotCount() {
+        final Counter counter = Metrics.counter("test.counter");
+
+        counter.increment();
+
+        assertThat(Metrics.isEnabled()).isFalse();
+        assertThat(counter.sum()).isEqualTo(0);
+    }
+
+    @Test
+    public void counter_shouldReturnSameCounterForName() {
+        assertThat(Metrics.counter("test.counter")).isSameAs(Metrics.counter("test.counter"));
+    }
+
+    @Test
+    public void export_shouldSendCountersAndHistograms() {
+        Metrics.setExporter(exporter, 60000);
+        Metrics.counter("test.counter").add(3);
+        Metrics.histogram("test.latency").record(42);
+
+        Metrics.export();
+
+        assertThat(exportedCounters.get("test.counter")).isEqualTo(3);
+        final Histogram.Snapshot snapshot = exportedHistograms.get("test.latency");
+        assertThat(snapshot.getCount()).isEqualTo(1);
+        assertThat(snapshot.getSum()).isEqualTo(42);
+    }
+
+    @Test
+    public void setExporter_withNull_shouldStopCounting() {
+        Metrics.setExporter(exporter, 60000);
+        final Counter counter = Metrics.counter("test.counter");
+        counter.increment();
+
+        Metrics.setExporter(null, 0);
+        counter.increment();
+
+        assertThat(counter.sum()).isEqualTo(1);
+    }
+
+    @Test
+    public void histogram_shouldCountValuesIntoBuckets() {
+        Metrics.setExporter(exporter, 60000);
+        final Histogram histogram = Metrics.histogram("test.buckets", new long[]{10, 100});
+
+        histogram.record(5);
+        histogram.record(10);
+        histogram.record(50);
+        histogram.record(500);
+
+        final Histogram.Snapshot snapshot = histogram.snapshot();
+        assertThat(snapshot.getCounts()).isEqualTo(new long[]{2, 1, 1});
+        assertThat(snapshot.getCount()).isEqualTo(4);
+        assertThat(snapshot.getSum()).isEqualTo(565);
+        assertThat(snapshot.getPercentile(50)).isEqualTo(10);
+        assertThat(snapshot.getPercentile(75)).isEqualTo(100);
+        assertThat(snapshot.getPercentile(100)).isEqualTo(Long.MAX_VALUE);
+    }
+
+    @Test
+    public void counter_withConcurrentIncrements_shouldCountEveryIncrement() throws Exception {
+        Metrics.setExporter(exporter, 60000);
+        final Counter counter = Metrics.counter("test.concurrent");
+        final CountDownLatch start = new CountDownLatch(1);
+        final Thread[] threads = new Thread[THREAD_COUNT];
+        for (int i = 0; i < THREAD_COUNT; i++) {
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int j = 0; j < INCREMENTS_PER_THREAD; j++) {
+                        counter.increment();
+                    }
+                }
+            });
+            threads[i].start();
+        }
+
+        start.countDown();
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+
+        assertThat(counter.sum()).isEqualTo(THREAD_COUNT * INCREMENTS_PER_THREAD);
+    }
+
+    @Test
+    public void recordMicrosSince_withoutExporter_shouldNotRecord() {
+        final Histogram histogram = Metrics.histogram("test.timer");
+
+        final long startNanos = Metrics.startTimer();
+        Metrics.recordMicrosSince(histogram, startNanos);
+
+        assertThat(startNanos).isEqualTo(0);
+        assertThat(histogram.snapshot().getCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void recordMicrosSince_withExporter_shouldRecord() {
+        Metrics.setExporter(exporter, 60000);
+        final Histogram histogram = Metrics.histogram("test.timer");
+
+        Metrics.recordMicrosSince(histogram, Metrics.startTimer());
+
+        assertThat(histogram.snapshot().getCount()).isEqualTo(1);
+    }
+}
@@ -13,14 +13,17 @@ import com.mopub.common.MoPub;
 import com.mopub.common.test.support.SdkTestRunner;
 import com.mopub.network.MoPubRequestQueue;
 import com.mopub.network.MoPubRequestQueueTest;
+import com.mopub.nativeads.NativeUrlGeneratorTest;
 import com.mopub.network.Networking;
 import com.mopub.volley.Request;
+import com.mopub.volley.VolleyError;
 
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.powermock.api.mockito.PowerMockito;
 import org.powermock.core.classloader.annotations.PowerMockIgnore;
 import org.powermock.core.classloader.annotations.PrepareForTest;
@@ -30,6 +33,7 @@ import org.robolectric.Robolectric;
 import static org.fest.assertions.api.Assertions.assertThat;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
@@ -637,6 +641,105 @@ public class PersonalInfoManagerTest {
         verify(mockRequestQueue).add(any(SyncRequest.class));
     }
 
+    @Test
+    public void requestSync_withSyncInFlight_shouldSendOneSyncAfterItFinishes() {
+        personalInfoData.setGdprApplies(true);
+
+        subject.requestSync(true);
+        subject.requestSync(true);
+        subject.requestSync(true);
+
+        verify(mockRequestQueue).add(any(SyncRequest.class));
+
+        getSyncRequestListener(0).onErrorResponse(new VolleyError());
+
+        verify(mockRequestQueue, times(2)).add(any(SyncRequest.class));
+    }
+
+    @Test
+    public void requestSync_withForce_withConsentStateUnchangedSinceLastSync_shouldNotSync() {
+        personalInfoData.setGdprApplies(true);
+        subject.requestSync(true);
+        getSyncRequestListener(0).onSuccess(createSyncResponse());
+
+        subject.requestSync(true);
+
+        verify(mockRequestQueue).add(any(SyncRequest.class));
+    }
+
+    @Test
+    public void requestSync_withForce_withConsentStateChangedSinceLastSync_shouldSyncWithoutHash() {
+        personalInfoData.setGdprApplies(true);
+        subject.requestSync(true);
+        getSyncRequestListener(0).onSuccess(createSyncResponse());
+        personalInfoData.setConsentChangeReason("changed");
+
+        subject.requestSync(true);
+
+        verify(mockRequestQueue, times(2)).add(any(SyncRequest.class));
+        assertThat(NativeUrlGeneratorTest.getParameterFromRequestUrl(getSyncUrl(1),
+                "consent_state_hash")).isEmpty();
+    }
+
+    @Test
+    public void requestSync_withConsentStateUnchangedSinceLastSync_shouldSendConsentStateHash() {
+        personalInfoData.setGdprApplies(true);
+        subject.requestSync(true);
+        getSyncRequestListener(0).onSuccess(createSyncResponse());
+
+        subject.requestSync();
+
+        assertThat(NativeUrlGeneratorTest.getParameterFromRequestUrl(getSyncUrl(0),
+                "consent_state_hash")).isEmpty();
+        assertThat(NativeUrlGeneratorTest.getParameterFromRequestUrl(getSyncUrl(1),
+                "consent_state_hash")).isEqualTo(subject.getConsentStateHash());
+    }
+
+    @Test
+    public void requestSync_withForce_withConsentStateChangedWhileSyncInFlight_shouldSync() {
+        personalInfoData.setGdprApplies(true);
+        subject.requestSync(true);
+        personalInfoData.setConsentChangeReason("changed");
+        getSyncRequestListener(0).onSuccess(createSyncResponse());
+
+        subject.requestSync(true);
+
+        verify(mockRequestQueue, times(2)).add(any(SyncRequest.class));
+        assertThat(NativeUrlGeneratorTest.getParameterFromRequestUrl(getSyncUrl(1),
+                "consent_state_hash")).isEmpty();
+    }
+
+    @Test
+    public void syncRequestListener_onSuccess_withPendingSync_shouldSendItEvenIfUnchanged() {
+        personalInfoData.setGdprApplies(true);
+        subject.requestSync(true);
+        subject.requestSync(true);
+
+        getSyncRequestListener(0).onSuccess(createSyncResponse());
+
+        verify(mockRequestQueue, times(2)).add(any(SyncRequest.class));
+    }
+
+    @Test
+    public void syncRequestListener_onNotModified_shouldFinishSync() {
+        personalInfoData.setGdprApplies(true);
+        personalInfoData.setUdid("udid");
+        subject.requestSync(true);
+
+        getSyncRequestListener(0).onNotModified();
+
+        assertThat(personalInfoData.getUdid()).isNull();
+
+        subject.requestSync(true);
+
+        // The server has this state, so the forced sync is not sent.
+        verify(mockRequestQueue).add(any(SyncRequest.class));
+
+        subject.requestSync();
+
+        verify(mockRequestQueue, times(2)).add(any(SyncRequest.class));
+    }
+
     @Test
     public void serverOverrideListener_onForceExplicitNo_withNullMessage_shouldChangeStatusToNo() {
         personalInfoData.setGdprApplies(true);
@@ -948,4 +1051,28 @@ public class PersonalInfoManagerTest {
                 ConsentStatus.EXPLICIT_NO, false);
         assertThat(personalInfoData.getLastChangedMs()).isNotEqualTo("old_time");
     }
+
+    private SyncRequest.Listener getSyncRequestListener(final int index) {
+        final ArgumentCaptor<Request> captor = ArgumentCaptor.forClass(Request.class);
+        verify(mockRequestQueue, times(index + 1)).add(captor.capture());
+        return (SyncRequest.Listener) captor.getAllValues().get(index).getErrorListener();
+    }
+
+    private String getSyncUrl(final int index) {
+        final ArgumentCaptor<Request> captor = ArgumentCaptor.forClass(Request.class);
+        verify(mockRequestQueue, times(index + 1)).add(captor.capture());
+        return ((SyncRequest) captor.getAllValues().get(index)).getOriginalUrl();
+    }
+
+    private static SyncResponse createSyncResponse() {
+        return new SyncResponse.Builder()
+                .setIsGdprRegion("1")
+                .setIsWhitelisted("0")
+                .setCurrentVendorListVersion("1")
+                .setCurrentVendorListLink("vendor_list_link")
+                .setCurrentPrivacyPolicyVersion("1")
+                .setCurrentPrivacyPolicyLink("privacy_policy_link")
+                .setCurrentVendorListIabHash("iab_hash")
+                .build();
+    }
 }
@@ -0,0 +1,147 @@
+// Copyright 2018-2020 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.common.privacy;
+
+import android.app.Activity;
+
+import com.mopub.common.test.support.SdkTestRunner;
+import com.mopub.network.MoPubNetworkError;
+import com.mopub.network.RequestQueueHttpStack;
+import com.mopub.volley.NetworkResponse;
+import com.mopub.volley.Response;
+import com.mopub.volley.toolbox.BasicNetwork;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.robolectric.Robolectric;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.nio.charset.Charset;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@RunWith(SdkTestRunner.class)
+public class SyncRequestTest {
+    private static final String BODY = "{is_gdpr_region:'1', is_whitelisted:'0'," +
+            "current_vendor_list_version:'1', current_vendor_list_link:'vendor_list_link'," +
+            "current_privacy_policy_version:'1'," +
+            "current_privacy_policy_link:'privacy_policy_link'," +
+            "current_vendor_list_iab_hash:'iab_hash'}";
+
+    @Mock
+    private SyncRequest.Listener listener;
+
+    private Activity activity;
+    private HttpServer server;
+    private SyncRequest subject;
+
+    @Before
+    public void setUp() throws Exception {
+        activity = Robolectric.buildActivity(Activity.class).create().get();
+
+        // Stands in for a sync server that has nothing new for a client that sent its hash.
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/m/gdpr_sync", new HttpHandler() {
+            @Override
+            public void handle(final HttpExchange exchange) throws IOException {
+                final boolean hasHash = exchange.getRequestURI().getQuery() != null
+                        && exchange.getRequestURI().getQuery().contains("consent_state_hash=");
+                if (hasHash) {
+                    exchange.sendResponseHeaders(HttpURLConnection.HTTP_NOT_MODIFIED, -1);
+                } else {
+                    final byte[] body = BODY.getBytes(Charset.forName("UTF-8"));
+                    exchange.sendResponseHeaders(HttpURLConnection.HTTP_OK, body.length);
+                    exchange.getResponseBody().write(body);
+                }
+                exchange.close();
+            }
+        });
+        server.start();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void parseNetworkResponse_withValidBody_shouldReturnSyncResponse() throws Exception {
+        subject = new SyncRequest(activity, getSyncUrl(""), listener);
+
+        final NetworkResponse networkResponse = performRequest();
+        final Response<SyncResponse> response = subject.parseNetworkResponse(networkResponse);
+
+        assertThat(networkResponse.notModified).isFalse();
+        assertThat(response.result.isGdprRegion()).isTrue();
+        assertThat(response.result.getCurrentVendorListIabHash()).isEqualTo("iab_hash");
+    }
+
+    @Test
+    public void parseNetworkResponse_withNotModified_shouldSucceedWithNullResponse()
+            throws Exception {
+        subject = new SyncRequest(activity, getSyncUrl("&consent_state_hash=hash"), listener);
+
+        final NetworkResponse networkResponse = performRequest();
+        final Response<SyncResponse> response = subject.parseNetworkResponse(networkResponse);
+
+        assertThat(networkResponse.notModified).isTrue();
+        assertThat(response.isSuccess()).isTrue();
+        assertThat(response.result).isNull();
+    }
+
+    @Test
+    public void parseNetworkResponse_withBrokenJsonBody_shouldReturnErrorBadBody() {
+        subject = new SyncRequest(activity, getSyncUrl(""), listener);
+
+        final Response<SyncResponse> response = subject.parseNetworkResponse(
+                new NetworkResponse("{ k: 1 }".getBytes(Charset.defaultCharset())));
+
+        assertThat(response.error).isInstanceOf(MoPubNetworkError.class);
+        assertThat(((MoPubNetworkError) response.error).getReason())
+                .isEqualTo(MoPubNetworkError.Reason.BAD_BODY);
+    }
+
+    @Test
+    public void deliverResponse_withNullResponse_shouldCallOnNotModified() {
+        subject = new SyncRequest(activity, getSyncUrl(""), listener);
+
+        subject.deliverResponse(null);
+
+        verify(listener).onNotModified();
+        verify(listener, never()).onSuccess(any(SyncResponse.class));
+    }
+
+    @Test
+    public void deliverResponse_withResponse_shouldCallOnSuccess() throws Exception {
+        subject = new SyncRequest(activity, getSyncUrl(""), listener);
+        final SyncResponse syncResponse = subject.parseNetworkResponse(performRequest()).result;
+
+        subject.deliverResponse(syncResponse);
+
+        verify(listener).onSuccess(syncResponse);
+        verify(listener, never()).onNotModified();
+    }
+
+    private String getSyncUrl(final String extraParams) {
+        return "http://127.0.0.1:" + server.getAddress().getPort() +
+                "/m/gdpr_sync?current_consent_status=unknown" + extraParams;
+    }
+
+    private NetworkResponse performRequest() throws Exception {
+        return new BasicNetwork(new RequestQueueHttpStack("SyncRequestTest"))
+                .performRequest(subject);
+    }
+}
@@ -88,6 +88,7 @@ public class SyncUrlGeneratorTest {
         subject.withConsentedPrivacyPolicyVersion(CONSENTED_PRIVACY_POLICY_VERSION);
         subject.withCachedVendorListIabHash(IAB_HASH);
         subject.withExtras(EXTRAS);
+        subject.withConsentStateHash("consent_state_hash");
 
         final String url = subject.generateUrlString("hostname");
 
@@ -119,6 +120,8 @@ public class SyncUrlGeneratorTest {
                 "cached_vendor_list_iab_hash")).isEqualTo(IAB_HASH);
         assertThat(NativeUrlGeneratorTest.getParameterFromRequestUrl(url,
                 "extras")).isEqualTo(EXTRAS);
+        assertThat(NativeUrlGeneratorTest.getParameterFromRequestUrl(url,
+                "consent_state_hash")).isEqualTo("consent_state_hash");
         assertThat(NativeUrlGeneratorTest.getParameterFromRequestUrl(url,
                 "dnt")).isEqualTo(PlayServicesUrlRewriter.DO_NOT_TRACK_TEMPLATE);
         assertThat(NativeUrlGeneratorTest.getParameterFromRequestUrl(url,
@@ -0,0 +1,156 @@
+// Copyright 2018-2020 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.common.util;
+
+import androidx.annotation.NonNull;
+
+import com.mopub.common.test.support.SdkTestRunner;
+import com.mopub.mobileads.CustomEventBanner;
+import com.mopub.mobileads.HtmlBanner;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+@RunWith(SdkTestRunner.class)
+public class ConstructorRegistryTest {
+    private static final String HTML_BANNER = "com.mopub.mobileads.HtmlBanner";
+
+    @Before
+    public void setUp() {
+        ConstructorRegistry.clear();
+    }
+
+    @After
+    public void tearDown() {
+        ConstructorRegistry.clear();
+    }
+
+    @Test
+    public void create_shouldResolveClassOnceAndReturnNewInstances() throws Exception {
+        assertThat(ConstructorRegistry.isResolved(HTML_BANNER)).isFalse();
+
+        final CustomEventBanner first = ConstructorRegistry.create(HTML_BANNER,
+                CustomEventBanner.class);
+        final CustomEventBanner second = ConstructorRegistry.create(HTML_BANNER,
+                CustomEventBanner.class);
+
+        assertThat(first).isInstanceOf(HtmlBanner.class);
+        assertThat(second).isInstanceOf(HtmlBanner.class);
+        assertThat(first).isNotSameAs(second);
+        assertThat(ConstructorRegistry.isResolved(HTML_BANNER)).isTrue();
+    }
+
+    @Test
+    public void create_withPrivateConstructor_shouldCreateInstance() throws Exception {
+        assertThat(ConstructorRegistry.create(PrivateConstructor.class.getName(), Object.class))
+                .isInstanceOf(PrivateConstructor.class);
+    }
+
+    @Test(expected = ClassNotFoundException.class)
+    public void create_withUnknownClass_shouldThrowClassNotFoundException() throws Exception {
+        ConstructorRegistry.create("com.mopub.mobileads.NotACustomEvent", Object.class);
+    }
+
+    @Test(expected = ClassCastException.class)
+    public void create_withWrongSuperclass_shouldThrowClassCastException() throws Exception {
+        ConstructorRegistry.create(HTML_BANNER, String.class);
+    }
+
+    @Test
+    public void create_withWrongSuperclass_shouldNotRunConstructor() throws Exception {
+        CountingConstructor.sCount = 0;
+
+        try {
+            ConstructorRegistry.create(CountingConstructor.class.getName(),
+                    CustomEventBanner.class);
+            fail("Expected ClassCastException");
+        } catch (ClassCastException e) {
+            // expected
+        }
+
+        assertThat(CountingConstructor.sCount).isEqualTo(0);
+        assertThat(ConstructorRegistry.create(CountingConstructor.class.getName(), Object.class))
+                .isInstanceOf(CountingConstructor.class);
+        assertThat(CountingConstructor.sCount).isEqualTo(1);
+    }
+
+    @Test
+    public void create_withUnknownClass_shouldRememberFailure() throws Exception {
+        final Exception first = createExpectingException("com.mopub.mobileads.NotACustomEvent");
+        final Exception second = createExpectingException("com.mopub.mobileads.NotACustomEvent");
+
+        assertThat(first).isInstanceOf(ClassNotFoundException.class);
+        // The same failure is thrown again rather than looking the class up again.
+        assertThat(second).isSameAs(first);
+        assertThat(ConstructorRegistry.isResolved("com.mopub.mobileads.NotACustomEvent"))
+                .isFalse();
+    }
+
+    @Test
+    public void create_withoutEmptyConstructor_shouldThrowNoSuchMethodException()
+            throws Exception {
+        assertThat(createExpectingException(NoEmptyConstructor.class.getName()))
+                .isInstanceOf(NoSuchMethodException.class);
+    }
+
+    @Test
+    public void create_withRegisteredFactory_shouldUseFactory() throws Exception {
+        final Object instance = new Object();
+        ConstructorRegistry.register("com.example.NotOnClassPath",
+                new ConstructorRegistry.Factory() {
+                    @NonNull
+                    @Override
+                    public Object create() {
+                        return instance;
+                    }
+                });
+
+        assertThat(ConstructorRegistry.create("com.example.NotOnClassPath", Object.class))
+                .isSameAs(instance);
+    }
+
+    @Test
+    public void preload_shouldResolveClassesThatExist_shouldSkipOthers() {
+        ConstructorRegistry.preload(Arrays.asList(HTML_BANNER, "com.example.NotOnClassPath"));
+
+        assertThat(ConstructorRegistry.isResolved(HTML_BANNER)).isTrue();
+        assertThat(ConstructorRegistry.isResolved("com.example.NotOnClassPath")).isFalse();
+    }
+
+    private static Exception createExpectingException(@NonNull final String className) {
+        try {
+            ConstructorRegistry.create(className, Object.class);
+        } catch (Exception e) {
+            return e;
+        }
+        fail("Expected an exception");
+        return null;
+    }
+
+    private static class CountingConstructor {
+        static int sCount;
+
+        CountingConstructor() {
+            sCount++;
+        }
+    }
+
+    private static class NoEmptyConstructor {
+        NoEmptyConstructor(final String value) {
+        }
+    }
+
+    private static class PrivateConstructor {
+        private PrivateConstructor() {
+        }
+    }
+}
@@ -14,6 +14,7 @@ import org.robolectric.Robolectric;
 import org.robolectric.RobolectricTestRunner;
 
 import java.math.BigDecimal;
+import java.lang.reflect.Method;
 import java.math.BigInteger;
 
 import static com.mopub.common.util.Reflection.MethodBuilder;
@@ -166,6 +167,91 @@ public class ReflectionTest {
         assertThat(result).isEqualTo(-1);
     }
 
+    @Test
+    public void execute_calledTwice_shouldReuseMethod() throws Exception {
+        methodBuilder = new MethodBuilder(string, "concat").addParam(String.class, "s");
+
+        assertThat(methodBuilder.execute()).isEqualTo("goats");
+        assertThat(methodBuilder.execute()).isEqualTo("goats");
+    }
+
+    @Test
+    public void getCachedMethodWithTraversal_shouldReturnSameMethodForSameKey() throws Exception {
+        final Method first = Reflection.getCachedMethodWithTraversal(String.class, "concat",
+                false, String.class);
+        final Method second = Reflection.getCachedMethodWithTraversal(String.class, "concat",
+                false, new Class<?>[]{String.class});
+
+        assertThat(first).isSameAs(second);
+    }
+
+    @Test
+    public void getCachedMethodWithTraversal_shouldFindInheritedMethod() throws Exception {
+        final Method method = Reflection.getCachedMethodWithTraversal(BigInteger.class,
+                "intValue", false);
+
+        assertThat(method.getDeclaringClass()).isEqualTo(BigInteger.class);
+        assertThat(Reflection.getCachedMethodWithTraversal(BigInteger.class, "hashCode", false)
+                .getDeclaringClass()).isEqualTo(BigInteger.class);
+        assertThat(Reflection.getCachedMethodWithTraversal(View.class, "wait", false)
+                .getDeclaringClass()).isEqualTo(Object.class);
+    }
+
+    @Test
+    public void getCachedMethodWithTraversal_withMissingMethod_shouldThrowEveryTime()
+            throws Exception {
+        for (int i = 0; i < 2; i++) {
+            try {
+                Reflection.getCachedMethodWithTraversal(String.class, "noSuchMethod", false);
+                fail("Should fail because method did not exist");
+            } catch (NoSuchMethodException e) {
+                // pass
+            }
+        }
+    }
+
+    @Test
+    public void bind_withInstanceMethod_shouldInvokeWithNewParameters() throws Exception {
+        final Reflection.Invoker invoker = new MethodBuilder(string, "concat")
+                .addParam(String.class, null)
+                .bind();
+
+        assertThat(invoker.invoke("s")).isEqualTo("goats");
+        assertThat(invoker.invoke("herd")).isEqualTo("goatherd");
+    }
+
+    @Test
+    public void bind_withStaticMethod_shouldInvoke() throws Exception {
+        final Reflection.Invoker invoker = new MethodBuilder(null, "valueOf")
+                .setStatic(String.class)
+                .addParam(int.class, 0)
+                .bind();
+
+        assertThat(invoker.invoke(20)).isEqualTo("20");
+    }
+
+    @Test(expected = NoSuchMethodException.class)
+    public void bind_withNoSuchMethod_shouldThrowException() throws Exception {
+        new MethodBuilder(string, "noSuchMethod").bind();
+    }
+
+    @Test
+    public void execute_withAccessible_shouldNotMakeSharedMethodAccessible() throws Exception {
+        final Method method = Reflection.getCachedMethodWithTraversal(String.class, "concat",
+                false, String.class);
+
+        new MethodBuilder(string, "concat")
+                .addParam(String.class, "s")
+                .setAccessible()
+                .execute();
+
+        assertThat(method.isAccessible()).isFalse();
+        assertThat(Reflection.getCachedMethodWithTraversal(String.class, "concat", false,
+                String.class)).isSameAs(method);
+        assertThat(Reflection.getCachedMethodWithTraversal(String.class, "concat", true,
+                String.class).isAccessible()).isTrue();
+    }
+
     @Test
     public void instantiateClassWithConstructor_withCorrectParameters_shouldInstiantiateObject() throws Exception {
         Class[] classes = {int.class};
@@ -7,37 +7,47 @@ package com.mopub.mobileads;
 import android.content.Context;
 import android.content.Intent;
 import android.graphics.Bitmap;
+import android.graphics.Canvas;
 import android.net.Uri;
+import android.util.Base64;
 import android.view.View;
-import android.widget.TextView;
 
 import com.mopub.common.AdReport;
 import com.mopub.common.test.support.SdkTestRunner;
 import com.mopub.common.util.test.support.TestDateAndTime;
 
 import org.junit.Before;
-import org.junit.Ignore;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.robolectric.RuntimeEnvironment;
 import org.robolectric.shadows.ShadowApplication;
 
+import java.io.File;
+import java.nio.file.Files;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.Executor;
 
 import static org.fest.assertions.api.Assertions.assertThat;
-import static org.mockito.Mockito.mock;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
 import static org.mockito.Mockito.never;
-import static org.mockito.Mockito.reset;
 import static org.mockito.Mockito.when;
 import static org.mockito.Mockito.verify;
 
 @RunWith(SdkTestRunner.class)
 public class AdAlertReporterTest {
     private final static String EMAIL_ADDRESS = "creative-review@mopub.com";
+    private final static Executor SYNCHRONOUS_EXECUTOR = new Executor() {
+        @Override
+        public void execute(final Runnable runnable) {
+            runnable.run();
+        }
+    };
     private AdAlertReporter subject;
     @Mock
     private AdReport mockAdReport;
@@ -46,28 +56,27 @@ public class AdAlertReporterTest {
     @Mock
     private View mockView;
     private Intent emailIntent;
-    private Bitmap bitmap;
     private ArrayList<Uri> emailAttachments;
     private Date now;
 
     @Before
     public void setup() {
-        bitmap = Bitmap.createBitmap(10, 10, Bitmap.Config.ARGB_8888);
-
         when(mockView.getRootView()).thenReturn(mockView);
-        when(mockView.getDrawingCache()).thenReturn(bitmap);
 
         now = new Date();
         TestDateAndTime.getInstance().setNow(now);
     }
 
     @Test
-    public void constructor_shouldCreateSendToIntentWithEmailAddress() throws Exception {
+    public void constructor_shouldCreateSendIntentWithEmailAddress_shouldOnlyOfferEmailApps() throws Exception {
         subject = new AdAlertReporter(mockContext, mockView, mockAdReport);
         emailIntent = subject.getEmailIntent();
 
-        assertThat(emailIntent.getAction()).isEqualTo(Intent.ACTION_SENDTO);
-        assertThat(emailIntent.getData()).isEqualTo(Uri.parse("mailto:creative-review@mopub.com"));
+        assertThat(emailIntent.getAction()).isEqualTo(Intent.ACTION_SEND);
+        assertThat(emailIntent.getStringArrayExtra(Intent.EXTRA_EMAIL))
+                .isEqualTo(new String[]{EMAIL_ADDRESS});
+        assertThat(emailIntent.getSelector().getAction()).isEqualTo(Intent.ACTION_SENDTO);
+        assertThat(emailIntent.getSelector().getData()).isEqualTo(Uri.parse("mailto:"));
     }
 
     @Test
@@ -90,15 +99,15 @@ public class AdAlertReporterTest {
     }
 
     @Test
-    public void constructor_shouldCreateIntentWithImageStringAndParametersAndResponseInBody() throws Exception {
-        TextView textView = mock(TextView.class);
-        Bitmap sampleBitmap = Bitmap.createBitmap(10, 10, Bitmap.Config.ALPHA_8);
-        when(textView.getDrawingCache()).thenReturn(sampleBitmap);
-        when(mockView.getRootView()).thenReturn(textView);
+    public void constructor_shouldCreateIntentWithParametersAndResponseInBody_shouldSaveScreenShot() throws Exception {
+        final View rootView = new View(RuntimeEnvironment.application);
+        rootView.layout(0, 0, 10, 10);
+        when(mockView.getRootView()).thenReturn(rootView);
 
         when(mockAdReport.toString()).thenReturn("Ad Report data - this is a long list of newlined params.");
         when(mockAdReport.getResponseString()).thenReturn("Test ad string.");
-        subject = new AdAlertReporter(mockContext, mockView, mockAdReport);
+        subject = new AdAlertReporter(RuntimeEnvironment.application, mockView, mockAdReport,
+                SYNCHRONOUS_EXECUTOR);
 
         emailIntent = subject.getEmailIntent();
         String emailSubject = emailIntent.getStringExtra(Intent.EXTRA_TEXT);
@@ -106,14 +115,56 @@ public class AdAlertReporterTest {
         String message = bodyParts[0];
         String parameters = bodyParts[1];
         String response = bodyParts[2];
-        String imageString = bodyParts[3];
 
-        assertThat(bodyParts.length).isEqualTo(4);
-        //this string is the JPEG encoded version
+        assertThat(bodyParts.length).isEqualTo(3);
         assertThat(message).isEqualTo(AdAlertReporter.MESSAGE);
         assertThat(parameters).isEqualTo(subject.getParameters());
         assertThat(response).isEqualTo(subject.getResponse());
-        assertThat(imageString).isEqualTo("/9j/4AAQSkZJRgABAgAAAQABAAD/2wBDACAWGBwYFCAcGhwkIiAmMFA0MCwsMGJGSjpQdGZ6eHJm\n" +
+        final byte[] screenShot = Files.readAllBytes(
+                AdAlertReporter.getScreenShotFile(RuntimeEnvironment.application).toPath());
+        // The start of a JPEG
+        assertThat(screenShot[0]).isEqualTo((byte) 0xFF);
+        assertThat(screenShot[1]).isEqualTo((byte) 0xD8);
+    }
+
+    @Test
+    public void constructor_withExecutorNotRun_shouldNotAddBodyUntilScreenshotIsEncoded() throws Exception {
+        final View rootView = new View(RuntimeEnvironment.application);
+        rootView.layout(0, 0, 10, 10);
+        when(mockView.getRootView()).thenReturn(rootView);
+        final List<Runnable> runnables = new ArrayList<Runnable>();
+
+        subject = new AdAlertReporter(RuntimeEnvironment.application, mockView, mockAdReport,
+                new Executor() {
+                    @Override
+                    public void execute(final Runnable runnable) {
+                        runnables.add(runnable);
+                    }
+                });
+        subject.send();
+
+        assertThat(subject.getEmailIntent().getStringExtra(Intent.EXTRA_TEXT)).isNull();
+        assertThat(ShadowApplication.getInstance().getNextStartedActivity()).isNull();
+
+        assertThat(runnables).hasSize(1);
+        runnables.get(0).run();
+
+        assertThat(subject.getEmailIntent().getStringExtra(Intent.EXTRA_TEXT))
+                .startsWith(AdAlertReporter.MESSAGE);
+        Intent intent = ShadowApplication.getInstance().getNextStartedActivity();
+        assertThat(intent.getAction()).isEqualTo(Intent.ACTION_SEND);
+    }
+
+    @Test
+    public void writeJpeg_shouldWriteJpegToFile() throws Exception {
+        Bitmap sampleBitmap = Bitmap.createBitmap(10, 10, Bitmap.Config.ALPHA_8);
+        final File file = new File(RuntimeEnvironment.application.getCacheDir(), "test.jpg");
+
+        assertThat(AdAlertReporter.writeJpeg(sampleBitmap, file)).isTrue();
+
+        //this string is the Base64 encoded JPEG
+        final byte[] expectedJpeg = Base64.decode(
+                "/9j/4AAQSkZJRgABAgAAAQABAAD/2wBDACAWGBwYFCAcGhwkIiAmMFA0MCwsMGJGSjpQdGZ6eHJm\n" +
                 "cG6AkLicgIiuim5woNqirr7EztDOfJri8uDI8LjKzsb/2wBDASIkJDAqMF40NF7GhHCExsbGxsbG\n" +
                 "xsbGxsbGxsbGxsbGxsbGxsbGxsbGxsbGxsbGxsbGxsbGxsbGxsbGxsbGxsb/wAARCAAKAAoDASIA\n" +
                 "AhEBAxEB/8QAHwAAAQUBAQEBAQEAAAAAAAAAAAECAwQFBgcICQoL/8QAtRAAAgEDAwIEAwUFBAQA\n" +
@@ -124,7 +175,29 @@ public class AdAlertReporterTest {
                 "BhJBUQdhcRMiMoEIFEKRobHBCSMzUvAVYnLRChYkNOEl8RcYGRomJygpKjU2Nzg5OkNERUZHSElK\n" +
                 "U1RVVldYWVpjZGVmZ2hpanN0dXZ3eHl6goOEhYaHiImKkpOUlZaXmJmaoqOkpaanqKmqsrO0tba3\n" +
                 "uLm6wsPExcbHyMnK0tPU1dbX2Nna4uPk5ebn6Onq8vP09fb3+Pn6/9oADAMBAAIRAxEAPwDn6KKK\n" +
-                "AP/Z\n");
+                "AP/Z\n", Base64.DEFAULT);
+        assertThat(Files.readAllBytes(file.toPath())).isEqualTo(expectedJpeg);
+    }
+
+    @Test
+    public void attachScreenShot_shouldAddStreamAndGrantReadPermission() throws Exception {
+        final Uri uri = Uri.parse("content://com.mopub.mobileads.mopub.fileprovider/screenshot.jpg");
+        subject = new AdAlertReporter(mockContext, mockView, mockAdReport);
+
+        subject.attachScreenShot(uri);
+
+        emailIntent = subject.getEmailIntent();
+        assertThat((Uri) emailIntent.getParcelableExtra(Intent.EXTRA_STREAM)).isEqualTo(uri);
+        assertThat(emailIntent.getFlags() & Intent.FLAG_GRANT_READ_URI_PERMISSION)
+                .isNotEqualTo(0);
+    }
+
+    @Test
+    public void getScreenShotScale_shouldFitLongestSideInMaxDimension() throws Exception {
+        assertThat(AdAlertReporter.getScreenShotScale(2000, 1000) * 2000).isEqualTo(1024f);
+        assertThat(AdAlertReporter.getScreenShotScale(2000, 1000) * 1000).isEqualTo(512f);
+        assertThat(AdAlertReporter.getScreenShotScale(500, 1024)).isEqualTo(1f);
+        assertThat(AdAlertReporter.getScreenShotScale(10, 10)).isEqualTo(1f);
     }
 
     @Test
@@ -154,32 +227,20 @@ public class AdAlertReporterTest {
         subject.send();
 
         Intent intent = ShadowApplication.getInstance().getNextStartedActivity();
-        assertThat(intent.getAction()).isEqualTo(Intent.ACTION_SENDTO);
+        assertThat(intent.getAction()).isEqualTo(Intent.ACTION_SEND);
         assertThat(intent.getFlags() & Intent.FLAG_ACTIVITY_NEW_TASK).isNotEqualTo(0);
     }
 
-    @Ignore("pending")
-    @Test
-    public void getScreenshot_whenIsDrawingCacheEnabled_shouldKeepDrawingCacheEnabled() throws Exception {
-        reset(mockView);
-        when(mockView.getRootView()).thenReturn(mockView);
-        when(mockView.isDrawingCacheEnabled()).thenReturn(true);
-
-        subject = new AdAlertReporter(mockContext, mockView, mockAdReport);
-
-        verify(mockView, never()).setDrawingCacheEnabled(false);
-    }
-
-    @Ignore("pending")
     @Test
-    public void getScreenshot_whenIsDrawingCacheDisabled_shouldKeepDrawingCacheDisabled() throws Exception {
-        reset(mockView);
-        when(mockView.getRootView()).thenReturn(mockView);
-        when(mockView.isDrawingCacheEnabled()).thenReturn(false);
+    public void getScreenshot_shouldNotUseDrawingCache() throws Exception {
+        when(mockView.getWidth()).thenReturn(10);
+        when(mockView.getHeight()).thenReturn(10);
 
-        subject = new AdAlertReporter(mockContext, mockView, mockAdReport);
+        subject = new AdAlertReporter(mockContext, mockView, mockAdReport, SYNCHRONOUS_EXECUTOR);
 
-        verify(mockView).setDrawingCacheEnabled(false);
+        verify(mockView, never()).setDrawingCacheEnabled(anyBoolean());
+        verify(mockView, never()).getDrawingCache();
+        verify(mockView).draw(any(Canvas.class));
     }
 
     @Test
@@ -199,11 +260,14 @@ public class AdAlertReporterTest {
     }
 
     @Test
-    public void getScreenshot_whenRootViewDrawingCacheIsNull_shouldPass() throws Exception {
-        when(mockView.getDrawingCache()).thenReturn(null);
+    public void getScreenshot_whenRootViewHasNoSize_shouldAddBodyWithoutScreenshot() throws Exception {
+        when(mockView.getWidth()).thenReturn(0);
 
         subject = new AdAlertReporter(mockContext, mockView, mockAdReport);
 
-        // pass
+        assertThat(subject.getEmailIntent().getStringExtra(Intent.EXTRA_TEXT))
+                .startsWith(AdAlertReporter.MESSAGE);
+        assertThat(subject.getEmailIntent().hasExtra(Intent.EXTRA_STREAM)).isFalse();
+        verify(mockView, never()).draw(any(Canvas.class));
     }
 }
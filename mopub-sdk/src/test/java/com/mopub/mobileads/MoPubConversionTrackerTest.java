@@ -5,20 +5,23 @@
 package com.mopub.mobileads;
 
 import android.app.Activity;
-import android.content.SharedPreferences;
+
+import androidx.annotation.NonNull;
 
 import com.mopub.common.MoPub;
-import com.mopub.common.SharedPreferencesHelper;
+import com.mopub.common.SdkStateStore;
 import com.mopub.common.privacy.ConsentData;
 import com.mopub.common.privacy.ConsentStatus;
 import com.mopub.common.privacy.PersonalInfoManager;
 import com.mopub.common.test.support.SdkTestRunner;
 import com.mopub.common.util.Reflection;
+import com.mopub.network.DurableOutbox;
 import com.mopub.network.MoPubRequestQueue;
 import com.mopub.network.Networking;
 import com.mopub.network.TrackingRequest;
 import com.mopub.volley.VolleyError;
 
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -27,6 +30,8 @@ import org.mockito.Captor;
 import org.mockito.Mock;
 import org.robolectric.Robolectric;
 
+import java.util.concurrent.Executor;
+
 import static org.fest.assertions.api.Assertions.assertThat;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
@@ -46,14 +51,21 @@ public class MoPubConversionTrackerTest {
 
     private static final String TEST_UDID = "20b013c721c";
     private PersonalInfoManager mockPersonalInfoManager;
-    private SharedPreferences mSharedPreferences;
     private String mPackageName;
     private String mWantToTrack;
+    private Executor directExecutor;
 
     @Before
     public void setUp() throws Exception {
         context = Robolectric.buildActivity(Activity.class).create().get();
         Networking.setRequestQueueForTesting(mockRequestQueue);
+        directExecutor = new Executor() {
+            @Override
+            public void execute(@NonNull final Runnable runnable) {
+                runnable.run();
+            }
+        };
+        DurableOutbox.setExecutorForTesting(directExecutor);
 
         mockPersonalInfoManager = mock(PersonalInfoManager.class);
         final ConsentData mockConsentData = mock(ConsentData.class);
@@ -65,6 +77,12 @@ public class MoPubConversionTrackerTest {
         subject = new MoPubConversionTracker(context);
     }
 
+    @After
+    public void tearDown() {
+        DurableOutbox.setExecutorForTesting(null);
+        Networking.setRequestQueueForTesting(null);
+    }
+
     @Test
     public void reportAppOpen_Twice_shouldCallOnlyOnce() throws Exception {
         when(mockPersonalInfoManager.canCollectPersonalInformation()).thenReturn(true);
@@ -82,6 +100,42 @@ public class MoPubConversionTrackerTest {
         verify(mockRequestQueue, never()).add(any(TrackingRequest.class));
     }
 
+    @Test
+    public void reportAppOpen_withConversionPendingFromEarlierSession_shouldNotSendAgain() throws Exception {
+        when(mockPersonalInfoManager.canCollectPersonalInformation()).thenReturn(true);
+        when(mockPersonalInfoManager.getPersonalInfoConsentStatus()).thenReturn(ConsentStatus.EXPLICIT_YES);
+        prepareMoPub_getPersonalInfoManager();
+        subject.reportAppOpen(false);
+        verify(mockRequestQueue).add(any(TrackingRequest.class));
+
+        // The app is killed before the server answers, so the outbox sends it on the next start.
+        reset(mockRequestQueue);
+        DurableOutbox.setExecutorForTesting(directExecutor);
+        assertThat(DurableOutbox.getInstance(context).isPending(DurableOutbox.CONVERSION_ID))
+                .isTrue();
+        subject = new MoPubConversionTracker(context);
+
+        subject.reportAppOpen(false);
+
+        verify(mockRequestQueue, never()).add(any(TrackingRequest.class));
+    }
+
+    @Test
+    public void reportAppOpen_withConversionCompletedByOutbox_shouldNotSendAgain() throws Exception {
+        when(mockPersonalInfoManager.canCollectPersonalInformation()).thenReturn(true);
+        when(mockPersonalInfoManager.getPersonalInfoConsentStatus()).thenReturn(ConsentStatus.EXPLICIT_YES);
+        prepareMoPub_getPersonalInfoManager();
+        final DurableOutbox outbox = DurableOutbox.getInstance(context);
+        outbox.enqueue(DurableOutbox.CONVERSION_ID, "url", mock(DurableOutbox.Listener.class));
+        outbox.complete(DurableOutbox.CONVERSION_ID);
+
+        subject.reportAppOpen(false);
+
+        verify(mockRequestQueue, never()).add(any(TrackingRequest.class));
+        assertThat(SdkStateStore.getInstance(context)
+                .getBoolean(context.getPackageName() + " tracked", false)).isTrue();
+    }
+
     @Test
     public void reportAppOpen_fails_shouldCallAgain() throws Exception {
         when(mockPersonalInfoManager.canCollectPersonalInformation()).thenReturn(true);
@@ -107,8 +161,7 @@ public class MoPubConversionTrackerTest {
         subject.reportAppOpen(false);
         mPackageName = context.getPackageName();
         mWantToTrack = mPackageName + " wantToTrack";
-        mSharedPreferences = SharedPreferencesHelper.getSharedPreferences(context);
-        assertThat(mSharedPreferences.getBoolean(mWantToTrack, false)).isTrue();
+        assertThat(SdkStateStore.getInstance(context).getBoolean(mWantToTrack, false)).isTrue();
     }
 
     @Test
@@ -126,8 +179,7 @@ public class MoPubConversionTrackerTest {
 
         mPackageName = context.getPackageName();
         mWantToTrack = mPackageName + " wantToTrack";
-        mSharedPreferences = SharedPreferencesHelper.getSharedPreferences(context);
-        mSharedPreferences
+        SdkStateStore.getInstance(context)
                 .edit()
                 .putBoolean(mWantToTrack, true)
                 .apply();
@@ -9,19 +9,25 @@ import android.content.Context;
 import android.net.Uri;
 import android.os.Handler;
 
+import androidx.annotation.NonNull;
+
 import com.mopub.common.MoPub;
 import com.mopub.common.test.support.SdkTestRunner;
+import com.mopub.network.DurableOutbox;
 import com.mopub.network.MoPubRequestQueue;
 import com.mopub.network.Networking;
 import com.mopub.volley.NetworkResponse;
 import com.mopub.volley.VolleyError;
 
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.robolectric.Robolectric;
 
+import java.util.concurrent.Executor;
+
 import static com.mopub.common.VolleyRequestMatcher.isUrl;
 import static org.fest.assertions.api.Assertions.assertThat;
 import static org.mockito.Matchers.any;
@@ -53,6 +59,17 @@ public class RewardedVideoCompletionRequestHandlerTest {
         className = "com.mopub.mobileads.MoPubRewardedVideo";
         customData = "custom data";
         Networking.setRequestQueueForTesting(mockRequestQueue);
+        DurableOutbox.setExecutorForTesting(new Executor() {
+            @Override
+            public void execute(@NonNull final Runnable runnable) {
+                runnable.run();
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        DurableOutbox.setExecutorForTesting(null);
     }
 
     @Test
@@ -0,0 +1,146 @@
+// Copyright 2018-2020 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.nativeads;
+
+import com.mopub.common.test.support.SdkTestRunner;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+@RunWith(SdkTestRunner.class)
+public class ItemUpdateBatcherTest {
+    @Mock ItemUpdateBatcher.Listener mockListener;
+
+    private ItemUpdateBatcher subject;
+
+    @Before
+    public void setUp() {
+        subject = new ItemUpdateBatcher(mockListener);
+    }
+
+    @Test
+    public void itemInserted_outsideOfBatch_shouldNotifyImmediately() {
+        subject.itemInserted(3);
+        verify(mockListener).onItemRangeInserted(3, 1);
+
+        subject.itemRemoved(5);
+        verify(mockListener).onItemRangeRemoved(5, 1);
+
+        assertThat(subject.getPendingUpdateCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void itemInserted_withAdjacentPositions_shouldMergeIntoOneRange() {
+        subject.beginBatch();
+        subject.itemInserted(3);
+        subject.itemInserted(4);
+        subject.itemInserted(5);
+        subject.itemInserted(3);
+
+        verifyZeroInteractions(mockListener);
+        assertThat(subject.getPendingUpdateCount()).isEqualTo(1);
+
+        subject.endBatch();
+
+        verify(mockListener).onItemRangeInserted(3, 4);
+        verifyNoMoreInteractions(mockListener);
+    }
+
+    @Test
+    public void itemInserted_withSeparatePositions_shouldNotifyEachRangeInOrder() {
+        subject.beginBatch();
+        subject.itemInserted(3);
+        subject.itemInserted(10);
+        subject.itemInserted(11);
+        subject.endBatch();
+
+        final InOrder inOrder = inOrder(mockListener);
+        inOrder.verify(mockListener).onItemRangeInserted(3, 1);
+        inOrder.verify(mockListener).onItemRangeInserted(10, 2);
+        verifyNoMoreInteractions(mockListener);
+    }
+
+    @Test
+    public void itemRemoved_withClumpedPositions_shouldMergeIntoOneRange() {
+        subject.beginBatch();
+        // Removing clumped ads from the back, then from the front.
+        subject.itemRemoved(7);
+        subject.itemRemoved(6);
+        subject.itemRemoved(5);
+        subject.itemRemoved(5);
+        subject.endBatch();
+
+        verify(mockListener).onItemRangeRemoved(5, 4);
+        verifyNoMoreInteractions(mockListener);
+    }
+
+    @Test
+    public void itemRemoved_withItemInsertedInBatch_shouldCancelOut() {
+        subject.beginBatch();
+        subject.itemInserted(3);
+        subject.itemInserted(4);
+        subject.itemRemoved(3);
+        subject.endBatch();
+
+        verify(mockListener).onItemRangeInserted(3, 1);
+        verifyNoMoreInteractions(mockListener);
+
+        subject.beginBatch();
+        subject.itemInserted(8);
+        subject.itemRemoved(8);
+        subject.endBatch();
+
+        verifyNoMoreInteractions(mockListener);
+    }
+
+    @Test
+    public void endBatch_withNestedBatches_shouldOnlyNotifyAtOutermostEnd() {
+        subject.beginBatch();
+        subject.beginBatch();
+        subject.itemInserted(1);
+        subject.endBatch();
+
+        verifyZeroInteractions(mockListener);
+
+        subject.itemInserted(2);
+        subject.endBatch();
+
+        verify(mockListener).onItemRangeInserted(1, 2);
+        verifyNoMoreInteractions(mockListener);
+    }
+
+    @Test
+    public void endBatch_withoutBeginBatch_shouldDoNothing() {
+        subject.endBatch();
+        subject.itemInserted(1);
+
+        verify(mockListener).onItemRangeInserted(1, 1);
+    }
+
+    @Test
+    public void flush_duringBatch_shouldNotifyPendingUpdates() {
+        subject.beginBatch();
+        subject.itemInserted(1);
+        subject.flush();
+
+        verify(mockListener).onItemRangeInserted(1, 1);
+        assertThat(subject.getPendingUpdateCount()).isEqualTo(0);
+
+        subject.itemInserted(2);
+        subject.endBatch();
+
+        verify(mockListener).onItemRangeInserted(2, 1);
+        verifyNoMoreInteractions(mockListener);
+    }
+}
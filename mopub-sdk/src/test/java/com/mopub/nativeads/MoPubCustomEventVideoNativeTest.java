@@ -86,7 +86,7 @@ public class MoPubCustomEventVideoNativeTest {
 
     @After
     public void tearDown() {
-        Networking.setImageLoaderForTesting(null);
+        Networking.setNativeImageLoaderForTesting(null);
     }
 
     @Test
@@ -146,7 +146,7 @@ public class MoPubCustomEventVideoNativeTest {
 
     @Test
     public void loadNativeAd_withAllRequirementsMet_shouldNotNotifyListenerFailed_shouldNotThrowException() {
-        Networking.setImageLoaderForTesting(mock(MaxWidthImageLoader.class));
+        Networking.setNativeImageLoaderForTesting(mock(MaxWidthImageLoader.class));
         subject.loadNativeAd(context, mockCustomEventNativeListener, localExtras, serverExtras);
 
         verifyNoMoreInteractions(mockCustomEventNativeListener);
@@ -16,6 +16,7 @@ import com.mopub.common.util.Reflection;
 import com.mopub.common.util.test.support.TestMethodBuilderFactory;
 import com.mopub.mobileads.MoPubErrorCode;
 import com.mopub.nativeads.MoPubNative.MoPubNativeNetworkListener;
+import com.mopub.network.AdLoader;
 import com.mopub.network.MoPubNetworkError;
 import com.mopub.network.MoPubRequestQueue;
 import com.mopub.network.Networking;
@@ -129,6 +130,44 @@ public class MoPubNativeTest {
         verify(mockRequestQueue).add(argThat(isUrl("https://www.mopub.com")));
     }
 
+    @Test
+    public void requestNativeAd_withParallelWaterfall_shouldLoadLineItemsInParallel() throws Exception {
+        subject.setParallelWaterfall(3, 1000);
+
+        subject.requestNativeAd("https://www.mopub.com", null);
+
+        final Object adLoader = Reflection.getPrivateField(MoPubNative.class, "mAdLoader")
+                .get(subject);
+        assertThat(Reflection.getPrivateField(AdLoader.class, "mLineItemLoader").get(adLoader))
+                .isInstanceOf(NativeLineItemLoader.class);
+    }
+
+    @Test
+    public void requestNativeAd_withoutParallelWaterfall_shouldLoadLineItemsInOrder() throws Exception {
+        subject.requestNativeAd("https://www.mopub.com", null);
+
+        final Object adLoader = Reflection.getPrivateField(MoPubNative.class, "mAdLoader")
+                .get(subject);
+        assertThat(Reflection.getPrivateField(AdLoader.class, "mLineItemLoader").get(adLoader))
+                .isNull();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setParallelWaterfall_withoutDeadline_shouldThrowIllegalArgumentException() {
+        subject.setParallelWaterfall(3, 0);
+    }
+
+    @Test
+    public void destroy_withParallelWaterfall_shouldClearLineItemLoader() throws Exception {
+        subject.setParallelWaterfall(3, 1000);
+        subject.requestNativeAd("https://www.mopub.com", null);
+
+        subject.destroy();
+
+        assertThat(Reflection.getPrivateField(MoPubNative.class, "mLineItemLoader").get(subject))
+                .isNull();
+    }
+
     @Test
     public void requestNativeAd_whenRequestQueueDeliversUnknownError_shouldFireNativeFail() {
         reset(mockRequestQueue);
@@ -0,0 +1,244 @@
+// Copyright 2018-2020 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.nativeads;
+
+import android.app.Activity;
+import android.content.Context;
+import android.view.View;
+import android.view.ViewGroup;
+
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.mopub.common.VisibilityTracker;
+import com.mopub.common.test.support.SdkTestRunner;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.robolectric.Robolectric;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Places ads into a real RecyclerView, where the adapter's updates have to agree with what it
+ * reports afterwards, or the RecyclerView throws during layout.
+ */
+@RunWith(SdkTestRunner.class)
+public class MoPubRecyclerAdapterLayoutTest {
+    private static final int CONTENT_COUNT = 20;
+    private static final int ITEM_HEIGHT = 100;
+    private static final int AD_VIEW_TYPE = 1;
+
+    @Mock MoPubStreamAdPlacer mockStreamAdPlacer;
+    @Mock VisibilityTracker mockVisibilityTracker;
+    @Mock MoPubAdRenderer mockAdRenderer;
+    @Mock NativeAd mockNativeAd;
+    @Mock RecyclerView.AdapterDataObserver mockObserver;
+
+    private Activity activity;
+    // The adjusted positions of the placed ads, in order.
+    private List<Integer> adPositions;
+    private MoPubStreamAdPlacer.AdBatchListener batchListener;
+    private RecyclerView recyclerView;
+    private MoPubRecyclerAdapter subject;
+
+    @Before
+    public void setUp() {
+        activity = Robolectric.buildActivity(Activity.class).create().get();
+        adPositions = new ArrayList<>();
+        stubStreamAdPlacer();
+
+        subject = new MoPubRecyclerAdapter(mockStreamAdPlacer, new ContentAdapter(),
+                mockVisibilityTracker);
+        final ArgumentCaptor<MoPubStreamAdPlacer.AdBatchListener> batchListenerCaptor =
+                ArgumentCaptor.forClass(MoPubStreamAdPlacer.AdBatchListener.class);
+        verify(mockStreamAdPlacer).setAdBatchListener(batchListenerCaptor.capture());
+        batchListener = batchListenerCaptor.getValue();
+
+        recyclerView = new RecyclerView(activity);
+        recyclerView.setLayoutManager(new LinearLayoutManager(activity));
+        recyclerView.setItemAnimator(null);
+        recyclerView.setAdapter(subject);
+        layOut();
+        subject.registerAdapterDataObserver(mockObserver);
+    }
+
+    @Test
+    public void placeAds_withBatch_shouldNotifyOneItemRangeInserted_shouldLayOutAds() {
+        batchListener.onAdBatchStarted();
+        placeAd(2);
+        placeAd(3);
+        placeAd(4);
+        batchListener.onAdBatchFinished();
+
+        verify(mockObserver).onItemRangeInserted(2, 3);
+        verifyNoMoreInteractions(mockObserver);
+
+        layOut();
+
+        assertLaidOutAds(2, 3, 4);
+    }
+
+    @Test
+    public void placeAds_withoutBatch_shouldNotifyEachAd_shouldLayOutAds() {
+        placeAd(2);
+        placeAd(3);
+        placeAd(4);
+
+        verify(mockObserver, times(3)).onItemRangeInserted(anyInt(), eq(1));
+        verifyNoMoreInteractions(mockObserver);
+
+        layOut();
+
+        assertLaidOutAds(2, 3, 4);
+    }
+
+    @Test
+    public void placeAds_withBatch_withAdsApart_shouldNotifyEachRange_shouldLayOutAds() {
+        batchListener.onAdBatchStarted();
+        placeAd(1);
+        placeAd(4);
+        removeAd(4);
+        placeAd(6);
+        batchListener.onAdBatchFinished();
+
+        verify(mockObserver).onItemRangeInserted(1, 1);
+        verify(mockObserver).onItemRangeInserted(6, 1);
+        verifyNoMoreInteractions(mockObserver);
+
+        layOut();
+
+        assertLaidOutAds(1, 6);
+    }
+
+    private void layOut() {
+        recyclerView.measure(
+                View.MeasureSpec.makeMeasureSpec(480, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(8 * ITEM_HEIGHT, View.MeasureSpec.EXACTLY));
+        recyclerView.layout(0, 0, 480, 8 * ITEM_HEIGHT);
+    }
+
+    /**
+     * Places an ad the way the stream ad placer does: its data first, then the listener.
+     */
+    private void placeAd(final int position) {
+        int index = 0;
+        while (index < adPositions.size() && adPositions.get(index) < position) {
+            index++;
+        }
+        for (int i = index; i < adPositions.size(); i++) {
+            adPositions.set(i, adPositions.get(i) + 1);
+        }
+        adPositions.add(index, position);
+        subject.handleAdLoaded(position);
+    }
+
+    private void removeAd(final int position) {
+        final int index = adPositions.indexOf(position);
+        adPositions.remove(index);
+        for (int i = index; i < adPositions.size(); i++) {
+            adPositions.set(i, adPositions.get(i) - 1);
+        }
+        subject.handleAdRemoved(position);
+    }
+
+    private void assertLaidOutAds(final Integer... positions) {
+        assertThat(subject.getItemCount()).isEqualTo(CONTENT_COUNT + positions.length);
+        final List<Integer> laidOutAds = new ArrayList<>();
+        for (int i = 0; i < recyclerView.getChildCount(); i++) {
+            final RecyclerView.ViewHolder holder =
+                    recyclerView.getChildViewHolder(recyclerView.getChildAt(i));
+            if (holder instanceof MoPubRecyclerViewHolder) {
+                laidOutAds.add(holder.getAdapterPosition());
+            }
+        }
+        assertThat(laidOutAds).containsExactly(positions);
+    }
+
+    private void stubStreamAdPlacer() {
+        when(mockStreamAdPlacer.getAdjustedCount(anyInt())).thenAnswer(new Answer<Integer>() {
+            @Override
+            public Integer answer(final InvocationOnMock invocation) {
+                return (Integer) invocation.getArguments()[0] + adPositions.size();
+            }
+        });
+        when(mockStreamAdPlacer.getOriginalPosition(anyInt())).thenAnswer(new Answer<Integer>() {
+            @Override
+            public Integer answer(final InvocationOnMock invocation) {
+                final int position = (Integer) invocation.getArguments()[0];
+                int adsBefore = 0;
+                for (final int adPosition : adPositions) {
+                    if (adPosition < position) {
+                        adsBefore++;
+                    }
+                }
+                return position - adsBefore;
+            }
+        });
+        when(mockStreamAdPlacer.getAdViewType(anyInt())).thenAnswer(new Answer<Integer>() {
+            @Override
+            public Integer answer(final InvocationOnMock invocation) {
+                return adPositions.contains(invocation.getArguments()[0])
+                        ? AD_VIEW_TYPE
+                        : MoPubStreamAdPlacer.CONTENT_VIEW_TYPE;
+            }
+        });
+        when(mockStreamAdPlacer.getAdData(anyInt())).thenAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(final InvocationOnMock invocation) {
+                return adPositions.contains(invocation.getArguments()[0]) ? mockNativeAd : null;
+            }
+        });
+        when(mockStreamAdPlacer.getAdViewTypeCount()).thenReturn(1);
+        when(mockStreamAdPlacer.getAdRendererForViewType(AD_VIEW_TYPE)).thenReturn(mockAdRenderer);
+        when(mockAdRenderer.createAdView(any(Context.class), any(ViewGroup.class)))
+                .thenAnswer(new Answer<View>() {
+                    @Override
+                    public View answer(final InvocationOnMock invocation) {
+                        return createItemView();
+                    }
+                });
+    }
+
+    private View createItemView() {
+        final View view = new View(activity);
+        view.setLayoutParams(new RecyclerView.LayoutParams(
+                ViewGroup.LayoutParams.MATCH_PARENT, ITEM_HEIGHT));
+        return view;
+    }
+
+    private class ContentAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
+        @Override
+        public RecyclerView.ViewHolder onCreateViewHolder(final ViewGroup parent,
+                final int viewType) {
+            return new RecyclerView.ViewHolder(createItemView()) {
+            };
+        }
+
+        @Override
+        public void onBindViewHolder(final RecyclerView.ViewHolder holder, final int position) {
+        }
+
+        @Override
+        public int getItemCount() {
+            return CONTENT_COUNT;
+        }
+    }
+}
@@ -355,6 +355,49 @@ public class MoPubRecyclerAdapterTest {
         verifyZeroInteractions(mockAdLoadedListener);
     }
 
+    @Test
+    public void handleAdLoaded_duringAdBatch_shouldNotifyOneItemRangeInserted() {
+        final ArgumentCaptor<MoPubStreamAdPlacer.AdBatchListener> batchListenerCaptor =
+                ArgumentCaptor.forClass(MoPubStreamAdPlacer.AdBatchListener.class);
+        subject = new MoPubRecyclerAdapter(mockStreamAdPlacer, originalAdapter,
+                mockVisibilityTracker);
+        verify(mockStreamAdPlacer).setAdBatchListener(batchListenerCaptor.capture());
+        final MoPubStreamAdPlacer.AdBatchListener batchListener = batchListenerCaptor.getValue();
+        subject.registerAdapterDataObserver(mockObserver);
+
+        batchListener.onAdBatchStarted();
+        subject.handleAdLoaded(3);
+        subject.handleAdLoaded(4);
+        subject.handleAdLoaded(5);
+
+        verifyZeroInteractions(mockObserver);
+
+        batchListener.onAdBatchFinished();
+
+        verify(mockObserver).onItemRangeInserted(3, 3);
+        verifyNoMoreInteractions(mockObserver);
+    }
+
+    @Test
+    public void handleAdRemoved_duringAdBatch_thenContentChanged_shouldNotifyRemovalFirst() {
+        final ArgumentCaptor<MoPubStreamAdPlacer.AdBatchListener> batchListenerCaptor =
+                ArgumentCaptor.forClass(MoPubStreamAdPlacer.AdBatchListener.class);
+        subject = new MoPubRecyclerAdapter(mockStreamAdPlacer, originalAdapter,
+                mockVisibilityTracker);
+        verify(mockStreamAdPlacer).setAdBatchListener(batchListenerCaptor.capture());
+        subject.registerAdapterDataObserver(mockObserver);
+
+        batchListenerCaptor.getValue().onAdBatchStarted();
+        subject.handleAdRemoved(AD_POSITION_7);
+        subject.handleAdRemoved(AD_POSITION_1);
+        originalAdapter.notifyDataSetChanged();
+
+        verify(mockObserver).onItemRangeRemoved(AD_POSITION_7, 1);
+        verify(mockObserver).onItemRangeRemoved(AD_POSITION_1, 1);
+        verify(mockObserver).onChanged();
+        verifyNoMoreInteractions(mockObserver);
+    }
+
     @Test
     public void loadAds_shouldCallLoadOnAdPlacer() {
         subject.loadAds("testId");
@@ -485,7 +528,7 @@ public class MoPubRecyclerAdapterTest {
         verifyNoMoreInteractions(mockObserver);
         verify(mockStreamAdPlacer).getAdjustedPosition(originalItemCount);
         verify(mockStreamAdPlacer).setItemCount(originalItemCount + 3);
-        verify(mockStreamAdPlacer, times(3)).insertItem(anyInt());
+        verify(mockStreamAdPlacer).insertItems(originalItemCount, 3);
         verifyNoMoreInteractions(mockStreamAdPlacer);
     }
 
@@ -518,7 +561,7 @@ public class MoPubRecyclerAdapterTest {
         verifyNoMoreInteractions(mockObserver);
         verify(mockStreamAdPlacer).getAdjustedPosition(originalItemCount - 7);
         verify(mockStreamAdPlacer).setItemCount(originalItemCount + 3);
-        verify(mockStreamAdPlacer, times(3)).insertItem(anyInt());
+        verify(mockStreamAdPlacer).insertItems(originalItemCount - 7, 3);
         verifyNoMoreInteractions(mockStreamAdPlacer);
     }
 
@@ -535,7 +578,7 @@ public class MoPubRecyclerAdapterTest {
         verifyNoMoreInteractions(mockObserver);
         verify(mockStreamAdPlacer).getAdjustedPosition(originalItemCount - 7);
         verify(mockStreamAdPlacer).setItemCount(originalItemCount + 3);
-        verify(mockStreamAdPlacer, times(3)).insertItem(anyInt());
+        verify(mockStreamAdPlacer).insertItems(originalItemCount - 7, 3);
         verifyNoMoreInteractions(mockStreamAdPlacer);
     }
 
@@ -584,7 +627,7 @@ public class MoPubRecyclerAdapterTest {
         verifyNoMoreInteractions(mockObserver);
 
         verify(mockStreamAdPlacer).setItemCount(originalItemCount - 3);
-        verify(mockStreamAdPlacer, times(3)).removeItem(originalItemCount - 4);
+        verify(mockStreamAdPlacer).removeItems(originalItemCount - 4, 3);
     }
 
     @Test
@@ -603,7 +646,7 @@ public class MoPubRecyclerAdapterTest {
         verifyNoMoreInteractions(mockObserver);
 
         verify(mockStreamAdPlacer).setItemCount(originalItemCount - 3);
-        verify(mockStreamAdPlacer, times(3)).removeItem(originalItemCount - 4);
+        verify(mockStreamAdPlacer).removeItems(originalItemCount - 4, 3);
     }
 
     @Test
@@ -634,7 +677,7 @@ public class MoPubRecyclerAdapterTest {
         verifyNoMoreInteractions(mockObserver);
 
         verify(mockStreamAdPlacer).setItemCount(originalItemCount - 3);
-        verify(mockStreamAdPlacer, times(3)).removeItem(originalItemCount - 8);
+        verify(mockStreamAdPlacer).removeItems(originalItemCount - 8, 3);
     }
 
     @Test
@@ -650,7 +693,7 @@ public class MoPubRecyclerAdapterTest {
         verifyNoMoreInteractions(mockObserver);
 
         verify(mockStreamAdPlacer).setItemCount(originalItemCount - 3);
-        verify(mockStreamAdPlacer, times(3)).removeItem(originalItemCount - 8);
+        verify(mockStreamAdPlacer).removeItems(originalItemCount - 8, 3);
     }
 
     @Test
@@ -79,7 +79,7 @@ public class MoPubStaticNativeAdTest {
         subject.setNativeEventListener(mockNativeEventListener);
 
         Networking.setRequestQueueForTesting(mockRequestQueue);
-        Networking.setImageLoaderForTesting(mockImageLoader);
+        Networking.setNativeImageLoaderForTesting(mockImageLoader);
         when(mockImageContainer.getBitmap()).thenReturn(mock(Bitmap.class));
     }
 
@@ -0,0 +1,245 @@
+// Copyright 2018-2020 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.nativeads;
+
+import android.app.Activity;
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.mopub.common.test.support.SdkTestRunner;
+import com.mopub.nativeads.MoPubNativeAdPositioning.MoPubClientPositioning;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Replays scroll traces against a {@link MoPubStreamAdPlacer} backed by an ad source with a fixed
+ * load latency, and compares the empty ad slot rate and wasted ad loads with and without
+ * predictive placement.
+ */
+@RunWith(SdkTestRunner.class)
+public class MoPubStreamAdPlacerScrollSimulationTest {
+    private static final int FRAME_MILLIS = 16;
+    private static final int VISIBLE_ITEM_COUNT = 6;
+    private static final int REPEATING_INTERVAL = 5;
+    private static final int ITEM_COUNT = 5000;
+    private static final long AD_LOAD_LATENCY_MILLIS = 1500;
+
+    private Activity activity;
+
+    @Before
+    public void setUp() {
+        activity = Robolectric.buildActivity(Activity.class).create().get();
+        Robolectric.getForegroundThreadScheduler().pause();
+    }
+
+    @Test
+    public void readThenFlingTrace_withPredictivePlacement_shouldLeaveFewerEmptySlots() {
+        final ScrollTrace trace = new ScrollTrace()
+                .scroll(8000, 1)
+                .scroll(1500, 25)
+                .scroll(8000, 1)
+                .scroll(1500, 25)
+                .scroll(8000, 1)
+                .scroll(1500, 25)
+                .scroll(2000, 0);
+
+        final SimulationResult baseline = simulate(trace, false);
+        final SimulationResult predictive = simulate(trace, true);
+
+        assertThat(predictive.getEmptySlotRate())
+                .as("baseline " + baseline + ", predictive " + predictive)
+                .isLessThan(baseline.getEmptySlotRate());
+        assertThat(predictive.wastedAds)
+                .as("baseline " + baseline + ", predictive " + predictive)
+                .isLessThanOrEqualTo(NativeAdSource.MAX_CACHE_LIMIT);
+    }
+
+    @Test
+    public void slowReadingTrace_withPredictivePlacement_shouldNotLoadExtraAds() {
+        final ScrollTrace trace = new ScrollTrace()
+                .scroll(30000, 1)
+                .scroll(2000, 0);
+
+        final SimulationResult baseline = simulate(trace, false);
+        final SimulationResult predictive = simulate(trace, true);
+
+        assertThat(predictive.getEmptySlotRate())
+                .as("baseline " + baseline + ", predictive " + predictive)
+                .isLessThanOrEqualTo(baseline.getEmptySlotRate());
+        assertThat(predictive.loadedAds)
+                .as("baseline " + baseline + ", predictive " + predictive)
+                .isEqualTo(baseline.loadedAds);
+    }
+
+    private SimulationResult simulate(@NonNull final ScrollTrace trace,
+            final boolean predictivePlacementEnabled) {
+        final SimulatedAdSource adSource = new SimulatedAdSource();
+        final MoPubClientPositioning positioning = MoPubNativeAdPositioning.clientPositioning()
+                .enableRepeatingPositions(REPEATING_INTERVAL);
+        final MoPubStreamAdPlacer subject = new MoPubStreamAdPlacer(activity, adSource,
+                new ClientPositioningSource(positioning));
+        subject.setPredictivePlacementEnabled(predictivePlacementEnabled);
+        subject.setItemCount(ITEM_COUNT);
+        subject.loadAds("ad_unit_id");
+        advanceFrame(adSource);
+
+        final Set<Integer> seenPositions = new HashSet<>();
+        int adsSeen = 0;
+        double position = 0;
+        for (final ScrollPhase phase : trace.mPhases) {
+            for (long elapsed = 0; elapsed < phase.mDurationMillis; elapsed += FRAME_MILLIS) {
+                position += phase.mItemsPerSecond * FRAME_MILLIS / 1000.0;
+                final int first = (int) position;
+                subject.placeAdsInRange(first, first + VISIBLE_ITEM_COUNT);
+                advanceFrame(adSource);
+
+                for (int i = first; i < first + VISIBLE_ITEM_COUNT; i++) {
+                    if (seenPositions.add(i) && subject.isAd(i)) {
+                        adsSeen++;
+                    }
+                }
+            }
+        }
+
+        final SimulationResult result = new SimulationResult();
+        result.expectedSlots = seenPositions.size() / REPEATING_INTERVAL;
+        result.adsSeen = adsSeen;
+        result.loadedAds = adSource.mLoadedAds;
+        result.wastedAds = adSource.mReadyAds.size();
+        subject.destroy();
+        return result;
+    }
+
+    private static void advanceFrame(@NonNull final SimulatedAdSource adSource) {
+        Robolectric.getForegroundThreadScheduler().advanceBy(FRAME_MILLIS, TimeUnit.MILLISECONDS);
+        adSource.completeLoads(SystemClock.uptimeMillis());
+    }
+
+    private static class ScrollPhase {
+        final long mDurationMillis;
+        final double mItemsPerSecond;
+
+        ScrollPhase(final long durationMillis, final double itemsPerSecond) {
+            mDurationMillis = durationMillis;
+            mItemsPerSecond = itemsPerSecond;
+        }
+    }
+
+    private static class ScrollTrace {
+        final List<ScrollPhase> mPhases = new ArrayList<>();
+
+        ScrollTrace scroll(final long durationMillis, final double itemsPerSecond) {
+            mPhases.add(new ScrollPhase(durationMillis, itemsPerSecond));
+            return this;
+        }
+    }
+
+    private static class SimulationResult {
+        int expectedSlots;
+        int adsSeen;
+        int loadedAds;
+        int wastedAds;
+
+        double getEmptySlotRate() {
+            if (expectedSlots == 0) {
+                return 0;
+            }
+            return Math.max(0, expectedSlots - adsSeen) / (double) expectedSlots;
+        }
+
+        @Override
+        public String toString() {
+            return "emptySlotRate=" + getEmptySlotRate() + " (" + adsSeen + "/" + expectedSlots
+                    + " slots filled), loadedAds=" + loadedAds + ", wastedAds=" + wastedAds;
+        }
+    }
+
+    /**
+     * Ad source that loads one ad at a time, each taking {@link #AD_LOAD_LATENCY_MILLIS}.
+     */
+    private static class SimulatedAdSource extends NativeAdSource {
+        final List<NativeAd> mReadyAds = new ArrayList<>();
+        int mLoadedAds;
+
+        @Nullable private AdSourceListener mListener;
+        private int mLimit = 1;
+        private boolean mLoading;
+        private long mLoadCompleteMillis;
+
+        @Override
+        int getAdRendererCount() {
+            return 1;
+        }
+
+        @Override
+        public int getViewTypeForAd(@NonNull final NativeAd nativeAd) {
+            return 1;
+        }
+
+        @Override
+        void setAdSourceListener(@Nullable final AdSourceListener adSourceListener) {
+            mListener = adSourceListener;
+        }
+
+        @Override
+        void loadAds(@NonNull final Activity activity, @NonNull final String adUnitId,
+                final RequestParameters requestParameters) {
+            startLoadIfNeeded(SystemClock.uptimeMillis());
+        }
+
+        @Override
+        void clear() {
+        }
+
+        @Override
+        void setCacheLimit(final int cacheLimit) {
+            mLimit = Math.max(1, Math.min(cacheLimit, MAX_CACHE_LIMIT));
+            startLoadIfNeeded(SystemClock.uptimeMillis());
+        }
+
+        @Nullable
+        @Override
+        NativeAd dequeueAd() {
+            startLoadIfNeeded(SystemClock.uptimeMillis());
+            if (mReadyAds.isEmpty()) {
+                return null;
+            }
+            return mReadyAds.remove(0);
+        }
+
+        void completeLoads(final long nowMillis) {
+            while (mLoading && mLoadCompleteMillis <= nowMillis) {
+                mLoading = false;
+                mLoadedAds++;
+                mReadyAds.add(mock(NativeAd.class));
+                if (mReadyAds.size() == 1 && mListener != null) {
+                    mListener.onAdsAvailable();
+                }
+                startLoadIfNeeded(mLoadCompleteMillis);
+            }
+        }
+
+        private void startLoadIfNeeded(final long nowMillis) {
+            if (!mLoading && mReadyAds.size() < mLimit) {
+                mLoading = true;
+                mLoadCompleteMillis = nowMillis + AD_LOAD_LATENCY_MILLIS;
+            }
+        }
+    }
+}
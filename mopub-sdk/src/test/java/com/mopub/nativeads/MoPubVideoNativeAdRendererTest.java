@@ -59,7 +59,7 @@ public class MoPubVideoNativeAdRendererTest {
     @Before
     public void setUp() throws Exception {
         Networking.setRequestQueueForTesting(mockRequestQueue);
-        Networking.setImageLoaderForTesting(mockImageLoader);
+        Networking.setNativeImageLoaderForTesting(mockImageLoader);
         when(mockImageContainer.getBitmap()).thenReturn(mock(Bitmap.class));
 
         when(relativeLayout.getId()).thenReturn(View.generateViewId());
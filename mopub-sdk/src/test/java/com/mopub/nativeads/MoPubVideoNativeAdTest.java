@@ -156,13 +156,13 @@ public class MoPubVideoNativeAdTest {
         when(mockMediaLayout.getTextureView()).thenReturn(mockTextureView);
 
         when(mockImageContainer.getBitmap()).thenReturn(mock(Bitmap.class));
-        Networking.setImageLoaderForTesting(mockImageLoader);
+        Networking.setNativeImageLoaderForTesting(mockImageLoader);
         Networking.setRequestQueueForTesting(mockRequestQueue);
     }
 
     @After
     public void tearDown() {
-        Networking.setImageLoaderForTesting(null);
+        Networking.setNativeImageLoaderForTesting(null);
         Networking.setRequestQueueForTesting(null);
     }
 
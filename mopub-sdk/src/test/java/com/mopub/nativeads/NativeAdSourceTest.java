@@ -382,4 +382,49 @@ public class NativeAdSourceTest {
         assertThat(subject.getRetryTime()).isEqualTo(defaultRetryTime);
         verify(mockReplenishCacheHandler, never()).postDelayed(any(Runnable.class), anyLong());
     }
+
+    @Test
+    public void setCacheLimit_withHigherLimit_shouldLoadAnotherAd() {
+        subject.setMoPubNative(mockMoPubNative);
+        subject.getMoPubNativeNetworkListener().onNativeLoad(mMockNativeAd);
+
+        subject.setCacheLimit(2);
+
+        assertThat(subject.getCacheLimit()).isEqualTo(2);
+        assertThat(subject.mRequestInFlight).isTrue();
+        verify(mockMoPubNative).makeRequest(any(RequestParameters.class), eq(1));
+    }
+
+    @Test
+    public void setCacheLimit_shouldClampToValidRange() {
+        subject.setCacheLimit(0);
+        assertThat(subject.getCacheLimit()).isEqualTo(1);
+
+        subject.setCacheLimit(100);
+        assertThat(subject.getCacheLimit()).isEqualTo(NativeAdSource.MAX_CACHE_LIMIT);
+    }
+
+    @Test
+    public void setCacheLimit_withLowerLimit_shouldNotLoadAd() {
+        subject.setCacheLimit(2);
+        subject.setMoPubNative(mockMoPubNative);
+
+        subject.setCacheLimit(1);
+
+        verify(mockMoPubNative, never()).makeRequest(any(RequestParameters.class), any(Integer.class));
+    }
+
+    @Test
+    public void getWastedAdCount_shouldCountClearedAndExpiredAds() {
+        subject.setMoPubNative(mockMoPubNative);
+        subject.getMoPubNativeNetworkListener().onNativeLoad(mMockNativeAd);
+        nativeAdCache.add(new TimestampWrapper<NativeAd>(mMockNativeAd));
+        nativeAdCache.get(0).mCreatedTimestamp = SystemClock.uptimeMillis() - (4 * 60 * 60 * 1000) - 1;
+
+        subject.dequeueAd();
+        subject.clear();
+
+        assertThat(subject.getLoadedAdCount()).isEqualTo(1);
+        assertThat(subject.getWastedAdCount()).isEqualTo(1);
+    }
 }
@@ -0,0 +1,167 @@
+// Copyright 2018-2020 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.nativeads;
+
+import android.app.Activity;
+
+import com.mopub.common.AdType;
+import com.mopub.common.test.support.SdkTestRunner;
+import com.mopub.nativeads.test.support.TestCustomEventNativeFactory;
+import com.mopub.network.AdLoader;
+import com.mopub.network.AdResponse;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.robolectric.Robolectric;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyMapOf;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@RunWith(SdkTestRunner.class)
+public class NativeLineItemLoaderTest {
+
+    private Activity context;
+    private CustomEventNative mockCustomEventNative;
+    private AdLoader.LineItemListener mockFirstListener;
+    private AdLoader.LineItemListener mockSecondListener;
+    private AdResponse firstResponse;
+    private AdResponse secondResponse;
+    private BaseNativeAd mockFirstAd;
+    private BaseNativeAd mockSecondAd;
+
+    private NativeLineItemLoader subject;
+
+    @Before
+    public void setUp() {
+        context = Robolectric.buildActivity(Activity.class).create().get();
+        mockCustomEventNative = TestCustomEventNativeFactory.getSingletonMock();
+        mockFirstListener = mock(AdLoader.LineItemListener.class);
+        mockSecondListener = mock(AdLoader.LineItemListener.class);
+        mockFirstAd = mock(BaseNativeAd.class);
+        mockSecondAd = mock(BaseNativeAd.class);
+        firstResponse = createAdResponse();
+        secondResponse = createAdResponse();
+
+        final Map<String, Object> localExtras = new HashMap<>();
+        localExtras.put("key", "value");
+        subject = new NativeLineItemLoader(context, localExtras);
+    }
+
+    @Test
+    public void loadLineItem_whenLoaded_shouldKeepNativeAdUntilTaken() {
+        subject.loadLineItem(firstResponse, mockFirstListener);
+        final List<CustomEventNative.CustomEventNativeListener> listeners = captureListeners(1);
+
+        listeners.get(0).onNativeAdLoaded(mockFirstAd);
+
+        verify(mockFirstListener).onLineItemLoaded();
+        assertThat(subject.takeLoadedAd(secondResponse)).isNull();
+        assertThat(subject.takeLoadedAd(firstResponse)).isSameAs(mockFirstAd);
+        assertThat(subject.takeLoadedAd(firstResponse)).isNull();
+        verify(mockFirstAd, never()).destroy();
+    }
+
+    @Test
+    public void loadLineItem_whenFailed_shouldNotifyListener() {
+        subject.loadLineItem(firstResponse, mockFirstListener);
+        final List<CustomEventNative.CustomEventNativeListener> listeners = captureListeners(1);
+
+        listeners.get(0).onNativeAdFailed(NativeErrorCode.NETWORK_NO_FILL);
+
+        verify(mockFirstListener).onLineItemFailed(NativeErrorCode.NETWORK_NO_FILL);
+        assertThat(subject.takeLoadedAd(firstResponse)).isNull();
+    }
+
+    @Test
+    public void loadLineItem_shouldGiveEachLineItemItsOwnLocalExtras() {
+        subject.loadLineItem(firstResponse, mockFirstListener);
+        subject.loadLineItem(secondResponse, mockSecondListener);
+
+        final ArgumentCaptor<Map> localExtrasCaptor = ArgumentCaptor.forClass(Map.class);
+        verify(mockCustomEventNative, times(2)).loadNativeAd(eq(context),
+                any(CustomEventNative.CustomEventNativeListener.class),
+                localExtrasCaptor.capture(), anyMapOf(String.class, String.class));
+        final List<Map> localExtras = localExtrasCaptor.getAllValues();
+        assertThat(localExtras.get(0)).isNotSameAs(localExtras.get(1));
+        assertThat(localExtras.get(0).get("key")).isEqualTo("value");
+        assertThat(localExtras.get(1).get("key")).isEqualTo("value");
+    }
+
+    @Test
+    public void invalidateLineItem_whenLoaded_shouldDestroyNativeAd() {
+        subject.loadLineItem(firstResponse, mockFirstListener);
+        subject.loadLineItem(secondResponse, mockSecondListener);
+        final List<CustomEventNative.CustomEventNativeListener> listeners = captureListeners(2);
+        listeners.get(0).onNativeAdLoaded(mockFirstAd);
+        listeners.get(1).onNativeAdLoaded(mockSecondAd);
+
+        subject.invalidateLineItem(secondResponse);
+
+        verify(mockSecondAd).destroy();
+        verify(mockFirstAd, never()).destroy();
+        assertThat(subject.takeLoadedAd(secondResponse)).isNull();
+        assertThat(subject.takeLoadedAd(firstResponse)).isSameAs(mockFirstAd);
+    }
+
+    @Test
+    public void invalidateLineItem_whileLoading_shouldStopLoadingAndIgnoreLateLoad() {
+        subject.loadLineItem(firstResponse, mockFirstListener);
+        final List<CustomEventNative.CustomEventNativeListener> listeners = captureListeners(1);
+
+        subject.invalidateLineItem(firstResponse);
+        listeners.get(0).onNativeAdLoaded(mockFirstAd);
+
+        verify(mockCustomEventNative).onInvalidate();
+        verify(mockFirstListener, never()).onLineItemLoaded();
+        assertThat(subject.takeLoadedAd(firstResponse)).isNull();
+    }
+
+    @Test
+    public void invalidateAll_shouldDestroyNativeAdsThatWereNotTaken() {
+        subject.loadLineItem(firstResponse, mockFirstListener);
+        subject.loadLineItem(secondResponse, mockSecondListener);
+        final List<CustomEventNative.CustomEventNativeListener> listeners = captureListeners(2);
+        listeners.get(0).onNativeAdLoaded(mockFirstAd);
+        listeners.get(1).onNativeAdLoaded(mockSecondAd);
+        assertThat(subject.takeLoadedAd(firstResponse)).isSameAs(mockFirstAd);
+
+        subject.invalidateAll();
+
+        verify(mockFirstAd, never()).destroy();
+        verify(mockSecondAd).destroy();
+        assertThat(subject.takeLoadedAd(secondResponse)).isNull();
+    }
+
+    private List<CustomEventNative.CustomEventNativeListener> captureListeners(final int count) {
+        final ArgumentCaptor<CustomEventNative.CustomEventNativeListener> listenerCaptor =
+                ArgumentCaptor.forClass(CustomEventNative.CustomEventNativeListener.class);
+        verify(mockCustomEventNative, times(count)).loadNativeAd(eq(context),
+                listenerCaptor.capture(), anyMapOf(String.class, Object.class),
+                anyMapOf(String.class, String.class));
+        return listenerCaptor.getAllValues();
+    }
+
+    private static AdResponse createAdResponse() {
+        return new AdResponse.Builder()
+                .setAdType(AdType.STATIC_NATIVE)
+                .setCustomEventClassName("com.mopub.nativeads.MoPubCustomEventNative")
+                .setClickTrackingUrl("clicktrackingurl")
+                .setResponseBody("body")
+                .setServerExtras(new HashMap<String, String>())
+                .build();
+    }
+}
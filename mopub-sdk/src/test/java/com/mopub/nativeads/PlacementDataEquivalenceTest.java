@@ -0,0 +1,211 @@
+// Copyright 2018-2020 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.nativeads;
+
+import com.mopub.common.test.support.SdkTestRunner;
+import com.mopub.nativeads.MoPubNativeAdPositioning.MoPubClientPositioning;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Runs random sequences of operations against {@link PlacementData} and {@link
+ * ArrayPlacementData} and checks that every query returns the same result. Bulk item updates
+ * are compared with the same number of single item updates.
+ *
+ * The array implementation gets into an inconsistent state when clearing ads around an unfilled
+ * insertion position, or when placing an ad at a position that is also a placed ad. Those
+ * operations are skipped here and covered in {@link PlacementDataTest}.
+ */
+@RunWith(SdkTestRunner.class)
+public class PlacementDataEquivalenceTest {
+    private static final int SEED_COUNT = 500;
+    private static final int OPERATION_COUNT = 200;
+    private static final int AD_COUNT = 8;
+
+    private List<NativeAd> nativeAds;
+
+    @Before
+    public void setUp() {
+        nativeAds = new ArrayList<NativeAd>();
+        for (int i = 0; i < AD_COUNT; i++) {
+            nativeAds.add(mock(NativeAd.class));
+        }
+    }
+
+    @Test
+    public void randomOperations_shouldMatchArrayPlacementData() {
+        for (int seed = 0; seed < SEED_COUNT; seed++) {
+            runRandomOperations(seed);
+        }
+    }
+
+    private void runRandomOperations(final long seed) {
+        final Random random = new Random(seed);
+
+        final MoPubClientPositioning positioning = MoPubNativeAdPositioning.clientPositioning();
+        final int fixedCount = random.nextInt(4);
+        for (int i = 0; i < fixedCount; i++) {
+            positioning.addFixedPosition(random.nextInt(10));
+        }
+        if (random.nextBoolean()) {
+            positioning.enableRepeatingPositions(2 + random.nextInt(5));
+        }
+        final int maxAds = 1 + random.nextInt(30);
+
+        final PlacementData subject = PlacementData.fromAdPositioning(positioning, maxAds);
+        final ArrayPlacementData reference =
+                ArrayPlacementData.fromAdPositioning(positioning, maxAds);
+        int itemCount = random.nextInt(60);
+
+        final List<String> operations = new ArrayList<String>();
+        for (int i = 0; i < OPERATION_COUNT; i++) {
+            final String operation;
+            switch (random.nextInt(9)) {
+                case 0:
+                case 1: {
+                    final int position =
+                            reference.nextInsertionPosition(random.nextInt(itemCount + 10) - 1);
+                    if (position == PlacementData.NOT_FOUND || reference.isPlacedAd(position)) {
+                        continue;
+                    }
+                    final NativeAd nativeAd = nativeAds.get(random.nextInt(AD_COUNT));
+                    subject.placeAd(position, nativeAd);
+                    reference.placeAd(position, nativeAd);
+                    operation = "placeAd(" + position + ")";
+                    break;
+                }
+                case 2: {
+                    final int position = random.nextInt(itemCount + 1);
+                    subject.insertItem(position);
+                    reference.insertItem(position);
+                    itemCount++;
+                    operation = "insertItem(" + position + ")";
+                    break;
+                }
+                case 3: {
+                    if (itemCount == 0) {
+                        continue;
+                    }
+                    final int position = random.nextInt(itemCount);
+                    subject.removeItem(position);
+                    reference.removeItem(position);
+                    itemCount--;
+                    operation = "removeItem(" + position + ")";
+                    break;
+                }
+                case 4: {
+                    if (itemCount == 0) {
+                        continue;
+                    }
+                    final int position = random.nextInt(itemCount);
+                    final int newPosition = random.nextInt(itemCount);
+                    subject.moveItem(position, newPosition);
+                    reference.moveItem(position, newPosition);
+                    operation = "moveItem(" + position + ", " + newPosition + ")";
+                    break;
+                }
+                case 5: {
+                    final int[] placed = reference.getPlacedAdPositions();
+                    if (random.nextInt(10) != 0 || (placed.length > 0
+                            && hasInsertionPosition(reference, 0, placed[placed.length - 1] + 1))) {
+                        continue;
+                    }
+                    subject.clearAds();
+                    reference.clearAds();
+                    operation = "clearAds()";
+                    break;
+                }
+                case 6: {
+                    final int position = random.nextInt(itemCount + 1);
+                    final int count = random.nextInt(6);
+                    subject.insertItems(position, count);
+                    for (int j = 0; j < count; j++) {
+                        reference.insertItem(position);
+                    }
+                    itemCount += count;
+                    operation = "insertItems(" + position + ", " + count + ")";
+                    break;
+                }
+                case 7: {
+                    if (itemCount == 0) {
+                        continue;
+                    }
+                    final int position = random.nextInt(itemCount);
+                    final int count = random.nextInt(Math.min(6, itemCount - position + 1));
+                    subject.removeItems(position, count);
+                    for (int j = 0; j < count; j++) {
+                        reference.removeItem(position);
+                    }
+                    itemCount -= count;
+                    operation = "removeItems(" + position + ", " + count + ")";
+                    break;
+                }
+                default: {
+                    final int start = random.nextInt(itemCount + 20);
+                    final int end = start + random.nextInt(10);
+                    if (hasInsertionPosition(reference, start, end)) {
+                        continue;
+                    }
+                    operation = "clearAdsInRange(" + start + ", " + end + ")";
+                    assertThat(subject.clearAdsInRange(start, end))
+                            .as("seed " + seed + ", " + operations + ", " + operation)
+                            .isEqualTo(reference.clearAdsInRange(start, end));
+                    break;
+                }
+            }
+
+            operations.add(operation);
+            assertSameState(subject, reference, itemCount, "seed " + seed + ", " + operations);
+        }
+    }
+
+    private static boolean hasInsertionPosition(final ArrayPlacementData placementData,
+            final int start, final int end) {
+        final int position = placementData.nextInsertionPosition(start - 1);
+        return position != PlacementData.NOT_FOUND && position < end;
+    }
+
+    private static void assertSameState(final PlacementData subject,
+            final ArrayPlacementData reference, final int itemCount, final String description) {
+        assertThat(Arrays.toString(subject.getPlacedAdPositions())).as(description)
+                .isEqualTo(Arrays.toString(reference.getPlacedAdPositions()));
+
+        final int adjustedCount = reference.getAdjustedCount(itemCount);
+        assertThat(subject.getAdjustedCount(itemCount)).as(description).isEqualTo(adjustedCount);
+        assertThat(subject.getOriginalCount(adjustedCount)).as(description)
+                .isEqualTo(reference.getOriginalCount(adjustedCount));
+
+        for (int position = -1; position < adjustedCount + 15; position++) {
+            final String at = description + " at " + position;
+            assertThat(subject.shouldPlaceAd(position)).as(at)
+                    .isEqualTo(reference.shouldPlaceAd(position));
+            assertThat(subject.isPlacedAd(position)).as(at)
+                    .isEqualTo(reference.isPlacedAd(position));
+            assertThat(subject.getPlacedAd(position)).as(at)
+                    .isEqualTo(reference.getPlacedAd(position));
+            assertThat(subject.getOriginalPosition(position)).as(at)
+                    .isEqualTo(reference.getOriginalPosition(position));
+            assertThat(subject.nextInsertionPosition(position)).as(at)
+                    .isEqualTo(reference.nextInsertionPosition(position));
+            assertThat(subject.previousInsertionPosition(position)).as(at)
+                    .isEqualTo(reference.previousInsertionPosition(position));
+        }
+
+        for (int position = 0; position < itemCount + 10; position++) {
+            assertThat(subject.getAdjustedPosition(position)).as(description + " at " + position)
+                    .isEqualTo(reference.getAdjustedPosition(position));
+        }
+    }
+}
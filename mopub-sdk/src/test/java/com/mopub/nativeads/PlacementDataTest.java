@@ -642,6 +642,18 @@ public class PlacementDataTest {
         checkInsertionPositions(9, adsAt15repeating, 1, 5, 8);
     }
 
+    @Test
+    public void insertItemRange_shouldShiftAdsAtOrAfterPosition() {
+        adsAt15repeating.placeAd(1, mMockNativeAd);
+        adsAt15repeating.placeAd(5, mMockNativeAd);
+        adsAt15repeating.placeAd(8, mMockNativeAd);
+
+        adsAt15repeating.insertItems(4, 3);
+
+        checkPlacedPositions(20, adsAt15repeating, 1, 8, 11);
+        checkInsertionPositions(16, adsAt15repeating, 14, 16);
+    }
+
     @Test
     public void removeThenInsertItem_atZero_shouldBeAtZero() {
         adsAt15repeating.placeAd(1, mMockNativeAd);
@@ -742,6 +754,18 @@ public class PlacementDataTest {
         checkPlacedPositions(20, adsRepeating, 0, 1, 2);
     }
 
+    @Test
+    public void removeItemRange_withAdsInRange_shouldClumpAds() {
+        adsRepeating.placeAd(2, mMockNativeAd);
+        adsRepeating.placeAd(5, mMockNativeAd);
+        adsRepeating.placeAd(8, mMockNativeAd);
+
+        adsRepeating.removeItems(0, 6);
+
+        checkPlacedPositions(20, adsRepeating, 0, 1, 2);
+        assertThat(adsRepeating.getAdjustedCount(1)).isEqualTo(4);
+    }
+
     @Test
     public void removeItems_afterClumpedAds_shouldStayClumped() {
         adsAt15repeating.placeAd(1, mMockNativeAd);
@@ -797,6 +821,70 @@ public class PlacementDataTest {
         checkPlacedPositions(20, adsAt15repeating);
     }
 
+    @Test
+    public void clearAds_withUnplacedPositionBetweenAds_shouldResetPositions() {
+        adsAt15repeating.placeAd(1, mMockNativeAd);
+        adsAt15repeating.placeAd(7, mMockNativeAd);
+        checkPlacedPositions(15, adsAt15repeating, 1, 7);
+        checkInsertionPositions(15, adsAt15repeating, 5, 10, 12, 14);
+
+        adsAt15repeating.clearAds();
+
+        checkPlacedPositions(15, adsAt15repeating);
+        checkInsertionPositions(15, adsAt15repeating, 1, 4, 6, 8, 10, 12, 14);
+    }
+
+    @Test
+    public void placeAd_beforeClumpedAd_shouldMoveClumpedAdDown() {
+        adsAt14.placeAd(3, mMockNativeAd);
+        adsAt14.removeItem(1);
+        adsAt14.removeItem(1);
+        checkPlacedPositions(10, adsAt14, 1);
+        checkInsertionPositions(10, adsAt14, 1);
+
+        adsAt14.placeAd(1, mMockNativeAd);
+
+        checkPlacedPositions(10, adsAt14, 1, 2);
+        checkInsertionPositions(10, adsAt14);
+        assertThat(adsAt14.getAdjustedPosition(1)).isEqualTo(3);
+    }
+
+    @Test
+    public void fromAdPositioning_withRepeatingPositions_shouldCapNumberOfAds() {
+        final PlacementData placementData = PlacementData.fromAdPositioning(
+                MoPubNativeAdPositioning.clientPositioning().enableRepeatingPositions(2), 3);
+
+        checkInsertionPositions(10, placementData, 1, 2, 3);
+        assertThat(adsRepeating.nextInsertionPosition(2 * PlacementData.MAX_ADS - 1))
+                .isEqualTo(2 * PlacementData.MAX_ADS);
+        assertThat(adsRepeating.nextInsertionPosition(2 * PlacementData.MAX_ADS))
+                .isEqualTo(NOT_FOUND);
+    }
+
+    @Test
+    public void fenwickTree_shouldSumAndSearchPrefixes() {
+        final PlacementData.FenwickTree tree =
+                new PlacementData.FenwickTree(new int[] {1, 0, 2, 3, 0});
+
+        assertThat(tree.sum(-1)).isEqualTo(0);
+        assertThat(tree.sum(0)).isEqualTo(1);
+        assertThat(tree.sum(2)).isEqualTo(3);
+        assertThat(tree.sum(4)).isEqualTo(6);
+        assertThat(tree.sum(10)).isEqualTo(6);
+
+        assertThat(tree.lowerBound(0)).isEqualTo(0);
+        assertThat(tree.lowerBound(1)).isEqualTo(0);
+        assertThat(tree.lowerBound(2)).isEqualTo(2);
+        assertThat(tree.lowerBound(4)).isEqualTo(3);
+        assertThat(tree.lowerBound(7)).isEqualTo(5);
+
+        tree.add(1, 2);
+
+        assertThat(tree.sum(1)).isEqualTo(3);
+        assertThat(tree.sum(4)).isEqualTo(8);
+        assertThat(tree.lowerBound(2)).isEqualTo(1);
+    }
+
     void checkInsertionPositions(int maxValue, PlacementData placementData, Integer... positions) {
         List<Integer> expected = Arrays.asList(positions);
         List<Integer> actual = new ArrayList<Integer>();
@@ -0,0 +1,116 @@
+// Copyright 2018-2020 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.nativeads;
+
+import com.google.android.exoplayer2.upstream.cache.Cache;
+import com.google.android.exoplayer2.upstream.cache.CacheSpan;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.io.File;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+public class ResizableCacheEvictorTest {
+    private Cache mockCache;
+    private ResizableCacheEvictor subject;
+
+    @Before
+    public void setUp() throws Exception {
+        mockCache = mock(Cache.class);
+        subject = new ResizableCacheEvictor(100);
+
+        // Like SimpleCache, tell the evictor about every span that is removed.
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(final InvocationOnMock invocation) {
+                subject.onSpanRemoved(mockCache, (CacheSpan) invocation.getArguments()[0]);
+                return null;
+            }
+        }).when(mockCache).removeSpan(any(CacheSpan.class));
+    }
+
+    @Test
+    public void onSpanAdded_whenOverMaxBytes_shouldEvictLeastRecentlyUsed() throws Exception {
+        final CacheSpan oldest = createSpan("a", 60, 1);
+        final CacheSpan newer = createSpan("b", 30, 2);
+        subject.onSpanAdded(mockCache, oldest);
+        subject.onSpanAdded(mockCache, newer);
+
+        subject.onSpanAdded(mockCache, createSpan("c", 30, 3));
+
+        verify(mockCache).removeSpan(oldest);
+        verify(mockCache, never()).removeSpan(newer);
+        assertThat(subject.getLeastRecentlyUsedSpan(mockCache)).isSameAs(newer);
+    }
+
+    @Test
+    public void setMaxBytes_withLargerQuota_shouldLetCacheGrow() throws Exception {
+        final CacheSpan oldest = createSpan("a", 60, 1);
+        subject.onSpanAdded(mockCache, oldest);
+
+        subject.setMaxBytes(mockCache, 200);
+        subject.onSpanAdded(mockCache, createSpan("b", 60, 2));
+        subject.onSpanAdded(mockCache, createSpan("c", 60, 3));
+
+        verify(mockCache, never()).removeSpan(any(CacheSpan.class));
+        assertThat(subject.getLeastRecentlyUsedSpan(mockCache)).isSameAs(oldest);
+    }
+
+    @Test
+    public void setMaxBytes_withSmallerQuota_shouldEvictUntilCacheFits() throws Exception {
+        final CacheSpan oldest = createSpan("a", 40, 1);
+        final CacheSpan middle = createSpan("b", 40, 2);
+        final CacheSpan newest = createSpan("c", 20, 3);
+        subject.onSpanAdded(mockCache, oldest);
+        subject.onSpanAdded(mockCache, middle);
+        subject.onSpanAdded(mockCache, newest);
+
+        subject.setMaxBytes(mockCache, 30);
+
+        verify(mockCache).removeSpan(oldest);
+        verify(mockCache).removeSpan(middle);
+        verify(mockCache, never()).removeSpan(newest);
+        assertThat(subject.getLeastRecentlyUsedSpan(mockCache)).isSameAs(newest);
+    }
+
+    @Test
+    public void onSpanTouched_shouldMakeSpanMostRecentlyUsed() throws Exception {
+        final CacheSpan first = createSpan("a", 40, 1);
+        final CacheSpan second = createSpan("b", 40, 2);
+        subject.onSpanAdded(mockCache, first);
+        subject.onSpanAdded(mockCache, second);
+
+        subject.onSpanTouched(mockCache, first, createSpan("a", 40, 3));
+        subject.onSpanAdded(mockCache, createSpan("c", 40, 4));
+
+        verify(mockCache).removeSpan(second);
+        verify(mockCache, never()).removeSpan(first);
+    }
+
+    @Test
+    public void onStartFile_withKnownLength_shouldMakeRoomForFile() throws Exception {
+        final CacheSpan span = createSpan("a", 60, 1);
+        subject.onSpanAdded(mockCache, span);
+
+        subject.onStartFile(mockCache, "b", 0, 50);
+
+        verify(mockCache).removeSpan(span);
+        assertThat(subject.getLeastRecentlyUsedSpan(mockCache)).isNull();
+    }
+
+    private static CacheSpan createSpan(final String key, final long length,
+            final long lastTouchTimestamp) {
+        return new CacheSpan(key, 0, length, lastTouchTimestamp, new File("/cache/" + key));
+    }
+}
@@ -0,0 +1,124 @@
+// Copyright 2018-2020 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.nativeads;
+
+import com.mopub.common.test.support.SdkTestRunner;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.fest.assertions.data.Offset.offset;
+
+@RunWith(SdkTestRunner.class)
+public class ScrollVelocityTrackerTest {
+    private static final int SAMPLE_COUNT = 60;
+    private static final long END_MILLIS = SAMPLE_COUNT * 100;
+
+    private ScrollVelocityTracker subject;
+
+    @Before
+    public void setUp() {
+        subject = new ScrollVelocityTracker();
+    }
+
+    @Test
+    public void getVelocity_withNoSamples_shouldReturnZero() {
+        assertThat(subject.getVelocity(0)).isEqualTo(0.0);
+        assertThat(subject.getLookAheadCount(0, 1000)).isEqualTo(0);
+        assertThat(subject.getPrefetchCount(0, 1000)).isEqualTo(0);
+    }
+
+    @Test
+    public void getVelocity_withSteadyScroll_shouldConvergeToItemsPerSecond() {
+        scrollSteadily();
+
+        assertThat(subject.getVelocity(END_MILLIS)).isEqualTo(10.0, offset(0.01));
+        assertThat(subject.getLookAheadCount(END_MILLIS, 1000)).isEqualTo(10);
+    }
+
+    @Test
+    public void getVelocity_withSlowScrollSampledEveryFrame_shouldNotSpike() {
+        // 1 item per second, sampled every 16ms. Most frames see no change in position.
+        for (long time = 0; time <= 10000; time += 16) {
+            subject.addSample((int) (time / 1000), time);
+        }
+
+        assertThat(subject.getPeakSpeed(10000)).isLessThan(2.0);
+        assertThat(subject.getLookAheadCount(10000, 1000)).isLessThanOrEqualTo(2);
+    }
+
+    @Test
+    public void getVelocity_withSamplesAtSameTime_shouldIgnoreThem() {
+        subject.addSample(0, 100);
+        subject.addSample(50, 100);
+
+        assertThat(subject.getVelocity(100)).isEqualTo(0.0);
+    }
+
+    @Test
+    public void getVelocity_whenIdle_shouldReturnZero_shouldKeepPeakSpeed() {
+        scrollSteadily();
+
+        final long idleTime = END_MILLIS + ScrollVelocityTracker.IDLE_TIMEOUT_MILLIS + 1;
+        assertThat(subject.getVelocity(idleTime)).isEqualTo(0.0);
+        assertThat(subject.getLookAheadCount(idleTime, 1000)).isEqualTo(0);
+        assertThat(subject.getPeakSpeed(idleTime)).isGreaterThan(9.0);
+    }
+
+    @Test
+    public void getPeakSpeed_shouldHalveEveryHalfLife() {
+        scrollSteadily();
+        final double peak = subject.getPeakSpeed(END_MILLIS);
+
+        assertThat(subject.getPeakSpeed(END_MILLIS + ScrollVelocityTracker.PEAK_HALF_LIFE_MILLIS))
+                .isEqualTo(peak / 2, offset(0.01));
+    }
+
+    @Test
+    public void getLookAheadCount_whenScrollingBackward_shouldReturnZero() {
+        for (int i = 0; i <= SAMPLE_COUNT; i++) {
+            subject.addSample(100 - i, i * 100);
+        }
+
+        assertThat(subject.getVelocity(END_MILLIS)).isLessThan(0.0);
+        assertThat(subject.getLookAheadCount(END_MILLIS, 1000)).isEqualTo(0);
+        assertThat(subject.getPrefetchCount(END_MILLIS, 1000)).isEqualTo(10);
+    }
+
+    @Test
+    public void addSample_afterIdle_shouldNotAverageWithPreviousGesture() {
+        scrollSteadily();
+
+        // Resume slowly after a long pause: 1 item in 500ms.
+        final long resumeTime = END_MILLIS + 10000;
+        subject.addSample(SAMPLE_COUNT + 1, resumeTime);
+        subject.addSample(SAMPLE_COUNT + 2,
+                resumeTime + ScrollVelocityTracker.VELOCITY_WINDOW_MILLIS);
+
+        assertThat(subject.getVelocity(resumeTime + ScrollVelocityTracker.VELOCITY_WINDOW_MILLIS))
+                .isEqualTo(1.0, offset(0.01));
+    }
+
+    @Test
+    public void reset_shouldClearVelocityAndPeak() {
+        scrollSteadily();
+
+        subject.reset();
+
+        assertThat(subject.getVelocity(END_MILLIS)).isEqualTo(0.0);
+        assertThat(subject.getPeakSpeed(END_MILLIS)).isEqualTo(0.0);
+    }
+
+    /**
+     * Scrolls 10 items per second, one item every 100ms, until {@link #END_MILLIS}.
+     */
+    private void scrollSteadily() {
+        for (int i = 0; i <= SAMPLE_COUNT; i++) {
+            subject.addSample(i, i * 100);
+        }
+    }
+}
@@ -57,7 +57,7 @@ public class StaticNativeViewHolderTest {
     public void setUp() throws Exception {
 
         Networking.setRequestQueueForTesting(mockRequestQueue);
-        Networking.setImageLoaderForTesting(mockImageLoader);
+        Networking.setNativeImageLoaderForTesting(mockImageLoader);
         context = Robolectric.buildActivity(Activity.class).create().get();
         relativeLayout = new RelativeLayout(context);
         relativeLayout.setId(View.generateViewId());
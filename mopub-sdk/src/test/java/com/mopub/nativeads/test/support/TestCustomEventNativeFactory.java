@@ -22,6 +22,11 @@ public class TestCustomEventNativeFactory extends CustomEventNativeFactory {
         return ((TestCustomEventNativeFactory) CustomEventNativeFactory.instance);
     }
 
+    @Override
+    protected CustomEventNative internalCreate(@NonNull final String className) {
+        return instance;
+    }
+
     @Override
     protected CustomEventNative internalCreate(@NonNull final Class<? extends CustomEventNative> nativeClass) {
         return instance;
@@ -0,0 +1,382 @@
+// Copyright 2018-2020 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.network;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.mopub.common.AdFormat;
+import com.mopub.common.Preconditions;
+import com.mopub.mobileads.MoPubErrorCode;
+import com.mopub.network.test.support.FakeAdServer;
+import com.mopub.volley.ExecutorDelivery;
+import com.mopub.volley.VolleyError;
+import com.mopub.volley.toolbox.BasicNetwork;
+import com.mopub.volley.toolbox.NoCache;
+
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs many {@link AdLoader}s at once against a {@link FakeAdServer} and reports how long they
+ * took to fill.
+ *
+ * Each load creates an AdLoader and walks its waterfall until a line item fills or the waterfall
+ * ends, the way AdViewController does. Line items fail to load at the configured rate, which
+ * moves the waterfall on to the next line item and the next page.
+ *
+ * Volley's network threads send the requests, and everything else runs on the calling thread,
+ * which has to be the main thread. It installs its own request queue in {@link Networking}.
+ */
+public class AdLoadDriver {
+    private static final long POLL_MILLIS = 10;
+    private static final double NANOS_PER_MILLI = 1000000.0;
+
+    @NonNull private final Context mContext;
+    @NonNull private final FakeAdServer mServer;
+    @NonNull private final List<String> mAdUnitIds;
+    @NonNull private final AdFormat mAdFormat;
+    private final int mConcurrency;
+    private final int mLoadCount;
+    private final double mLineItemFailureRate;
+    private final long mTimeoutMillis;
+    @NonNull private final Random mRandom = new Random(0);
+
+    // Responses from Volley's threads, run on the calling thread.
+    @NonNull private final BlockingQueue<Runnable> mDeliveries = new LinkedBlockingQueue<>();
+
+    private int mStarted;
+    private int mFinished;
+    private int mFills;
+    private int mNoFills;
+    private int mErrors;
+    private int mLineItems;
+    @NonNull private final List<Long> mFillNanos = new ArrayList<>();
+    private long mPeakHeapBytes;
+
+    private AdLoadDriver(@NonNull final Builder builder) {
+        mContext = builder.mContext;
+        mServer = builder.mServer;
+        mAdUnitIds = builder.mAdUnitIds;
+        mAdFormat = builder.mAdFormat;
+        mConcurrency = builder.mConcurrency;
+        mLoadCount = builder.mLoadCount;
+        mLineItemFailureRate = builder.mLineItemFailureRate;
+        mTimeoutMillis = builder.mTimeoutMillis;
+    }
+
+    public static class Builder {
+        @NonNull private final Context mContext;
+        @NonNull private final FakeAdServer mServer;
+        @NonNull private final List<String> mAdUnitIds;
+        @NonNull private AdFormat mAdFormat = AdFormat.BANNER;
+        private int mConcurrency = 10;
+        private int mLoadCount = 100;
+        private double mLineItemFailureRate;
+        private long mTimeoutMillis = 60000;
+
+        /**
+         * @param adUnitIds The ad units to load, taken in turn.
+         */
+        public Builder(@NonNull final Context context, @NonNull final FakeAdServer server,
+                @NonNull final String... adUnitIds) {
+            Preconditions.checkNotNull(context);
+            Preconditions.checkNotNull(server);
+            Preconditions.checkNotNull(adUnitIds);
+            Preconditions.checkArgument(adUnitIds.length > 0);
+
+            mContext = context;
+            mServer = server;
+            mAdUnitIds = Arrays.asList(adUnitIds);
+        }
+
+        @NonNull
+        public Builder adFormat(@NonNull final AdFormat adFormat) {
+            Preconditions.checkNotNull(adFormat);
+
+            mAdFormat = adFormat;
+            return this;
+        }
+
+        /**
+         * @param concurrency How many loads run at once. Also the number of network threads.
+         */
+        @NonNull
+        public Builder concurrency(final int concurrency) {
+            Preconditions.checkArgument(concurrency > 0);
+
+            mConcurrency = concurrency;
+            return this;
+        }
+
+        @NonNull
+        public Builder loadCount(final int loadCount) {
+            Preconditions.checkArgument(loadCount > 0);
+
+            mLoadCount = loadCount;
+            return this;
+        }
+
+        /**
+         * @param lineItemFailureRate The fraction of delivered line items that fail to load,
+         *                            like a network adapter with no fill.
+         */
+        @NonNull
+        public Builder lineItemFailureRate(final double lineItemFailureRate) {
+            Preconditions.checkArgument(lineItemFailureRate >= 0 && lineItemFailureRate <= 1);
+
+            mLineItemFailureRate = lineItemFailureRate;
+            return this;
+        }
+
+        @NonNull
+        public Builder timeoutMillis(final long timeoutMillis) {
+            Preconditions.checkArgument(timeoutMillis > 0);
+
+            mTimeoutMillis = timeoutMillis;
+            return this;
+        }
+
+        @NonNull
+        public AdLoadDriver build() {
+            return new AdLoadDriver(this);
+        }
+    }
+
+    /**
+     * Runs all the loads and waits for them to finish, or for the timeout.
+     */
+    @NonNull
+    public Report run() throws InterruptedException {
+        final MoPubRequestQueue requestQueue = new MoPubRequestQueue(new NoCache(),
+                new BasicNetwork(new RequestQueueHttpStack("AdLoadDriver")), mConcurrency,
+                new ExecutorDelivery(new Executor() {
+                    @Override
+                    public void execute(@NonNull final Runnable runnable) {
+                        mDeliveries.add(runnable);
+                    }
+                }));
+        Networking.setRequestQueueForTesting(requestQueue);
+        requestQueue.start();
+
+        final Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        final long startHeapBytes = runtime.totalMemory() - runtime.freeMemory();
+        mPeakHeapBytes = startHeapBytes;
+        final long startNanos = System.nanoTime();
+        final long deadlineNanos = startNanos + TimeUnit.MILLISECONDS.toNanos(mTimeoutMillis);
+
+        try {
+            while (mStarted < mConcurrency && mStarted < mLoadCount) {
+                startLoad();
+            }
+            while (mFinished < mLoadCount && System.nanoTime() < deadlineNanos) {
+                final Runnable delivery = mDeliveries.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (delivery != null) {
+                    delivery.run();
+                }
+                ShadowLooper.idleMainLooper();
+                mPeakHeapBytes = Math.max(mPeakHeapBytes,
+                        runtime.totalMemory() - runtime.freeMemory());
+            }
+        } finally {
+            requestQueue.stop();
+        }
+
+        final long durationNanos = System.nanoTime() - startNanos;
+        final long endHeapBytes = runtime.totalMemory() - runtime.freeMemory();
+        final long[] fillNanos = new long[mFillNanos.size()];
+        for (int i = 0; i < fillNanos.length; i++) {
+            fillNanos[i] = mFillNanos.get(i);
+        }
+        Arrays.sort(fillNanos);
+        return new Report(mLoadCount, mFinished, mFills, mNoFills, mErrors, mLineItems,
+                fillNanos, durationNanos, startHeapBytes, mPeakHeapBytes, endHeapBytes);
+    }
+
+    private void startLoad() {
+        final String adUnitId = mAdUnitIds.get(mStarted % mAdUnitIds.size());
+        mStarted++;
+        new Load(adUnitId).start();
+    }
+
+    private void onLoadFinished() {
+        mFinished++;
+        if (mStarted < mLoadCount) {
+            startLoad();
+        }
+    }
+
+    /**
+     * One ad load: an AdLoader and its waterfall.
+     */
+    private class Load implements AdLoader.Listener {
+        @NonNull private final AdLoader mAdLoader;
+        private final long mStartNanos;
+
+        Load(@NonNull final String adUnitId) {
+            mAdLoader = new AdLoader(mServer.getAdUrl(adUnitId), mAdFormat, adUnitId, mContext,
+                    this);
+            mStartNanos = System.nanoTime();
+        }
+
+        void start() {
+            mAdLoader.loadNextAd(null);
+        }
+
+        @Override
+        public void onSuccess(@NonNull final AdResponse response) {
+            mLineItems++;
+            if (mRandom.nextDouble() >= mLineItemFailureRate) {
+                mFillNanos.add(System.nanoTime() - mStartNanos);
+                mFills++;
+                mAdLoader.creativeDownloadSuccess();
+                onLoadFinished();
+                return;
+            }
+
+            if (mAdLoader.hasMoreAds()) {
+                mAdLoader.loadNextAd(MoPubErrorCode.NETWORK_NO_FILL);
+            } else {
+                mNoFills++;
+                onLoadFinished();
+            }
+        }
+
+        @Override
+        public void onErrorResponse(@Nullable final VolleyError volleyError) {
+            if (volleyError instanceof MoPubNetworkError && ((MoPubNetworkError) volleyError)
+                    .getReason() == MoPubNetworkError.Reason.NO_FILL) {
+                mNoFills++;
+            } else {
+                mErrors++;
+            }
+            onLoadFinished();
+        }
+    }
+
+    /**
+     * The results of a run. Latencies are from the start of a load until a line item filled.
+     */
+    public static class Report {
+        private final int mLoadCount;
+        private final int mFinishedCount;
+        private final int mFillCount;
+        private final int mNoFillCount;
+        private final int mErrorCount;
+        private final int mLineItemCount;
+        @NonNull private final long[] mSortedFillNanos;
+        private final long mDurationNanos;
+        private final long mStartHeapBytes;
+        private final long mPeakHeapBytes;
+        private final long mEndHeapBytes;
+
+        Report(final int loadCount, final int finishedCount, final int fillCount,
+                final int noFillCount, final int errorCount, final int lineItemCount,
+                @NonNull final long[] sortedFillNanos, final long durationNanos,
+                final long startHeapBytes, final long peakHeapBytes, final long endHeapBytes) {
+            mLoadCount = loadCount;
+            mFinishedCount = finishedCount;
+            mFillCount = fillCount;
+            mNoFillCount = noFillCount;
+            mErrorCount = errorCount;
+            mLineItemCount = lineItemCount;
+            mSortedFillNanos = sortedFillNanos;
+            mDurationNanos = durationNanos;
+            mStartHeapBytes = startHeapBytes;
+            mPeakHeapBytes = peakHeapBytes;
+            mEndHeapBytes = endHeapBytes;
+        }
+
+        public int getLoadCount() {
+            return mLoadCount;
+        }
+
+        /**
+         * @return How many loads finished before the timeout.
+         */
+        public int getFinishedCount() {
+            return mFinishedCount;
+        }
+
+        public int getFillCount() {
+            return mFillCount;
+        }
+
+        public int getNoFillCount() {
+            return mNoFillCount;
+        }
+
+        public int getErrorCount() {
+            return mErrorCount;
+        }
+
+        /**
+         * @return How many line items were delivered, including the ones that failed to load.
+         */
+        public int getLineItemCount() {
+            return mLineItemCount;
+        }
+
+        /**
+         * @param percentile Between 0 and 100.
+         * @return The fill latency at the percentile, or 0 if nothing filled.
+         */
+        public double getFillLatencyMillis(final double percentile) {
+            Preconditions.checkArgument(percentile >= 0 && percentile <= 100);
+
+            if (mSortedFillNanos.length == 0) {
+                return 0;
+            }
+            final int index = (int) Math.ceil(percentile / 100 * mSortedFillNanos.length) - 1;
+            return mSortedFillNanos[Math.max(index, 0)] / NANOS_PER_MILLI;
+        }
+
+        public double getDurationMillis() {
+            return mDurationNanos / NANOS_PER_MILLI;
+        }
+
+        public double getLoadsPerSecond() {
+            return mDurationNanos == 0 ? 0 : mFinishedCount * 1000 / getDurationMillis();
+        }
+
+        public long getStartHeapBytes() {
+            return mStartHeapBytes;
+        }
+
+        public long getPeakHeapBytes() {
+            return mPeakHeapBytes;
+        }
+
+        public long getEndHeapBytes() {
+            return mEndHeapBytes;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return String.format(Locale.US,
+                    "%d/%d loads in %.0fms (%.1f/s): %d fills, %d no fills, %d errors,"
+                            + " %d line items. Fill latency p50 %.1fms, p90 %.1fms, p99 %.1fms,"
+                            + " max %.1fms. Heap %dKB at start, %dKB peak, %dKB at end.",
+                    mFinishedCount, mLoadCount, getDurationMillis(), getLoadsPerSecond(),
+                    mFillCount, mNoFillCount, mErrorCount, mLineItemCount,
+                    getFillLatencyMillis(50), getFillLatencyMillis(90), getFillLatencyMillis(99),
+                    getFillLatencyMillis(100), mStartHeapBytes / 1024, mPeakHeapBytes / 1024,
+                    mEndHeapBytes / 1024);
+        }
+    }
+}
@@ -0,0 +1,183 @@
+// Copyright 2018-2020 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.network;
+
+import android.app.Activity;
+
+import com.mopub.common.MoPub;
+import com.mopub.common.privacy.PersonalInfoManager;
+import com.mopub.common.test.support.SdkTestRunner;
+import com.mopub.common.util.Reflection;
+import com.mopub.common.util.Strings;
+import com.mopub.network.test.support.FakeAdServer;
+import com.mopub.network.test.support.FakeAdServer.Latency;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Runs {@link AdLoadDriver} against a {@link FakeAdServer}.
+ */
+@RunWith(SdkTestRunner.class)
+public class AdLoadDriverTest {
+    private static final String AD_UNIT_ID = "adUnitId";
+
+    private Activity activity;
+    private FakeAdServer server;
+
+    @Before
+    public void setUp() throws Exception {
+        activity = Robolectric.buildActivity(Activity.class).create().get();
+        Reflection.getPrivateField(MoPub.class, "sSdkInitialized").setBoolean(null, true);
+        new Reflection.MethodBuilder(null, "setPersonalInfoManager")
+                .setStatic(MoPub.class)
+                .setAccessible()
+                .addParam(PersonalInfoManager.class, mock(PersonalInfoManager.class))
+                .execute();
+        RequestRateTrackerTest.clearRequestRateTracker();
+
+        server = FakeAdServer.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.stop();
+        Networking.clearForTesting();
+        RequestRateTrackerTest.clearRequestRateTracker();
+        new Reflection.MethodBuilder(null, "resetMoPub")
+                .setStatic(MoPub.class)
+                .setAccessible()
+                .execute();
+    }
+
+    @Test
+    public void run_shouldFillEveryLoad() throws Exception {
+        server.addWaterfallPage(AD_UNIT_ID, server.htmlLineItem("creative1"));
+        server.setAdLatency(Latency.fixed(20));
+        server.setTrackerLatency(Latency.logNormal(50, 0.5));
+
+        final AdLoadDriver.Report report = new AdLoadDriver.Builder(activity, server, AD_UNIT_ID)
+                .concurrency(4)
+                .loadCount(20)
+                .build()
+                .run();
+
+        assertThat(report.getLoadCount()).isEqualTo(20);
+        assertThat(report.getFinishedCount()).isEqualTo(20);
+        assertThat(report.getFillCount()).isEqualTo(20);
+        assertThat(report.getNoFillCount()).isEqualTo(0);
+        assertThat(report.getErrorCount()).isEqualTo(0);
+        assertThat(report.getLineItemCount()).isEqualTo(20);
+        assertThat(report.getFillLatencyMillis(50)).isGreaterThanOrEqualTo(20);
+        assertThat(report.getFillLatencyMillis(99))
+                .isGreaterThanOrEqualTo(report.getFillLatencyMillis(50));
+        assertThat(report.getFillLatencyMillis(100))
+                .isGreaterThanOrEqualTo(report.getFillLatencyMillis(99));
+        assertThat(report.getDurationMillis()).isGreaterThan(0);
+        assertThat(report.getLoadsPerSecond()).isGreaterThan(0);
+        assertThat(report.getPeakHeapBytes()).isGreaterThanOrEqualTo(report.getStartHeapBytes());
+        assertThat(report.toString()).contains("20/20");
+        assertThat(server.getAdRequestCount()).isEqualTo(20);
+    }
+
+    @Test
+    public void run_withFailingLineItems_shouldFollowFailUrlToEndOfWaterfall() throws Exception {
+        server.addWaterfallPage(AD_UNIT_ID, server.htmlLineItem("creative1"),
+                server.htmlLineItem("creative2"));
+        server.addWaterfallPage(AD_UNIT_ID, server.vastLineItem("creative3", 2));
+
+        final AdLoadDriver.Report report = new AdLoadDriver.Builder(activity, server, AD_UNIT_ID)
+                .concurrency(1)
+                .loadCount(1)
+                .lineItemFailureRate(1)
+                .build()
+                .run();
+
+        assertThat(report.getFinishedCount()).isEqualTo(1);
+        assertThat(report.getFillCount()).isEqualTo(0);
+        assertThat(report.getNoFillCount()).isEqualTo(1);
+        assertThat(report.getLineItemCount()).isEqualTo(3);
+        assertThat(server.getAdRequestCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void run_withBackoff_shouldRateLimitLaterLoads() throws Exception {
+        server.addWaterfallPage(AD_UNIT_ID, server.htmlLineItem("creative1"));
+        server.setBackoff(AD_UNIT_ID, 60000, "test");
+
+        final AdLoadDriver.Report report = new AdLoadDriver.Builder(activity, server, AD_UNIT_ID)
+                .concurrency(1)
+                .loadCount(3)
+                .build()
+                .run();
+
+        assertThat(report.getFillCount()).isEqualTo(1);
+        assertThat(report.getNoFillCount()).isEqualTo(2);
+        assertThat(server.getAdRequestCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void run_withFailingAdRequests_shouldReportErrors() throws Exception {
+        server.addWaterfallPage(AD_UNIT_ID, server.htmlLineItem("creative1"));
+        server.setAdFailureRate(1);
+
+        final AdLoadDriver.Report report = new AdLoadDriver.Builder(activity, server, AD_UNIT_ID)
+                .concurrency(2)
+                .loadCount(4)
+                .build()
+                .run();
+
+        assertThat(report.getFinishedCount()).isEqualTo(4);
+        assertThat(report.getErrorCount()).isEqualTo(4);
+        assertThat(server.getFailedRequestCount()).isGreaterThanOrEqualTo(4);
+    }
+
+    @Test
+    public void run_withoutWaterfall_shouldNotFill() throws Exception {
+        final AdLoadDriver.Report report = new AdLoadDriver.Builder(activity, server, AD_UNIT_ID)
+                .loadCount(2)
+                .build()
+                .run();
+
+        assertThat(report.getNoFillCount()).isEqualTo(2);
+        assertThat(report.getFillLatencyMillis(50)).isEqualTo(0.0);
+    }
+
+    @Test
+    public void fakeAdServer_shouldServeVastWrapperChain() throws Exception {
+        final String wrapper = get(server.getVastUrl(2));
+        final String innerWrapper = get(server.getVastUrl(1));
+        final String inline = get(server.getVastUrl(0));
+
+        assertThat(wrapper).contains("<Wrapper>").contains(server.getVastUrl(1));
+        assertThat(innerWrapper).contains("<Wrapper>").contains(server.getVastUrl(0));
+        assertThat(inline).contains("<InLine>").contains("<MediaFile");
+        assertThat(server.getVastRequestCount()).isEqualTo(3);
+    }
+
+    private static String get(final String url) throws Exception {
+        final HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        try {
+            final InputStream inputStream = connection.getInputStream();
+            try {
+                return Strings.fromStream(inputStream);
+            } finally {
+                inputStream.close();
+            }
+        } finally {
+            connection.disconnect();
+        }
+    }
+}
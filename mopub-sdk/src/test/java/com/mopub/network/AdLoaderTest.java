@@ -6,10 +6,14 @@ package com.mopub.network;
 
 import android.app.Activity;
 import android.content.Context;
+import android.os.Handler;
+
+import androidx.annotation.NonNull;
 
 import com.mopub.common.AdFormat;
 import com.mopub.common.test.support.SdkTestRunner;
 import com.mopub.common.util.ResponseHeader;
+import com.mopub.mobileads.MoPubErrorCode;
 import com.mopub.volley.NetworkResponse;
 import com.mopub.volley.Request;
 import com.mopub.volley.RequestQueue;
@@ -22,20 +26,25 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.robolectric.Robolectric;
 
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import static com.mopub.mobileads.MoPubErrorCode.UNSPECIFIED;
 import static org.fest.assertions.api.Assertions.assertThat;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.atLeast;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
@@ -142,6 +151,21 @@ public class AdLoaderTest {
         verify(requestQueue, never()).add(any(Request.class));
     }
 
+    @Test
+    public void loadNextAd_firstCall_overRequestRateLimit_makesNoRequest_returnsNull() {
+        RequestRateTracker.getInstance().setRequestRateLimit(adUnitId,
+                new RequestRateTracker.RequestRateLimit(1, 60000));
+        subject.loadNextAd(null);
+        final AdLoader secondLoader = new AdLoader("test-url", AdFormat.BANNER, adUnitId,
+                activity, mockListener);
+
+        Request<?> request = secondLoader.loadNextAd(null);
+
+        assertNull(request);
+        verify(mockListener).onErrorResponse(any(VolleyError.class));
+        verify(mockRequestQueue, times(1)).add(any(Request.class));
+    }
+
     @Test
     public void twoAdResponseWaterfall_whenBlockedAfterFirstRequest_shouldNotBlockSecondRequest()
             throws JSONException, MoPubNetworkError, NoSuchFieldException, IllegalAccessException {
@@ -282,6 +306,214 @@ public class AdLoaderTest {
         assertThat(subject.hasMoreAds()).isTrue();
     }
 
+    @Test
+    public void parallelWaterfall_shouldDeliverHighestPriorityLineItemThatLoads_shouldInvalidateLosers()
+            throws Exception {
+        final FakeLineItemLoader lineItemLoader = new FakeLineItemLoader();
+        lineItemLoader.fail("a", 300);
+        lineItemLoader.load("b", 500);
+        lineItemLoader.load("c", 100);
+        subject.enableParallelWaterfall(lineItemLoader, 3, 2000);
+        setMultiAdResponse(null, "a", "b", "c");
+
+        subject.loadNextAd(null);
+
+        assertThat(lineItemLoader.started).containsExactly("a", "b", "c");
+        advance(300);
+        // "c" loaded first but "b" is above it and still loading.
+        verify(mockListener, never()).onSuccess(any(AdResponse.class));
+
+        advance(200);
+
+        final ArgumentCaptor<AdResponse> responseCaptor = ArgumentCaptor.forClass(AdResponse.class);
+        verify(mockListener).onSuccess(responseCaptor.capture());
+        assertThat(responseCaptor.getValue().getStringBody()).isEqualTo("b");
+        assertThat(lineItemLoader.invalidated).containsExactly("c");
+        final List<String> trackingUrls = getTrackingUrls();
+        assertThat(trackingUrls).contains("before_load_a", "before_load_b", "before_load_c",
+                "after_load_fail_a", "after_load_c?result=ad_loaded");
+        assertThat(trackingUrls).excludes("after_load_success_b", "after_load_success_c",
+                "after_load_fail_b", "after_load_fail_c");
+
+        subject.creativeDownloadSuccess();
+
+        assertThat(getTrackingUrls()).contains("after_load_b?result=ad_loaded",
+                "after_load_success_b");
+        assertThat(getTrackingUrls()).excludes("after_load_success_c");
+    }
+
+    @Test
+    public void parallelWaterfall_afterDeadline_shouldDeliverBestLoadedLineItem_shouldReportTimeouts()
+            throws Exception {
+        final FakeLineItemLoader lineItemLoader = new FakeLineItemLoader();
+        lineItemLoader.load("a", 5000);
+        lineItemLoader.fail("b", 100);
+        lineItemLoader.load("c", 200);
+        subject.enableParallelWaterfall(lineItemLoader, 3, 1000);
+        setMultiAdResponse(null, "a", "b", "c");
+
+        subject.loadNextAd(null);
+        advance(999);
+
+        verify(mockListener, never()).onSuccess(any(AdResponse.class));
+
+        advance(1);
+
+        final ArgumentCaptor<AdResponse> responseCaptor = ArgumentCaptor.forClass(AdResponse.class);
+        verify(mockListener).onSuccess(responseCaptor.capture());
+        assertThat(responseCaptor.getValue().getStringBody()).isEqualTo("c");
+        assertThat(lineItemLoader.invalidated).containsExactly("a");
+        assertThat(getTrackingUrls()).contains("after_load_a?result=timeout",
+                "after_load_fail_a", "after_load_fail_b");
+
+        // The timed out line item finishing later changes nothing.
+        advance(5000);
+        verify(mockListener).onSuccess(any(AdResponse.class));
+        assertThat(getTrackingUrls()).excludes("after_load_a?result=ad_loaded");
+    }
+
+    @Test
+    public void parallelWaterfall_withNoLineItemLoading_shouldLoadNextLineItems() throws Exception {
+        final FakeLineItemLoader lineItemLoader = new FakeLineItemLoader();
+        lineItemLoader.fail("a", 100);
+        lineItemLoader.fail("b", 200);
+        lineItemLoader.load("c", 100);
+        subject.enableParallelWaterfall(lineItemLoader, 2, 1000);
+        setMultiAdResponse(null, "a", "b", "c");
+
+        subject.loadNextAd(null);
+        advance(200);
+
+        assertThat(lineItemLoader.started).containsExactly("a", "b", "c");
+        verify(mockListener, never()).onSuccess(any(AdResponse.class));
+
+        advance(100);
+
+        final ArgumentCaptor<AdResponse> responseCaptor = ArgumentCaptor.forClass(AdResponse.class);
+        verify(mockListener).onSuccess(responseCaptor.capture());
+        assertThat(responseCaptor.getValue().getStringBody()).isEqualTo("c");
+        assertThat(subject.hasMoreAds()).isFalse();
+    }
+
+    @Test
+    public void parallelWaterfall_withNoLineItemLoadingAtEndOfWaterfall_shouldDeliverNoFill()
+            throws Exception {
+        final FakeLineItemLoader lineItemLoader = new FakeLineItemLoader();
+        lineItemLoader.fail("a", 100);
+        lineItemLoader.load("b", 5000);
+        subject.enableParallelWaterfall(lineItemLoader, 2, 1000);
+        setMultiAdResponse(null, "a", "b");
+
+        subject.loadNextAd(null);
+        advance(1000);
+
+        verify(mockListener, never()).onSuccess(any(AdResponse.class));
+        verify(mockListener).onErrorResponse(any(MoPubNetworkError.class));
+        assertThat(lineItemLoader.invalidated).containsExactly("b");
+    }
+
+    @Test
+    public void parallelWaterfall_whenWinnerFailsToShow_shouldReportFailure_shouldLoadNextLineItems()
+            throws Exception {
+        final FakeLineItemLoader lineItemLoader = new FakeLineItemLoader();
+        lineItemLoader.load("a", 100);
+        lineItemLoader.load("b", 100);
+        subject.enableParallelWaterfall(lineItemLoader, 1, 1000);
+        setMultiAdResponse(null, "a", "b");
+
+        subject.loadNextAd(null);
+        advance(100);
+        subject.loadNextAd(UNSPECIFIED);
+        advance(100);
+
+        final ArgumentCaptor<AdResponse> responseCaptor = ArgumentCaptor.forClass(AdResponse.class);
+        verify(mockListener, times(2)).onSuccess(responseCaptor.capture());
+        assertThat(responseCaptor.getAllValues().get(0).getStringBody()).isEqualTo("a");
+        assertThat(responseCaptor.getAllValues().get(1).getStringBody()).isEqualTo("b");
+        assertThat(getTrackingUrls()).contains("after_load_fail_a");
+    }
+
+    private static void advance(final long millis) {
+        Robolectric.getForegroundThreadScheduler().advanceBy(millis, TimeUnit.MILLISECONDS);
+    }
+
+    private void setMultiAdResponse(final String failUrl, final String... contents)
+            throws Exception {
+        final JSONObject[] adResponseJsons = new JSONObject[contents.length];
+        for (int i = 0; i < contents.length; i++) {
+            adResponseJsons[i] = createLineItemJson(contents[i]);
+        }
+        final byte[] body = createResponseBody(failUrl, adResponseJsons);
+        final NetworkResponse testResponse = new NetworkResponse(200, body, headers, false);
+        getPrivateField("mMultiAdResponse").set(subject,
+                new MultiAdResponse(activity, testResponse, AdFormat.BANNER, adUnitId));
+    }
+
+    private List<String> getTrackingUrls() {
+        final ArgumentCaptor<Request> requestCaptor = ArgumentCaptor.forClass(Request.class);
+        verify(mockRequestQueue, atLeast(0)).add(requestCaptor.capture());
+        final List<String> urls = new ArrayList<>();
+        for (final Request request : requestCaptor.getAllValues()) {
+            urls.add(request.getUrl());
+        }
+        return urls;
+    }
+
+    private static JSONObject createLineItemJson(final String content) throws JSONException {
+        final JSONObject jsonAd = createAdResponseJson("trackingUrl_" + content, content);
+        final JSONObject metadata = jsonAd.getJSONObject(ResponseHeader.METADATA.getKey());
+        metadata.put(ResponseHeader.BEFORE_LOAD_URL.getKey(), "before_load_" + content);
+        metadata.put(ResponseHeader.AFTER_LOAD_URL.getKey(),
+                "after_load_" + content + "?result=%%LOAD_RESULT%%");
+        metadata.put(ResponseHeader.AFTER_LOAD_SUCCESS_URL.getKey(),
+                "after_load_success_" + content);
+        metadata.put(ResponseHeader.AFTER_LOAD_FAIL_URL.getKey(), "after_load_fail_" + content);
+        return jsonAd;
+    }
+
+    /**
+     * Stands in for custom events, loading or failing each line item after a set time.
+     */
+    private static class FakeLineItemLoader implements AdLoader.LineItemLoader {
+        final Map<String, Long> latencies = new HashMap<>();
+        final Map<String, Boolean> results = new HashMap<>();
+        final List<String> started = new ArrayList<>();
+        final List<String> invalidated = new ArrayList<>();
+        final Handler handler = new Handler();
+
+        void load(final String content, final long latencyMillis) {
+            latencies.put(content, latencyMillis);
+            results.put(content, true);
+        }
+
+        void fail(final String content, final long latencyMillis) {
+            latencies.put(content, latencyMillis);
+            results.put(content, false);
+        }
+
+        @Override
+        public void loadLineItem(@NonNull final AdResponse adResponse,
+                @NonNull final AdLoader.LineItemListener listener) {
+            final String content = adResponse.getStringBody();
+            started.add(content);
+            handler.postDelayed(new Runnable() {
+                @Override
+                public void run() {
+                    if (results.get(content)) {
+                        listener.onLineItemLoaded();
+                    } else {
+                        listener.onLineItemFailed(MoPubErrorCode.NETWORK_NO_FILL);
+                    }
+                }
+            }, latencies.get(content));
+        }
+
+        @Override
+        public void invalidateLineItem(@NonNull final AdResponse adResponse) {
+            invalidated.add(adResponse.getStringBody());
+        }
+    }
+
     // -----------  utils  -----------
     private static Field getPrivateField(final String name) throws NoSuchFieldException {
         Field declaredField = AdLoader.class.getDeclaredField(name);
@@ -0,0 +1,205 @@
+// Copyright 2018-2020 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.network;
+
+import android.app.Activity;
+
+import com.mopub.common.AdFormat;
+import com.mopub.common.metrics.Metrics;
+import com.mopub.common.metrics.MetricsExporter;
+import com.mopub.common.test.support.SdkTestRunner;
+import com.mopub.common.util.ResponseHeader;
+import com.mopub.volley.NetworkResponse;
+import com.mopub.volley.Request;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.robolectric.Robolectric;
+
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@RunWith(SdkTestRunner.class)
+public class AdPrefetcherTest {
+    private static final String URL = "test-url";
+    private static final String AD_UNIT_ID = "adUnitId";
+
+    @Mock
+    private AdLoader.Listener mockListener;
+    @Mock
+    private MoPubRequestQueue mockRequestQueue;
+
+    @Mock
+    private MetricsExporter mockMetricsExporter;
+
+    private Activity activity;
+    private AdPrefetcher subject;
+    private long hitCount;
+    private long wasteCount;
+    private long expiredCount;
+
+    @Before
+    public void setUp() {
+        activity = Robolectric.buildActivity(Activity.class).create().get();
+        Networking.setRequestQueueForTesting(mockRequestQueue);
+        Metrics.setExporter(mockMetricsExporter, TimeUnit.HOURS.toMillis(1));
+        hitCount = AdPrefetcher.HIT_COUNTER.sum();
+        wasteCount = AdPrefetcher.WASTE_COUNTER.sum();
+        expiredCount = AdPrefetcher.EXPIRED_COUNTER.sum();
+
+        subject = new AdPrefetcher(mockListener);
+    }
+
+    @After
+    public void tearDown() {
+        RequestRateTrackerTest.clearRequestRateTracker();
+        Metrics.setExporter(null, 0);
+    }
+
+    @Test
+    public void claim_withResponse_shouldDeliverFirstAdRightAway_shouldCountHit()
+            throws Exception {
+        subject.prefetch(URL, AdFormat.BANNER, AD_UNIT_ID, activity);
+        respond("a", "b");
+
+        // Nothing is delivered until a refresh asks for it.
+        verify(mockListener, never()).onSuccess(any(AdResponse.class));
+
+        final AdLoader adLoader = subject.claim();
+        assertThat(adLoader).isNotNull();
+        adLoader.loadNextAd(null);
+
+        final ArgumentCaptor<AdResponse> responseCaptor = ArgumentCaptor.forClass(AdResponse.class);
+        verify(mockListener).onSuccess(responseCaptor.capture());
+        assertThat(responseCaptor.getValue().getStringBody()).isEqualTo("a");
+        // Only the prefetch went to the ad server.
+        verify(mockRequestQueue, times(1)).add(any(MultiAdRequest.class));
+        assertThat(AdPrefetcher.HIT_COUNTER.sum() - hitCount).isEqualTo(1);
+        assertThat(AdPrefetcher.WASTE_COUNTER.sum() - wasteCount).isEqualTo(0);
+    }
+
+    @Test
+    public void claim_whileInFlight_shouldDeliverFirstAdWhenResponseArrives() throws Exception {
+        subject.prefetch(URL, AdFormat.BANNER, AD_UNIT_ID, activity);
+
+        final AdLoader adLoader = subject.claim();
+        assertThat(adLoader).isNotNull();
+        adLoader.loadNextAd(null);
+        verify(mockListener, never()).onSuccess(any(AdResponse.class));
+
+        respond("a");
+
+        verify(mockListener).onSuccess(any(AdResponse.class));
+        assertThat(AdPrefetcher.HIT_COUNTER.sum() - hitCount).isEqualTo(1);
+    }
+
+    @Test
+    public void claim_afterExpiration_shouldReturnNull_shouldCountExpired_shouldNotCountWaste() throws Exception {
+        subject.prefetch(URL, AdFormat.BANNER, AD_UNIT_ID, activity);
+        respond("a");
+
+        Robolectric.getForegroundThreadScheduler().advanceBy(
+                AdPrefetcher.DEFAULT_EXPIRATION_MILLIS + 1, TimeUnit.MILLISECONDS);
+
+        assertThat(subject.claim()).isNull();
+        assertThat(AdPrefetcher.EXPIRED_COUNTER.sum() - expiredCount).isEqualTo(1);
+        assertThat(AdPrefetcher.WASTE_COUNTER.sum() - wasteCount).isEqualTo(0);
+        assertThat(AdPrefetcher.HIT_COUNTER.sum() - hitCount).isEqualTo(0);
+    }
+
+    @Test
+    public void claim_afterFailure_shouldReturnNull_shouldNotTellListener() {
+        subject.prefetch(URL, AdFormat.BANNER, AD_UNIT_ID, activity);
+        captureRequest().deliverError(new MoPubNetworkError(MoPubNetworkError.Reason.NO_FILL));
+
+        assertThat(subject.claim()).isNull();
+        verify(mockListener, never()).onErrorResponse(any(MoPubNetworkError.class));
+    }
+
+    @Test
+    public void prefetch_withUnclaimedResponse_shouldCountWaste() throws Exception {
+        subject.prefetch(URL, AdFormat.BANNER, AD_UNIT_ID, activity);
+        respond("a");
+
+        subject.prefetch(URL, AdFormat.BANNER, AD_UNIT_ID, activity);
+
+        assertThat(AdPrefetcher.WASTE_COUNTER.sum() - wasteCount).isEqualTo(1);
+        verify(mockRequestQueue, times(2)).add(any(MultiAdRequest.class));
+    }
+
+    @Test
+    public void discard_whileInFlight_shouldCancelRequest_shouldNotCountWaste() {
+        subject.prefetch(URL, AdFormat.BANNER, AD_UNIT_ID, activity);
+        final MultiAdRequest request = captureRequest();
+
+        subject.discard();
+
+        assertThat(request.isCanceled()).isTrue();
+        assertThat(AdPrefetcher.WASTE_COUNTER.sum() - wasteCount).isEqualTo(0);
+        assertThat(subject.claim()).isNull();
+    }
+
+    @Test
+    public void prefetch_whenRateLimited_shouldNotRequest() {
+        RequestRateTracker.getInstance().registerRateLimit(AD_UNIT_ID, 10000, "reason");
+
+        subject.prefetch(URL, AdFormat.BANNER, AD_UNIT_ID, activity);
+
+        verify(mockRequestQueue, never()).add(any(Request.class));
+        assertThat(subject.claim()).isNull();
+    }
+
+    private MultiAdRequest captureRequest() {
+        final ArgumentCaptor<MultiAdRequest> requestCaptor =
+                ArgumentCaptor.forClass(MultiAdRequest.class);
+        verify(mockRequestQueue, times(1)).add(requestCaptor.capture());
+        return requestCaptor.getValue();
+    }
+
+    /**
+     * Answers the prefetch as the ad server would, with a waterfall of the given contents.
+     */
+    private void respond(final String... contents) throws Exception {
+        final JSONArray adResponses = new JSONArray();
+        for (final String content : contents) {
+            adResponses.put(createLineItemJson(content));
+        }
+        final JSONObject body = new JSONObject();
+        body.put(ResponseHeader.FAIL_URL.getKey(), null);
+        body.put(ResponseHeader.AD_RESPONSES.getKey(), adResponses);
+        final NetworkResponse networkResponse = new NetworkResponse(200,
+                body.toString().getBytes(), new HashMap<String, String>(), false);
+
+        captureRequest().deliverResponse(
+                new MultiAdResponse(activity, networkResponse, AdFormat.BANNER, AD_UNIT_ID));
+    }
+
+    private static JSONObject createLineItemJson(final String content) throws JSONException {
+        final JSONObject metadata = new JSONObject();
+        metadata.put(ResponseHeader.CONTENT_TYPE.getKey(), "text/html; charset=UTF-8");
+        metadata.put(ResponseHeader.AD_TYPE.getKey(), "html");
+        metadata.put(ResponseHeader.REFRESH_TIME.getKey(), 15);
+        metadata.put(ResponseHeader.HEIGHT.getKey(), 50);
+        metadata.put(ResponseHeader.WIDTH.getKey(), 320);
+
+        final JSONObject jsonAd = new JSONObject();
+        jsonAd.put(ResponseHeader.CONTENT.getKey(), content);
+        jsonAd.put(ResponseHeader.METADATA.getKey(), metadata);
+        return jsonAd;
+    }
+}
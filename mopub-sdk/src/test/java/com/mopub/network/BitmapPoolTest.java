@@ -0,0 +1,133 @@
+// Copyright 2018-2020 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.network;
+
+import android.graphics.Bitmap;
+
+import com.mopub.common.test.support.SdkTestRunner;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+@RunWith(SdkTestRunner.class)
+public class BitmapPoolTest {
+    private static final long MAX_SIZE_BYTES = 100 * 100 * 4 * 2;
+
+    private BitmapPool subject;
+
+    @Before
+    public void setUp() {
+        subject = new BitmapPool(MAX_SIZE_BYTES);
+    }
+
+    @Test
+    public void get_withEmptyPool_shouldReturnNull_shouldCountMiss() {
+        assertThat(subject.get(10, 10, Bitmap.Config.ARGB_8888)).isNull();
+        assertThat(subject.getMissCount()).isEqualTo(1);
+        assertThat(subject.getHitCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void get_shouldReturnSmallestBitmapThatFits_shouldRemoveItFromPool() {
+        final Bitmap small = Bitmap.createBitmap(20, 20, Bitmap.Config.ARGB_8888);
+        final Bitmap large = Bitmap.createBitmap(100, 100, Bitmap.Config.ARGB_8888);
+        subject.put(large);
+        subject.put(small);
+
+        assertThat(subject.get(10, 10, Bitmap.Config.ARGB_8888)).isSameAs(small);
+        assertThat(subject.getPooledCount()).isEqualTo(1);
+        assertThat(subject.getHitCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void get_whenNoBitmapIsLargeEnough_shouldReturnNull() {
+        subject.put(Bitmap.createBitmap(20, 20, Bitmap.Config.ARGB_8888));
+
+        assertThat(subject.get(50, 50, Bitmap.Config.ARGB_8888)).isNull();
+        assertThat(subject.getPooledCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void put_withImmutableBitmap_shouldIgnoreIt() {
+        final Bitmap mutable = Bitmap.createBitmap(20, 20, Bitmap.Config.ARGB_8888);
+        final Bitmap immutable = mutable.copy(Bitmap.Config.ARGB_8888, false);
+
+        subject.put(immutable);
+
+        assertThat(subject.getPooledCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void put_whenOverBudget_shouldDropOldestBitmaps() {
+        final Bitmap first = Bitmap.createBitmap(100, 100, Bitmap.Config.ARGB_8888);
+        final Bitmap second = Bitmap.createBitmap(100, 100, Bitmap.Config.ARGB_8888);
+        final Bitmap third = Bitmap.createBitmap(100, 100, Bitmap.Config.ARGB_8888);
+
+        subject.put(first);
+        subject.put(second);
+        subject.put(third);
+
+        assertThat(subject.getPooledCount()).isEqualTo(2);
+        assertThat(subject.getSizeBytes()).isLessThanOrEqualTo(MAX_SIZE_BYTES);
+    }
+
+    @Test
+    public void onEvicted_withUntrackedBitmap_shouldNotPoolIt() {
+        subject.onEvicted(Bitmap.createBitmap(20, 20, Bitmap.Config.ARGB_8888));
+
+        assertThat(subject.getPooledCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void onEvicted_withReleasedBitmap_shouldPoolIt() {
+        final Bitmap bitmap = Bitmap.createBitmap(20, 20, Bitmap.Config.ARGB_8888);
+        subject.acquire(bitmap);
+        subject.release(bitmap);
+
+        subject.onEvicted(bitmap);
+
+        assertThat(subject.getPooledCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void onEvicted_whileInUse_shouldPoolOnlyAfterLastRelease() {
+        final Bitmap bitmap = Bitmap.createBitmap(20, 20, Bitmap.Config.ARGB_8888);
+        subject.acquire(bitmap);
+        subject.acquire(bitmap);
+
+        subject.onEvicted(bitmap);
+        assertThat(subject.getPooledCount()).isEqualTo(0);
+
+        subject.release(bitmap);
+        assertThat(subject.getPooledCount()).isEqualTo(0);
+
+        subject.release(bitmap);
+        assertThat(subject.getPooledCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void put_whileAcquired_shouldPoolOnlyAfterLastRelease() {
+        final Bitmap bitmap = Bitmap.createBitmap(20, 20, Bitmap.Config.ARGB_8888);
+        subject.acquire(bitmap);
+
+        subject.put(bitmap);
+        assertThat(subject.getPooledCount()).isEqualTo(0);
+        assertThat(subject.get(20, 20, Bitmap.Config.ARGB_8888)).isNull();
+
+        subject.release(bitmap);
+        assertThat(subject.getPooledCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void getBytesPerPixel_shouldMatchConfig() {
+        assertThat(BitmapPool.getBytesPerPixel(Bitmap.Config.ALPHA_8)).isEqualTo(1);
+        assertThat(BitmapPool.getBytesPerPixel(Bitmap.Config.RGB_565)).isEqualTo(2);
+        assertThat(BitmapPool.getBytesPerPixel(Bitmap.Config.ARGB_8888)).isEqualTo(4);
+        assertThat(BitmapPool.getBytesPerPixel(null)).isEqualTo(4);
+    }
+}
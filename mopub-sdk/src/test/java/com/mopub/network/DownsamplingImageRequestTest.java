@@ -0,0 +1,64 @@
+// Copyright 2018-2020 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.network;
+
+import android.widget.ImageView.ScaleType;
+
+import com.mopub.common.test.support.SdkTestRunner;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+@RunWith(SdkTestRunner.class)
+public class DownsamplingImageRequestTest {
+
+    @Test
+    public void findBestSampleSize_shouldReturnLargestPowerOfTwoThatKeepsDesiredSize() {
+        assertThat(DownsamplingImageRequest.findBestSampleSize(1000, 1000, 144, 144)).isEqualTo(4);
+        assertThat(DownsamplingImageRequest.findBestSampleSize(1000, 500, 500, 250)).isEqualTo(2);
+        assertThat(DownsamplingImageRequest.findBestSampleSize(100, 100, 200, 200)).isEqualTo(1);
+    }
+
+    @Test
+    public void findBestSampleSize_withUnknownDesiredSize_shouldReturnOne() {
+        assertThat(DownsamplingImageRequest.findBestSampleSize(1000, 1000, 0, 0)).isEqualTo(1);
+    }
+
+    @Test
+    public void getResizedDimension_withNoLimits_shouldReturnActualSize() {
+        assertThat(DownsamplingImageRequest.getResizedDimension(0, 0, 1000, 500,
+                ScaleType.CENTER_INSIDE)).isEqualTo(1000);
+    }
+
+    @Test
+    public void getResizedDimension_withCenterInside_shouldFitInsideBounds() {
+        final int width = DownsamplingImageRequest.getResizedDimension(144, 144, 1000, 500,
+                ScaleType.CENTER_INSIDE);
+        final int height = DownsamplingImageRequest.getResizedDimension(144, 144, 500, 1000,
+                ScaleType.CENTER_INSIDE);
+
+        assertThat(width).isEqualTo(144);
+        assertThat(height).isEqualTo(72);
+    }
+
+    @Test
+    public void getResizedDimension_withCenterCrop_shouldCoverBounds() {
+        final int width = DownsamplingImageRequest.getResizedDimension(144, 144, 1000, 500,
+                ScaleType.CENTER_CROP);
+        final int height = DownsamplingImageRequest.getResizedDimension(144, 144, 500, 1000,
+                ScaleType.CENTER_CROP);
+
+        assertThat(width).isEqualTo(288);
+        assertThat(height).isEqualTo(144);
+    }
+
+    @Test
+    public void getResizedDimension_withFitXY_shouldUseMaxSize() {
+        assertThat(DownsamplingImageRequest.getResizedDimension(144, 100, 1000, 500,
+                ScaleType.FIT_XY)).isEqualTo(144);
+    }
+}
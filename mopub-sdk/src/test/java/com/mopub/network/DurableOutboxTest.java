@@ -0,0 +1,371 @@
+// Copyright 2018-2020 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.network;
+
+import android.app.Activity;
+
+import androidx.annotation.NonNull;
+
+import com.mopub.common.test.support.SdkTestRunner;
+import com.mopub.volley.NetworkResponse;
+import com.mopub.volley.VolleyError;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.robolectric.Robolectric;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@RunWith(SdkTestRunner.class)
+public class DurableOutboxTest {
+    private static final String ID = "completion id";
+    private static final String URL = "https://ads.mopub.com/m/rewarded_video_completion?id=1";
+
+    @Mock
+    private MoPubRequestQueue mockRequestQueue;
+
+    private Activity activity;
+    private File file;
+    private Executor directExecutor;
+    private DurableOutbox subject;
+
+    @Before
+    public void setUp() {
+        activity = Robolectric.buildActivity(Activity.class).create().get();
+        Networking.setRequestQueueForTesting(mockRequestQueue);
+        file = new File(activity.getFilesDir(), DurableOutbox.FILE_NAME);
+        directExecutor = new Executor() {
+            @Override
+            public void execute(@NonNull final Runnable runnable) {
+                runnable.run();
+            }
+        };
+
+        subject = new DurableOutbox(file, directExecutor);
+    }
+
+    @After
+    public void tearDown() {
+        Networking.setRequestQueueForTesting(null);
+    }
+
+    @Test
+    public void enqueue_shouldSurviveRestart_shouldBeSentOnReplay() {
+        assertThat(enqueue(subject, ID)).isTrue();
+
+        subject = restart();
+        assertThat(subject.isPending(ID)).isTrue();
+        subject.replayInBackground(activity);
+
+        assertThat(captureRequest().getUrl()).isEqualTo(URL);
+    }
+
+    @Test
+    public void replay_withSuccessfulResponse_shouldComplete_shouldNotSendAfterNextRestart() {
+        enqueue(subject, ID);
+        subject = restart();
+        subject.replayInBackground(activity);
+
+        captureRequest().deliverResponse(200);
+
+        assertThat(subject.isPending(ID)).isFalse();
+        assertThat(subject.isCompleted(ID)).isTrue();
+
+        reset(mockRequestQueue);
+        subject = restart();
+        subject.replayInBackground(activity);
+
+        verify(mockRequestQueue, never()).add(any(MoPubRequest.class));
+        assertThat(subject.isCompleted(ID)).isTrue();
+    }
+
+    @Test
+    public void replay_withServerError_shouldRetryAfterBackoff() {
+        enqueue(subject, ID);
+        subject = restart();
+        subject.replayInBackground(activity);
+
+        captureRequest().deliverError(new VolleyError(new NetworkResponse(503, new byte[0],
+                new HashMap<String, String>(), false)));
+        verify(mockRequestQueue, times(1)).add(any(MoPubRequest.class));
+
+        Robolectric.getForegroundThreadScheduler().advanceBy(DurableOutbox.getRetryTime(1),
+                TimeUnit.MILLISECONDS);
+
+        verify(mockRequestQueue, times(2)).add(any(MoPubRequest.class));
+        assertThat(subject.isPending(ID)).isTrue();
+    }
+
+    @Test
+    public void replay_withClientError_shouldComplete() {
+        enqueue(subject, ID);
+        subject = restart();
+        subject.replayInBackground(activity);
+
+        captureRequest().deliverError(new VolleyError(new NetworkResponse(404, new byte[0],
+                new HashMap<String, String>(), false)));
+
+        assertThat(subject.isCompleted(ID)).isTrue();
+    }
+
+    @Test
+    public void enqueue_withPendingOrCompletedId_shouldReturnFalse() {
+        assertThat(enqueue(subject, ID)).isTrue();
+        assertThat(enqueue(subject, ID)).isFalse();
+
+        subject.complete(ID);
+        assertThat(enqueue(subject, ID)).isFalse();
+
+        subject = restart();
+        assertThat(enqueue(subject, ID)).isFalse();
+    }
+
+    @Test
+    public void replay_shouldNotSendCallbacksQueuedInThisSession() {
+        enqueue(subject, ID);
+
+        subject.replayInBackground(activity);
+
+        verify(mockRequestQueue, never()).add(any(MoPubRequest.class));
+    }
+
+    @Test
+    public void load_withTornLastRecord_shouldIgnoreIt_shouldRewriteFile() throws Exception {
+        enqueue(subject, ID);
+        final FileOutputStream outputStream = new FileOutputStream(file, true);
+        outputStream.write("A 12".getBytes("UTF-8"));
+        outputStream.close();
+
+        subject = restart();
+        assertThat(subject.getPendingIds()).containsExactly(ID);
+        subject.replayInBackground(activity);
+
+        assertThat(readLines()).hasSize(1);
+        subject.complete(ID);
+        assertThat(restart().isCompleted(ID)).isTrue();
+    }
+
+    @Test
+    public void replay_withExpiredCallback_shouldDropIt() throws Exception {
+        final long createdTimeMillis = System.currentTimeMillis()
+                - DurableOutbox.MAX_PENDING_AGE_MILLIS - 1;
+        final FileOutputStream outputStream = new FileOutputStream(file);
+        outputStream.write(("A " + createdTimeMillis + " id " + "url\n").getBytes("UTF-8"));
+        outputStream.close();
+
+        subject = restart();
+        subject.replayInBackground(activity);
+
+        verify(mockRequestQueue, never()).add(any(MoPubRequest.class));
+        assertThat(subject.getPendingIds()).isEmpty();
+        assertThat(readLines()).isEmpty();
+    }
+
+    @Test
+    public void complete_shouldRememberOnlyRecentIds() {
+        for (int i = 0; i <= DurableOutbox.MAX_COMPLETED_IDS; i++) {
+            enqueue(subject, "id" + i);
+            subject.complete("id" + i);
+        }
+
+        assertThat(subject.isCompleted("id0")).isFalse();
+        assertThat(subject.isCompleted("id" + DurableOutbox.MAX_COMPLETED_IDS)).isTrue();
+    }
+
+    @Test
+    public void load_withUnterminatedLastRecord_shouldIgnoreIt() throws Exception {
+        enqueue(subject, ID);
+        final FileOutputStream outputStream = new FileOutputStream(file, true);
+        outputStream.write(("A " + System.currentTimeMillis() + " torn https://ads.mopub.com/m/r")
+                .getBytes("UTF-8"));
+        outputStream.close();
+
+        subject = restart();
+
+        assertThat(subject.getPendingIds()).containsExactly(ID);
+        assertThat(enqueue(subject, "torn")).isTrue();
+        assertThat(restart().getPendingIds()).containsExactly(ID, "torn");
+    }
+
+    @Test
+    public void enqueue_beforeFileIsRead_shouldNotWaitForIt_shouldReportOnceRead() {
+        final List<Runnable> tasks = new ArrayList<>();
+        subject = new DurableOutbox(file, new Executor() {
+            @Override
+            public void execute(@NonNull final Runnable runnable) {
+                tasks.add(runnable);
+            }
+        });
+        final DurableOutbox.Listener mockListener = mock(DurableOutbox.Listener.class);
+
+        subject.enqueue(ID, URL, mockListener);
+
+        verify(mockListener, never()).onEnqueued(anyBoolean());
+
+        runTasks(tasks);
+
+        verify(mockListener).onEnqueued(true);
+    }
+
+    @Test
+    public void enqueue_beforeRecordIsWritten_shouldBeLostByRestart() {
+        final List<Runnable> tasks = new ArrayList<>();
+        subject = new DurableOutbox(file, new Executor() {
+            @Override
+            public void execute(@NonNull final Runnable runnable) {
+                tasks.add(runnable);
+            }
+        });
+        subject.enqueue(ID, URL, mock(DurableOutbox.Listener.class));
+        // Reads the file and queues the callback in memory.
+        tasks.remove(0).run();
+        tasks.remove(0).run();
+
+        // The process dying now loses the callback.
+        assertThat(restart().isPending(ID)).isFalse();
+
+        runTasks(tasks);
+
+        assertThat(restart().isPending(ID)).isTrue();
+    }
+
+    @Test
+    public void complete_withConversion_shouldRememberItAfterOtherIds() {
+        enqueue(subject, DurableOutbox.CONVERSION_ID);
+        subject.complete(DurableOutbox.CONVERSION_ID);
+
+        for (int i = 0; i <= DurableOutbox.MAX_COMPLETED_IDS; i++) {
+            enqueue(subject, "id" + i);
+            subject.complete("id" + i);
+        }
+
+        assertThat(subject.isCompleted(DurableOutbox.CONVERSION_ID)).isTrue();
+        assertThat(subject.isCompleted("id0")).isFalse();
+        assertThat(subject.isCompleted("id1")).isTrue();
+
+        subject = restart();
+        assertThat(subject.isCompleted(DurableOutbox.CONVERSION_ID)).isTrue();
+        assertThat(subject.isCompleted("id0")).isFalse();
+    }
+
+    @Test
+    public void enqueue_whileFileIsBeingWritten_shouldNotWaitForWrite() throws Exception {
+        final List<Thread> writeThreads = new CopyOnWriteArrayList<>();
+        subject = new DurableOutbox(file, new Executor() {
+            @Override
+            public void execute(@NonNull final Runnable runnable) {
+                final Thread thread = new Thread(runnable);
+                writeThreads.add(thread);
+                thread.start();
+            }
+        });
+        final CountDownLatch writeLockHeld = new CountDownLatch(1);
+        final CountDownLatch releaseWriteLock = new CountDownLatch(1);
+        final Thread writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                synchronized (subject.mWriteLock) {
+                    writeLockHeld.countDown();
+                    try {
+                        releaseWriteLock.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+        });
+        writer.start();
+        assertThat(writeLockHeld.await(1, TimeUnit.SECONDS)).isTrue();
+
+        try {
+            final CountDownLatch enqueued = new CountDownLatch(1);
+            subject.enqueue(ID, URL, new DurableOutbox.Listener() {
+                @Override
+                public void onEnqueued(final boolean queued) {
+                    if (queued) {
+                        enqueued.countDown();
+                    }
+                }
+            });
+
+            // The result is posted to the main looper while the write is still waiting.
+            for (int i = 0; i < 100 && enqueued.getCount() > 0; i++) {
+                ShadowLooper.idleMainLooper();
+                enqueued.await(10, TimeUnit.MILLISECONDS);
+            }
+            assertThat(enqueued.getCount()).isEqualTo(0);
+            assertThat(subject.isPending(ID)).isTrue();
+        } finally {
+            releaseWriteLock.countDown();
+            writer.join();
+            for (int i = 0; i < writeThreads.size(); i++) {
+                writeThreads.get(i).join();
+            }
+        }
+    }
+
+    private static Boolean enqueue(final DurableOutbox outbox, final String id) {
+        final Boolean[] queued = new Boolean[1];
+        outbox.enqueue(id, URL, new DurableOutbox.Listener() {
+            @Override
+            public void onEnqueued(final boolean wasQueued) {
+                queued[0] = wasQueued;
+            }
+        });
+        return queued[0];
+    }
+
+    private static void runTasks(final List<Runnable> tasks) {
+        while (!tasks.isEmpty()) {
+            tasks.remove(0).run();
+        }
+    }
+
+    private DurableOutbox restart() {
+        return new DurableOutbox(file, directExecutor);
+    }
+
+    private DurableOutbox.OutboxRequest captureRequest() {
+        final ArgumentCaptor<DurableOutbox.OutboxRequest> requestCaptor =
+                ArgumentCaptor.forClass(DurableOutbox.OutboxRequest.class);
+        verify(mockRequestQueue).add(requestCaptor.capture());
+        return requestCaptor.getValue();
+    }
+
+    private List<String> readLines() throws Exception {
+        final List<String> lines = new ArrayList<>();
+        final BufferedReader reader = new BufferedReader(new FileReader(file));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lines.add(line);
+        }
+        reader.close();
+        return lines;
+    }
+}
@@ -0,0 +1,185 @@
+// Copyright 2018-2020 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.network;
+
+import android.app.Activity;
+
+import com.mopub.common.DiskBudget;
+import com.mopub.common.test.support.SdkTestRunner;
+import com.mopub.common.util.Utils;
+import com.mopub.volley.Cache;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(SdkTestRunner.class)
+public class ImageDiskCacheTest {
+    private static final String KEY = ImageDiskCache.CACHE_KEY_PREFIX + "https://example.com/image.png";
+    private static final byte[] DATA = new byte[]{1, 2, 3, 4, 5};
+
+    private File directory;
+    private ImageDiskCache subject;
+
+    @Before
+    public void setUp() {
+        final Activity activity = Robolectric.buildActivity(Activity.class).create().get();
+        directory = new File(activity.getCacheDir(), "image-disk-cache-test");
+        subject = new ImageDiskCache(directory, 1024 * 1024);
+        subject.initialize();
+    }
+
+    @After
+    public void tearDown() {
+        subject.clear();
+    }
+
+    @Test
+    public void get_withNoEntry_shouldReturnNull_shouldCountMiss() {
+        assertThat(subject.get(KEY)).isNull();
+        assertThat(subject.getMissCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void put_thenGet_shouldRoundTripEntry() {
+        final Cache.Entry entry = createEntry();
+        entry.etag = "etag";
+        entry.lastModified = 1234L;
+
+        subject.put(KEY, entry);
+        final Cache.Entry result = subject.get(KEY);
+
+        assertThat(result).isNotNull();
+        assertThat(result.data).isEqualTo(DATA);
+        assertThat(result.etag).isEqualTo("etag");
+        assertThat(result.lastModified).isEqualTo(1234L);
+        assertThat(result.responseHeaders.get("Content-Type")).isEqualTo("image/png");
+        assertThat(result.allResponseHeaders).hasSize(1);
+        assertThat(subject.getHitCount()).isEqualTo(1);
+        assertThat(subject.getBytesServed()).isEqualTo(DATA.length);
+    }
+
+    @Test
+    public void put_withNoCachingHeaders_shouldKeepEntryFreshForMinimumTime() {
+        final long now = System.currentTimeMillis();
+
+        subject.put(KEY, createEntry());
+        final Cache.Entry result = subject.get(KEY);
+
+        assertThat(result.isExpired()).isFalse();
+        assertThat(result.refreshNeeded()).isFalse();
+        assertThat(result.ttl).isGreaterThanOrEqualTo(now + ImageDiskCache.MIN_FRESHNESS_MILLIS);
+    }
+
+    @Test
+    public void put_shouldSurviveReopeningCache() {
+        subject.put(KEY, createEntry());
+
+        final ImageDiskCache reopened = new ImageDiskCache(directory, 1024 * 1024);
+        reopened.initialize();
+
+        assertThat(reopened.get(KEY).data).isEqualTo(DATA);
+    }
+
+    @Test
+    public void invalidate_withFullExpire_shouldExpireEntry() {
+        subject.put(KEY, createEntry());
+
+        subject.invalidate(KEY, true);
+
+        final Cache.Entry result = subject.get(KEY);
+        assertThat(result.isExpired()).isTrue();
+        assertThat(result.data).isEqualTo(DATA);
+    }
+
+    @Test
+    public void invalidate_shouldNotCountLookup() {
+        subject.put(KEY, createEntry());
+
+        subject.invalidate(KEY, false);
+        subject.invalidate("missing", false);
+
+        assertThat(subject.getHitCount()).isEqualTo(0);
+        assertThat(subject.getMissCount()).isEqualTo(0);
+        assertThat(subject.getBytesServed()).isEqualTo(0);
+        assertThat(subject.get(KEY).refreshNeeded()).isTrue();
+    }
+
+    @Test
+    public void get_withUnreadableEntry_shouldReturnNull_shouldCountMiss() throws Exception {
+        final DiskBudget mockDiskBudget = mock(DiskBudget.class);
+        when(mockDiskBudget.register(any(DiskBudget.Participant.class))).thenReturn(1024 * 1024L);
+        subject = new ImageDiskCache(directory, 1024 * 1024);
+        subject.setDiskBudget(mockDiskBudget);
+        subject.initialize();
+        subject.put(KEY, createEntry());
+        final FileOutputStream outputStream = new FileOutputStream(
+                new File(directory, Utils.sha1(KEY) + ".0"));
+        outputStream.write("{".getBytes("UTF-8"));
+        outputStream.close();
+
+        assertThat(subject.get(KEY)).isNull();
+
+        assertThat(subject.getMissCount()).isEqualTo(1);
+        verify(mockDiskBudget).recordMiss(subject.getName());
+    }
+
+    @Test
+    public void remove_shouldDeleteEntry() {
+        subject.put(KEY, createEntry());
+
+        subject.remove(KEY);
+
+        assertThat(subject.get(KEY)).isNull();
+    }
+
+    @Test
+    public void setImageDimensions_shouldBeReadableFromHeaders() {
+        final Cache.Entry entry = createEntry();
+
+        ImageDiskCache.setImageDimensions(entry, 320, 50);
+
+        assertThat(ImageDiskCache.getImageDimension(entry.responseHeaders,
+                ImageDiskCache.IMAGE_WIDTH_HEADER)).isEqualTo(320);
+        assertThat(ImageDiskCache.getImageDimension(entry.responseHeaders,
+                ImageDiskCache.IMAGE_HEIGHT_HEADER)).isEqualTo(50);
+        assertThat(entry.responseHeaders.get("Content-Type")).isEqualTo("image/png");
+    }
+
+    @Test
+    public void getImageDimension_withMissingOrInvalidHeader_shouldReturnZero() {
+        final Map<String, String> headers = new HashMap<>();
+        headers.put(ImageDiskCache.IMAGE_WIDTH_HEADER, "wide");
+
+        assertThat(ImageDiskCache.getImageDimension(headers,
+                ImageDiskCache.IMAGE_WIDTH_HEADER)).isEqualTo(0);
+        assertThat(ImageDiskCache.getImageDimension(headers,
+                ImageDiskCache.IMAGE_HEIGHT_HEADER)).isEqualTo(0);
+        assertThat(ImageDiskCache.getImageDimension(null,
+                ImageDiskCache.IMAGE_HEIGHT_HEADER)).isEqualTo(0);
+    }
+
+    private static Cache.Entry createEntry() {
+        final Cache.Entry entry = new Cache.Entry();
+        entry.data = DATA;
+        final Map<String, String> headers = new HashMap<>();
+        headers.put("Content-Type", "image/png");
+        entry.responseHeaders = headers;
+        return entry;
+    }
+}
@@ -0,0 +1,107 @@
+// Copyright 2018-2020 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.network;
+
+import android.graphics.Bitmap;
+
+import com.mopub.common.test.support.SdkTestRunner;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@RunWith(SdkTestRunner.class)
+public class ImageMemoryCacheTest {
+    // 1 MB icon budget and 3 MB main image budget.
+    private static final int MAX_SIZE_BYTES = 4 * 1024 * 1024;
+
+    private BitmapPool mockBitmapPool;
+    private ImageMemoryCache subject;
+
+    @Before
+    public void setUp() {
+        mockBitmapPool = mock(BitmapPool.class);
+        subject = new ImageMemoryCache(MAX_SIZE_BYTES, mockBitmapPool);
+    }
+
+    @Test
+    public void putBitmap_withIcon_shouldUseIconBudget() {
+        final Bitmap icon = Bitmap.createBitmap(64, 64, Bitmap.Config.ARGB_8888);
+
+        subject.putBitmap("icon", icon);
+
+        assertThat(subject.getBitmap("icon")).isSameAs(icon);
+        assertThat(subject.getIconSizeBytes()).isEqualTo(64 * 64 * 4);
+        assertThat(subject.getMainImageSizeBytes()).isEqualTo(0);
+    }
+
+    @Test
+    public void putBitmap_withMainImage_shouldUseMainImageBudget() {
+        final Bitmap mainImage = Bitmap.createBitmap(1000, 500, Bitmap.Config.ARGB_8888);
+
+        subject.putBitmap("main", mainImage);
+
+        assertThat(subject.getBitmap("main")).isSameAs(mainImage);
+        assertThat(subject.getIconSizeBytes()).isEqualTo(0);
+        assertThat(subject.getMainImageSizeBytes()).isEqualTo(1000 * 500 * 4);
+    }
+
+    @Test
+    public void putBitmap_withMainImagesOverBudget_shouldNotEvictIcons() {
+        final Bitmap icon = Bitmap.createBitmap(64, 64, Bitmap.Config.ARGB_8888);
+        subject.putBitmap("icon", icon);
+
+        for (int i = 0; i < 5; i++) {
+            subject.putBitmap("main" + i, Bitmap.createBitmap(1000, 500, Bitmap.Config.ARGB_8888));
+        }
+
+        assertThat(subject.getBitmap("icon")).isSameAs(icon);
+        assertThat(subject.getBitmap("main0")).isNull();
+        assertThat(subject.getBitmap("main4")).isNotNull();
+    }
+
+    @Test
+    public void putBitmap_whenEvicting_shouldOfferBitmapToPool() {
+        final Bitmap first = Bitmap.createBitmap(1000, 500, Bitmap.Config.ARGB_8888);
+        subject.putBitmap("main0", first);
+
+        for (int i = 1; i < 5; i++) {
+            subject.putBitmap("main" + i, Bitmap.createBitmap(1000, 500, Bitmap.Config.ARGB_8888));
+        }
+
+        verify(mockBitmapPool).onEvicted(first);
+    }
+
+    @Test
+    public void take_shouldRemoveBitmap_shouldNotOfferItToPool() {
+        final Bitmap icon = Bitmap.createBitmap(64, 64, Bitmap.Config.ARGB_8888);
+        subject.putBitmap("icon", icon);
+
+        assertThat(subject.take("icon")).isSameAs(icon);
+
+        assertThat(subject.getBitmap("icon")).isNull();
+        verify(mockBitmapPool, never()).onEvicted(icon);
+    }
+
+    @Test
+    public void getHitRate_shouldCountLookupsAcrossBothCaches() {
+        subject.putBitmap("icon", Bitmap.createBitmap(64, 64, Bitmap.Config.ARGB_8888));
+        subject.putBitmap("main", Bitmap.createBitmap(1000, 500, Bitmap.Config.ARGB_8888));
+
+        subject.getBitmap("icon");
+        subject.getBitmap("main");
+        subject.getBitmap("missing");
+        subject.getBitmap("missing");
+
+        assertThat(subject.getHitCount()).isEqualTo(2);
+        assertThat(subject.getMissCount()).isEqualTo(2);
+        assertThat(subject.getHitRate()).isEqualTo(0.5);
+    }
+}
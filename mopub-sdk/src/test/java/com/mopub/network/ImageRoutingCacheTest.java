@@ -0,0 +1,66 @@
+// Copyright 2018-2020 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.network;
+
+import com.mopub.common.test.support.SdkTestRunner;
+import com.mopub.volley.Cache;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+@RunWith(SdkTestRunner.class)
+public class ImageRoutingCacheTest {
+    private static final String IMAGE_KEY = ImageDiskCache.CACHE_KEY_PREFIX + "https://example.com/image.png";
+    private static final String OTHER_KEY = "https://example.com/positioning";
+
+    @Mock private Cache mockDefaultCache;
+    @Mock private ImageDiskCache mockImageDiskCache;
+
+    private ImageRoutingCache subject;
+
+    @Before
+    public void setUp() {
+        subject = new ImageRoutingCache(mockDefaultCache, mockImageDiskCache);
+    }
+
+    @Test
+    public void get_withImageKey_shouldUseImageDiskCache() {
+        subject.get(IMAGE_KEY);
+
+        verify(mockImageDiskCache).get(IMAGE_KEY);
+        verifyZeroInteractions(mockDefaultCache);
+    }
+
+    @Test
+    public void put_withOtherKey_shouldUseDefaultCache() {
+        final Cache.Entry entry = new Cache.Entry();
+
+        subject.put(OTHER_KEY, entry);
+
+        verify(mockDefaultCache).put(OTHER_KEY, entry);
+        verifyZeroInteractions(mockImageDiskCache);
+    }
+
+    @Test
+    public void initialize_shouldInitializeBothCaches() {
+        subject.initialize();
+
+        verify(mockImageDiskCache).initialize();
+        verify(mockDefaultCache).initialize();
+    }
+
+    @Test
+    public void clear_shouldClearBothCaches() {
+        subject.clear();
+
+        verify(mockImageDiskCache).clear();
+        verify(mockDefaultCache).clear();
+    }
+}
@@ -15,6 +15,10 @@ import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyString;
@@ -113,7 +117,7 @@ public class ImpressionEmitterTest {
             try {
                 thread.join();
             } catch (InterruptedException e) {
-                e.printStackTrace();
+                Thread.currentThread().interrupt();
             }
         }
     }
@@ -138,9 +142,215 @@ public class ImpressionEmitterTest {
         assertTrue(t2 - t1 < 100);
     }
 
+    @Test
+    public void send_withAsyncDelivery_shouldCallListenerOnBackgroundThread() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(1);
+        final String[] threadName = new String[1];
+        ImpressionsEmitter.addListener(new ImpressionListener() {
+            @Override
+            public void onImpression(@NonNull String adUnitId,
+                    @Nullable ImpressionData impressionData) {
+                threadName[0] = Thread.currentThread().getName();
+                latch.countDown();
+            }
+        });
+        ImpressionsEmitter.setAsyncDelivery(true, true);
+
+        ImpressionsEmitter.send(mAdUnitId, impression);
+
+        assertTrue(latch.await(1, TimeUnit.SECONDS));
+        assertEquals("MoPubImpressionsEmitter", threadName[0]);
+    }
+
+    @Test
+    public void send_withAsyncDelivery_withFullQueue_shouldDropAndCount() throws Exception {
+        final CountDownLatch releaseLatch = new CountDownLatch(1);
+        try {
+            fillImpressionQueue(releaseLatch, true);
+            ImpressionsEmitter.addListener(listener1);
+
+            ImpressionsEmitter.send(mAdUnitId, impression);
+
+            verify(listener1, never()).onImpression(anyString(), any(ImpressionData.class));
+            assertEquals(1, ImpressionsEmitter.getDroppedCount());
+            assertEquals(0, ImpressionsEmitter.getWaitedCount());
+        } finally {
+            releaseLatch.countDown();
+        }
+    }
+
+    @Test
+    public void send_withAsyncDelivery_withFullQueue_withoutDrop_shouldWaitForRoomAndKeepOrder()
+            throws Exception {
+        final CountDownLatch releaseLatch = new CountDownLatch(1);
+        try {
+            fillImpressionQueue(releaseLatch, false);
+            final CountDownLatch deliveredLatch = new CountDownLatch(1);
+            final String[] threadName = new String[1];
+            final int[] earlierImpressions = new int[1];
+            ImpressionsEmitter.addListener(new ImpressionListener() {
+                @Override
+                public void onImpression(@NonNull String adUnitId,
+                        @Nullable ImpressionData impressionData) {
+                    if (impressionData == null) {
+                        earlierImpressions[0]++;
+                        return;
+                    }
+                    threadName[0] = Thread.currentThread().getName();
+                    deliveredLatch.countDown();
+                }
+            });
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        Thread.sleep(100);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    releaseLatch.countDown();
+                }
+            }).start();
+
+            // The main thread never waits for room.
+            sendInBackground(mAdUnitId, impression);
+
+            assertTrue(deliveredLatch.await(1, TimeUnit.SECONDS));
+            assertEquals("MoPubImpressionsEmitter", threadName[0]);
+            // Delivered after every impression that was queued before it.
+            assertEquals(ImpressionsEmitter.MAX_QUEUED_IMPRESSIONS, earlierImpressions[0]);
+            assertEquals(0, ImpressionsEmitter.getDroppedCount());
+            assertEquals(1, ImpressionsEmitter.getWaitedCount());
+        } finally {
+            releaseLatch.countDown();
+        }
+    }
+
+    @Test
+    public void send_withAsyncDelivery_withFullQueue_withoutDrop_whenNoRoomInTime_shouldDrop()
+            throws Exception {
+        final CountDownLatch releaseLatch = new CountDownLatch(1);
+        try {
+            fillImpressionQueue(releaseLatch, false);
+            ImpressionsEmitter.addListener(listener1);
+
+            final long startMillis = System.currentTimeMillis();
+            sendInBackground(mAdUnitId, impression).join();
+
+            assertTrue(System.currentTimeMillis() - startMillis
+                    >= ImpressionsEmitter.MAX_QUEUE_WAIT_MILLIS);
+            assertEquals(1, ImpressionsEmitter.getDroppedCount());
+            assertEquals(0, ImpressionsEmitter.getWaitedCount());
+        } finally {
+            releaseLatch.countDown();
+        }
+        verify(listener1, never()).onImpression(mAdUnitId, impression);
+    }
+
+    @Test
+    public void send_withAsyncDelivery_withFullQueue_withoutDrop_onMainThread_shouldDeliverDirectlyAndCount()
+            throws Exception {
+        final CountDownLatch releaseLatch = new CountDownLatch(1);
+        try {
+            fillImpressionQueue(releaseLatch, false);
+            ImpressionsEmitter.addListener(listener1);
+
+            final long startMillis = System.currentTimeMillis();
+            ImpressionsEmitter.send(mAdUnitId, impression);
+
+            assertTrue(System.currentTimeMillis() - startMillis
+                    < ImpressionsEmitter.MAX_QUEUE_WAIT_MILLIS);
+            verify(listener1).onImpression(mAdUnitId, impression);
+            assertEquals(1, ImpressionsEmitter.getDeliveredDirectlyCount());
+            assertEquals(0, ImpressionsEmitter.getDroppedCount());
+            assertEquals(0, ImpressionsEmitter.getWaitedCount());
+        } finally {
+            releaseLatch.countDown();
+        }
+    }
+
+    @Test
+    public void setAsyncDelivery_withFalse_shouldFinishQueuedImpressions_shouldDeliverNewOnesOnCallerThread()
+            throws Exception {
+        final CountDownLatch releaseLatch = new CountDownLatch(1);
+        final CountDownLatch deliveredLatch = new CountDownLatch(1);
+        final String[] threadNames = new String[2];
+        ImpressionsEmitter.addListener(new ImpressionListener() {
+            @Override
+            public void onImpression(@NonNull String adUnitId,
+                    @Nullable ImpressionData impressionData) {
+                if (impressionData == null) {
+                    threadNames[0] = Thread.currentThread().getName();
+                    try {
+                        releaseLatch.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    deliveredLatch.countDown();
+                } else {
+                    threadNames[1] = Thread.currentThread().getName();
+                }
+            }
+        });
+        ImpressionsEmitter.setAsyncDelivery(true, true);
+        ImpressionsEmitter.send(mAdUnitId, null);
+
+        ImpressionsEmitter.setAsyncDelivery(false, true);
+        ImpressionsEmitter.send(mAdUnitId, impression);
+        releaseLatch.countDown();
+
+        assertTrue(deliveredLatch.await(1, TimeUnit.SECONDS));
+        assertEquals("MoPubImpressionsEmitter", threadNames[0]);
+        assertEquals(Thread.currentThread().getName(), threadNames[1]);
+    }
+
     /*
     Unit test utility functions
      */
+
+    /**
+     * Holds up the emitter thread until {@code releaseLatch} is released and fills its queue.
+     * Impressions delivered on other threads aren't held up.
+     */
+    private void fillImpressionQueue(final CountDownLatch releaseLatch,
+            final boolean dropWhenQueueFull) throws InterruptedException {
+        final CountDownLatch startedLatch = new CountDownLatch(1);
+        ImpressionsEmitter.addListener(new ImpressionListener() {
+            @Override
+            public void onImpression(@NonNull String adUnitId,
+                    @Nullable ImpressionData impressionData) {
+                if (!Thread.currentThread().getName().equals("MoPubImpressionsEmitter")) {
+                    return;
+                }
+                startedLatch.countDown();
+                try {
+                    releaseLatch.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        ImpressionsEmitter.setAsyncDelivery(true, dropWhenQueueFull);
+
+        ImpressionsEmitter.send(mAdUnitId, null);
+        assertTrue(startedLatch.await(1, TimeUnit.SECONDS));
+        for (int i = 0; i < ImpressionsEmitter.MAX_QUEUED_IMPRESSIONS; i++) {
+            ImpressionsEmitter.send(mAdUnitId, null);
+        }
+    }
+
+    private static Thread sendInBackground(final String adUnitId,
+            final ImpressionData impressionData) {
+        final Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                ImpressionsEmitter.send(adUnitId, impressionData);
+            }
+        });
+        thread.start();
+        return thread;
+    }
+
     private Thread createTestThread() {
 
         return new Thread(new Runnable() {
@@ -171,7 +381,7 @@ public class ImpressionEmitterTest {
                 try {
                     Thread.sleep(1000);
                 } catch (InterruptedException e) {
-                    e.printStackTrace();
+                    Thread.currentThread().interrupt();
                 }
             }
         };
@@ -0,0 +1,91 @@
+// Copyright 2018-2020 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.network;
+
+import android.app.Activity;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Point;
+import android.view.WindowManager;
+import android.widget.ImageView.ScaleType;
+
+import com.mopub.common.test.support.SdkTestRunner;
+import com.mopub.volley.RequestQueue;
+import com.mopub.volley.toolbox.ImageLoader.ImageListener;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.robolectric.Robolectric;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+@RunWith(SdkTestRunner.class)
+public class MaxWidthImageLoaderTest {
+    private static final String URL = "http://example.com/image.png";
+
+    @Mock
+    private RequestQueue mockRequestQueue;
+    @Mock
+    private ImageListener mockImageListener;
+
+    private BitmapPool bitmapPool;
+    private ImageMemoryCache imageMemoryCache;
+    private MaxWidthImageLoader subject;
+    private int maxImageWidth;
+
+    @Before
+    public void setUp() {
+        final Activity activity = Robolectric.buildActivity(Activity.class).create().get();
+        final Point size = new Point();
+        ((WindowManager) activity.getSystemService(Context.WINDOW_SERVICE))
+                .getDefaultDisplay().getSize(size);
+        maxImageWidth = Math.min(size.x, size.y);
+
+        bitmapPool = new BitmapPool(4 * 1024 * 1024);
+        imageMemoryCache = new ImageMemoryCache(8 * 1024 * 1024, bitmapPool);
+        subject = new MaxWidthImageLoader(mockRequestQueue, activity, imageMemoryCache,
+                bitmapPool);
+    }
+
+    @Test
+    public void get_withSmallerSize_whenFullWidthBitmapIsBoundToViews_shouldNotPoolItUntilReleased() {
+        final Bitmap fullWidth = Bitmap.createBitmap(maxImageWidth, maxImageWidth / 2,
+                Bitmap.Config.ARGB_8888);
+        imageMemoryCache.putBitmap(MaxWidthImageLoader.getCacheKey(URL, maxImageWidth, 0,
+                ScaleType.CENTER_INSIDE), fullWidth);
+        // Two image views show the full-width bitmap.
+        bitmapPool.acquire(fullWidth);
+        bitmapPool.acquire(fullWidth);
+
+        subject.get(URL, mockImageListener, maxImageWidth / 4, maxImageWidth / 4,
+                ScaleType.CENTER_INSIDE);
+
+        assertThat(imageMemoryCache.getBitmap(MaxWidthImageLoader.getCacheKey(URL,
+                maxImageWidth / 4, maxImageWidth / 4, ScaleType.CENTER_INSIDE))).isNotNull();
+        assertThat(bitmapPool.getPooledCount()).isEqualTo(0);
+        assertThat(bitmapPool.get(10, 10, Bitmap.Config.ARGB_8888)).isNull();
+
+        bitmapPool.release(fullWidth);
+        assertThat(bitmapPool.getPooledCount()).isEqualTo(0);
+
+        bitmapPool.release(fullWidth);
+        assertThat(bitmapPool.get(10, 10, Bitmap.Config.ARGB_8888)).isSameAs(fullWidth);
+    }
+
+    @Test
+    public void get_withSmallerSize_whenFullWidthBitmapIsUntracked_shouldNotPoolIt() {
+        final Bitmap fullWidth = Bitmap.createBitmap(maxImageWidth, maxImageWidth / 2,
+                Bitmap.Config.ARGB_8888);
+        imageMemoryCache.putBitmap(MaxWidthImageLoader.getCacheKey(URL, maxImageWidth, 0,
+                ScaleType.CENTER_INSIDE), fullWidth);
+
+        subject.get(URL, mockImageListener, maxImageWidth / 4, maxImageWidth / 4,
+                ScaleType.CENTER_INSIDE);
+
+        assertThat(bitmapPool.getPooledCount()).isEqualTo(0);
+    }
+}
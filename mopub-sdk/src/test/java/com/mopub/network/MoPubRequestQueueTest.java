@@ -4,11 +4,78 @@
 
 package com.mopub.network;
 
+import com.mopub.common.metrics.Metrics;
+import com.mopub.common.metrics.MetricsExporter;
+import com.mopub.common.test.support.SdkTestRunner;
 import com.mopub.volley.Cache;
 import com.mopub.volley.Network;
+import com.mopub.volley.Request;
 
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(SdkTestRunner.class)
 public class MoPubRequestQueueTest {
 
+    private Request<?> mockRequest;
+    private long cancelledCount;
+    private MoPubRequestQueue subject;
+
+    @Before
+    public void setUp() {
+        mockRequest = mock(Request.class);
+        Metrics.setExporter(mock(MetricsExporter.class), TimeUnit.HOURS.toMillis(1));
+        cancelledCount = MoPubRequestQueue.REQUESTS_CANCELLED_COUNTER.sum();
+
+        subject = new TestMoPubRequestQueue(mock(Cache.class), mock(Network.class));
+    }
+
+    @After
+    public void tearDown() {
+        Metrics.setExporter(null, 0);
+    }
+
+    @Test
+    public void cancel_shouldCountCancellation() {
+        subject.cancel(mockRequest);
+
+        assertThat(MoPubRequestQueue.REQUESTS_CANCELLED_COUNTER.sum() - cancelledCount)
+                .isEqualTo(1);
+    }
+
+    @Test
+    public void cancel_withCanceledRequest_shouldNotCountCancellation() {
+        when(mockRequest.isCanceled()).thenReturn(true);
+
+        subject.cancel(mockRequest);
+
+        assertThat(MoPubRequestQueue.REQUESTS_CANCELLED_COUNTER.sum()).isEqualTo(cancelledCount);
+    }
+
+    @Test
+    public void addDelayedRequest_withDelayedRequest_shouldReplaceIt_shouldNotCountCancellation() {
+        final MoPubRequestQueue.DelayedRequestHelper firstHelper =
+                mock(MoPubRequestQueue.DelayedRequestHelper.class);
+        final MoPubRequestQueue.DelayedRequestHelper secondHelper =
+                mock(MoPubRequestQueue.DelayedRequestHelper.class);
+        subject.addDelayedRequest(mockRequest, firstHelper);
+
+        subject.addDelayedRequest(mockRequest, secondHelper);
+
+        verify(firstHelper).cancel();
+        verify(secondHelper).start();
+        assertThat(MoPubRequestQueue.REQUESTS_CANCELLED_COUNTER.sum()).isEqualTo(cancelledCount);
+    }
+
     public static class TestMoPubRequestQueue extends MoPubRequestQueue {
 
         TestMoPubRequestQueue(Cache cache, Network network) {
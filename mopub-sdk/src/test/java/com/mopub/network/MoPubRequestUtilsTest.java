@@ -6,6 +6,8 @@ package com.mopub.network;
 
 import android.app.Activity;
 import android.content.Context;
+import android.net.Uri;
+import android.text.TextUtils;
 
 import com.mopub.common.Constants;
 import com.mopub.common.test.support.SdkTestRunner;
@@ -16,7 +18,9 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.robolectric.Robolectric;
 
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 import static org.fest.assertions.api.Assertions.assertThat;
@@ -24,6 +28,15 @@ import static org.fest.assertions.api.Assertions.assertThat;
 @RunWith(SdkTestRunner.class)
 public class MoPubRequestUtilsTest {
 
+    // Covers repeated keys, keys without values, plus signs, characters JSON escapes, and
+    // multi-byte UTF-8.
+    private static final String AD_URL = "https://ads.mopub.com/m/ad?v=6&nv=5.13.1&id=b195f8dd8ded45fe847ad89ed1d016da"
+            + "&bundle=com.mopub.simpleadsdemo&q=m_age%3A26%2Cgender%3Af&user_data=a+b%20c"
+            + "&assets=title&assets=text&assets=mainimage&empty&o=p&sc=2.625"
+            + "&abt=%7B%22network%22%3A%7B%22token%22%3A%22a%2Fb%5Cc%5C%22%5Cn%22%7D%7D"
+            + "&ct=%09tab%0Anewline&dn=Google%2CPixel%203%2Csargo&lang=fr%E2%80%94%C3%A9%F0%9F%98%80"
+            + "&udid=ifa%3A12345678-1234-1234-1234-123456789012&dnt=0#fragment";
+
     private Context context;
     private Map<String, String> params;
 
@@ -144,6 +157,112 @@ public class MoPubRequestUtilsTest {
         assertThat(result.length()).isEqualTo(90);
     }
 
+    @Test
+    public void generateBodyFromUrl_shouldMatchBodyFromQueryMapByteForByte() throws Exception {
+        final byte[] result = MoPubRequestUtils.generateBodyFromUrl(context, AD_URL);
+
+        // The query map body has the same entries in hash order, so put them in query order.
+        final Map<String, String> queryMap = MoPubRequestUtils.convertQueryToMap(context, AD_URL);
+        final Map<String, String> orderedQueryMap = new LinkedHashMap<>();
+        for (final String name : Uri.parse(AD_URL).getQueryParameterNames()) {
+            orderedQueryMap.put(name, queryMap.get(name));
+        }
+        final byte[] expected = MoPubRequestUtils.generateBodyFromParams(orderedQueryMap, AD_URL)
+                .getBytes("UTF-8");
+
+        assertThat(Arrays.equals(result, expected)).isTrue();
+        assertThat(new String(result, "UTF-8")).contains("\"assets\":\"title,text,mainimage\"");
+        assertThat(new String(result, "UTF-8")).contains("\"user_data\":\"a+b c\"");
+        assertThat(new String(result, "UTF-8")).contains("\"empty\":\"\"");
+        assertThat(new String(result, "UTF-8")).contains("\"lang\":\"fr\u2014\u00e9\ud83d\ude00\"");
+    }
+
+    @Test
+    public void generateBodyFromUrl_withPlusAndRepeatedNames_shouldMatchUriQueryParameters()
+            throws Exception {
+        final String url = "https://ads.mopub.com/m/ad?a=1+1&b=x&a=2%2B2&c=3&a=+&b=y";
+        final Uri uri = Uri.parse(url);
+
+        final String result = new String(MoPubRequestUtils.generateBodyFromUrl(context, url),
+                "UTF-8");
+
+        assertThat(result).isEqualTo("{\"a\":\"" + TextUtils.join(",", uri.getQueryParameters("a"))
+                + "\",\"b\":\"" + TextUtils.join(",", uri.getQueryParameters("b"))
+                + "\",\"c\":\"" + TextUtils.join(",", uri.getQueryParameters("c")) + "\"}");
+        assertThat(result).isEqualTo("{\"a\":\"1+1,2+2,+\",\"b\":\"x,y\",\"c\":\"3\"}");
+    }
+
+    @Test
+    public void generateBodyFromUrl_withEmptySegments_shouldSkipThem() throws Exception {
+        final String result = new String(MoPubRequestUtils.generateBodyFromUrl(context,
+                "https://ads.mopub.com/m/ad?&a=1&&b=&&c=3&"), "UTF-8");
+
+        assertThat(result).isEqualTo("{\"a\":\"1\",\"b\":\"\",\"c\":\"3\"}");
+    }
+
+    @Test
+    public void generateBodyFromUrl_withOnlyEmptySegments_shouldReturnNull() {
+        assertThat(MoPubRequestUtils.generateBodyFromUrl(context, "https://ads.mopub.com/m/ad?&&"))
+                .isNull();
+    }
+
+    @Test
+    public void generateBodyFromUrl_withPercentEncodedUtf8_shouldMatchUriQueryParameters()
+            throws Exception {
+        final String url = "https://ads.mopub.com/m/ad?caf%C3%A9=cr%C3%A8me%20br%C3%BBl%C3%A9e"
+                + "&emoji=%F0%9F%98%80&mixed=%E2%80%94%41%22";
+        final Uri uri = Uri.parse(url);
+
+        final String result = new String(MoPubRequestUtils.generateBodyFromUrl(context, url),
+                "UTF-8");
+
+        assertThat(result).isEqualTo("{\"caf\u00e9\":\"" + uri.getQueryParameter("caf\u00e9")
+                + "\",\"emoji\":\"" + uri.getQueryParameter("emoji")
+                + "\",\"mixed\":\"\u2014A\\\"\"}");
+        assertThat(result).contains("\"caf\u00e9\":\"cr\u00e8me br\u00fbl\u00e9e\"");
+        assertThat(result).contains("\"emoji\":\"\ud83d\ude00\"");
+    }
+
+    @Test
+    public void generateBodyFromUrl_withMalformedUtf8_shouldUseReplacementCharacter()
+            throws Exception {
+        final String url = "https://ads.mopub.com/m/ad?query1=a%FFb&query2=%C3";
+        final Uri uri = Uri.parse(url);
+
+        final byte[] result = MoPubRequestUtils.generateBodyFromUrl(context, url);
+
+        assertThat(new String(result, "UTF-8"))
+                .isEqualTo("{\"query1\":\"a\ufffdb\",\"query2\":\"\ufffd\"}");
+        assertThat(uri.getQueryParameter("query1")).isEqualTo("a\ufffdb");
+        assertThat(uri.getQueryParameter("query2")).isEqualTo("\ufffd");
+    }
+
+    @Test
+    public void generateBodyFromUrl_withNoQueryParams_shouldReturnNull() {
+        assertThat(MoPubRequestUtils.generateBodyFromUrl(context, "https://ads.mopub.com/m/ad"))
+                .isNull();
+        assertThat(MoPubRequestUtils.generateBodyFromUrl(context, "https://ads.mopub.com/m/ad?"))
+                .isNull();
+        assertThat(MoPubRequestUtils.generateBodyFromUrl(context,
+                "https://ads.mopub.com/m/ad#fragment?query1=abc")).isNull();
+    }
+
+    @Test
+    public void generateBodyFromUrl_withNotMoPubUrl_shouldReturnNull() {
+        assertThat(MoPubRequestUtils.generateBodyFromUrl(context,
+                "https://not.mopub.com/m/ad?query1=abc")).isNull();
+    }
+
+    @Test
+    public void generateBodyFromUrl_withMalformedEscape_shouldUseReplacementCharacter()
+            throws Exception {
+        final byte[] result = MoPubRequestUtils.generateBodyFromUrl(context,
+                "https://ads.mopub.com/m/ad?query1=a%zzb&query2=c%4");
+
+        assertThat(new String(result, "UTF-8"))
+                .isEqualTo("{\"query1\":\"a\ufffdzzb\",\"query2\":\"c\ufffd4\"}");
+    }
+
     @Test
     public void generateBodyFromParams_withParamsMap_withNotMoPubUrl_shouldReturnNull() {
         final String result = MoPubRequestUtils.generateBodyFromParams(params,
@@ -89,4 +89,19 @@ public class NetworkingTest {
 
         assertThat(userAgent).isEqualTo("some cached user agent");
     }
+
+    @Test
+    public void getImageLoader_shouldNotShareMemoryCacheOrBitmapPoolWithNativeImageLoader() {
+        final MaxWidthImageLoader imageLoader =
+                (MaxWidthImageLoader) Networking.getImageLoader(context);
+        final MaxWidthImageLoader nativeImageLoader =
+                (MaxWidthImageLoader) Networking.getNativeImageLoader(context);
+
+        assertThat(nativeImageLoader).isNotSameAs(imageLoader);
+        assertThat(imageLoader.getImageMemoryCache())
+                .isNotSameAs(nativeImageLoader.getImageMemoryCache());
+        assertThat(imageLoader.getBitmapPool()).isNull();
+        assertThat(Networking.getBitmapPool()).isSameAs(nativeImageLoader.getBitmapPool());
+        assertThat(Networking.getBitmapPool()).isNotNull();
+    }
 }
@@ -0,0 +1,109 @@
+// Copyright 2018-2020 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.network;
+
+import com.mopub.common.test.support.SdkTestRunner;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+@RunWith(SdkTestRunner.class)
+public class RequestBodyCompressorTest {
+    private RequestBodyCompressor subject;
+
+    @Before
+    public void setUp() {
+        subject = new RequestBodyCompressor();
+    }
+
+    @Test
+    public void compressIfEnabled_withCompressionDisabled_shouldReturnNull() {
+        assertThat(subject.isEnabled()).isFalse();
+        assertThat(subject.compressIfEnabled(createBody(4096))).isNull();
+        assertThat(subject.getCompressedBodyCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void compressIfEnabled_withBodyBelowMinSize_shouldReturnNull() {
+        subject.setEnabled(true);
+
+        assertThat(subject.compressIfEnabled(null)).isNull();
+        assertThat(subject.compressIfEnabled(
+                createBody(RequestBodyCompressor.DEFAULT_MIN_BODY_BYTES - 1))).isNull();
+        assertThat(subject.compressIfEnabled(
+                createBody(RequestBodyCompressor.DEFAULT_MIN_BODY_BYTES))).isNotNull();
+    }
+
+    @Test
+    public void compressIfEnabled_shouldGzipBodyAndCountBytes() throws Exception {
+        subject.setEnabled(true);
+        final byte[] body = createBody(4096);
+
+        final byte[] compressed = subject.compressIfEnabled(body);
+
+        assertThat(Arrays.equals(gunzip(compressed), body)).isTrue();
+        assertThat(compressed.length).isLessThan(body.length);
+        assertThat(subject.getCompressedBodyCount()).isEqualTo(1);
+        assertThat(subject.getRawBytes()).isEqualTo(4096);
+        assertThat(subject.getCompressedBytes()).isEqualTo(compressed.length);
+    }
+
+    @Test
+    public void compress_withReusedBuffers_shouldNotMixUpBodies() throws Exception {
+        // Large enough to drop the buffers, then smaller ones that reuse them.
+        final int[] sizes = {100 * 1024, 5000, 1, 20000, 0, 3000};
+        for (final int size : sizes) {
+            final byte[] body = createBody(size);
+
+            assertThat(Arrays.equals(gunzip(subject.compress(body)), body)).isTrue();
+        }
+    }
+
+    @Test
+    public void compress_withRandomBytes_shouldRoundTrip() throws Exception {
+        final byte[] body = new byte[10000];
+        new Random(0).nextBytes(body);
+
+        assertThat(Arrays.equals(gunzip(subject.compress(body)), body)).isTrue();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setMinBodyBytes_withNegativeSize_shouldThrowIllegalArgumentException() {
+        subject.setMinBodyBytes(-1);
+    }
+
+    private static byte[] createBody(final int size) {
+        final StringBuilder builder = new StringBuilder("{");
+        int i = 0;
+        while (builder.length() < size) {
+            builder.append("\"key").append(i).append("\":\"value").append(i % 10).append("\",");
+            i++;
+        }
+        return Arrays.copyOf(builder.toString().getBytes(), size);
+    }
+
+    static byte[] gunzip(final byte[] compressed) throws IOException {
+        final GZIPInputStream inputStream =
+                new GZIPInputStream(new ByteArrayInputStream(compressed));
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[1024];
+        int length;
+        while ((length = inputStream.read(buffer)) != -1) {
+            outputStream.write(buffer, 0, length);
+        }
+        inputStream.close();
+        return outputStream.toByteArray();
+    }
+}
@@ -0,0 +1,161 @@
+// Copyright 2018-2020 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.network;
+
+import android.app.Activity;
+
+import com.mopub.common.test.support.SdkTestRunner;
+import com.mopub.volley.NetworkResponse;
+import com.mopub.volley.Response;
+import com.mopub.volley.toolbox.HttpResponse;
+import com.mopub.volley.toolbox.HurlStack;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+/**
+ * Sends requests through {@link RequestQueueHttpStack} to a local stub server that decompresses
+ * gzipped bodies the way the ad server does.
+ */
+@RunWith(SdkTestRunner.class)
+public class RequestQueueHttpStackTest {
+    private static final String AD_SERVER_URL = "https://ads.mopub.com";
+
+    private Activity activity;
+    private HttpServer server;
+    private String serverUrl;
+    private RequestQueueHttpStack subject;
+
+    private volatile String receivedContentEncoding;
+    private volatile byte[] receivedBody;
+
+    @Before
+    public void setUp() throws Exception {
+        activity = Robolectric.buildActivity(Activity.class).create().get();
+
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(final HttpExchange exchange) throws IOException {
+                receivedContentEncoding =
+                        exchange.getRequestHeaders().getFirst("Content-Encoding");
+                final byte[] body = readFully(exchange.getRequestBody());
+                receivedBody = RequestBodyCompressor.GZIP.equals(receivedContentEncoding)
+                        ? RequestBodyCompressorTest.gunzip(body)
+                        : body;
+
+                final byte[] response = "{}".getBytes();
+                exchange.sendResponseHeaders(200, response.length);
+                exchange.getResponseBody().write(response);
+                exchange.close();
+            }
+        });
+        server.start();
+        serverUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+
+        // Send ad server requests to the stub server instead.
+        subject = new RequestQueueHttpStack("test-user-agent", new HurlStack.UrlRewriter() {
+            @Override
+            public String rewriteUrl(final String originalUrl) {
+                return originalUrl.replace(AD_SERVER_URL, serverUrl);
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+        Networking.getRequestBodyCompressor().setEnabled(false);
+        Networking.getRequestBodyCompressor()
+                .setMinBodyBytes(RequestBodyCompressor.DEFAULT_MIN_BODY_BYTES);
+    }
+
+    @Test
+    public void executeRequest_withCompressionEnabled_shouldSendGzippedBody() throws Exception {
+        final RequestBodyCompressor compressor = Networking.getRequestBodyCompressor();
+        compressor.setEnabled(true);
+        compressor.setMinBodyBytes(0);
+        final long compressedBodyCount = compressor.getCompressedBodyCount();
+        final TestRequest request = new TestRequest(createAdUrl());
+
+        final HttpResponse response = subject.executeRequest(request,
+                Collections.<String, String>emptyMap());
+
+        assertThat(response.getStatusCode()).isEqualTo(200);
+        assertThat(receivedContentEncoding).isEqualTo(RequestBodyCompressor.GZIP);
+        assertThat(Arrays.equals(receivedBody, request.getUncompressedBody())).isTrue();
+        assertThat(compressor.getCompressedBodyCount()).isEqualTo(compressedBodyCount + 1);
+    }
+
+    @Test
+    public void executeRequest_withBodyBelowMinSize_shouldSendUncompressedBody() throws Exception {
+        Networking.getRequestBodyCompressor().setEnabled(true);
+        final TestRequest request = new TestRequest(AD_SERVER_URL + "/m/ad?id=adunit");
+
+        subject.executeRequest(request, Collections.<String, String>emptyMap());
+
+        assertThat(receivedContentEncoding).isNull();
+        assertThat(new String(receivedBody, "UTF-8")).isEqualTo("{\"id\":\"adunit\"}");
+    }
+
+    @Test
+    public void executeRequest_withCompressionDisabled_shouldSendUncompressedBody()
+            throws Exception {
+        final TestRequest request = new TestRequest(createAdUrl());
+
+        subject.executeRequest(request, Collections.<String, String>emptyMap());
+
+        assertThat(receivedContentEncoding).isNull();
+        assertThat(Arrays.equals(receivedBody, request.getUncompressedBody())).isTrue();
+    }
+
+    private static String createAdUrl() {
+        final StringBuilder url = new StringBuilder(AD_SERVER_URL).append("/m/ad?id=adunit");
+        for (int i = 0; i < 100; i++) {
+            url.append("&key").append(i).append("=value%20").append(i);
+        }
+        return url.toString();
+    }
+
+    private static byte[] readFully(final InputStream inputStream) throws IOException {
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[1024];
+        int length;
+        while ((length = inputStream.read(buffer)) != -1) {
+            outputStream.write(buffer, 0, length);
+        }
+        return outputStream.toByteArray();
+    }
+
+    private class TestRequest extends MoPubRequest<String> {
+        TestRequest(final String url) {
+            super(activity, url, null);
+        }
+
+        @Override
+        protected Response<String> parseNetworkResponse(final NetworkResponse response) {
+            return Response.success(parseStringBody(response), null);
+        }
+
+        @Override
+        protected void deliverResponse(final String response) {
+        }
+    }
+}
@@ -15,7 +15,9 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.robolectric.Robolectric;
 
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.fest.assertions.api.Assertions.assertThat;
 import static org.junit.Assert.assertNotNull;
@@ -30,11 +32,14 @@ public class RequestRateTrackerTest {
     private static final String REASON = "backoff_reason";
     private static final String REASON2 = "reason2";
     private static final String NO_BACKOFF = "no_backoff";
+    private static final int CONTENTION_THREADS = 8;
+    private static final int CONTENTION_CALLS_PER_THREAD = 1000;
 
     private RequestRateTracker subject;
 
     @Before
     public void setup() {
+        clearRequestRateTracker();
         subject = RequestRateTracker.getInstance();
     }
 
@@ -203,6 +208,145 @@ public class RequestRateTrackerTest {
         assertThat(subject.isBlockedByRateLimit(AD_UNIT_1)).isFalse();
     }
 
+    @Test
+    public void registerRateLimit_afterSweepInterval_shouldRemoveLongExpiredRecordsOnly() {
+        subject.registerRateLimit(AD_UNIT_1, BACKOFF_TIME, REASON);
+        Robolectric.getForegroundThreadScheduler().advanceBy(
+                RequestRateTracker.EXPIRED_RECORD_RETENTION_MS + BACKOFF_TIME + 1,
+                TimeUnit.MILLISECONDS);
+
+        subject.registerRateLimit(AD_UNIT_2, BACKOFF_TIME, REASON2);
+
+        assertNull(subject.getRecordForAdUnit(AD_UNIT_1));
+        assertNotNull(subject.getRecordForAdUnit(AD_UNIT_2));
+        assertThat(subject.getRecordCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void registerRateLimit_beforeRetentionEnds_shouldKeepExpiredRecord() {
+        subject.registerRateLimit(AD_UNIT_1, BACKOFF_TIME, REASON);
+        Robolectric.getForegroundThreadScheduler().advanceBy(
+                RequestRateTracker.SWEEP_INTERVAL_MS, TimeUnit.MILLISECONDS);
+
+        subject.registerRateLimit(AD_UNIT_2, BACKOFF_TIME, REASON2);
+
+        // The next request still tells the ad server about the backoff.
+        assertThat(subject.isBlockedByRateLimit(AD_UNIT_1)).isFalse();
+        assertNotNull(subject.getRecordForAdUnit(AD_UNIT_1));
+    }
+
+    @Test
+    public void tryAcquireRequest_afterSweepInterval_shouldRemoveLongExpiredRecords() {
+        subject.registerRateLimit(AD_UNIT_1, BACKOFF_TIME, REASON);
+        Robolectric.getForegroundThreadScheduler().advanceBy(
+                RequestRateTracker.EXPIRED_RECORD_RETENTION_MS + BACKOFF_TIME + 1,
+                TimeUnit.MILLISECONDS);
+
+        assertThat(subject.tryAcquireRequest(AD_UNIT_2)).isTrue();
+
+        assertNull(subject.getRecordForAdUnit(AD_UNIT_1));
+        assertThat(subject.getRecordCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void tryAcquireRequest_withinSweepIntervalOfLastSweep_shouldNotSweepAgain() {
+        subject.registerRateLimit(AD_UNIT_1, BACKOFF_TIME, REASON);
+        Robolectric.getForegroundThreadScheduler().advanceBy(
+                RequestRateTracker.EXPIRED_RECORD_RETENTION_MS, TimeUnit.MILLISECONDS);
+        // Sweeps while the backoff is still retained.
+        subject.tryAcquireRequest(AD_UNIT_2);
+        Robolectric.getForegroundThreadScheduler().advanceBy(BACKOFF_TIME + 1,
+                TimeUnit.MILLISECONDS);
+
+        subject.tryAcquireRequest(AD_UNIT_2);
+
+        assertNotNull(subject.getRecordForAdUnit(AD_UNIT_1));
+
+        Robolectric.getForegroundThreadScheduler().advanceBy(
+                RequestRateTracker.SWEEP_INTERVAL_MS, TimeUnit.MILLISECONDS);
+
+        subject.tryAcquireRequest(AD_UNIT_2);
+
+        assertNull(subject.getRecordForAdUnit(AD_UNIT_1));
+    }
+
+    @Test
+    public void tryAcquireRequest_withRequestRateLimit_shouldAllowBurstThenRefillEvenly() {
+        subject.setRequestRateLimit(AD_UNIT_1, new RequestRateTracker.RequestRateLimit(3, 3000));
+
+        assertThat(subject.tryAcquireRequest(AD_UNIT_1)).isTrue();
+        assertThat(subject.tryAcquireRequest(AD_UNIT_1)).isTrue();
+        assertThat(subject.tryAcquireRequest(AD_UNIT_1)).isTrue();
+        assertThat(subject.isBlockedByRateLimit(AD_UNIT_1)).isTrue();
+        assertThat(subject.tryAcquireRequest(AD_UNIT_1)).isFalse();
+        // Other ad units aren't limited.
+        assertThat(subject.tryAcquireRequest(AD_UNIT_2)).isTrue();
+
+        Robolectric.getForegroundThreadScheduler().advanceBy(1000, TimeUnit.MILLISECONDS);
+
+        assertThat(subject.isBlockedByRateLimit(AD_UNIT_1)).isFalse();
+        assertThat(subject.tryAcquireRequest(AD_UNIT_1)).isTrue();
+        assertThat(subject.tryAcquireRequest(AD_UNIT_1)).isFalse();
+    }
+
+    @Test
+    public void tryAcquireRequest_whileBackingOff_shouldNotUseToken() {
+        subject.setRequestRateLimit(AD_UNIT_1, new RequestRateTracker.RequestRateLimit(1, 60000));
+        subject.registerRateLimit(AD_UNIT_1, BACKOFF_TIME, REASON);
+
+        assertThat(subject.tryAcquireRequest(AD_UNIT_1)).isFalse();
+
+        Robolectric.getForegroundThreadScheduler().advanceBy(BACKOFF_TIME * 2, TimeUnit.MILLISECONDS);
+
+        assertThat(subject.tryAcquireRequest(AD_UNIT_1)).isTrue();
+    }
+
+    @Test
+    public void setRequestRateLimit_withNull_shouldRemoveLimit() {
+        subject.setRequestRateLimit(AD_UNIT_1, new RequestRateTracker.RequestRateLimit(1, 60000));
+        subject.tryAcquireRequest(AD_UNIT_1);
+
+        subject.setRequestRateLimit(AD_UNIT_1, null);
+
+        assertThat(subject.tryAcquireRequest(AD_UNIT_1)).isTrue();
+    }
+
+    @Test
+    public void tryAcquireRequest_fromManyThreads_shouldNotHandOutMoreThanBurst()
+            throws Exception {
+        final int maxRequests = 1000;
+        subject.setRequestRateLimit(AD_UNIT_1,
+                new RequestRateTracker.RequestRateLimit(maxRequests, Long.MAX_VALUE / 2));
+
+        final AtomicInteger acquired = new AtomicInteger();
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        final Thread[] threads = new Thread[CONTENTION_THREADS];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        startLatch.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int j = 0; j < CONTENTION_CALLS_PER_THREAD; j++) {
+                        if (subject.tryAcquireRequest(AD_UNIT_1)) {
+                            acquired.incrementAndGet();
+                        }
+                    }
+                }
+            });
+            threads[i].start();
+        }
+        startLatch.countDown();
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+
+        assertThat(acquired.get()).isEqualTo(maxRequests);
+    }
+
     /**
      * Utility functions
      */
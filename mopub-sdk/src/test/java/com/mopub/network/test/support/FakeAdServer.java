@@ -0,0 +1,492 @@
+// Copyright 2018-2020 Twitter, Inc.
+// Licensed under the MoPub SDK License Agreement
+// http://www.mopub.com/legal/sdk-license-agreement/
+
+package com.mopub.network.test.support;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.mopub.common.Preconditions;
+import com.mopub.common.util.ResponseHeader;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An ad server on localhost that answers ad requests with the MultiAdResponse JSON schema, for
+ * tests that need the network stack to talk to a real server.
+ *
+ * Each ad unit has a waterfall of pages. Every page but the last links to the next one with its
+ * fail URL, so {@link com.mopub.network.AdLoader} walks them in order. Ad units without a
+ * waterfall get a clear response. The server can also add backoff to ad responses, delay and fail
+ * ad and tracker requests, and serve chains of VAST wrappers.
+ */
+public class FakeAdServer {
+    public static final String AD_PATH = "/m/ad";
+    public static final String TRACKER_PATH = "/track/";
+    public static final String VAST_PATH = "/vast/";
+    public static final String MEDIA_PATH = "/media/";
+
+    private static final String AD_UNIT_ID_PARAM = "id";
+    private static final String PAGE_PARAM = "page";
+    private static final int HTTP_OK = 200;
+    private static final int HTTP_SERVER_ERROR = 500;
+    private static final int REFRESH_TIME_SECONDS = 30;
+
+    /**
+     * How long the server waits before answering a request.
+     */
+    public abstract static class Latency {
+        public static final Latency NONE = fixed(0);
+
+        public abstract long nextMillis(@NonNull Random random);
+
+        @NonNull
+        public static Latency fixed(final long millis) {
+            Preconditions.checkArgument(millis >= 0);
+
+            return new Latency() {
+                @Override
+                public long nextMillis(@NonNull final Random random) {
+                    return millis;
+                }
+            };
+        }
+
+        @NonNull
+        public static Latency uniform(final long minMillis, final long maxMillis) {
+            Preconditions.checkArgument(minMillis >= 0 && maxMillis >= minMillis);
+
+            return new Latency() {
+                @Override
+                public long nextMillis(@NonNull final Random random) {
+                    return minMillis + (long) (random.nextDouble() * (maxMillis - minMillis));
+                }
+            };
+        }
+
+        /**
+         * A long tail like real ad servers have: most requests take about the median, and a few
+         * take many times longer.
+         *
+         * @param sigma The standard deviation of the log of the latency. 0.5 puts the 99th
+         *              percentile at about 3 times the median.
+         */
+        @NonNull
+        public static Latency logNormal(final long medianMillis, final double sigma) {
+            Preconditions.checkArgument(medianMillis > 0 && sigma >= 0);
+
+            return new Latency() {
+                @Override
+                public long nextMillis(@NonNull final Random random) {
+                    return (long) (medianMillis * Math.exp(sigma * random.nextGaussian()));
+                }
+            };
+        }
+    }
+
+    @NonNull private final HttpServer mHttpServer;
+    @NonNull private final ExecutorService mExecutor;
+    @NonNull private final String mBaseUrl;
+    @NonNull private final Random mRandom = new Random(0);
+
+    @NonNull private final Map<String, List<List<JSONObject>>> mWaterfalls =
+            new ConcurrentHashMap<>();
+    @NonNull private final Map<String, Integer> mBackoffMillis = new ConcurrentHashMap<>();
+    @NonNull private final Map<String, String> mBackoffReasons = new ConcurrentHashMap<>();
+
+    @NonNull private volatile Latency mAdLatency = Latency.NONE;
+    @NonNull private volatile Latency mTrackerLatency = Latency.NONE;
+    private volatile double mAdFailureRate;
+    private volatile double mTrackerFailureRate;
+
+    @NonNull private final AtomicInteger mAdRequestCount = new AtomicInteger();
+    @NonNull private final AtomicInteger mTrackerRequestCount = new AtomicInteger();
+    @NonNull private final AtomicInteger mVastRequestCount = new AtomicInteger();
+    @NonNull private final AtomicInteger mFailedRequestCount = new AtomicInteger();
+
+    private FakeAdServer(@NonNull final HttpServer httpServer,
+            @NonNull final ExecutorService executor) {
+        mHttpServer = httpServer;
+        mExecutor = executor;
+        mBaseUrl = "http://127.0.0.1:" + httpServer.getAddress().getPort();
+    }
+
+    /**
+     * Starts a server on a free port of the loopback interface.
+     */
+    @NonNull
+    public static FakeAdServer start() throws IOException {
+        final HttpServer httpServer = HttpServer.create(
+                new InetSocketAddress(InetAddress.getByName("127.0.0.1"), 0), 0);
+        // Requests sleep for their latency, so each one gets a thread.
+        final ExecutorService executor = Executors.newCachedThreadPool(new ThreadFactory() {
+            @Override
+            public Thread newThread(@NonNull final Runnable runnable) {
+                final Thread thread = new Thread(runnable, "FakeAdServer");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        httpServer.setExecutor(executor);
+
+        final FakeAdServer server = new FakeAdServer(httpServer, executor);
+        httpServer.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(final HttpExchange exchange) throws IOException {
+                server.handle(exchange);
+            }
+        });
+        httpServer.start();
+        return server;
+    }
+
+    public void stop() {
+        mHttpServer.stop(0);
+        mExecutor.shutdownNow();
+    }
+
+    @NonNull
+    public String getBaseUrl() {
+        return mBaseUrl;
+    }
+
+    /**
+     * @return The URL that requests the first page of the ad unit's waterfall.
+     */
+    @NonNull
+    public String getAdUrl(@NonNull final String adUnitId) {
+        Preconditions.checkNotNull(adUnitId);
+
+        return getAdUrl(adUnitId, 0);
+    }
+
+    @NonNull
+    public String getTrackerUrl(@NonNull final String name) {
+        Preconditions.checkNotNull(name);
+
+        return mBaseUrl + TRACKER_PATH + name;
+    }
+
+    /**
+     * @return The URL of a VAST document that wraps {@code wrapperDepth} more documents before
+     * the inline one.
+     */
+    @NonNull
+    public String getVastUrl(final int wrapperDepth) {
+        Preconditions.checkArgument(wrapperDepth >= 0);
+
+        return mBaseUrl + VAST_PATH + wrapperDepth;
+    }
+
+    /**
+     * Adds a page to the end of the ad unit's waterfall.
+     *
+     * @param lineItems The ad responses of the page, such as {@link #htmlLineItem}.
+     */
+    public void addWaterfallPage(@NonNull final String adUnitId,
+            @NonNull final JSONObject... lineItems) {
+        Preconditions.checkNotNull(adUnitId);
+        Preconditions.checkNotNull(lineItems);
+
+        List<List<JSONObject>> pages = mWaterfalls.get(adUnitId);
+        if (pages == null) {
+            pages = Collections.synchronizedList(new ArrayList<List<JSONObject>>());
+            mWaterfalls.put(adUnitId, pages);
+        }
+        pages.add(Arrays.asList(lineItems));
+    }
+
+    /**
+     * Sends backoff in every response for the ad unit, which RequestRateTracker then enforces.
+     */
+    public void setBackoff(@NonNull final String adUnitId, final int backoffMillis,
+            @Nullable final String reason) {
+        Preconditions.checkNotNull(adUnitId);
+
+        mBackoffMillis.put(adUnitId, backoffMillis);
+        if (reason != null) {
+            mBackoffReasons.put(adUnitId, reason);
+        }
+    }
+
+    public void setAdLatency(@NonNull final Latency latency) {
+        Preconditions.checkNotNull(latency);
+
+        mAdLatency = latency;
+    }
+
+    public void setTrackerLatency(@NonNull final Latency latency) {
+        Preconditions.checkNotNull(latency);
+
+        mTrackerLatency = latency;
+    }
+
+    /**
+     * @param failureRate The fraction of ad requests that get a server error.
+     */
+    public void setAdFailureRate(final double failureRate) {
+        Preconditions.checkArgument(failureRate >= 0 && failureRate <= 1);
+
+        mAdFailureRate = failureRate;
+    }
+
+    /**
+     * @param failureRate The fraction of tracker requests that get a server error.
+     */
+    public void setTrackerFailureRate(final double failureRate) {
+        Preconditions.checkArgument(failureRate >= 0 && failureRate <= 1);
+
+        mTrackerFailureRate = failureRate;
+    }
+
+    public int getAdRequestCount() {
+        return mAdRequestCount.get();
+    }
+
+    public int getTrackerRequestCount() {
+        return mTrackerRequestCount.get();
+    }
+
+    public int getVastRequestCount() {
+        return mVastRequestCount.get();
+    }
+
+    /**
+     * @return How many requests got a server error because of a failure rate.
+     */
+    public int getFailedRequestCount() {
+        return mFailedRequestCount.get();
+    }
+
+    /**
+     * @return A banner line item with HTML content and trackers on this server.
+     */
+    @NonNull
+    public JSONObject htmlLineItem(@NonNull final String creativeId) throws JSONException {
+        Preconditions.checkNotNull(creativeId);
+
+        final JSONObject metadata = trackedMetadata(creativeId);
+        metadata.put(ResponseHeader.AD_TYPE.getKey(), "html");
+        metadata.put(ResponseHeader.WIDTH.getKey(), 320);
+        metadata.put(ResponseHeader.HEIGHT.getKey(), 50);
+        return lineItem("<html><body><a href=\"" + getTrackerUrl("click") + "\">" + creativeId
+                + "</a></body></html>", metadata);
+    }
+
+    /**
+     * @param wrapperDepth How many VAST wrappers come before the inline document. The wrappers
+     *                     after the first are served by {@link #getVastUrl(int)}.
+     * @return An interstitial VAST line item with trackers on this server.
+     */
+    @NonNull
+    public JSONObject vastLineItem(@NonNull final String creativeId, final int wrapperDepth)
+            throws JSONException {
+        Preconditions.checkNotNull(creativeId);
+        Preconditions.checkArgument(wrapperDepth >= 0);
+
+        final JSONObject metadata = trackedMetadata(creativeId);
+        metadata.put(ResponseHeader.AD_TYPE.getKey(), "interstitial");
+        metadata.put(ResponseHeader.FULL_AD_TYPE.getKey(), "vast");
+        return lineItem(vastXml(wrapperDepth), metadata);
+    }
+
+    /**
+     * @return A line item that ends the waterfall without an ad.
+     */
+    @NonNull
+    public static JSONObject clearLineItem() throws JSONException {
+        final JSONObject metadata = new JSONObject();
+        metadata.put(ResponseHeader.AD_TYPE.getKey(), "clear");
+        metadata.put(ResponseHeader.REFRESH_TIME.getKey(), REFRESH_TIME_SECONDS);
+        return lineItem("", metadata);
+    }
+
+    @NonNull
+    private static JSONObject lineItem(@NonNull final String content,
+            @NonNull final JSONObject metadata) throws JSONException {
+        final JSONObject lineItem = new JSONObject();
+        lineItem.put(ResponseHeader.CONTENT.getKey(), content);
+        lineItem.put(ResponseHeader.METADATA.getKey(), metadata);
+        return lineItem;
+    }
+
+    @NonNull
+    private JSONObject trackedMetadata(@NonNull final String creativeId) throws JSONException {
+        final JSONObject metadata = new JSONObject();
+        metadata.put(ResponseHeader.CREATIVE_ID.getKey(), creativeId);
+        metadata.put(ResponseHeader.REFRESH_TIME.getKey(), REFRESH_TIME_SECONDS);
+        metadata.put(ResponseHeader.CLICK_TRACKING_URL.getKey(), getTrackerUrl("click"));
+        metadata.put(ResponseHeader.IMPRESSION_URLS.getKey(),
+                new JSONArray().put(getTrackerUrl("impression")));
+        metadata.put(ResponseHeader.BEFORE_LOAD_URL.getKey(), getTrackerUrl("before_load"));
+        metadata.put(ResponseHeader.AFTER_LOAD_URL.getKey(),
+                new JSONArray().put(getTrackerUrl("after_load")));
+        metadata.put(ResponseHeader.AFTER_LOAD_SUCCESS_URL.getKey(),
+                new JSONArray().put(getTrackerUrl("after_load_success")));
+        metadata.put(ResponseHeader.AFTER_LOAD_FAIL_URL.getKey(),
+                new JSONArray().put(getTrackerUrl("after_load_fail")));
+        return metadata;
+    }
+
+    @NonNull
+    private String vastXml(final int wrapperDepth) {
+        if (wrapperDepth > 0) {
+            return "<VAST version=\"3.0\"><Ad id=\"wrapper" + wrapperDepth + "\"><Wrapper>"
+                    + "<AdSystem>MoPub</AdSystem>"
+                    + "<VASTAdTagURI><![CDATA[" + getVastUrl(wrapperDepth - 1)
+                    + "]]></VASTAdTagURI>"
+                    + "<Impression><![CDATA[" + getTrackerUrl("vast_wrapper_impression")
+                    + "]]></Impression>"
+                    + "<Creatives></Creatives>"
+                    + "</Wrapper></Ad></VAST>";
+        }
+        return "<VAST version=\"3.0\"><Ad id=\"inline\"><InLine>"
+                + "<AdSystem>MoPub</AdSystem><AdTitle>FakeAdServer</AdTitle>"
+                + "<Error><![CDATA[" + getTrackerUrl("vast_error") + "]]></Error>"
+                + "<Impression><![CDATA[" + getTrackerUrl("vast_impression") + "]]></Impression>"
+                + "<Creatives><Creative><Linear>"
+                + "<Duration>00:00:15</Duration>"
+                + "<TrackingEvents>"
+                + "<Tracking event=\"start\"><![CDATA[" + getTrackerUrl("vast_start")
+                + "]]></Tracking>"
+                + "<Tracking event=\"complete\"><![CDATA[" + getTrackerUrl("vast_complete")
+                + "]]></Tracking>"
+                + "</TrackingEvents>"
+                + "<VideoClicks><ClickThrough><![CDATA[https://www.mopub.com]]></ClickThrough>"
+                + "</VideoClicks>"
+                + "<MediaFiles><MediaFile delivery=\"progressive\" type=\"video/mp4\""
+                + " width=\"640\" height=\"360\"><![CDATA[" + mBaseUrl + MEDIA_PATH
+                + "video.mp4]]></MediaFile></MediaFiles>"
+                + "</Linear></Creative></Creatives>"
+                + "</InLine></Ad></VAST>";
+    }
+
+    @NonNull
+    private String getAdUrl(@NonNull final String adUnitId, final int page) {
+        return mBaseUrl + AD_PATH + "?" + AD_UNIT_ID_PARAM + "=" + adUnitId + "&" + PAGE_PARAM
+                + "=" + page;
+    }
+
+    private void handle(@NonNull final HttpExchange exchange) throws IOException {
+        try {
+            final String path = exchange.getRequestURI().getPath();
+            if (path.equals(AD_PATH)) {
+                mAdRequestCount.incrementAndGet();
+                respond(exchange, mAdLatency, mAdFailureRate, "application/json",
+                        adResponse(parseQuery(exchange.getRequestURI().getRawQuery())));
+            } else if (path.startsWith(TRACKER_PATH)) {
+                mTrackerRequestCount.incrementAndGet();
+                respond(exchange, mTrackerLatency, mTrackerFailureRate, "text/plain", "");
+            } else if (path.startsWith(VAST_PATH)) {
+                mVastRequestCount.incrementAndGet();
+                final int wrapperDepth = Integer.parseInt(path.substring(VAST_PATH.length()));
+                respond(exchange, Latency.NONE, 0, "application/xml", vastXml(wrapperDepth));
+            } else if (path.startsWith(MEDIA_PATH)) {
+                respond(exchange, Latency.NONE, 0, "video/mp4", "");
+            } else {
+                exchange.sendResponseHeaders(404, -1);
+            }
+        } catch (Exception e) {
+            exchange.sendResponseHeaders(HTTP_SERVER_ERROR, -1);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void respond(@NonNull final HttpExchange exchange, @NonNull final Latency latency,
+            final double failureRate, @NonNull final String contentType,
+            @NonNull final String body) throws IOException, InterruptedException {
+        final long delayMillis = latency.nextMillis(mRandom);
+        if (delayMillis > 0) {
+            Thread.sleep(delayMillis);
+        }
+        if (failureRate > 0 && mRandom.nextDouble() < failureRate) {
+            mFailedRequestCount.incrementAndGet();
+            exchange.sendResponseHeaders(HTTP_SERVER_ERROR, -1);
+            return;
+        }
+
+        final byte[] bytes = body.getBytes("UTF-8");
+        exchange.getResponseHeaders().set("Content-Type", contentType + "; charset=UTF-8");
+        exchange.sendResponseHeaders(HTTP_OK, bytes.length == 0 ? -1 : bytes.length);
+        if (bytes.length > 0) {
+            final OutputStream outputStream = exchange.getResponseBody();
+            outputStream.write(bytes);
+            outputStream.close();
+        }
+    }
+
+    @NonNull
+    private String adResponse(@NonNull final Map<String, String> params) throws JSONException {
+        final String adUnitId = params.get(AD_UNIT_ID_PARAM);
+        final String pageParam = params.get(PAGE_PARAM);
+        final int page = pageParam == null ? 0 : Integer.parseInt(pageParam);
+        final List<List<JSONObject>> pages = adUnitId == null ? null : mWaterfalls.get(adUnitId);
+
+        final JSONObject response = new JSONObject();
+        final JSONArray adResponses = new JSONArray();
+        if (pages == null || page >= pages.size()) {
+            adResponses.put(clearLineItem());
+            response.put(ResponseHeader.FAIL_URL.getKey(), "");
+        } else {
+            for (final JSONObject lineItem : pages.get(page)) {
+                adResponses.put(lineItem);
+            }
+            response.put(ResponseHeader.FAIL_URL.getKey(),
+                    page + 1 < pages.size() ? getAdUrl(adUnitId, page + 1) : "");
+        }
+        response.put(ResponseHeader.AD_RESPONSES.getKey(), adResponses);
+        response.put(ResponseHeader.ADUNIT_FORMAT.getKey(), "banner");
+        response.put(ResponseHeader.REQUEST_ID.getKey(), "request" + mAdRequestCount.get());
+
+        if (adUnitId != null && mBackoffMillis.containsKey(adUnitId)) {
+            response.put(ResponseHeader.BACKOFF_MS.getKey(), mBackoffMillis.get(adUnitId));
+            final String reason = mBackoffReasons.get(adUnitId);
+            if (reason != null) {
+                response.put(ResponseHeader.BACKOFF_REASON.getKey(), reason);
+            }
+        }
+        return response.toString();
+    }
+
+    @NonNull
+    private static Map<String, String> parseQuery(@Nullable final String query)
+            throws IOException {
+        final Map<String, String> params = new HashMap<>();
+        if (query == null) {
+            return params;
+        }
+        for (final String pair : query.split("&")) {
+            final int separator = pair.indexOf('=');
+            if (separator > 0) {
+                params.put(URLDecoder.decode(pair.substring(0, separator), "UTF-8"),
+                        URLDecoder.decode(pair.substring(separator + 1), "UTF-8"));
+            }
+        }
+        return params;
+    }
+}